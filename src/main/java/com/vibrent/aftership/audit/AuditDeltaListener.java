@@ -0,0 +1,154 @@
+package com.vibrent.aftership.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.vibrent.aftership.dto.AuditDeltaDTO;
+import com.vibrent.aftership.util.JacksonUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Captures the changes of {@link Audited} entities as deltas of their changed columns when audit write-behind is
+ * enabled; a column that did not change, like an unchanged carrier response, is not copied. Hibernate hands the
+ * changes over after the transaction committed, a rolled back change is never audited.
+ */
+@Slf4j
+@Component
+public class AuditDeltaListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final long serialVersionUID = -1857346010843621745L;
+
+    private final transient EntityManagerFactory entityManagerFactory;
+    private final transient AuditDeltaWriter auditDeltaWriter;
+    private final transient Map<String, boolean[]> auditedProperties = new ConcurrentHashMap<>();
+
+    public AuditDeltaListener(EntityManagerFactory entityManagerFactory, AuditDeltaWriter auditDeltaWriter) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.auditDeltaWriter = auditDeltaWriter;
+    }
+
+    @PostConstruct
+    public void register() {
+        if (!auditDeltaWriter.isEnabled()) {
+            return;
+        }
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+        log.info("Aftership | Audit write-behind enabled, Envers audit tables are no longer written");
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        enqueue(event.getPersister(), event.getId(), AuditDeltaDTO.INSERT, event.getState(), null, null);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        enqueue(event.getPersister(), event.getId(), AuditDeltaDTO.UPDATE, event.getState(), event.getOldState(), event.getDirtyProperties());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        enqueue(event.getPersister(), event.getId(), AuditDeltaDTO.DELETE, null, null, null);
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // nothing was committed, nothing to audit
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        // nothing was committed, nothing to audit
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        // nothing was committed, nothing to audit
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return isAudited(persister);
+    }
+
+    private void enqueue(EntityPersister persister, Serializable id, int revType, Object[] state, Object[] oldState, int[] dirtyProperties) {
+        if (!isAudited(persister) || !(id instanceof Number)) {
+            return;
+        }
+        Map<String, Object> changes = revType == AuditDeltaDTO.DELETE ? null : getChanges(persister, state, oldState, dirtyProperties);
+        if (changes != null && changes.isEmpty()) {
+            return;
+        }
+        try {
+            auditDeltaWriter.enqueue(new AuditDeltaDTO(persister.getEntityName(), ((Number) id).longValue(), revType,
+                    changes == null ? null : JacksonUtil.getMapper().writeValueAsString(changes), System.currentTimeMillis()));
+        } catch (JsonProcessingException e) {
+            log.warn("Aftership | Failed to write the audit delta of {} {}", persister.getEntityName(), id, e);
+        }
+    }
+
+    private Map<String, Object> getChanges(EntityPersister persister, Object[] state, Object[] oldState, int[] dirtyProperties) {
+        String[] propertyNames = persister.getPropertyNames();
+        boolean[] audited = getAuditedProperties(persister);
+        boolean[] changed = new boolean[propertyNames.length];
+        if (dirtyProperties != null) {
+            for (int index : dirtyProperties) {
+                changed[index] = true;
+            }
+        } else {
+            for (int index = 0; index < propertyNames.length; index++) {
+                changed[index] = oldState == null ? state[index] != null : !Objects.equals(state[index], oldState[index]);
+            }
+        }
+
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (int index = 0; index < propertyNames.length; index++) {
+            if (changed[index] && audited[index]) {
+                changes.put(propertyNames[index], state[index]);
+            }
+        }
+        return changes;
+    }
+
+    private boolean isAudited(EntityPersister persister) {
+        Class<?> entityClass = persister.getMappedClass();
+        return entityClass != null && entityClass.isAnnotationPresent(Audited.class);
+    }
+
+    private boolean[] getAuditedProperties(EntityPersister persister) {
+        return auditedProperties.computeIfAbsent(persister.getEntityName(), entityName -> {
+            String[] propertyNames = persister.getPropertyNames();
+            boolean[] audited = new boolean[propertyNames.length];
+            for (int index = 0; index < propertyNames.length; index++) {
+                Field field = ReflectionUtils.findField(persister.getMappedClass(), propertyNames[index]);
+                audited[index] = field == null || !field.isAnnotationPresent(NotAudited.class);
+            }
+            return audited;
+        });
+    }
+}
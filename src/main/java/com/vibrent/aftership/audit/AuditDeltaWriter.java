@@ -0,0 +1,180 @@
+package com.vibrent.aftership.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vibrent.aftership.dto.AuditDeltaDTO;
+import com.vibrent.aftership.util.JacksonUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ReflectionUtils;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes committed audit deltas to {@code audit_delta} in batches from a background thread. Deltas wait in a queue of
+ * {@code afterShip.audit.writeBehind.queueCapacity}; when it is full the committing thread writes its delta itself,
+ * which slows the writers down instead of losing the delta.
+ * <p>
+ * Durability: a delta is only queued after its transaction committed, so deltas still in the queue, at most the queue
+ * capacity plus one batch, are lost when the process dies without a graceful shutdown. A batch that fails to write is
+ * logged and counted, not retried.
+ * <p>
+ * Metrics: {@code afterShip.audit.delta.queueDepth}, {@code afterShip.audit.delta.written},
+ * {@code afterShip.audit.delta.overflow} and {@code afterShip.audit.delta.failed}.
+ */
+@Slf4j
+@Component
+public class AuditDeltaWriter {
+
+    private static final String INSERT_DELTA = "INSERT INTO audit_delta (entity_name, entity_id, revtype, changes, changed_on) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final BlockingQueue<AuditDeltaDTO> queue;
+    private final ScheduledExecutorService executor;
+
+    private final Counter written;
+    private final Counter overflow;
+    private final Counter failed;
+
+    public AuditDeltaWriter(JdbcTemplate jdbcTemplate,
+                            @Value("${afterShip.audit.writeBehind.enabled}") boolean enabled,
+                            @Value("${afterShip.audit.writeBehind.queueCapacity}") int queueCapacity,
+                            @Value("${afterShip.audit.writeBehind.batchSize}") int batchSize,
+                            @Value("${afterShip.audit.writeBehind.flushInterval}") Duration flushInterval,
+                            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.written = meterRegistry.counter("afterShip.audit.delta.written");
+        this.overflow = meterRegistry.counter("afterShip.audit.delta.overflow");
+        this.failed = meterRegistry.counter("afterShip.audit.delta.failed");
+        Gauge.builder("afterShip.audit.delta.queueDepth", queue, BlockingQueue::size)
+                .description("Audit deltas waiting to be written")
+                .register(meterRegistry);
+
+        if (enabled) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("aftership-audit-writer-%d").setDaemon(true).build());
+            this.executor.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the changed {@code properties} of an entity updated by a statement, which the audit listener does not see.
+     * Within a transaction the delta is queued after the commit.
+     */
+    public void enqueueUpdate(Object before, Object after, Long entityId, List<String> properties, long changedOn) {
+        if (!enabled || entityId == null) {
+            return;
+        }
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (String property : properties) {
+            Field field = ReflectionUtils.findField(after.getClass(), property);
+            if (field == null) {
+                continue;
+            }
+            ReflectionUtils.makeAccessible(field);
+            Object value = ReflectionUtils.getField(field, after);
+            if (!Objects.deepEquals(ReflectionUtils.getField(field, before), value)) {
+                changes.put(property, value);
+            }
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        try {
+            enqueueAfterCommit(new AuditDeltaDTO(after.getClass().getName(), entityId, AuditDeltaDTO.UPDATE,
+                    JacksonUtil.getMapper().writeValueAsString(changes), changedOn));
+        } catch (JsonProcessingException e) {
+            log.warn("Aftership | Failed to write the audit delta of {} {}", after.getClass().getName(), entityId, e);
+        }
+    }
+
+    /**
+     * Queues a delta written without the audit listener, within a transaction after the commit.
+     */
+    public void enqueueAfterCommit(AuditDeltaDTO delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(delta);
+            }
+        });
+    }
+
+    public void enqueue(AuditDeltaDTO delta) {
+        if (!queue.offer(delta)) {
+            overflow.increment();
+            write(List.of(delta));
+        }
+    }
+
+    /**
+     * Writes all queued deltas in batches.
+     */
+    public void flush() {
+        List<AuditDeltaDTO> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        flush();
+    }
+
+    private void write(List<AuditDeltaDTO> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_DELTA, batch, batch.size(), (ps, delta) -> {
+                ps.setString(1, delta.getEntityName());
+                ps.setLong(2, delta.getEntityId());
+                ps.setInt(3, delta.getRevType());
+                ps.setString(4, delta.getChanges());
+                ps.setLong(5, delta.getChangedOn());
+            });
+            written.increment(batch.size());
+        } catch (Exception e) {
+            failed.increment(batch.size());
+            log.warn("Aftership | Failed to write {} audit deltas", batch.size(), e);
+        }
+    }
+}
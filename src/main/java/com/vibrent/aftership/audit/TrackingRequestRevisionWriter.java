@@ -0,0 +1,84 @@
+package com.vibrent.aftership.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.envers.AuditReaderFactory;
+import org.hibernate.envers.DefaultRevisionEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Records the Envers revision of tracking requests and tracking request errors written by a statement, which the Envers
+ * listener does not see. The rows as written are copied to {@code tracking_request_aud} or
+ * {@code tracking_request_error_aud} under the revision of the current transaction, the same row copy Envers writes
+ * for a saved entity. Used while Envers is on; with the audit write-behind the change is recorded by the
+ * {@link AuditDeltaWriter} instead.
+ */
+@Slf4j
+@Component
+public class TrackingRequestRevisionWriter {
+
+    static final String INSERT_REVISIONS = "INSERT INTO tracking_request_aud (id, rev, revtype, operation, provider, tracking_id, " +
+            "participant, status, sub_status_code, sub_status_description, carrier_response, carrier_response_compressed, " +
+            "carrier_response_type, slug, last_event_at, fulfillment_order_id, header, created_on, updated_on) " +
+            "SELECT id, ?, 1, operation, provider, tracking_id, participant, status, sub_status_code, sub_status_description, " +
+            "carrier_response, carrier_response_compressed, carrier_response_type, slug, last_event_at, fulfillment_order_id, " +
+            "header, created_on, updated_on FROM tracking_request WHERE tracking_id IN (%s)";
+
+    // An upserted error with no retry yet was inserted by the statement
+    static final String INSERT_ERROR_REVISIONS = "INSERT INTO tracking_request_error_aud (id, rev, revtype, tracking_id, error_code, " +
+            "retry_count, track_delivery_request, header, created_on, updated_on) " +
+            "SELECT id, ?, IF(retry_count = 0, 0, 1), tracking_id, error_code, retry_count, track_delivery_request, header, " +
+            "created_on, updated_on FROM tracking_request_error WHERE tracking_id IN (%s)";
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    public TrackingRequestRevisionWriter(EntityManager entityManager, JdbcTemplate jdbcTemplate) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpdate(String trackingId) {
+        recordUpdates(Collections.singletonList(trackingId));
+    }
+
+    /**
+     * Copies the tracking requests as updated by the current transaction into its revision.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpdates(Collection<String> trackingIds) {
+        int recorded = recordRevisions(INSERT_REVISIONS, trackingIds);
+        log.debug("Aftership | Recorded {} tracking request updates", recorded);
+    }
+
+    /**
+     * Copies the tracking request errors as upserted by the current transaction into its revision.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordErrors(Collection<String> trackingIds) {
+        int recorded = recordRevisions(INSERT_ERROR_REVISIONS, trackingIds);
+        log.debug("Aftership | Recorded {} tracking request errors", recorded);
+    }
+
+    private int recordRevisions(String insertRevisions, Collection<String> trackingIds) {
+        if (trackingIds.isEmpty()) {
+            return 0;
+        }
+        DefaultRevisionEntity revision = AuditReaderFactory.get(entityManager).getCurrentRevision(DefaultRevisionEntity.class, true);
+        String placeholders = String.join(", ", Collections.nCopies(trackingIds.size(), "?"));
+        Object[] args = new Object[trackingIds.size() + 1];
+        args[0] = revision.getId();
+        int i = 1;
+        for (String trackingId : trackingIds) {
+            args[i++] = trackingId;
+        }
+        return jdbcTemplate.update(String.format(insertRevisions, placeholders), args);
+    }
+}
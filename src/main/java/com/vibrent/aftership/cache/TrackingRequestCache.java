@@ -0,0 +1,172 @@
+package com.vibrent.aftership.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.dto.CacheInvalidationDTO;
+import com.vibrent.aftership.messaging.producer.impl.CacheInvalidationProducer;
+import com.vibrent.aftership.repository.TrackingRequestRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ReflectionUtils;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Read-through cache of tracking request snapshots by tracking id, bounded by {@code afterShip.cache.trackingRequest.maxSize}
+ * and {@code ttl}. Callers always get a copy of the snapshot, which they may change and save like a loaded entity.
+ * <p>
+ * A saved tracking request replaces its snapshot once the transaction commits, unless a newer one is cached already.
+ * Rows changed by bulk statements, such as archived ones, are invalidated. With {@code broadcast} enabled every change is
+ * also sent to the other nodes over Kafka; without it their snapshots are at most the TTL old.
+ * <p>
+ * Metrics: the Guava cache metrics tagged {@code cache=trackingRequest} and {@code afterShip.cache.trackingRequest.hitRate}.
+ */
+@Slf4j
+@Component
+public class TrackingRequestCache {
+
+    static final String CACHE_NAME = "trackingRequest";
+
+    private final TrackingRequestRepository trackingRequestRepository;
+    private final CacheInvalidationProducer cacheInvalidationProducer;
+    private final boolean enabled;
+    private final boolean broadcast;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Cache<String, TrackingRequest> cache;
+
+    public TrackingRequestCache(TrackingRequestRepository trackingRequestRepository,
+                                CacheInvalidationProducer cacheInvalidationProducer,
+                                @Value("${afterShip.cache.trackingRequest.enabled}") boolean enabled,
+                                @Value("${afterShip.cache.trackingRequest.maxSize}") long maxSize,
+                                @Value("${afterShip.cache.trackingRequest.ttl}") Duration ttl,
+                                @Value("${afterShip.cache.trackingRequest.broadcast}") boolean broadcast,
+                                MeterRegistry meterRegistry) {
+        this.trackingRequestRepository = trackingRequestRepository;
+        this.cacheInvalidationProducer = cacheInvalidationProducer;
+        this.enabled = enabled;
+        this.broadcast = broadcast;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        GuavaCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("afterShip.cache.trackingRequest.hitRate", cache, c -> c.stats().hitRate())
+                .description("Share of tracking request lookups by tracking id answered from the cache")
+                .register(meterRegistry);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Optional<TrackingRequest> findByTrackingId(String trackingId) {
+        if (!enabled || trackingId == null) {
+            return trackingRequestRepository.findByTrackingId(trackingId);
+        }
+        TrackingRequest snapshot = cache.getIfPresent(trackingId);
+        if (snapshot != null) {
+            return Optional.of(copy(snapshot));
+        }
+        Optional<TrackingRequest> trackingRequest = trackingRequestRepository.findByTrackingId(trackingId);
+        // Not before the commit, a transaction that rolls back may have read its own changes
+        trackingRequest.ifPresent(loaded -> afterCommit(() -> put(loaded, false)));
+        return trackingRequest;
+    }
+
+    /**
+     * Replaces the snapshot of a saved tracking request once the transaction commits.
+     */
+    public void saved(TrackingRequest trackingRequest) {
+        if (!enabled || trackingRequest == null || trackingRequest.getTrackingId() == null) {
+            return;
+        }
+        // Copied after the commit, the flush sets the updated on
+        afterCommit(() -> {
+            put(trackingRequest, true);
+            broadcast(trackingRequest.getTrackingId());
+        });
+    }
+
+    /**
+     * Drops the snapshot of a tracking request changed by a bulk statement, on this node and when broadcast on all others.
+     */
+    public void invalidate(String trackingId) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            evict(trackingId);
+            broadcast(trackingId);
+        });
+    }
+
+    /**
+     * Drops every snapshot, on this node and when broadcast on all others.
+     */
+    public void invalidateAll() {
+        invalidate(null);
+    }
+
+    /**
+     * Drops a snapshot on this node only, a {@code null} tracking id drops all of them.
+     */
+    public void evict(String trackingId) {
+        if (trackingId == null) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(trackingId);
+        }
+    }
+
+    long size() {
+        return cache.size();
+    }
+
+    // A lookup that read the row before a concurrent save committed must not replace the snapshot of that save
+    private void put(TrackingRequest trackingRequest, boolean isSave) {
+        TrackingRequest snapshot = copy(trackingRequest);
+        cache.asMap().merge(snapshot.getTrackingId(), snapshot, (cached, put) -> {
+            long cachedUpdatedOn = Objects.requireNonNullElse(cached.getUpdatedOn(), 0L);
+            long putUpdatedOn = Objects.requireNonNullElse(put.getUpdatedOn(), 0L);
+            return putUpdatedOn > cachedUpdatedOn || (isSave && putUpdatedOn == cachedUpdatedOn) ? put : cached;
+        });
+    }
+
+    private void broadcast(String trackingId) {
+        if (broadcast) {
+            cacheInvalidationProducer.send(new CacheInvalidationDTO(trackingId, nodeId));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Field by field, the carrier response getter would inflate a compact carrier response
+    private static TrackingRequest copy(TrackingRequest trackingRequest) {
+        TrackingRequest copy = new TrackingRequest();
+        ReflectionUtils.shallowCopyFieldState(trackingRequest, copy);
+        return copy;
+    }
+}
@@ -5,20 +5,36 @@ import com.aftership.sdk.model.AftershipOption;
 import io.micrometer.core.aop.TimedAspect;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 public class BeanConfiguration {
 
     @Bean
     public AfterShip afterShip(@Value("${afterShip.baseUrl}") String afterShipBaseUrl,
-                               @Value("${afterShip.apiKey}") String afterShipApiKey) {
+                               @Value("${afterShip.apiKey}") String afterShipApiKey,
+                               @Value("${afterShip.deadline.createTracking}") Duration createTrackingDeadline,
+                               @Value("${afterShip.deadline.getTracking}") Duration getTrackingDeadline) {
         AftershipOption option = new AftershipOption();
         option.setEndpoint(afterShipBaseUrl);
+        // A call abandoned at its deadline keeps its thread until the client gives up, so the client never waits longer
+        int timeoutMillis = (int) Math.max(createTrackingDeadline.toMillis(), getTrackingDeadline.toMillis());
+        option.setConnectTimeout(timeoutMillis);
+        option.setReadTimeout(timeoutMillis);
+        option.setCallTimeout(timeoutMillis);
         return new AfterShip(afterShipApiKey, option);
     }
 
+    // With audit write-behind the audit deltas replace the Envers audit tables
+    @Bean
+    public HibernatePropertiesCustomizer enversPropertiesCustomizer(@Value("${afterShip.audit.writeBehind.enabled}") boolean auditWriteBehind) {
+        return properties -> properties.put("hibernate.integration.envers.enabled", String.valueOf(!auditWriteBehind));
+    }
+
     @Bean
     public TimedAspect timedAspect(MeterRegistry registry) {
         return new TimedAspect(registry);
@@ -1,5 +1,8 @@
 package com.vibrent.aftership.configuration;
 
+import com.vibrent.aftership.scheduling.ArchiveTrackingJob;
+import com.vibrent.aftership.scheduling.AuditRetentionJob;
+import com.vibrent.aftership.scheduling.CompactCarrierResponseJob;
 import com.vibrent.aftership.scheduling.GetTrackingJob;
 import com.vibrent.aftership.scheduling.RetryTrackingDeliveryRequestJob;
 import org.quartz.*;
@@ -16,11 +19,20 @@ public class JobConfiguration {
 
     private final String retryTrackingDeliveryCron;
     private final String getTrackingCron;
+    private final String archiveTrackingCron;
+    private final String auditRetentionCron;
+    private final String compactCarrierResponseCron;
 
     public JobConfiguration(@Value("${afterShip.cron.retryTrackingDeliveryCron}") String retryTrackingDeliveryCron,
-                            @Value("${afterShip.cron.getTrackingCron}") String getTrackingCron){
+                            @Value("${afterShip.cron.getTrackingCron}") String getTrackingCron,
+                            @Value("${afterShip.cron.archiveTrackingCron}") String archiveTrackingCron,
+                            @Value("${afterShip.cron.auditRetentionCron}") String auditRetentionCron,
+                            @Value("${afterShip.cron.compactCarrierResponseCron}") String compactCarrierResponseCron){
         this.retryTrackingDeliveryCron = retryTrackingDeliveryCron;
         this.getTrackingCron = getTrackingCron;
+        this.archiveTrackingCron = archiveTrackingCron;
+        this.auditRetentionCron = auditRetentionCron;
+        this.compactCarrierResponseCron = compactCarrierResponseCron;
     }
 
 
@@ -59,6 +71,7 @@ public class JobConfiguration {
                 .storeDurably()
                 .withIdentity("Get_Tracking_Details_Job")
                 .withDescription("Get Tracking Details Job")
+                .requestRecovery(true)
                 .build();
     }
 
@@ -81,6 +94,90 @@ public class JobConfiguration {
         scheduler.rescheduleJob(triggerKey, trigger);
         return scheduler;
     }
+    @Bean
+    public JobDetail archiveTrackingJobDetails() {
+        return JobBuilder.newJob().ofType(ArchiveTrackingJob.class)
+                .storeDurably()
+                .withIdentity("Archive_Tracking_Job")
+                .withDescription("Archive Tracking Requests in a terminal status")
+                .build();
+    }
+
+    @Bean
+    public Trigger archiveTrackingJobTrigger(JobDetail archiveTrackingJobDetails) {
+        return TriggerBuilder.newTrigger().forJob(archiveTrackingJobDetails)
+                .withIdentity("Archive_Tracking_Trigger")
+                .withDescription("Invoke Archive Tracking Trigger")
+                .withSchedule(CronScheduleBuilder.cronSchedule(archiveTrackingCron)
+                        .withMisfireHandlingInstructionDoNothing())
+                .build();
+    }
+
+    @Bean
+    public Scheduler rescheduleArchiveTrackingCronJob(SchedulerFactoryBean schedulerFactoryBean) throws SchedulerException, ParseException {
+        Scheduler scheduler = schedulerFactoryBean.getScheduler();
+        TriggerKey triggerKey = new TriggerKey("Archive_Tracking_Trigger");
+        CronTriggerImpl trigger = (CronTriggerImpl) scheduler.getTrigger(triggerKey);
+        trigger.setCronExpression(archiveTrackingCron);
+        scheduler.rescheduleJob(triggerKey, trigger);
+        return scheduler;
+    }
+
+    @Bean
+    public JobDetail auditRetentionJobDetails() {
+        return JobBuilder.newJob().ofType(AuditRetentionJob.class)
+                .storeDurably()
+                .withIdentity("Audit_Retention_Job")
+                .withDescription("Roll and drop the partitions of the audit tables")
+                .build();
+    }
+
+    @Bean
+    public Trigger auditRetentionJobTrigger(JobDetail auditRetentionJobDetails) {
+        return TriggerBuilder.newTrigger().forJob(auditRetentionJobDetails)
+                .withIdentity("Audit_Retention_Trigger")
+                .withDescription("Invoke Audit Retention Trigger")
+                .withSchedule(CronScheduleBuilder.cronSchedule(auditRetentionCron)
+                        .withMisfireHandlingInstructionDoNothing())
+                .build();
+    }
+
+    @Bean
+    public Scheduler rescheduleAuditRetentionCronJob(SchedulerFactoryBean schedulerFactoryBean) throws SchedulerException, ParseException {
+        Scheduler scheduler = schedulerFactoryBean.getScheduler();
+        TriggerKey triggerKey = new TriggerKey("Audit_Retention_Trigger");
+        CronTriggerImpl trigger = (CronTriggerImpl) scheduler.getTrigger(triggerKey);
+        trigger.setCronExpression(auditRetentionCron);
+        scheduler.rescheduleJob(triggerKey, trigger);
+        return scheduler;
+    }
+
+    @Bean
+    public JobDetail compactCarrierResponseJobDetails() {
+        return JobBuilder.newJob().ofType(CompactCarrierResponseJob.class)
+                .storeDurably()
+                .withIdentity("Compact_Carrier_Response_Job")
+                .withDescription("Compact the carrier responses stored as JSON")
+                .build();
+    }
 
+    @Bean
+    public Trigger compactCarrierResponseJobTrigger(JobDetail compactCarrierResponseJobDetails) {
+        return TriggerBuilder.newTrigger().forJob(compactCarrierResponseJobDetails)
+                .withIdentity("Compact_Carrier_Response_Trigger")
+                .withDescription("Invoke Compact Carrier Response Trigger")
+                .withSchedule(CronScheduleBuilder.cronSchedule(compactCarrierResponseCron)
+                        .withMisfireHandlingInstructionDoNothing())
+                .build();
+    }
 
+    @Bean
+    public Scheduler rescheduleCompactCarrierResponseCronJob(SchedulerFactoryBean schedulerFactoryBean) throws SchedulerException, ParseException {
+        Scheduler scheduler = schedulerFactoryBean.getScheduler();
+        TriggerKey triggerKey = new TriggerKey("Compact_Carrier_Response_Trigger");
+        CronTriggerImpl trigger = (CronTriggerImpl) scheduler.getTrigger(triggerKey);
+        trigger.setCronExpression(compactCarrierResponseCron);
+        scheduler.rescheduleJob(triggerKey, trigger);
+        return scheduler;
+    }
 }
@@ -20,11 +20,13 @@ import org.springframework.kafka.config.KafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 
 @Configuration
@@ -35,6 +37,7 @@ public class KafkaConsumerConfig {
     private static final String TRACKING_REQUEST_GROUP_ID = "AFTER_SHIP_TRACKING_REQUEST_GROUP_ID";
     private static final String RETRY_TRACKING_REQUEST_GROUP_ID = "AFTER_SHIP_RETRY_TRACKING_REQUEST_GROUP_ID";
     private static final String FULFILLMENT_TRACKING_REQUEST_GROUP_ID = "AFTER_SHIP_FULFILLMENT_TRACKING_REQUEST_GROUP_ID";
+    private static final String CACHE_INVALIDATION_GROUP_ID = "AFTER_SHIP_CACHE_INVALIDATION_GROUP_ID_";
     private final String bootstrapServers;
     private final int defaultConcurrency;
 
@@ -159,4 +162,24 @@ public class KafkaConsumerConfig {
         return factory;
     }
 
+    // Every node reads all invalidations in a group of its own, offsets are never committed so the groups leave no state
+    @Bean
+    public ConsumerFactory<String, byte[]> cacheInvalidationConsumerFactory() {
+        Map<String, Object> consumerConfigProps = getConfigProps();
+        consumerConfigProps.put(ConsumerConfig.GROUP_ID_CONFIG, CACHE_INVALIDATION_GROUP_ID + UUID.randomUUID());
+        consumerConfigProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        consumerConfigProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        return new DefaultKafkaConsumerFactory<>(consumerConfigProps, new StringDeserializer(), new ByteArrayDeserializer());
+    }
+
+    @Bean
+    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<String, byte[]>> kafkaListenerContainerFactoryCacheInvalidation() {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(cacheInvalidationConsumerFactory());
+        factory.setConcurrency(1);
+        factory.getContainerProperties().setPollTimeout(KafkaConstants.POLL_TIMEOUT);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
 }
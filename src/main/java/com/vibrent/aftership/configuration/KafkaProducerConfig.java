@@ -1,10 +1,12 @@
 package com.vibrent.aftership.configuration;
 
+import com.vibrent.aftership.dto.CacheInvalidationDTO;
 import com.vibrent.aftership.dto.ExternalLogDTO;
 import com.vibrent.aftership.dto.RetryRequestDTO;
 import com.vibrent.vxp.workflow.FulfillmentTrackDeliveryResponseDto;
 import com.vibrent.vxp.workflow.TrackDeliveryResponseDtoWrapper;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -76,4 +78,28 @@ public class KafkaProducerConfig {
         Map<String, Object> configs = new HashMap<>();
         return new KafkaTemplate<>(fulfillmentTrackingResponseProducerFactory(configs));
     }
+
+    @Bean
+    public ProducerFactory<String, CacheInvalidationDTO> producerFactoryCacheInvalidationDTO(Map<String, Object> configs) {
+        return new DefaultKafkaProducerFactory<>(producerConfigs(configs));
+    }
+
+    @Bean
+    public KafkaTemplate<String, CacheInvalidationDTO> kafkaTemplateCacheInvalidationDTO() {
+        Map<String, Object> configs = new HashMap<>();
+        return new KafkaTemplate<>(producerFactoryCacheInvalidationDTO(configs));
+    }
+
+    // Outbox messages are stored serialized, the relay sends them as they are
+    @Bean
+    public ProducerFactory<String, byte[]> outboxProducerFactory() {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        return new DefaultKafkaProducerFactory<>(producerConfigs(configs));
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> outboxKafkaTemplate() {
+        return new KafkaTemplate<>(outboxProducerFactory());
+    }
 }
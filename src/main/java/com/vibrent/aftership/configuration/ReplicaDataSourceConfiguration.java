@@ -0,0 +1,75 @@
+package com.vibrent.aftership.configuration;
+
+import com.vibrent.aftership.datasource.ReplicaLagGuard;
+import com.vibrent.aftership.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * With {@code afterShip.replica.enabled} the data source of the application routes read only transactions, such as the
+ * lookups by tracking id and the scans of the scheduled jobs, to the replica at {@code afterShip.replica.url}. Writes,
+ * Flyway and Quartz keep using the primary configured by {@code spring.datasource}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "afterShip.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("aftership-primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${afterShip.replica.url}") String url,
+                                              @Value("${afterShip.replica.username}") String username,
+                                              @Value("${afterShip.replica.password}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("aftership-replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagGuard replicaLagGuard(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                           @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                           @Value("${afterShip.replica.maxLag}") Duration maxLag,
+                                           @Value("${afterShip.replica.lagCheckInterval}") Duration lagCheckInterval,
+                                           MeterRegistry meterRegistry) {
+        return new ReplicaLagGuard(primaryDataSource, replicaDataSource, maxLag, lagCheckInterval, meterRegistry);
+    }
+
+    // Lazy, the connection is only taken at the first statement, once the transaction is known to be read only
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaLagGuard replicaLagGuard,
+                                 MeterRegistry meterRegistry) {
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource,
+                replicaLagGuard, meterRegistry);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
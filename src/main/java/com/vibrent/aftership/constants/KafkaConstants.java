@@ -21,6 +21,11 @@ public class KafkaConstants {
     public static final String EXTERNAL_ID = "External-ID";
     public static final String TRACKING_ID = "Tracking-ID";
 
+    public static final String TRACK_DELIVERY_REQUEST_LISTENER_ID = "trackDeliveryRequestListener";
+    public static final String FULFILLMENT_TRACK_DELIVERY_REQUEST_LISTENER_ID = "fulfillmentTrackDeliveryRequestListener";
+    public static final String RETRY_TRACKING_DELIVERY_REQUEST_LISTENER_ID = "retryTrackingDeliveryRequestListener";
+    public static final String CACHE_INVALIDATION_LISTENER_ID = "cacheInvalidationListener";
+
     private KafkaConstants() {
         // static class...
     }
@@ -51,6 +51,12 @@ public class FulfillmentTrackDeliveryResponseConverter {
     }
 
     private static ParticipantDetailsDto populateParticipant(Tracking tracking, TrackingRequest trackingRequest) {
+        if (trackingRequest.getVibrentId() != null) {
+            ParticipantDetailsDto participantDetailsDto = new ParticipantDetailsDto();
+            participantDetailsDto.setVibrentID(trackingRequest.getVibrentId());
+            participantDetailsDto.setExternalID(trackingRequest.getExternalId());
+            return participantDetailsDto;
+        }
         try {
             if (!StringUtils.isEmpty(trackingRequest.getParticipant())) {
                 return JacksonUtil.getMapper().readValue(trackingRequest.getParticipant(), ParticipantDetailsDto.class);
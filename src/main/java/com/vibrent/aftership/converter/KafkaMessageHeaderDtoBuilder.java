@@ -20,14 +20,20 @@ public class KafkaMessageHeaderDtoBuilder {
     private KafkaMessageHeaderDtoBuilder(){
     }
     /**
+     * Saved header of the tracking request, parsed once per header and shared with the copies of the tracking request,
+     * so it must not be changed.
      *
      * @param trackingRequest
      * @return
      */
     public static MessageHeaderDto getMessageHeaderDto(TrackingRequest trackingRequest) {
+        return trackingRequest.getParsedHeader(KafkaMessageHeaderDtoBuilder::parseMessageHeaderDto);
+    }
+
+    static MessageHeaderDto parseMessageHeaderDto(String header) {
         try {
-            if (!StringUtils.isEmpty(trackingRequest.getHeader())) {
-                return JacksonUtil.getMapper().readValue(trackingRequest.getHeader(), MessageHeaderDto.class);
+            if (!StringUtils.isEmpty(header)) {
+                return JacksonUtil.getMapper().readValue(header, MessageHeaderDto.class);
             }
         } catch (JsonProcessingException e) {
             log.warn("AfterShip: Error while parsing Header value String as MessageHeaderDto", e);
@@ -49,6 +49,12 @@ public class TrackDeliveryResponseConverter {
     }
 
     private static ParticipantDto populateParticipant(Tracking tracking, TrackingRequest trackingRequest) {
+        if (trackingRequest.getVibrentId() != null) {
+            ParticipantDto participantDto = new ParticipantDto();
+            participantDto.setVibrentID(trackingRequest.getVibrentId());
+            participantDto.setExternalID(trackingRequest.getExternalId());
+            return participantDto;
+        }
         try {
             if (!StringUtils.isEmpty(trackingRequest.getParticipant())) {
                 return JacksonUtil.getMapper().readValue(trackingRequest.getParticipant(), ParticipantDto.class);
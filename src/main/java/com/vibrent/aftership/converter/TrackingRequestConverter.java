@@ -27,6 +27,10 @@ public class TrackingRequestConverter {
         trackingRequest.setProvider(trackDeliveryRequestVo.getCarrierCode());
         trackingRequest.setStatus(StatusEnum.PENDING_TRACKING.toValue());
         trackingRequest.setParticipant(getParticipant(trackDeliveryRequestVo));
+        if (trackDeliveryRequestVo.getParticipant() != null) {
+            trackingRequest.setVibrentId(trackDeliveryRequestVo.getParticipant().getVibrentID());
+            trackingRequest.setExternalId(trackDeliveryRequestVo.getParticipant().getExternalID());
+        }
         trackingRequest.setHeader(getMessageHeaders(messageHeader));
         return trackingRequest;
     }
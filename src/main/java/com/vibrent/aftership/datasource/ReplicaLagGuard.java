@@ -0,0 +1,99 @@
+package com.vibrent.aftership.datasource;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether read only transactions may use the replica. Every {@code afterShip.replica.lagCheckInterval} the guard
+ * reads the heartbeat row of {@code replica_heartbeat} from the replica and then writes the current time to it on the
+ * primary. The replica is used while the heartbeat it replicated is at most {@code afterShip.replica.maxLag} old; a
+ * replica that cannot be read or falls behind sends all transactions to the primary until it caught up again.
+ * <p>
+ * All nodes write the heartbeat, the measured lag includes up to one check interval and the clock difference of the
+ * nodes. Until the first check the replica is not used.
+ * <p>
+ * Metrics: {@code afterShip.replica.lag} in milliseconds as last measured, -1 while unknown, and
+ * {@code afterShip.replica.usable}.
+ */
+@Slf4j
+public class ReplicaLagGuard {
+
+    static final String READ_HEARTBEAT = "SELECT beat_at FROM replica_heartbeat WHERE id = 1";
+    // Never moved back by a node with a clock behind the others
+    static final String WRITE_HEARTBEAT = "UPDATE replica_heartbeat SET beat_at = GREATEST(beat_at, ?) WHERE id = 1";
+
+    private final JdbcTemplate primaryJdbcTemplate;
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final long maxLagMillis;
+    private final ScheduledExecutorService executor;
+
+    private volatile boolean replicaUsable;
+    private volatile long lagMillis = -1;
+
+    public ReplicaLagGuard(DataSource primaryDataSource,
+                           DataSource replicaDataSource,
+                           Duration maxLag,
+                           Duration lagCheckInterval,
+                           MeterRegistry meterRegistry) {
+        this.primaryJdbcTemplate = new JdbcTemplate(primaryDataSource);
+        this.replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.maxLagMillis = maxLag.toMillis();
+
+        Gauge.builder("afterShip.replica.lag", this, guard -> guard.lagMillis)
+                .description("Age of the heartbeat read from the replica").baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder("afterShip.replica.usable", this, guard -> guard.replicaUsable ? 1 : 0)
+                .description("Whether read only transactions use the replica").register(meterRegistry);
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("aftership-replica-lag-guard-%d").setDaemon(true).build());
+        this.executor.scheduleWithFixedDelay(this::check, lagCheckInterval.toMillis(), lagCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    /**
+     * Measures the lag of the replica and writes the next heartbeat.
+     */
+    public void check() {
+        long now = System.currentTimeMillis();
+        long lag;
+        try {
+            Long beatAt = replicaJdbcTemplate.queryForObject(READ_HEARTBEAT, Long.class);
+            lag = beatAt == null ? -1 : Math.max(0, now - beatAt);
+        } catch (DataAccessException e) {
+            log.warn("Aftership | Failed to read the heartbeat from the replica", e);
+            lag = -1;
+        }
+        boolean usable = lag >= 0 && lag <= maxLagMillis;
+        if (usable != replicaUsable) {
+            log.info("Aftership | Replica lag is {} ms, read only transactions use the {}", lag, usable ? "replica" : "primary");
+        }
+        lagMillis = lag;
+        replicaUsable = usable;
+
+        try {
+            primaryJdbcTemplate.update(WRITE_HEARTBEAT, now);
+        } catch (DataAccessException e) {
+            log.warn("Aftership | Failed to write the replica heartbeat", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,54 @@
+package com.vibrent.aftership.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out replica connections to read only transactions while the {@link ReplicaLagGuard} lets them use the replica,
+ * and primary connections to everything else. The read only flag of a transaction is only set once it began, so the
+ * routing has to be wrapped in a lazy connection proxy.
+ * <p>
+ * Metrics: {@code afterShip.replica.connections} tagged {@code target=primary|replica}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final ReplicaLagGuard replicaLagGuard;
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+
+    public ReplicaRoutingDataSource(DataSource primaryDataSource,
+                                    DataSource replicaDataSource,
+                                    ReplicaLagGuard replicaLagGuard,
+                                    MeterRegistry meterRegistry) {
+        this.replicaLagGuard = replicaLagGuard;
+        this.primaryConnections = meterRegistry.counter("afterShip.replica.connections", "target", "primary");
+        this.replicaConnections = meterRegistry.counter("afterShip.replica.connections", "target", "replica");
+
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(Target.PRIMARY, primaryDataSource);
+        targetDataSources.put(Target.REPLICA, replicaDataSource);
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primaryDataSource);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && replicaLagGuard.isReplicaUsable()) {
+            replicaConnections.increment();
+            return Target.REPLICA;
+        }
+        primaryConnections.increment();
+        return Target.PRIMARY;
+    }
+}
@@ -0,0 +1,41 @@
+package com.vibrent.aftership.domain;
+
+import com.vibrent.aftership.enums.PollRunStatus;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+
+/**
+ * A run of the get tracking job, identified by the scheduled fire time of the trigger that started it.
+ */
+@Entity
+@Table(name = "poll_run")
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class PollRun extends Auditable implements Serializable {
+
+    private static final long serialVersionUID = -3640184541236780417L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(name = "run_id")
+    private Long runId;
+
+    @Column(name = "shard_count")
+    private Integer shardCount;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private PollRunStatus status;
+
+    @Column(name = "completed_on")
+    private Long completedOn;
+
+}
@@ -0,0 +1,48 @@
+package com.vibrent.aftership.domain;
+
+import com.vibrent.aftership.enums.PollRunStatus;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+
+/**
+ * Progress of one shard of a get tracking run, the last tracking request id processed and the number processed.
+ */
+@Entity
+@Table(name = "poll_run_checkpoint")
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class PollRunCheckpoint extends Auditable implements Serializable {
+
+    private static final long serialVersionUID = 2871535315470523921L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(name = "run_id")
+    private Long runId;
+
+    @NotNull
+    @Column(name = "shard_index")
+    private Integer shardIndex;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private PollRunStatus status;
+
+    @Column(name = "last_id")
+    private Long lastId;
+
+    @Column(name = "processed")
+    private Long processed;
+
+    @Column(name = "completed_on")
+    private Long completedOn;
+
+}
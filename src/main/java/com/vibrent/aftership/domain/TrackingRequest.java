@@ -1,14 +1,25 @@
 package com.vibrent.aftership.domain;
 
+import com.vibrent.aftership.util.CompressionUtil;
+import com.vibrent.vxp.workflow.MessageHeaderDto;
 import com.vibrent.vxp.workflow.OperationEnum;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import java.io.Serializable;
+import java.util.function.Function;
 
 import static org.hibernate.envers.RelationTargetAuditMode.NOT_AUDITED;
 
@@ -23,7 +34,13 @@ public class TrackingRequest extends Auditable implements Serializable {
     private static final long serialVersionUID = 7137762033297887389L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Ids are allocated in blocks from the id_allocation table, IDENTITY would disable JDBC batching of inserts
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "tracking_request_id")
+    @GenericGenerator(name = "tracking_request_id", strategy = "org.hibernate.id.enhanced.TableGenerator", parameters = {
+            @Parameter(name = "table_name", value = "id_allocation"),
+            @Parameter(name = "segment_value", value = "tracking_request"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")})
     private Long id;
 
     @NotNull
@@ -40,6 +57,15 @@ public class TrackingRequest extends Auditable implements Serializable {
     @Column
     private String participant;
 
+    // Ids of the participant JSON as indexed columns, read by the response converters and the lookups by participant
+    @NotAudited
+    @Column(name = "vibrent_id")
+    private Long vibrentId;
+
+    @NotAudited
+    @Column(name = "external_id")
+    private String externalId;
+
     @Column(name = "status")
     private String status;
 
@@ -52,13 +78,90 @@ public class TrackingRequest extends Auditable implements Serializable {
     @Column(name = "carrier_response")
     private String carrierResponse;
 
+    // Trimmed and deflated carrier response, stored instead of carrier_response in the compact format
+    @Column(name = "carrier_response_compressed")
+    private byte[] carrierResponseCompressed;
+
     @Column(name = "carrier_response_type")
     private String carrierResponseType;
 
+    @Column(name = "slug")
+    private String slug;
+
+    @Column(name = "last_event_at")
+    private Long lastEventAt;
+
+    // Scheduling state only, changes of it are not audited
+    @NotAudited
+    @Column(name = "next_poll_at")
+    private Long nextPollAt;
+
+    // Fingerprint of the material tracking fields of the last update, an update without changes to them is skipped
+    @NotAudited
+    @Column(name = "fingerprint")
+    private Long fingerprint;
+
     @Column(name = "fulfillment_order_id")
     private Long fulfillmentOrderID;
 
     @Column
     private String header;
 
+    // Shared by the shallow copies of the tracking request cache, a cached tracking parses its header once per node
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient ParsedHeader parsedHeader = new ParsedHeader();
+
+    /**
+     * Carrier response JSON, inflated from the compressed column when the row is stored in the compact format
+     */
+    public String getCarrierResponse() {
+        if (carrierResponse == null && carrierResponseCompressed != null) {
+            return CompressionUtil.inflate(carrierResponseCompressed);
+        }
+        return carrierResponse;
+    }
+
+    /**
+     * Header parsed by the parser, memoized until the header changes. The parsed header is shared by the copies of the
+     * tracking request and must not be changed.
+     */
+    public MessageHeaderDto getParsedHeader(Function<String, MessageHeaderDto> parser) {
+        if (parsedHeader == null) {
+            parsedHeader = new ParsedHeader();
+        }
+        return parsedHeader.get(header, parser);
+    }
+
+    /**
+     * Header of a tracking request that is not read from the database, such as one routed by a routing token, returned
+     * by {@link #getParsedHeader(Function)} until the header changes.
+     */
+    public void setParsedHeader(MessageHeaderDto messageHeaderDto) {
+        parsedHeader = new ParsedHeader();
+        parsedHeader.parsed = new Parsed(header, messageHeaderDto);
+    }
+
+    private static class ParsedHeader {
+
+        private volatile Parsed parsed;
+
+        MessageHeaderDto get(String header, Function<String, MessageHeaderDto> parser) {
+            Parsed current = parsed;
+            // By reference, a header set since it was parsed is parsed again
+            if (current == null || current.header != header) {
+                current = new Parsed(header, parser.apply(header));
+                parsed = current;
+            }
+            return current.value;
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Parsed {
+        private final String header;
+        private final MessageHeaderDto value;
+    }
+
 }
@@ -3,6 +3,8 @@ package com.vibrent.aftership.domain;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.hibernate.envers.Audited;
 
 import javax.persistence.*;
@@ -22,7 +24,12 @@ public class TrackingRequestError extends Auditable implements Serializable {
     private static final long serialVersionUID = 7137762033297887389L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "tracking_request_error_id")
+    @GenericGenerator(name = "tracking_request_error_id", strategy = "org.hibernate.id.enhanced.TableGenerator", parameters = {
+            @Parameter(name = "table_name", value = "id_allocation"),
+            @Parameter(name = "segment_value", value = "tracking_request_error"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")})
     private Long id;
 
     @Column(name = "tracking_id")
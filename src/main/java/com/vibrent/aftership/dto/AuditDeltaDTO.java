@@ -0,0 +1,24 @@
+package com.vibrent.aftership.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Committed change of an audited entity with only its changed columns, revision types as in Envers: 0 insert,
+ * 1 update and 2 delete.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditDeltaDTO {
+    public static final int INSERT = 0;
+    public static final int UPDATE = 1;
+    public static final int DELETE = 2;
+
+    private String entityName;
+    private Long entityId;
+    private int revType;
+    private String changes;
+    private long changedOn;
+}
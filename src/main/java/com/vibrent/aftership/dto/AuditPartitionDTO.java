@@ -0,0 +1,18 @@
+package com.vibrent.aftership.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Range partition of an audit table, holding the revisions below {@code bound}; the bound of the last partition,
+ * which takes all new revisions, is null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditPartitionDTO {
+    private String name;
+    private Long bound;
+    private long rows;
+}
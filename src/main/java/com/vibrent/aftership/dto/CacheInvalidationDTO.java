@@ -0,0 +1,16 @@
+package com.vibrent.aftership.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Broadcast to the other nodes when a cached tracking request changed, a {@code null} tracking id invalidates all
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationDTO {
+    private String trackingId;
+    private String nodeId;
+}
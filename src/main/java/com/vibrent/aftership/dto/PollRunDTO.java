@@ -0,0 +1,21 @@
+package com.vibrent.aftership.dto;
+
+import com.vibrent.aftership.enums.PollRunStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PollRunDTO {
+    private Long runId;
+    private Integer shardCount;
+    private PollRunStatus status;
+    private Long startedOn;
+    private Long completedOn;
+    private Long processed;
+    private List<PollRunShardDTO> shards;
+}
@@ -0,0 +1,19 @@
+package com.vibrent.aftership.dto;
+
+import com.vibrent.aftership.enums.PollRunStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PollRunShardDTO {
+    private Integer shardIndex;
+    private PollRunStatus status;
+    private Long lastId;
+    private Long processed;
+    private Long startedOn;
+    private Long updatedOn;
+    private Long completedOn;
+}
@@ -0,0 +1,20 @@
+package com.vibrent.aftership.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tracking request selected by {@code GetTrackingJob} for a refresh from AfterShip, with the stored status and time
+ * of its last status change, so an unchanged tracking can be rescheduled without loading the tracking request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PollTargetDTO {
+    private Long id;
+    private String trackingId;
+    private String slug;
+    private String status;
+    private Long lastEventAt;
+}
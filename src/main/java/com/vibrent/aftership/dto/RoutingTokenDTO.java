@@ -0,0 +1,19 @@
+package com.vibrent.aftership.dto;
+
+import com.vibrent.vxp.workflow.MessageHeaderDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What a tracking response is routed with, carried in the AfterShip custom fields of the tracking. The header only
+ * holds the saved header fields that are copied to the response header.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoutingTokenDTO {
+    private MessageHeaderDto header;
+    private Long fulfillmentOrderID;
+    private String provider;
+}
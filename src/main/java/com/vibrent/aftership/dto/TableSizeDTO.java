@@ -0,0 +1,16 @@
+package com.vibrent.aftership.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estimated rows and bytes of data and indexes of a table, as reported by the information schema.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TableSizeDTO {
+    private long rows;
+    private long bytes;
+}
@@ -0,0 +1,24 @@
+package com.vibrent.aftership.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrackingSummaryDTO {
+    private Long id;
+    private String trackingId;
+    private String provider;
+    private String slug;
+    private String status;
+    private String subStatusCode;
+    private String subStatusDescription;
+    private Long fulfillmentOrderID;
+    private Long vibrentId;
+    private String externalId;
+    private Long lastEventAt;
+    private Long createdOn;
+    private Long updatedOn;
+}
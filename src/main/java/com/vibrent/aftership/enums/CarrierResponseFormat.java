@@ -0,0 +1,5 @@
+package com.vibrent.aftership.enums;
+
+public enum CarrierResponseFormat {
+    JSON, COMPACT;
+}
@@ -0,0 +1,5 @@
+package com.vibrent.aftership.enums;
+
+public enum PollOutcome {
+    REFRESHED, NOT_FOUND, AFTERSHIP_ERROR, FAILED;
+}
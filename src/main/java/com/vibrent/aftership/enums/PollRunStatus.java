@@ -0,0 +1,5 @@
+package com.vibrent.aftership.enums;
+
+public enum PollRunStatus {
+    PENDING, RUNNING, COMPLETED, SKIPPED;
+}
@@ -0,0 +1,18 @@
+package com.vibrent.aftership.exception;
+
+import lombok.EqualsAndHashCode;
+import org.springframework.http.HttpStatus;
+
+/**
+ *  Thrown when the time budget of an AfterShip call, including its retries, is used up. Non-retriable, as the
+ *  remaining budget is zero by definition.
+ */
+@EqualsAndHashCode(callSuper = false)
+public class AfterShipDeadlineExceededException extends AfterShipNonRetriableException {
+
+    private static final long serialVersionUID = -2514380377064305216L;
+
+    public AfterShipDeadlineExceededException(String message) {
+        super(message, HttpStatus.REQUEST_TIMEOUT.value());
+    }
+}
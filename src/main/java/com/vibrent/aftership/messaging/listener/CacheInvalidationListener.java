@@ -0,0 +1,41 @@
+package com.vibrent.aftership.messaging.listener;
+
+import com.vibrent.aftership.cache.TrackingRequestCache;
+import com.vibrent.aftership.constants.KafkaConstants;
+import com.vibrent.aftership.dto.CacheInvalidationDTO;
+import com.vibrent.aftership.util.JacksonUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Kafka Listener for tracking request cache invalidations broadcast by the other nodes
+ */
+@Service
+@Slf4j
+public class CacheInvalidationListener {
+    private final TrackingRequestCache trackingRequestCache;
+
+    public CacheInvalidationListener(TrackingRequestCache trackingRequestCache) {
+        this.trackingRequestCache = trackingRequestCache;
+    }
+
+    @KafkaListener(id = KafkaConstants.CACHE_INVALIDATION_LISTENER_ID, topics = "${kafka.topics.cacheInvalidation}", idIsGroup = false,
+            containerFactory = "kafkaListenerContainerFactoryCacheInvalidation", autoStartup = "${afterShip.cache.trackingRequest.broadcast}")
+    public void listener(@Payload byte[] byteArray) {
+        CacheInvalidationDTO cacheInvalidationDTO;
+        try {
+            cacheInvalidationDTO = JacksonUtil.getMapper().readValue(byteArray, CacheInvalidationDTO.class);
+        } catch (IOException e) {
+            log.warn("aftership-service: Cannot convert Payload to CacheInvalidationDTO", e);
+            return;
+        }
+        if (trackingRequestCache.getNodeId().equals(cacheInvalidationDTO.getNodeId())) {
+            return;
+        }
+        trackingRequestCache.evict(cacheInvalidationDTO.getTrackingId());
+    }
+}
@@ -1,6 +1,7 @@
 package com.vibrent.aftership.messaging.listener;
 
 
+import com.vibrent.aftership.constants.KafkaConstants;
 import com.vibrent.aftership.converter.TrackDeliveryRequestConverter;
 import com.vibrent.aftership.messaging.KafkaMessageBuilder;
 import com.vibrent.aftership.service.ExternalLogService;
@@ -40,7 +41,7 @@ public class FulfillmentTrackDeliveryRequestListener {
         this.externalLogService = externalLogService;
     }
 
-    @KafkaListener(topics = "${kafka.topics.track.request}", groupId = "aftershipFulfillmentTrackingRequestListener",
+    @KafkaListener(id = KafkaConstants.FULFILLMENT_TRACK_DELIVERY_REQUEST_LISTENER_ID, topics = "${kafka.topics.track.request}", groupId = "aftershipFulfillmentTrackingRequestListener",
             containerFactory = "kafkaListenerContainerFactoryFulfillmentTrackDeliveryRequest")
 
    public void listener(@Payload byte[] payloadByteArray,
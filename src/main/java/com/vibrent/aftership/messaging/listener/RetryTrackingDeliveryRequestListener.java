@@ -1,5 +1,6 @@
 package com.vibrent.aftership.messaging.listener;
 
+import com.vibrent.aftership.constants.KafkaConstants;
 import com.vibrent.aftership.dto.RetryRequestDTO;
 import com.vibrent.aftership.repository.TrackingRequestErrorRepository;
 import com.vibrent.aftership.service.TrackingRequestService;
@@ -32,7 +33,7 @@ public class RetryTrackingDeliveryRequestListener {
     }
 
     @Transactional
-    @KafkaListener(topics = "${kafka.topics.tracking.retryRequest}", groupId = "retryTrackingRequestListener",
+    @KafkaListener(id = KafkaConstants.RETRY_TRACKING_DELIVERY_REQUEST_LISTENER_ID, topics = "${kafka.topics.tracking.retryRequest}", groupId = "retryTrackingRequestListener",
             containerFactory = "kafkaListenerContainerFactoryRetryTrackDeliveryRequest")
 
     public void listener(@Payload byte[] byteArray) {
@@ -1,6 +1,7 @@
 package com.vibrent.aftership.messaging.listener;
 
 
+import com.vibrent.aftership.constants.KafkaConstants;
 import com.vibrent.aftership.converter.TrackDeliveryRequestConverter;
 import com.vibrent.aftership.messaging.KafkaMessageBuilder;
 import com.vibrent.aftership.service.TrackingRequestService;
@@ -35,7 +36,7 @@ public class TrackDeliveryRequestListener {
         this.trackDeliveryRequestConverter = trackDeliveryRequestConverter;
     }
 
-    @KafkaListener(topics = "${kafka.topics.tracking.request}", groupId = "aftershipTrackingRequestListener",
+    @KafkaListener(id = KafkaConstants.TRACK_DELIVERY_REQUEST_LISTENER_ID, topics = "${kafka.topics.tracking.request}", groupId = "aftershipTrackingRequestListener",
             containerFactory = "kafkaListenerContainerFactoryTrackDeliveryRequest")
     public void listener(@Payload byte[]  payloadArray,
                          @Headers MessageHeaders messageHeaders) {
@@ -1,6 +1,7 @@
 package com.vibrent.aftership.messaging.producer;
 
 import com.vibrent.aftership.constants.KafkaConstants;
+import com.vibrent.aftership.dto.CacheInvalidationDTO;
 import com.vibrent.aftership.dto.RetryRequestDTO;
 import com.vibrent.vxp.workflow.FulfillmentTrackDeliveryResponseDto;
 import com.vibrent.vxp.workflow.MessageHeaderDto;
@@ -31,6 +32,12 @@ public interface MessageProducer<T> {
         return messageBuilder.build();
     }
 
+    default Message<CacheInvalidationDTO> buildMessage(CacheInvalidationDTO payload, String topicName) {
+        MessageBuilder<CacheInvalidationDTO> messageBuilder = MessageBuilder.withPayload(payload);
+        messageBuilder.setHeader(KafkaHeaders.TOPIC, topicName);
+        return messageBuilder.build();
+    }
+
     default Message<FulfillmentTrackDeliveryResponseDto> buildMessage(FulfillmentTrackDeliveryResponseDto payload, MessageHeaderDto headers, String topicName) {
         MessageBuilder<FulfillmentTrackDeliveryResponseDto> messageBuilder = MessageBuilder.withPayload(payload);
         setMessageHeaders(headers, topicName, (MessageBuilder<T>) messageBuilder);
@@ -0,0 +1,51 @@
+package com.vibrent.aftership.messaging.producer.impl;
+
+import com.vibrent.aftership.dto.CacheInvalidationDTO;
+import com.vibrent.aftership.messaging.producer.MessageProducer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+
+@Slf4j
+@Service
+public class CacheInvalidationProducer implements MessageProducer<CacheInvalidationDTO> {
+    private final KafkaTemplate<String, CacheInvalidationDTO> kafkaTemplate;
+    private boolean kafkaEnabled;
+    private final String topicName;
+
+    public CacheInvalidationProducer(KafkaTemplate<String, CacheInvalidationDTO> kafkaTemplate,
+                                     @Value("${kafka.enabled}") boolean kafkaEnabled,
+                                     @Value("${kafka.topics.cacheInvalidation}") String topicName) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.kafkaEnabled = kafkaEnabled;
+        this.topicName = topicName;
+    }
+
+    @Override
+    public void setKafkaEnabled(boolean newState) {
+        this.kafkaEnabled = newState;
+    }
+
+    @Override
+    public void send(CacheInvalidationDTO msg) {
+        if (!kafkaEnabled) {
+            log.debug("Kafka is not enabled - Cache invalidation of trackingID {} is not broadcast", msg.getTrackingId());
+            return;
+        }
+        kafkaTemplate.send(buildMessage(msg, topicName))
+                .addCallback(new ListenableFutureCallback<SendResult<String, CacheInvalidationDTO>>() {
+                    @Override
+                    public void onFailure(Throwable throwable) {
+                        log.warn("Aftership | Fail to broadcast cache invalidation. TrackingId : {}", msg.getTrackingId(), throwable);
+                    }
+
+                    @Override
+                    public void onSuccess(SendResult<String, CacheInvalidationDTO> result) {
+                        log.debug("Aftership | Successfully broadcast cache invalidation. TrackingId : {}", msg.getTrackingId());
+                    }
+                });
+    }
+}
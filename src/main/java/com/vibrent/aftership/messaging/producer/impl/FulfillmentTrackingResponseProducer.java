@@ -3,6 +3,7 @@ package com.vibrent.aftership.messaging.producer.impl;
 import com.google.common.base.Preconditions;
 import com.vibrent.aftership.messaging.producer.MessageProducer;
 import com.vibrent.aftership.service.ExternalLogService;
+import com.vibrent.aftership.service.OutboxService;
 import com.vibrent.vxp.workflow.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,6 +12,8 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.concurrent.ListenableFutureCallback;
 
 import java.io.IOException;
@@ -30,10 +33,13 @@ public class FulfillmentTrackingResponseProducer implements MessageProducer<Fulf
 
     private final ExternalLogService externalLogService;
 
-    public FulfillmentTrackingResponseProducer(KafkaTemplate<String, FulfillmentTrackDeliveryResponseDto> kafkaTemplate, ExternalLogService externalLogService,
+    private final OutboxService outboxService;
+
+    public FulfillmentTrackingResponseProducer(KafkaTemplate<String, FulfillmentTrackDeliveryResponseDto> kafkaTemplate, ExternalLogService externalLogService, OutboxService outboxService,
                                                @Value("${kafka.enabled}") boolean kafkaEnabled, @Value("${kafka.topics.track.response}") String topicName) {
         this.kafkaTemplate = kafkaTemplate;
         this.externalLogService = externalLogService;
+        this.outboxService = outboxService;
         this.kafkaEnabled = kafkaEnabled;
         this.topicName = topicName;
     }
@@ -66,6 +72,15 @@ public class FulfillmentTrackingResponseProducer implements MessageProducer<Fulf
             return;
         }
 
+        if (outboxService.isEnabled()) {
+            // Not caught, the status update must not commit without its response
+            outboxService.enqueue(buildMessage(fulfilmentTrackDeliveryResponseDto, headerDto, topicName));
+            // Only queued, the relay sends it once the status update committed
+            afterCommit(() -> externalLogService.send(msg, headerDto.getVxpMessageTimestamp(),
+                    "AfterShip | Fulfillment Track Delivery Response queued", HttpStatus.OK));
+            return;
+        }
+
         try {
             Message<FulfillmentTrackDeliveryResponseDto> message = buildMessage(fulfilmentTrackDeliveryResponseDto, headerDto, topicName);
             kafkaTemplate.send(message).addCallback(newSendResultListenableFutureCallback());
@@ -93,4 +108,17 @@ public class FulfillmentTrackingResponseProducer implements MessageProducer<Fulf
             }
         };
     }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
@@ -3,6 +3,7 @@ package com.vibrent.aftership.messaging.producer.impl;
 import com.google.common.base.Preconditions;
 import com.vibrent.aftership.messaging.producer.MessageProducer;
 import com.vibrent.aftership.service.ExternalLogService;
+import com.vibrent.aftership.service.OutboxService;
 import com.vibrent.vxp.workflow.MessageHeaderDto;
 import com.vibrent.vxp.workflow.TrackDeliveryResponseDto;
 import com.vibrent.vxp.workflow.TrackDeliveryResponseDtoWrapper;
@@ -13,6 +14,8 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.concurrent.ListenableFutureCallback;
 
 import java.io.IOException;
@@ -32,10 +35,13 @@ public class TrackingResponseProducer implements MessageProducer<TrackDeliveryRe
 
     private final ExternalLogService externalLogService;
 
-    public TrackingResponseProducer(KafkaTemplate<String, TrackDeliveryResponseDtoWrapper> kafkaTemplate, ExternalLogService externalLogService,
+    private final OutboxService outboxService;
+
+    public TrackingResponseProducer(KafkaTemplate<String, TrackDeliveryResponseDtoWrapper> kafkaTemplate, ExternalLogService externalLogService, OutboxService outboxService,
                                     @Value("${kafka.enabled}") boolean kafkaEnabled, @Value("${kafka.topics.tracking.response}") String topicName) {
         this.kafkaTemplate = kafkaTemplate;
         this.externalLogService = externalLogService;
+        this.outboxService = outboxService;
         this.kafkaEnabled = kafkaEnabled;
         this.topicName = topicName;
     }
@@ -68,6 +74,15 @@ public class TrackingResponseProducer implements MessageProducer<TrackDeliveryRe
             return;
         }
 
+        if (outboxService.isEnabled()) {
+            // In the transaction of the status update, a failure rolls the update back instead of losing the response
+            outboxService.enqueue(buildMessage(trackDeliveryResponseDto, headerDto, topicName));
+            // Only queued, the relay sends it once the status update committed
+            afterCommit(() -> externalLogService.send(msg, headerDto.getVxpMessageTimestamp(),
+                    "AfterShip | Track Delivery Response queued", HttpStatus.OK));
+            return;
+        }
+
         try {
             Message<TrackDeliveryResponseDto> message = buildMessage(trackDeliveryResponseDto, headerDto, topicName);
             kafkaTemplate.send(message).addCallback(newSendResultListenableFutureCallback());
@@ -95,4 +110,17 @@ public class TrackingResponseProducer implements MessageProducer<TrackDeliveryRe
             }
         };
     }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
@@ -0,0 +1,76 @@
+package com.vibrent.aftership.repository;
+
+import com.vibrent.aftership.dto.AuditPartitionDTO;
+import com.vibrent.aftership.dto.TableSizeDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Range partitions by revision of {@code revinfo} and the audit tables. The statements are DDL, every one of them
+ * commits on its own.
+ */
+@Repository
+public class AuditPartitionRepository {
+
+    public static final String MAX_PARTITION = "p_max";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AuditPartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return partitions of the table ordered by bound, empty when the table is not partitioned
+     */
+    public List<AuditPartitionDTO> findPartitions(String table) {
+        return jdbcTemplate.query("SELECT PARTITION_NAME, PARTITION_DESCRIPTION, TABLE_ROWS FROM information_schema.PARTITIONS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION",
+                (rs, rowNum) -> new AuditPartitionDTO(rs.getString(1),
+                        "MAXVALUE".equals(rs.getString(2)) ? null : Long.valueOf(rs.getString(2)),
+                        rs.getLong(3)),
+                table);
+    }
+
+    public Optional<TableSizeDTO> getTableSize(String table) {
+        return jdbcTemplate.query("SELECT TABLE_ROWS, DATA_LENGTH + INDEX_LENGTH FROM information_schema.TABLES " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                (rs, rowNum) -> new TableSizeDTO(rs.getLong(1), rs.getLong(2)),
+                table).stream().findFirst();
+    }
+
+    public long getMaxRevision() {
+        Long rev = jdbcTemplate.queryForObject("SELECT MAX(rev) FROM revinfo", Long.class);
+        return rev == null ? 0 : rev;
+    }
+
+    /**
+     * Revisions and their timestamps grow together, the newest revision before the timestamp is the one with the
+     * newest timestamp before it, which index_revinfo_revtstmp finds without scanning the older revisions.
+     *
+     * @return newest revision created before the timestamp, 0 when there is none
+     */
+    public long getMaxRevisionBefore(long revisionTimestamp) {
+        return jdbcTemplate.queryForList("SELECT rev FROM revinfo WHERE revtstmp < ? ORDER BY revtstmp DESC LIMIT 1",
+                Long.class, revisionTimestamp).stream().findFirst().orElse(0L);
+    }
+
+    /**
+     * Splits the revisions below {@code bound} off the last partition into a partition of their own. MySQL copies the
+     * rows of the last partition, the split is cheap only while it is empty.
+     */
+    public void splitMaxPartition(String table, long bound) {
+        jdbcTemplate.execute("ALTER TABLE `" + table + "` REORGANIZE PARTITION " + MAX_PARTITION + " INTO (" +
+                "PARTITION p_" + bound + " VALUES LESS THAN (" + bound + "), " +
+                "PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE)");
+    }
+
+    public void dropPartitions(String table, List<AuditPartitionDTO> partitions) {
+        jdbcTemplate.execute("ALTER TABLE `" + table + "` DROP PARTITION " +
+                partitions.stream().map(AuditPartitionDTO::getName).collect(Collectors.joining(", ")));
+    }
+}
@@ -0,0 +1,31 @@
+package com.vibrent.aftership.repository;
+
+import com.vibrent.aftership.domain.PollRunCheckpoint;
+import com.vibrent.aftership.enums.PollRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface PollRunCheckpointRepository extends JpaRepository<PollRunCheckpoint, Long> {
+
+    Optional<PollRunCheckpoint> findByRunIdAndShardIndex(Long runId, Integer shardIndex);
+
+    List<PollRunCheckpoint> findByRunIdInOrderByRunIdDescShardIndexAsc(Collection<Long> runIds);
+
+    long countByRunIdAndStatusNotIn(Long runId, Collection<PollRunStatus> statuses);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE PollRunCheckpoint c SET c.lastId = :lastId, c.processed = :processed, c.updatedOn = :updatedOn " +
+            "WHERE c.runId = :runId AND c.shardIndex = :shardIndex")
+    int updateProgress(@Param("runId") Long runId, @Param("shardIndex") Integer shardIndex, @Param("lastId") Long lastId,
+                       @Param("processed") Long processed, @Param("updatedOn") Long updatedOn);
+
+    @Modifying
+    @Query("DELETE FROM PollRunCheckpoint c WHERE c.runId < :runId")
+    int deleteByRunIdLessThan(@Param("runId") Long runId);
+}
@@ -0,0 +1,28 @@
+package com.vibrent.aftership.repository;
+
+import com.vibrent.aftership.domain.PollRun;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.Optional;
+
+public interface PollRunRepository extends JpaRepository<PollRun, Long> {
+
+    Optional<PollRun> findByRunId(Long runId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM PollRun r WHERE r.runId = :runId")
+    Optional<PollRun> findByRunIdForUpdate(@Param("runId") Long runId);
+
+    List<PollRun> findAllByOrderByRunIdDesc(Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM PollRun r WHERE r.runId < :runId")
+    int deleteByRunIdLessThan(@Param("runId") Long runId);
+}
@@ -1,10 +1,12 @@
 package com.vibrent.aftership.repository;
 
 import com.vibrent.aftership.domain.TrackingRequestError;
+import com.vibrent.aftership.repository.projection.TrackingRequestErrorRetryView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
 import java.util.Optional;
-import java.util.stream.Stream;
 
 public interface TrackingRequestErrorRepository extends JpaRepository<TrackingRequestError, Long> {
 
@@ -12,5 +14,5 @@ public interface TrackingRequestErrorRepository extends JpaRepository<TrackingRe
 
     void deleteByTrackingId(String trackingID);
 
-    Stream<TrackingRequestError> findByRetryCountLessThan(Integer retryCount);
+    List<TrackingRequestErrorRetryView> findByIdGreaterThanAndRetryCountLessThanOrderByIdAsc(Long lastId, Integer retryCount, Pageable pageable);
 }
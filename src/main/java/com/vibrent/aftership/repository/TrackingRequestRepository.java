@@ -1,15 +1,156 @@
 package com.vibrent.aftership.repository;
 
 import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.repository.projection.TrackingRequestCarrierResponseView;
+import com.vibrent.aftership.repository.projection.TrackingRequestPollView;
+import com.vibrent.aftership.repository.projection.TrackingRequestSummaryView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Stream;
 
 public interface TrackingRequestRepository extends CrudRepository<TrackingRequest, Long> {
 
+    // Read only, outside of a read write transaction the lookup may be answered by the replica
+    @Transactional(readOnly = true)
     Optional<TrackingRequest> findByTrackingId(String trackingId);
 
-    Stream<TrackingRequest> findAllByStatusNotInAndUpdatedOnLessThan(List<String> excludeStatusList, Long updatedOn);
+    @Query("SELECT t.id AS id, t.trackingId AS trackingId, t.slug AS slug, t.status AS status, t.lastEventAt AS lastEventAt, " +
+            "t.fulfillmentOrderID AS fulfillmentOrderID FROM TrackingRequest t WHERE t.id > :lastId AND t.status NOT IN :excludeStatusList " +
+            "AND t.nextPollAt <= :now AND MOD(t.id, :shardCount) = :shardIndex ORDER BY t.id")
+    List<TrackingRequestPollView> findEligibleForPolling(@Param("lastId") long lastId,
+                                                 @Param("excludeStatusList") List<String> excludeStatusList,
+                                                 @Param("now") long now,
+                                                 @Param("shardIndex") long shardIndex,
+                                                 @Param("shardCount") long shardCount,
+                                                 Pageable pageable);
+
+    @Query("SELECT t.id AS id, t.trackingId AS trackingId, t.provider AS provider, t.slug AS slug, t.status AS status, " +
+            "t.subStatusCode AS subStatusCode, t.subStatusDescription AS subStatusDescription, t.fulfillmentOrderID AS fulfillmentOrderID, " +
+            "t.vibrentId AS vibrentId, t.externalId AS externalId, t.lastEventAt AS lastEventAt, t.createdOn AS createdOn, " +
+            "t.updatedOn AS updatedOn FROM TrackingRequest t WHERE t.vibrentId = :vibrentId AND t.id > :lastId ORDER BY t.id")
+    List<TrackingRequestSummaryView> findByVibrentId(@Param("vibrentId") Long vibrentId, @Param("lastId") long lastId, Pageable pageable);
+
+    @Query("SELECT t.id AS id, t.trackingId AS trackingId, t.provider AS provider, t.slug AS slug, t.status AS status, " +
+            "t.subStatusCode AS subStatusCode, t.subStatusDescription AS subStatusDescription, t.fulfillmentOrderID AS fulfillmentOrderID, " +
+            "t.vibrentId AS vibrentId, t.externalId AS externalId, t.lastEventAt AS lastEventAt, t.createdOn AS createdOn, " +
+            "t.updatedOn AS updatedOn FROM TrackingRequest t WHERE t.externalId = :externalId AND t.id > :lastId ORDER BY t.id")
+    List<TrackingRequestSummaryView> findByExternalId(@Param("externalId") String externalId, @Param("lastId") long lastId, Pageable pageable);
+
+    String SUMMARY_COLUMNS = "id AS id, tracking_id AS trackingId, provider AS provider, slug AS slug, status AS status, " +
+            "sub_status_code AS subStatusCode, sub_status_description AS subStatusDescription, fulfillment_order_id AS fulfillmentOrderID, " +
+            "vibrent_id AS vibrentId, external_id AS externalId, last_event_at AS lastEventAt, created_on AS createdOn, updated_on AS updatedOn";
+
+    // Ids move with a tracking request between both tables, each side reads at most a page off its participant index
+    @Query(value = "(SELECT " + SUMMARY_COLUMNS + " FROM tracking_request WHERE vibrent_id = :vibrentId AND id > :lastId ORDER BY id LIMIT :limit) " +
+            "UNION ALL (SELECT " + SUMMARY_COLUMNS + " FROM tracking_request_archive WHERE vibrent_id = :vibrentId AND id > :lastId ORDER BY id LIMIT :limit) " +
+            "ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<TrackingRequestSummaryView> findByVibrentIdWithArchive(@Param("vibrentId") Long vibrentId, @Param("lastId") long lastId, @Param("limit") int limit);
+
+    @Query(value = "(SELECT " + SUMMARY_COLUMNS + " FROM tracking_request WHERE external_id = :externalId AND id > :lastId ORDER BY id LIMIT :limit) " +
+            "UNION ALL (SELECT " + SUMMARY_COLUMNS + " FROM tracking_request_archive WHERE external_id = :externalId AND id > :lastId ORDER BY id LIMIT :limit) " +
+            "ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<TrackingRequestSummaryView> findByExternalIdWithArchive(@Param("externalId") String externalId, @Param("lastId") long lastId, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE TrackingRequest t SET t.nextPollAt = :nextPollAt WHERE t.id = :id")
+    int updateNextPollAt(@Param("id") Long id, @Param("nextPollAt") Long nextPollAt);
+
+    @Modifying
+    @Query("UPDATE TrackingRequest t SET t.nextPollAt = :nextPollAt, t.slug = COALESCE(t.slug, :slug) WHERE t.id = :id")
+    int updateNextPollAtAndSlug(@Param("id") Long id, @Param("nextPollAt") Long nextPollAt, @Param("slug") String slug);
+
+    // Applies a status change only when the stored status still differs and the carrier event time of the stored status
+    // change is not newer, of concurrent updates to the same status exactly one applies. Written without an Envers revision.
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE tracking_request SET status = :status, sub_status_code = :subStatusCode, sub_status_description = :subStatusDescription, " +
+            "slug = :slug, carrier_response = :carrierResponse, carrier_response_compressed = :carrierResponseCompressed, " +
+            "carrier_response_type = :carrierResponseType, last_event_at = :lastEventAt, next_poll_at = :nextPollAt, fingerprint = :fingerprint, updated_on = :updatedOn " +
+            "WHERE tracking_id = :trackingId AND NOT (status <=> :status AND sub_status_code <=> :subStatusCode) " +
+            "AND (last_event_at IS NULL OR last_event_at <= :lastEventAt)", nativeQuery = true)
+    int compareAndSetStatus(@Param("trackingId") String trackingId,
+                            @Param("status") String status,
+                            @Param("subStatusCode") String subStatusCode,
+                            @Param("subStatusDescription") String subStatusDescription,
+                            @Param("slug") String slug,
+                            @Param("carrierResponse") String carrierResponse,
+                            @Param("carrierResponseCompressed") byte[] carrierResponseCompressed,
+                            @Param("carrierResponseType") String carrierResponseType,
+                            @Param("lastEventAt") Long lastEventAt,
+                            @Param("nextPollAt") Long nextPollAt,
+                            @Param("fingerprint") Long fingerprint,
+                            @Param("updatedOn") Long updatedOn);
+
+    // Stores the carrier response of an unchanged status, unless the status changed since it was read
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE tracking_request SET sub_status_description = :subStatusDescription, slug = :slug, carrier_response = :carrierResponse, " +
+            "carrier_response_compressed = :carrierResponseCompressed, carrier_response_type = :carrierResponseType, " +
+            "next_poll_at = :nextPollAt, fingerprint = :fingerprint, updated_on = :updatedOn " +
+            "WHERE tracking_id = :trackingId AND status <=> :status AND sub_status_code <=> :subStatusCode", nativeQuery = true)
+    int updateCarrierResponse(@Param("trackingId") String trackingId,
+                              @Param("status") String status,
+                              @Param("subStatusCode") String subStatusCode,
+                              @Param("subStatusDescription") String subStatusDescription,
+                              @Param("slug") String slug,
+                              @Param("carrierResponse") String carrierResponse,
+                              @Param("carrierResponseCompressed") byte[] carrierResponseCompressed,
+                              @Param("carrierResponseType") String carrierResponseType,
+                              @Param("nextPollAt") Long nextPollAt,
+                              @Param("fingerprint") Long fingerprint,
+                              @Param("updatedOn") Long updatedOn);
+
+    @Query("SELECT t.id AS id, t.carrierResponse AS carrierResponse, t.carrierResponseType AS carrierResponseType, t.updatedOn AS updatedOn " +
+            "FROM TrackingRequest t WHERE t.id > :lastId AND t.carrierResponse IS NOT NULL ORDER BY t.id")
+    List<TrackingRequestCarrierResponseView> findUncompressedCarrierResponses(@Param("lastId") long lastId, Pageable pageable);
+
+    // Bulk update without an audit revision, a row updated since it was read keeps the carrier response of the update
+    @Modifying
+    @Query("UPDATE TrackingRequest t SET t.carrierResponseCompressed = :compressed, t.carrierResponse = NULL " +
+            "WHERE t.id = :id AND t.updatedOn = :updatedOn")
+    int compressCarrierResponse(@Param("id") Long id, @Param("compressed") byte[] compressed, @Param("updatedOn") Long updatedOn);
+
+    @Query("SELECT t.id FROM TrackingRequest t WHERE t.status IN :statusList AND t.updatedOn < :updatedBefore ORDER BY t.id")
+    List<Long> findArchivableIds(@Param("statusList") List<String> statusList,
+                                 @Param("updatedBefore") long updatedBefore,
+                                 Pageable pageable);
+
+    // Native statements move the rows as they are, archiving and restoring create no audit revision
+    @Modifying
+    @Query(value = "INSERT INTO tracking_request_archive (id, operation, provider, tracking_id, participant, vibrent_id, external_id, status, sub_status_code, sub_status_description, carrier_response, " +
+            "carrier_response_compressed, carrier_response_type, slug, last_event_at, next_poll_at, fulfillment_order_id, header, fingerprint, created_on, updated_on, archived_on) " +
+            "SELECT id, operation, provider, tracking_id, participant, vibrent_id, external_id, status, sub_status_code, sub_status_description, carrier_response, " +
+            "carrier_response_compressed, carrier_response_type, slug, last_event_at, next_poll_at, fulfillment_order_id, header, fingerprint, created_on, updated_on, :archivedOn FROM tracking_request " +
+            "WHERE id IN :ids AND status IN :statusList AND updated_on < :updatedBefore", nativeQuery = true)
+    int copyToArchive(@Param("ids") List<Long> ids,
+                      @Param("statusList") List<String> statusList,
+                      @Param("updatedBefore") long updatedBefore,
+                      @Param("archivedOn") long archivedOn);
+
+    @Query(value = "SELECT t.tracking_id FROM tracking_request t JOIN tracking_request_archive a ON a.id = t.id WHERE t.id IN :ids", nativeQuery = true)
+    List<String> findArchivedTrackingIds(@Param("ids") List<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE t FROM tracking_request t JOIN tracking_request_archive a ON a.id = t.id WHERE t.id IN :ids", nativeQuery = true)
+    int deleteArchived(@Param("ids") List<Long> ids);
+
+    @Query(value = "SELECT COUNT(*) FROM tracking_request_archive WHERE tracking_id = :trackingId", nativeQuery = true)
+    long countArchivedByTrackingId(@Param("trackingId") String trackingId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO tracking_request (id, operation, provider, tracking_id, participant, vibrent_id, external_id, status, sub_status_code, sub_status_description, carrier_response, " +
+            "carrier_response_compressed, carrier_response_type, slug, last_event_at, next_poll_at, fulfillment_order_id, header, fingerprint, created_on, updated_on) " +
+            "SELECT id, operation, provider, tracking_id, participant, vibrent_id, external_id, status, sub_status_code, sub_status_description, carrier_response, " +
+            "carrier_response_compressed, carrier_response_type, slug, last_event_at, next_poll_at, fulfillment_order_id, header, fingerprint, created_on, updated_on FROM tracking_request_archive WHERE tracking_id = :trackingId", nativeQuery = true)
+    int restoreFromArchive(@Param("trackingId") String trackingId);
+
+    @Modifying
+    @Query(value = "DELETE FROM tracking_request_archive WHERE tracking_id = :trackingId", nativeQuery = true)
+    int deleteFromArchive(@Param("trackingId") String trackingId);
 }
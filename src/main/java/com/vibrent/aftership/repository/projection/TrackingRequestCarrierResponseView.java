@@ -0,0 +1,15 @@
+package com.vibrent.aftership.repository.projection;
+
+/**
+ * Carrier response of a tracking request stored as JSON, read by the compact carrier response job.
+ */
+public interface TrackingRequestCarrierResponseView {
+
+    Long getId();
+
+    String getCarrierResponse();
+
+    String getCarrierResponseType();
+
+    Long getUpdatedOn();
+}
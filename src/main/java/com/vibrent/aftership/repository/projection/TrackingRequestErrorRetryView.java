@@ -0,0 +1,15 @@
+package com.vibrent.aftership.repository.projection;
+
+/**
+ * Columns of a tracking request error the retry job needs to send the request again.
+ */
+public interface TrackingRequestErrorRetryView {
+
+    Long getId();
+
+    String getTrackingId();
+
+    String getTrackDeliveryRequest();
+
+    String getHeader();
+}
@@ -0,0 +1,19 @@
+package com.vibrent.aftership.repository.projection;
+
+/**
+ * Columns of a tracking request the get tracking job decides on, without the JSON columns.
+ */
+public interface TrackingRequestPollView {
+
+    Long getId();
+
+    String getTrackingId();
+
+    String getSlug();
+
+    String getStatus();
+
+    Long getLastEventAt();
+
+    Long getFulfillmentOrderID();
+}
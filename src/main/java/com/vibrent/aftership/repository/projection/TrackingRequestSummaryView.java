@@ -0,0 +1,33 @@
+package com.vibrent.aftership.repository.projection;
+
+/**
+ * Columns of a tracking request the lookups by participant return, without the JSON columns.
+ */
+public interface TrackingRequestSummaryView {
+
+    Long getId();
+
+    String getTrackingId();
+
+    String getProvider();
+
+    String getSlug();
+
+    String getStatus();
+
+    String getSubStatusCode();
+
+    String getSubStatusDescription();
+
+    Long getFulfillmentOrderID();
+
+    Long getVibrentId();
+
+    String getExternalId();
+
+    Long getLastEventAt();
+
+    Long getCreatedOn();
+
+    Long getUpdatedOn();
+}
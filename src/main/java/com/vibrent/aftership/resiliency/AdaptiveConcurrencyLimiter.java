@@ -0,0 +1,238 @@
+package com.vibrent.aftership.resiliency;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vibrent.aftership.exception.AfterShipDeadlineExceededException;
+import com.vibrent.aftership.exception.AfterShipRetriableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gradient based adaptive concurrency limit for calls to AfterShip.
+ * <p>
+ * Tracks a short term (last few calls) and a long term (baseline) average of the AfterShip latency. While the short
+ * term latency stays near the baseline the limit grows, once it rises above the baseline by more than the tolerance the
+ * limit shrinks in proportion, and failures cut it by {@link #BACKOFF_RATIO}. Calls above the limit wait in a bounded
+ * queue instead of failing; they are only rejected when the queue is full or they waited longer than
+ * {@code afterShip.concurrencyLimit.maxQueueWait}.
+ * <p>
+ * Metrics: {@code afterShip.concurrency.limit}, {@code afterShip.concurrency.inFlight},
+ * {@code afterShip.concurrency.queueDepth}, {@code afterShip.concurrency.rejections} and the two latency averages.
+ */
+@Slf4j
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    static final double SHORT_WINDOW_ALPHA = 2.0 / (10 + 1);
+    static final double LONG_WINDOW_ALPHA = 2.0 / (600 + 1);
+    static final double RTT_TOLERANCE = 1.5;
+    static final double SMOOTHING = 0.2;
+    static final double BACKOFF_RATIO = 0.9;
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final Duration maxQueueWait;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private double shortRttMillis;
+    private double longRttMillis;
+
+    private final Counter rejections;
+
+    public AdaptiveConcurrencyLimiter(@Value("${afterShip.concurrencyLimit.enabled}") boolean enabled,
+                                      @Value("${afterShip.concurrencyLimit.initialLimit}") int initialLimit,
+                                      @Value("${afterShip.concurrencyLimit.minLimit}") int minLimit,
+                                      @Value("${afterShip.concurrencyLimit.maxLimit}") int maxLimit,
+                                      @Value("${afterShip.concurrencyLimit.maxQueueSize}") int maxQueueSize,
+                                      @Value("${afterShip.concurrencyLimit.maxQueueWait}") Duration maxQueueWait,
+                                      MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueSize = maxQueueSize;
+        this.maxQueueWait = maxQueueWait;
+
+        this.rejections = meterRegistry.counter("afterShip.concurrency.rejections");
+        Gauge.builder("afterShip.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("afterShip.concurrency.inFlight", this, AdaptiveConcurrencyLimiter::getInFlight).register(meterRegistry);
+        Gauge.builder("afterShip.concurrency.queueDepth", this, AdaptiveConcurrencyLimiter::getQueueDepth).register(meterRegistry);
+        Gauge.builder("afterShip.concurrency.shortRtt", this, l -> l.shortRttMillis)
+                .description("Short term average AfterShip latency in ms").register(meterRegistry);
+        Gauge.builder("afterShip.concurrency.longRtt", this, l -> l.longRttMillis)
+                .description("Baseline AfterShip latency in ms").register(meterRegistry);
+    }
+
+    /**
+     * Waits for a permit to call AfterShip, at most until the deadline or {@code maxQueueWait}, whichever comes first.
+     * The returned permit has to be released once the call completed.
+     */
+    public Permit acquire(Deadline deadline) {
+        Duration remaining = deadline == null ? maxQueueWait : deadline.remaining();
+        boolean boundedByDeadline = remaining.compareTo(maxQueueWait) < 0;
+        long waitNanos = Math.min(remaining.toNanos(), maxQueueWait.toNanos());
+
+        lock.lock();
+        try {
+            if (!enabled || inFlight < (int) limit) {
+                inFlight++;
+                return new Permit();
+            }
+            if (queued >= maxQueueSize) {
+                rejections.increment();
+                throw new AfterShipRetriableException("AfterShip concurrency limit reached and queue is full", HttpStatus.TOO_MANY_REQUESTS.value());
+            }
+
+            queued++;
+            try {
+                while (inFlight >= (int) limit) {
+                    if (waitNanos <= 0) {
+                        rejections.increment();
+                        if (boundedByDeadline) {
+                            throw new AfterShipDeadlineExceededException("AfterShip call deadline exceeded while waiting for a concurrency permit");
+                        }
+                        throw new AfterShipRetriableException("AfterShip concurrency permit not available within " + maxQueueWait,
+                                HttpStatus.TOO_MANY_REQUESTS.value());
+                    }
+                    waitNanos = permitReleased.awaitNanos(waitNanos);
+                }
+                inFlight++;
+                return new Permit();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AfterShipDeadlineExceededException("Interrupted while waiting for an AfterShip concurrency permit");
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Executor for AfterShip calls with one thread per permit the limit can hand out. A call that outlived its deadline
+     * keeps its thread until the AfterShip client times it out; while all threads are taken new calls are rejected with
+     * a {@link java.util.concurrent.RejectedExecutionException} instead of growing the pool.
+     */
+    public ExecutorService newCallExecutor(String nameFormat) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxLimit, maxLimit, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public double getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onComplete(long rttNanos, boolean success) {
+        lock.lock();
+        try {
+            int inFlightAtCompletion = inFlight;
+            inFlight--;
+            if (enabled) {
+                if (success) {
+                    onSample(TimeUnit.NANOSECONDS.toMicros(rttNanos) / 1000.0, inFlightAtCompletion);
+                } else {
+                    limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                }
+            }
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSample(double rttMillis, int inFlightAtCompletion) {
+        if (longRttMillis == 0) {
+            shortRttMillis = rttMillis;
+            longRttMillis = rttMillis;
+            return;
+        }
+        shortRttMillis = shortRttMillis + SHORT_WINDOW_ALPHA * (rttMillis - shortRttMillis);
+        longRttMillis = longRttMillis + LONG_WINDOW_ALPHA * (rttMillis - longRttMillis);
+
+        // Let the baseline recover quickly after a period of high latency
+        if (longRttMillis / shortRttMillis > 2) {
+            longRttMillis *= 0.95;
+        }
+
+        // Do not grow the limit while it is not being used
+        if (inFlightAtCompletion < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRttMillis / shortRttMillis));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        double previous = limit;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+
+        if ((int) previous != (int) limit) {
+            log.debug("AfterShip: Concurrency limit changed from {} to {}, latency short={}ms long={}ms",
+                    (int) previous, (int) limit, Math.round(shortRttMillis), Math.round(longRttMillis));
+        }
+    }
+
+    /**
+     * Permit for one AfterShip call; released exactly once with the outcome of the call.
+     */
+    public final class Permit {
+
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        public void release(boolean success) {
+            if (released.compareAndSet(false, true)) {
+                onComplete(System.nanoTime() - startNanos, success);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.vibrent.aftership.resiliency;
+
+import com.vibrent.aftership.exception.AfterShipDeadlineExceededException;
+import com.vibrent.aftership.exception.AfterShipException;
+import com.vibrent.aftership.exception.AfterShipNonRetriableException;
+import com.vibrenthealth.resiliency.core.Output;
+import com.vibrenthealth.resiliency.core.RetryModesEnum;
+import com.vibrenthealth.resiliency.core.RockSteadySystem;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Executes AfterShip calls through the {@link RockSteadySystem} with a deadline that bounds the whole call, retries
+ * and retry waits included. Each attempt only gets the time that is left of the budget; once it is used up the call
+ * fails with {@link AfterShipDeadlineExceededException}, which the retry configuration ignores and the circuit
+ * breaker counts as a failure.
+ * <p>
+ * A call also needs a permit from the {@link AdaptiveConcurrencyLimiter}, taken once before the retries start and held
+ * until they end; calls above the current limit wait for a permit within the same deadline. A call the limiter
+ * rejects fails without reaching the retries or the circuit breaker, local overload is not an AfterShip failure.
+ * Attempts run on a pool bounded by {@code afterShip.concurrencyLimit.maxLimit}; an attempt that timed out keeps its
+ * thread until the connect and read timeouts of the AfterShip client end it.
+ */
+@Slf4j
+@Component
+public class AfterShipCallExecutor {
+
+    private final RockSteadySystem rockSteadySystem;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final Duration callDeadline;
+    private final ExecutorService attemptExecutor;
+
+    public AfterShipCallExecutor(RockSteadySystem rockSteadySystem, AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                 @Value("${afterShip.deadline.createTracking}") Duration callDeadline) {
+        this.rockSteadySystem = rockSteadySystem;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.callDeadline = callDeadline;
+        this.attemptExecutor = concurrencyLimiter.newCallExecutor("aftership-call-%d");
+    }
+
+    public <T> Output<T> executeWithRetries(@NonNull Supplier<T> call) {
+        return executeWithRetries(call, Deadline.after(callDeadline));
+    }
+
+    public <T> Output<T> executeWithRetries(@NonNull Supplier<T> call, @NonNull Deadline deadline) {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        AdaptiveConcurrencyLimiter.Permit permit;
+        try {
+            permit = concurrencyLimiter.acquire(deadline);
+        } catch (AfterShipException e) {
+            log.warn("AfterShip: Call rejected by the concurrency limiter, cause - {}", e.getMessage());
+            return Output.ofError(e);
+        }
+
+        Output<T> output = null;
+        try {
+            output = rockSteadySystem.executeWithRetries(() -> callWithinDeadline(call, deadline, mdc), mdc, RetryModesEnum.IMMEDIATE);
+            return output;
+        } finally {
+            permit.release(isAnswered(output));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        attemptExecutor.shutdownNow();
+    }
+
+    private <T> T callWithinDeadline(Supplier<T> call, Deadline deadline, Map<String, String> mdc) {
+        if (deadline.isExpired()) {
+            throw new AfterShipDeadlineExceededException("AfterShip call deadline of " + deadline.getBudget() + " exceeded before the attempt was made");
+        }
+
+        Future<T> attempt;
+        try {
+            attempt = attemptExecutor.submit(() -> {
+                if (mdc != null) {
+                    MDC.setContextMap(mdc);
+                }
+                try {
+                    return call.get();
+                } finally {
+                    MDC.clear();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new AfterShipDeadlineExceededException("No AfterShip call thread available, earlier calls are still waiting for AfterShip");
+        }
+
+        try {
+            return attempt.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            attempt.cancel(true);
+            log.warn("AfterShip: Call did not complete within its deadline of {}", deadline.getBudget());
+            throw new AfterShipDeadlineExceededException("AfterShip call deadline of " + deadline.getBudget() + " exceeded");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            attempt.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AfterShipDeadlineExceededException("AfterShip call interrupted while waiting for the response");
+        }
+    }
+
+    /**
+     * AfterShip answered when the call returned a result or an error for this request only.
+     */
+    private static boolean isAnswered(Output<?> output) {
+        if (output == null) {
+            return false;
+        }
+        return output.error == null
+                || (output.error instanceof AfterShipNonRetriableException && !(output.error instanceof AfterShipDeadlineExceededException));
+    }
+}
@@ -0,0 +1,180 @@
+package com.vibrent.aftership.resiliency;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vibrent.aftership.constants.KafkaConstants;
+import com.vibrenthealth.resiliency.core.RockSteadySystem;
+import com.vibrenthealth.resiliency.core.RockSteadySystemEvent;
+import com.vibrenthealth.resiliency.core.RockSteadySystemEventListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pauses the track delivery request listener containers while the rock-steady circuit breaker is open, so that the
+ * requests stay in Kafka instead of failing fast and piling up as {@code tracking_request_error} rows.
+ * <p>
+ * When the breaker half-opens (reported as {@link RockSteadySystemEvent.Type#CLOSE}) or resets, the consumers are
+ * resumed one at a time, {@code afterShip.consumerPause.rampUpInterval} apart, and only while the breaker is still
+ * accepting calls. If no transition arrives within {@code afterShip.consumerPause.maxPause} the ramp-up is started
+ * anyway, so consumption can never stall on a missed event.
+ */
+@Slf4j
+@Component
+public class CircuitBreakerConsumerPauser implements RockSteadySystemEventListener {
+
+    static final List<String> LISTENER_IDS = Arrays.asList(
+            KafkaConstants.TRACK_DELIVERY_REQUEST_LISTENER_ID,
+            KafkaConstants.FULFILLMENT_TRACK_DELIVERY_REQUEST_LISTENER_ID,
+            KafkaConstants.RETRY_TRACKING_DELIVERY_REQUEST_LISTENER_ID);
+
+    private final boolean enabled;
+    private final RockSteadySystem rockSteadySystem;
+    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+    private final Duration rampUpInterval;
+    private final Duration maxPause;
+    private final ScheduledExecutorService scheduler;
+    private final Counter pauseCounter;
+
+    private ScheduledFuture<?> scheduledResume;
+
+    public CircuitBreakerConsumerPauser(@Value("${afterShip.consumerPause.enabled}") boolean enabled,
+                                        RockSteadySystem rockSteadySystem,
+                                        KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry,
+                                        @Value("${afterShip.consumerPause.rampUpInterval}") Duration rampUpInterval,
+                                        @Value("${afterShip.consumerPause.maxPause}") Duration maxPause,
+                                        MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.rockSteadySystem = rockSteadySystem;
+        this.kafkaListenerEndpointRegistry = kafkaListenerEndpointRegistry;
+        this.rampUpInterval = rampUpInterval;
+        this.maxPause = maxPause;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("aftership-consumer-ramp-up-%d").setDaemon(true).build());
+        this.pauseCounter = meterRegistry.counter("afterShip.consumers.pauses");
+        Gauge.builder("afterShip.consumers.paused", this, p -> p.getPausedConsumerCount())
+                .description("Number of track delivery request consumers paused because the circuit breaker is open")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void registerListener() {
+        if (enabled) {
+            rockSteadySystem.addEventListener(this);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public void handle(RockSteadySystemEvent.Type type) {
+        switch (type) {
+            case OPEN:
+                pauseConsumers();
+                break;
+            case CLOSE:
+            case RESET:
+                resumeConsumers();
+                break;
+            default:
+                break;
+        }
+    }
+
+    synchronized void pauseConsumers() {
+        cancelScheduledResume();
+        List<MessageListenerContainer> consumers = getConsumers();
+        consumers.forEach(MessageListenerContainer::pause);
+        pauseCounter.increment();
+        log.warn("AfterShip: Circuit breaker opened, paused {} track delivery request consumers", consumers.size());
+        scheduledResume = scheduler.schedule(this::resumeAfterMaxPause, maxPause.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void resumeConsumers() {
+        cancelScheduledResume();
+        if (getPausedConsumerCount() == 0) {
+            return;
+        }
+        log.info("AfterShip: Circuit breaker is accepting calls again, resuming consumers every {}", rampUpInterval);
+        scheduledResume = scheduler.schedule(this::resumeNextConsumer, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void resumeAfterMaxPause() {
+        log.warn("AfterShip: Consumers paused for {} without a circuit breaker transition, starting ramp-up", maxPause);
+        scheduledResume = scheduler.schedule(this::resumeNextConsumer, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void resumeNextConsumer() {
+        if (!rockSteadySystem.isOpenForBusiness()) {
+            log.info("AfterShip: Circuit breaker is not accepting calls, ramp-up stopped");
+            return;
+        }
+
+        for (MessageListenerContainer consumer : getConsumers()) {
+            if (consumer.isPauseRequested()) {
+                consumer.resume();
+                log.info("AfterShip: Resumed consumer {}", consumer.getListenerId());
+                scheduledResume = scheduler.schedule(this::resumeNextConsumer, rampUpInterval.toMillis(), TimeUnit.MILLISECONDS);
+                return;
+            }
+        }
+        log.info("AfterShip: All track delivery request consumers resumed");
+    }
+
+    int getPausedConsumerCount() {
+        return (int) getConsumers().stream().filter(MessageListenerContainer::isPauseRequested).count();
+    }
+
+    /**
+     * Individual consumers of all listener containers, interleaved so that the ramp-up brings back one consumer per
+     * listener before it brings back a second one for any of them.
+     */
+    List<MessageListenerContainer> getConsumers() {
+        List<List<? extends MessageListenerContainer>> perListener = new ArrayList<>();
+        for (String listenerId : LISTENER_IDS) {
+            MessageListenerContainer container = kafkaListenerEndpointRegistry.getListenerContainer(listenerId);
+            if (container instanceof ConcurrentMessageListenerContainer) {
+                perListener.add(((ConcurrentMessageListenerContainer<?, ?>) container).getContainers());
+            } else if (container != null) {
+                perListener.add(List.of(container));
+            }
+        }
+
+        List<MessageListenerContainer> consumers = new ArrayList<>();
+        int max = perListener.stream().mapToInt(List::size).max().orElse(0);
+        for (int i = 0; i < max; i++) {
+            for (List<? extends MessageListenerContainer> containers : perListener) {
+                if (i < containers.size()) {
+                    consumers.add(containers.get(i));
+                }
+            }
+        }
+        return consumers;
+    }
+
+    private void cancelScheduledResume() {
+        if (scheduledResume != null) {
+            scheduledResume.cancel(false);
+            scheduledResume = null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.vibrent.aftership.resiliency;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Absolute point in time by which a call, including all of its retries, has to complete.
+ */
+public final class Deadline {
+
+    @Getter
+    private final Duration budget;
+    private final long deadlineNanos;
+
+    private Deadline(Duration budget) {
+        this.budget = budget;
+        this.deadlineNanos = System.nanoTime() + budget.toNanos();
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(budget);
+    }
+
+    public Duration remaining() {
+        long remaining = deadlineNanos - System.nanoTime();
+        return remaining > 0 ? Duration.ofNanos(remaining) : Duration.ZERO;
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+}
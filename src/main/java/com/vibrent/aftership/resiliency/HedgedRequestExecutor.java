@@ -0,0 +1,235 @@
+package com.vibrent.aftership.resiliency;
+
+import com.vibrent.aftership.exception.AfterShipDeadlineExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Issues a second, hedged request for idempotent AfterShip calls when the first one has not answered within the
+ * observed p95 latency, and returns whichever answers first. The slower request is left to finish on its own, its
+ * completion is used to measure the time the hedge saved. Every request, hedged or not, takes a permit from the
+ * {@link AdaptiveConcurrencyLimiter}, and the whole execution, hedge included, is bounded by
+ * {@code afterShip.deadline.getTracking}.
+ * <p>
+ * Metrics: {@code afterShip.hedge.requests}, {@code afterShip.hedge.issued}, {@code afterShip.hedge.wins},
+ * {@code afterShip.hedge.winRate}, {@code afterShip.hedge.timeSaved} and {@code afterShip.hedge.delay}.
+ */
+@Slf4j
+@Component
+public class HedgedRequestExecutor {
+
+    static final double HEDGE_PERCENTILE = 0.95;
+    static final int MIN_SAMPLES = 20;
+    private static final int LATENCY_WINDOW = 500;
+
+    private final boolean enabled;
+    private final Duration minDelay;
+    private final Duration callDeadline;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final LatencyTracker latencyTracker = new LatencyTracker(LATENCY_WINDOW);
+    private final ExecutorService executor;
+
+    private final Counter requests;
+    private final Counter hedgesIssued;
+    private final Counter hedgeWins;
+    private final Timer timeSaved;
+
+    public HedgedRequestExecutor(@Value("${afterShip.hedging.enabled}") boolean enabled,
+                                 @Value("${afterShip.hedging.minDelay}") Duration minDelay,
+                                 @Value("${afterShip.deadline.getTracking}") Duration callDeadline,
+                                 AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                 MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.minDelay = minDelay;
+        this.callDeadline = callDeadline;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.executor = concurrencyLimiter.newCallExecutor("aftership-hedge-%d");
+
+        this.requests = meterRegistry.counter("afterShip.hedge.requests");
+        this.hedgesIssued = meterRegistry.counter("afterShip.hedge.issued");
+        this.hedgeWins = meterRegistry.counter("afterShip.hedge.wins");
+        this.timeSaved = Timer.builder("afterShip.hedge.timeSaved")
+                .description("Time saved by hedged requests that answered before the original request")
+                .register(meterRegistry);
+        Gauge.builder("afterShip.hedge.winRate", this, HedgedRequestExecutor::getWinRate)
+                .description("Share of hedged requests that answered before the original request")
+                .register(meterRegistry);
+        Gauge.builder("afterShip.hedge.delay", this, e -> e.getHedgeDelayMillis())
+                .description("Current delay in ms after which a hedged request is issued")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public <T> T execute(Callable<T> call) throws Exception {
+        return execute(call, Deadline.after(callDeadline));
+    }
+
+    /**
+     * Executes the idempotent {@code call}, hedging it when it runs longer than the observed p95 latency. Exceptions
+     * thrown by the call are rethrown unchanged; once the deadline passes the execution fails with
+     * {@link AfterShipDeadlineExceededException} and the outstanding requests are left to the client timeouts.
+     */
+    public <T> T execute(Callable<T> call, Deadline deadline) throws Exception {
+        requests.increment();
+        long hedgeDelay = getHedgeDelayMillis();
+        if (!enabled || hedgeDelay < 0) {
+            return await(submit(call, deadline), deadline);
+        }
+
+        CompletableFuture<T> primary = submit(call, deadline);
+        try {
+            return primary.get(Math.min(TimeUnit.MILLISECONDS.toNanos(hedgeDelay), deadline.remaining().toNanos()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (deadline.isExpired()) {
+                throw deadlineExceeded(deadline, primary);
+            }
+            return hedge(call, primary, deadline);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    long getHedgeDelayMillis() {
+        if (latencyTracker.size() < MIN_SAMPLES) {
+            return -1;
+        }
+        return Math.max(minDelay.toMillis(), latencyTracker.percentile(HEDGE_PERCENTILE));
+    }
+
+    double getWinRate() {
+        double issued = hedgesIssued.count();
+        return issued == 0 ? 0 : hedgeWins.count() / issued;
+    }
+
+    private <T> T hedge(Callable<T> call, CompletableFuture<T> primary, Deadline deadline) throws Exception {
+        CompletableFuture<T> hedge;
+        try {
+            hedge = submit(call, deadline);
+        } catch (RuntimeException e) {
+            // no permit or thread for the hedge, keep waiting for the original request
+            log.debug("AfterShip: Hedged request not issued: {}", e.getMessage());
+            return await(primary, deadline);
+        }
+        hedgesIssued.increment();
+
+        CompletableFuture<Boolean> hedgeWon = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((result, error) -> completeFirst(hedgeWon, false, error, failures));
+        hedge.whenComplete((result, error) -> completeFirst(hedgeWon, true, error, failures));
+
+        boolean hedgeAnsweredFirst;
+        try {
+            hedgeAnsweredFirst = hedgeWon.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            hedge.cancel(true);
+            throw deadlineExceeded(deadline, primary);
+        } catch (ExecutionException e) {
+            // both requests failed, report the original one
+            throw unwrap(primary.handle((r, error) -> error).get());
+        }
+
+        if (!hedgeAnsweredFirst) {
+            return primary.get();
+        }
+
+        hedgeWins.increment();
+        long hedgeCompletedAt = System.nanoTime();
+        primary.whenComplete((result, error) -> timeSaved.record(System.nanoTime() - hedgeCompletedAt, TimeUnit.NANOSECONDS));
+        log.debug("AfterShip: Hedged request answered before the original request");
+        return hedge.get();
+    }
+
+    private static void completeFirst(CompletableFuture<Boolean> hedgeWon, boolean isHedge, Throwable error, AtomicInteger failures) {
+        if (error == null) {
+            hedgeWon.complete(isHedge);
+        } else if (failures.incrementAndGet() == 2) {
+            hedgeWon.completeExceptionally(error);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future, Deadline deadline) throws Exception {
+        try {
+            return future.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw deadlineExceeded(deadline, future);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static AfterShipDeadlineExceededException deadlineExceeded(Deadline deadline, CompletableFuture<?> outstanding) {
+        outstanding.cancel(true);
+        log.warn("AfterShip: Get tracking did not complete within its deadline of {}", deadline.getBudget());
+        return new AfterShipDeadlineExceededException("AfterShip call deadline of " + deadline.getBudget() + " exceeded");
+    }
+
+    /**
+     * Takes the permit in the calling thread, within the deadline, and runs the call on the bounded executor.
+     */
+    private <T> CompletableFuture<T> submit(Callable<T> call, Deadline deadline) {
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire(deadline);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return limitedCall(call, permit);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            permit.release(false);
+            throw new AfterShipDeadlineExceededException("No AfterShip call thread available, earlier calls are still waiting for AfterShip");
+        }
+    }
+
+    private <T> T limitedCall(Callable<T> call, AdaptiveConcurrencyLimiter.Permit permit) throws Exception {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.call();
+            success = true;
+            return result;
+        } finally {
+            permit.release(success);
+            latencyTracker.record(elapsedMillis(start));
+        }
+    }
+
+    private static Exception unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
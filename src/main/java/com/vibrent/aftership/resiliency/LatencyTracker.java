@@ -0,0 +1,46 @@
+package com.vibrent.aftership.resiliency;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples of a call in a fixed size ring buffer and answers percentile queries over them.
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    public LatencyTracker(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long latencyMillis) {
+        samples[next] = latencyMillis;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param percentile value between 0 and 1, e.g. 0.95
+     * @return the latency at the given percentile, or -1 when no samples were recorded yet
+     */
+    public long percentile(double percentile) {
+        long[] copy;
+        synchronized (this) {
+            if (size == 0) {
+                return -1;
+            }
+            copy = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(percentile * copy.length) - 1;
+        return copy[Math.max(0, Math.min(index, copy.length - 1))];
+    }
+}
@@ -0,0 +1,425 @@
+package com.vibrent.aftership.routing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vibrent.aftership.audit.AuditDeltaWriter;
+import com.vibrent.aftership.audit.TrackingRequestRevisionWriter;
+import com.vibrent.aftership.cache.TrackingRequestCache;
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.dto.AuditDeltaDTO;
+import com.vibrent.aftership.service.OutboxService;
+import com.vibrent.aftership.util.JacksonUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the status updates of webhooks routed by a routing token, which are not read from the database first. A single
+ * writer thread drains up to {@code afterShip.routingToken.batchSize} queued updates into one transaction: a JDBC batch
+ * of conditional tag changes, a batch of conditional sub status changes of the updates with the stored tag, a batch
+ * storing the carrier response of the updates whose status did not change, and for updates that changed nothing one
+ * lookup of which tracking requests exist.
+ * <p>
+ * The response of an update is sent only when its status change applied, so of repeated webhooks with the same status
+ * one response is sent, as on the stored path. A change of the sub status alone runs its own callback, with the tag
+ * known to be the stored one. With the outbox the response is written inside the transaction; without it the response
+ * goes to Kafka directly and is sent after the commit, a batch that rolls back and falls back sends nothing. Updates of
+ * a tracking request that is not in {@code tracking_request}, such as an archived one, and the updates of a batch that
+ * failed are handed to their fallback, which processes the webhook from the stored tracking request. While Envers is
+ * on, the updated rows are copied into the revision of the batch; with the audit write-behind every written update
+ * queues an audit delta of the columns it wrote, there is no stored state to compare with. They do not move the next
+ * poll of an unchanged status.
+ * <p>
+ * When the queue of {@code afterShip.routingToken.queueCapacity} is full {@link #enqueue} refuses the update and the
+ * caller processes it from the stored tracking request. Queued updates are lost when the process dies without a
+ * graceful shutdown; AfterShip sends the next webhook of the tracking and the poll picks it up.
+ * <p>
+ * Metrics: {@code afterShip.deferredStatus} tagged
+ * {@code result=statusChanged|subStatusChanged|carrierResponse|unchanged|fallback|rejected}, {@code afterShip.deferredStatus.queueDepth}
+ * and {@code afterShip.deferredStatus.batchSize}.
+ */
+@Slf4j
+@Component
+public class DeferredStatusWriter {
+
+    static final String COMPARE_AND_SET_STATUS = "UPDATE tracking_request SET status = ?, sub_status_code = ?, sub_status_description = ?, " +
+            "slug = COALESCE(?, slug), carrier_response = ?, carrier_response_compressed = ?, carrier_response_type = ?, " +
+            "last_event_at = ?, next_poll_at = ?, fingerprint = ?, updated_on = ? " +
+            "WHERE tracking_id = ? AND NOT (status <=> ?) AND (last_event_at IS NULL OR last_event_at <= ?)";
+
+    static final String COMPARE_AND_SET_SUB_STATUS = "UPDATE tracking_request SET status = ?, sub_status_code = ?, sub_status_description = ?, " +
+            "slug = COALESCE(?, slug), carrier_response = ?, carrier_response_compressed = ?, carrier_response_type = ?, " +
+            "last_event_at = ?, next_poll_at = ?, fingerprint = ?, updated_on = ? " +
+            "WHERE tracking_id = ? AND status <=> ? AND NOT (sub_status_code <=> ?) AND (last_event_at IS NULL OR last_event_at <= ?)";
+
+    static final String UPDATE_CARRIER_RESPONSE = "UPDATE tracking_request SET sub_status_description = ?, slug = COALESCE(?, slug), " +
+            "carrier_response = ?, carrier_response_compressed = ?, carrier_response_type = ?, fingerprint = ?, updated_on = ? " +
+            "WHERE tracking_id = ? AND status <=> ? AND sub_status_code <=> ? AND NOT (fingerprint <=> ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TrackingRequestCache trackingRequestCache;
+    private final AuditDeltaWriter auditDeltaWriter;
+    private final TrackingRequestRevisionWriter trackingRequestRevisionWriter;
+    private final OutboxService outboxService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final BlockingQueue<PendingUpdate> queue;
+    private final ExecutorService executor;
+
+    private final Counter statusChanges;
+    private final Counter subStatusChanges;
+    private final Counter carrierResponseUpdates;
+    private final Counter unchanged;
+    private final Counter fallbacks;
+    private final Counter rejected;
+    private final DistributionSummary batchSizes;
+
+    public DeferredStatusWriter(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                TrackingRequestCache trackingRequestCache,
+                                AuditDeltaWriter auditDeltaWriter,
+                                TrackingRequestRevisionWriter trackingRequestRevisionWriter,
+                                OutboxService outboxService,
+                                @Value("${afterShip.routingToken.enabled}") boolean enabled,
+                                @Value("${afterShip.routingToken.queueCapacity}") int queueCapacity,
+                                @Value("${afterShip.routingToken.batchSize}") int batchSize,
+                                MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.trackingRequestCache = trackingRequestCache;
+        this.auditDeltaWriter = auditDeltaWriter;
+        this.trackingRequestRevisionWriter = trackingRequestRevisionWriter;
+        this.outboxService = outboxService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.statusChanges = meterRegistry.counter("afterShip.deferredStatus", "result", "statusChanged");
+        this.subStatusChanges = meterRegistry.counter("afterShip.deferredStatus", "result", "subStatusChanged");
+        this.carrierResponseUpdates = meterRegistry.counter("afterShip.deferredStatus", "result", "carrierResponse");
+        this.unchanged = meterRegistry.counter("afterShip.deferredStatus", "result", "unchanged");
+        this.fallbacks = meterRegistry.counter("afterShip.deferredStatus", "result", "fallback");
+        this.rejected = meterRegistry.counter("afterShip.deferredStatus", "result", "rejected");
+        this.batchSizes = DistributionSummary.builder("afterShip.deferredStatus.batchSize")
+                .description("Routed status updates written together").register(meterRegistry);
+        Gauge.builder("afterShip.deferredStatus.queueDepth", queue, BlockingQueue::size)
+                .description("Routed status updates waiting to be written")
+                .register(meterRegistry);
+
+        if (enabled) {
+            this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("aftership-status-writer-%d").setDaemon(true).build());
+            this.executor.execute(this::writeQueued);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the status update of a routed webhook.
+     *
+     * @param updated            tracking id and the values to store, with the carrier event time as last event
+     * @param onStatusChanged    sends the response once the tag changed
+     * @param onSubStatusChanged sends the response once the sub status of the stored tag changed
+     * @param fallback           processes the webhook from the stored tracking request
+     * @return false when the update was not queued and has to be processed by the caller
+     */
+    public boolean enqueue(TrackingRequest updated, Runnable onStatusChanged, Runnable onSubStatusChanged, Runnable fallback) {
+        if (!enabled || !queue.offer(new PendingUpdate(updated, onStatusChanged, onSubStatusChanged, fallback))) {
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        List<PendingUpdate> remaining = new ArrayList<>();
+        while (queue.drainTo(remaining, batchSize) > 0) {
+            write(remaining);
+            remaining.clear();
+        }
+    }
+
+    private void writeQueued() {
+        List<PendingUpdate> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // Whatever queued up while the previous batch committed goes into this one
+            queue.drainTo(batch, batchSize - 1);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    void write(List<PendingUpdate> batch) {
+        // Stable, the updates of one tracking id keep their order and concurrent batches lock the rows in the same order
+        List<PendingUpdate> updates = new ArrayList<>(batch);
+        updates.sort(Comparator.comparing(pendingUpdate -> pendingUpdate.updated.getTrackingId()));
+        List<PendingUpdate> missing;
+        try {
+            missing = transactionTemplate.execute(status -> writeInTransaction(updates));
+        } catch (Exception e) {
+            log.warn("AfterShip: Failed to write {} routed status updates, processing them from the stored tracking requests", updates.size(), e);
+            missing = updates;
+        }
+        batchSizes.record(updates.size());
+        for (PendingUpdate pendingUpdate : missing == null ? Collections.<PendingUpdate>emptyList() : missing) {
+            fallbacks.increment();
+            run(pendingUpdate.fallback, pendingUpdate);
+        }
+    }
+
+    private List<PendingUpdate> writeInTransaction(List<PendingUpdate> updates) {
+        int[] statusChanged = jdbcTemplate.batchUpdate(COMPARE_AND_SET_STATUS, updates, updates.size(), this::setStatusChange)[0];
+        List<PendingUpdate> sameTag = new ArrayList<>();
+        for (int i = 0; i < updates.size(); i++) {
+            if (statusChanged[i] == 0) {
+                sameTag.add(updates.get(i));
+            }
+        }
+        Set<PendingUpdate> subStatusChanged = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<PendingUpdate> sameStatus = new ArrayList<>();
+        if (!sameTag.isEmpty()) {
+            int[] subStatusUpdated = jdbcTemplate.batchUpdate(COMPARE_AND_SET_SUB_STATUS, sameTag, sameTag.size(), this::setSubStatusChange)[0];
+            for (int i = 0; i < sameTag.size(); i++) {
+                if (subStatusUpdated[i] > 0) {
+                    subStatusChanged.add(sameTag.get(i));
+                } else {
+                    sameStatus.add(sameTag.get(i));
+                }
+            }
+        }
+        Set<PendingUpdate> notUpdated = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (!sameStatus.isEmpty()) {
+            int[] carrierResponseUpdated = jdbcTemplate.batchUpdate(UPDATE_CARRIER_RESPONSE, sameStatus, sameStatus.size(), this::setCarrierResponse)[0];
+            for (int i = 0; i < sameStatus.size(); i++) {
+                if (carrierResponseUpdated[i] == 0) {
+                    notUpdated.add(sameStatus.get(i));
+                }
+            }
+        }
+        Set<String> existing = findExisting(notUpdated);
+
+        List<PendingUpdate> missing = new ArrayList<>();
+        Set<String> written = new LinkedHashSet<>();
+        List<PendingUpdate> writtenUpdates = new ArrayList<>();
+        Set<PendingUpdate> writtenStatus = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < updates.size(); i++) {
+            PendingUpdate pendingUpdate = updates.get(i);
+            String trackingId = pendingUpdate.updated.getTrackingId();
+            if (statusChanged[i] > 0) {
+                statusChanges.increment();
+                trackingRequestCache.invalidate(trackingId);
+                written.add(trackingId);
+                writtenUpdates.add(pendingUpdate);
+                writtenStatus.add(pendingUpdate);
+                respond(pendingUpdate.onStatusChanged, pendingUpdate);
+            } else if (subStatusChanged.contains(pendingUpdate)) {
+                subStatusChanges.increment();
+                trackingRequestCache.invalidate(trackingId);
+                written.add(trackingId);
+                writtenUpdates.add(pendingUpdate);
+                writtenStatus.add(pendingUpdate);
+                respond(pendingUpdate.onSubStatusChanged, pendingUpdate);
+            } else if (!notUpdated.contains(pendingUpdate)) {
+                carrierResponseUpdates.increment();
+                trackingRequestCache.invalidate(trackingId);
+                written.add(trackingId);
+                writtenUpdates.add(pendingUpdate);
+            } else if (existing.contains(trackingId)) {
+                // Nothing material changed, or the status changed concurrently and the update lost
+                unchanged.increment();
+            } else {
+                missing.add(pendingUpdate);
+            }
+        }
+        if (auditDeltaWriter.isEnabled()) {
+            enqueueAuditDeltas(written, writtenUpdates, writtenStatus);
+        } else {
+            trackingRequestRevisionWriter.recordUpdates(written);
+        }
+        return missing;
+    }
+
+    private void enqueueAuditDeltas(Set<String> written, List<PendingUpdate> writtenUpdates, Set<PendingUpdate> writtenStatus) {
+        if (written.isEmpty()) {
+            return;
+        }
+        Map<String, Long> ids = new HashMap<>();
+        String placeholders = String.join(", ", Collections.nCopies(written.size(), "?"));
+        jdbcTemplate.query("SELECT id, tracking_id FROM tracking_request WHERE tracking_id IN (" + placeholders + ")",
+                (RowCallbackHandler) rs -> ids.put(rs.getString("tracking_id"), rs.getLong("id")), written.toArray());
+        for (PendingUpdate pendingUpdate : writtenUpdates) {
+            TrackingRequest updated = pendingUpdate.updated;
+            // The audited columns the statement wrote, next poll and fingerprint are not audited
+            Map<String, Object> changes = new LinkedHashMap<>();
+            if (writtenStatus.contains(pendingUpdate)) {
+                changes.put("status", updated.getStatus());
+                changes.put("subStatusCode", updated.getSubStatusCode());
+                changes.put("lastEventAt", updated.getLastEventAt());
+            }
+            changes.put("subStatusDescription", updated.getSubStatusDescription());
+            if (updated.getSlug() != null) {
+                changes.put("slug", updated.getSlug());
+            }
+            changes.put("carrierResponse", updated.getCarrierResponseCompressed() == null ? updated.getCarrierResponse() : null);
+            changes.put("carrierResponseCompressed", updated.getCarrierResponseCompressed());
+            changes.put("carrierResponseType", updated.getCarrierResponseType());
+            changes.put("updatedOn", updated.getUpdatedOn());
+            try {
+                auditDeltaWriter.enqueueAfterCommit(new AuditDeltaDTO(TrackingRequest.class.getName(), ids.get(updated.getTrackingId()),
+                        AuditDeltaDTO.UPDATE, JacksonUtil.getMapper().writeValueAsString(changes), updated.getUpdatedOn()));
+            } catch (JsonProcessingException e) {
+                log.warn("AfterShip: Failed to write the audit delta of the routed status update of tracking number {}", updated.getTrackingId(), e);
+            }
+        }
+    }
+
+    private Set<String> findExisting(Set<PendingUpdate> updates) {
+        if (updates.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<String> trackingIds = new ArrayList<>(updates.size());
+        updates.forEach(pendingUpdate -> trackingIds.add(pendingUpdate.updated.getTrackingId()));
+        String placeholders = String.join(", ", Collections.nCopies(trackingIds.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT tracking_id FROM tracking_request WHERE tracking_id IN (" + placeholders + ")",
+                String.class, trackingIds.toArray()));
+    }
+
+    private void setStatusChange(PreparedStatement ps, PendingUpdate pendingUpdate) throws SQLException {
+        TrackingRequest updated = pendingUpdate.updated;
+        setStatusValues(ps, updated);
+        ps.setString(13, updated.getStatus());
+        setLong(ps, 14, updated.getLastEventAt());
+    }
+
+    private void setSubStatusChange(PreparedStatement ps, PendingUpdate pendingUpdate) throws SQLException {
+        TrackingRequest updated = pendingUpdate.updated;
+        setStatusValues(ps, updated);
+        ps.setString(13, updated.getStatus());
+        ps.setString(14, updated.getSubStatusCode());
+        setLong(ps, 15, updated.getLastEventAt());
+    }
+
+    private static void setStatusValues(PreparedStatement ps, TrackingRequest updated) throws SQLException {
+        ps.setString(1, updated.getStatus());
+        ps.setString(2, updated.getSubStatusCode());
+        ps.setString(3, updated.getSubStatusDescription());
+        ps.setString(4, updated.getSlug());
+        // As stored, the getter would inflate a compact carrier response
+        ps.setString(5, updated.getCarrierResponseCompressed() == null ? updated.getCarrierResponse() : null);
+        ps.setBytes(6, updated.getCarrierResponseCompressed());
+        ps.setString(7, updated.getCarrierResponseType());
+        setLong(ps, 8, updated.getLastEventAt());
+        setLong(ps, 9, updated.getNextPollAt());
+        setLong(ps, 10, updated.getFingerprint());
+        setLong(ps, 11, updated.getUpdatedOn());
+        ps.setString(12, updated.getTrackingId());
+    }
+
+    private void setCarrierResponse(PreparedStatement ps, PendingUpdate pendingUpdate) throws SQLException {
+        TrackingRequest updated = pendingUpdate.updated;
+        ps.setString(1, updated.getSubStatusDescription());
+        ps.setString(2, updated.getSlug());
+        ps.setString(3, updated.getCarrierResponseCompressed() == null ? updated.getCarrierResponse() : null);
+        ps.setBytes(4, updated.getCarrierResponseCompressed());
+        ps.setString(5, updated.getCarrierResponseType());
+        setLong(ps, 6, updated.getFingerprint());
+        setLong(ps, 7, updated.getUpdatedOn());
+        ps.setString(8, updated.getTrackingId());
+        ps.setString(9, updated.getStatus());
+        ps.setString(10, updated.getSubStatusCode());
+        setLong(ps, 11, updated.getFingerprint());
+    }
+
+    private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+
+    private void respond(Runnable callback, PendingUpdate pendingUpdate) {
+        if (outboxService.isEnabled()) {
+            run(callback, pendingUpdate);
+            return;
+        }
+        // Sent straight to Kafka, a response must not go out for a batch that rolls back and falls back
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                run(callback, pendingUpdate);
+            }
+        });
+    }
+
+    private static void run(Runnable callback, PendingUpdate pendingUpdate) {
+        try {
+            callback.run();
+        } catch (Exception e) {
+            log.warn("AfterShip: Error while completing the routed status update of tracking number {}", pendingUpdate.updated.getTrackingId(), e);
+        }
+    }
+
+    static class PendingUpdate {
+        private final TrackingRequest updated;
+        private final Runnable onStatusChanged;
+        private final Runnable onSubStatusChanged;
+        private final Runnable fallback;
+
+        PendingUpdate(TrackingRequest updated, Runnable onStatusChanged, Runnable onSubStatusChanged, Runnable fallback) {
+            this.updated = updated;
+            this.onStatusChanged = onStatusChanged;
+            this.onSubStatusChanged = onSubStatusChanged;
+            this.fallback = fallback;
+        }
+    }
+}
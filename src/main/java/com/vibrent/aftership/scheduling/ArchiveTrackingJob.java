@@ -0,0 +1,40 @@
+package com.vibrent.aftership.scheduling;
+
+import com.vibrent.aftership.service.TrackingRequestArchiveService;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Moves tracking requests that reached a terminal status longer than {@code afterShip.archive.after} ago to the
+ * archive, so the tracking request table stays proportional to the active shipments.
+ */
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+public class ArchiveTrackingJob implements Job {
+
+    private final TrackingRequestArchiveService trackingRequestArchiveService;
+    private final Duration archiveAfter;
+
+    public ArchiveTrackingJob(TrackingRequestArchiveService trackingRequestArchiveService,
+                              @Value("${afterShip.archive.after}") Duration archiveAfter) {
+        this.trackingRequestArchiveService = trackingRequestArchiveService;
+        this.archiveAfter = archiveAfter;
+    }
+
+    @Override
+    public void execute(JobExecutionContext jobExecutionContext) throws JobExecutionException {
+        long startTime = System.currentTimeMillis();
+        log.info("Aftership | Started execution of ArchiveTrackingJob at : {}", startTime);
+        long archived = trackingRequestArchiveService.archive(startTime - archiveAfter.toMillis());
+        log.info("Aftership | Completed execution of ArchiveTrackingJob. Archived {} tracking requests, Total time taken: {}",
+                archived, System.currentTimeMillis() - startTime);
+    }
+}
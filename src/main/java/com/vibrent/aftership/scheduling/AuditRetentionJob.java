@@ -0,0 +1,135 @@
+package com.vibrent.aftership.scheduling;
+
+import com.vibrent.aftership.dto.AuditPartitionDTO;
+import com.vibrent.aftership.dto.TableSizeDTO;
+import com.vibrent.aftership.repository.AuditPartitionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps {@code revinfo} and the audit tables in range partitions by revision. Every run adds range partitions ahead of
+ * the newest revision while the last partition, {@code p_max}, is still empty, so splitting it copies no rows; a
+ * partition holds about the revisions of {@link #PARTITION_SPAN}. When enabled, the partitions whose newest revision is
+ * older than {@code afterShip.auditRetention.retention} are dropped, which takes constant time whatever the number of
+ * rows. A failure on one table aborts the run before the next table, so the tables keep the same bounds and revinfo
+ * is never pruned ahead of the audit rows referring to it.
+ * <p>
+ * Metrics: {@code afterShip.audit.table.rows} and {@code afterShip.audit.table.bytes} per table, estimated by the
+ * information schema, {@code afterShip.audit.partitionsDropped} and {@code afterShip.audit.rowsPruned}.
+ */
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+public class AuditRetentionJob implements Job {
+
+    // Audit tables before revinfo, a revision is dropped together with the audit rows referring to it
+    static final List<String> TABLES = List.of("tracking_request_aud", "tracking_request_error_aud", "revinfo");
+    static final Duration PARTITION_SPAN = Duration.ofDays(1);
+    static final long MIN_PARTITION_REVISIONS = 10_000;
+
+    private final AuditPartitionRepository auditPartitionRepository;
+    private final boolean enabled;
+    private final Duration retention;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TableSizeDTO> tableSizes = new ConcurrentHashMap<>();
+
+    public AuditRetentionJob(AuditPartitionRepository auditPartitionRepository,
+                             @Value("${afterShip.auditRetention.enabled}") boolean enabled,
+                             @Value("${afterShip.auditRetention.retention}") Duration retention,
+                             MeterRegistry meterRegistry) {
+        this.auditPartitionRepository = auditPartitionRepository;
+        this.enabled = enabled;
+        this.retention = retention;
+        this.meterRegistry = meterRegistry;
+        for (String table : TABLES) {
+            Gauge.builder("afterShip.audit.table.rows", tableSizes, sizes -> sizes.getOrDefault(table, new TableSizeDTO()).getRows())
+                    .description("Estimated rows of the audit table")
+                    .tag("table", table)
+                    .register(meterRegistry);
+            Gauge.builder("afterShip.audit.table.bytes", tableSizes, sizes -> sizes.getOrDefault(table, new TableSizeDTO()).getBytes())
+                    .description("Estimated bytes of data and indexes of the audit table")
+                    .tag("table", table)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public void execute(JobExecutionContext jobExecutionContext) throws JobExecutionException {
+        long startTime = System.currentTimeMillis();
+        log.info("Aftership | Started execution of AuditRetentionJob at : {}", startTime);
+
+        // Every table is split at the same revisions, so a revision and its audit rows always expire together
+        long maxRevision = auditPartitionRepository.getMaxRevision();
+        long width = Math.max(MIN_PARTITION_REVISIONS,
+                maxRevision - auditPartitionRepository.getMaxRevisionBefore(startTime - PARTITION_SPAN.toMillis()));
+        long expiredBound = auditPartitionRepository.getMaxRevisionBefore(startTime - retention.toMillis()) + 1;
+        long rowsPruned = 0;
+        for (String table : TABLES) {
+            try {
+                rowsPruned += maintain(table, maxRevision, width, expiredBound);
+            } catch (Exception e) {
+                // The remaining tables would be split or pruned at bounds the failed one no longer shares
+                throw new JobExecutionException("Aftership | Failed to maintain the partitions of audit table " + table +
+                        ", aborted the audit retention run", e);
+            } finally {
+                auditPartitionRepository.getTableSize(table).ifPresent(size -> tableSizes.put(table, size));
+            }
+        }
+        log.info("Aftership | Completed execution of AuditRetentionJob. Pruned about {} rows of revisions below {}, Total time taken: {}",
+                rowsPruned, enabled ? expiredBound : "none", System.currentTimeMillis() - startTime);
+    }
+
+    private long maintain(String table, long maxRevision, long width, long expiredBound) {
+        List<AuditPartitionDTO> partitions = auditPartitionRepository.findPartitions(table);
+        if (partitions.isEmpty()) {
+            log.warn("Aftership | Audit table {} is not partitioned, skipped", table);
+            return 0;
+        }
+        long highestBound = partitions.stream().filter(p -> p.getBound() != null).mapToLong(AuditPartitionDTO::getBound).max().orElse(0);
+        if (maxRevision >= highestBound) {
+            // Only on the first run after the migration or when runs were missed, the split copies the rows of p_max
+            log.warn("Aftership | Audit table {} has revisions up to {} in {}, splitting it", table, maxRevision, AuditPartitionRepository.MAX_PARTITION);
+            highestBound = maxRevision + 1;
+            auditPartitionRepository.splitMaxPartition(table, highestBound);
+        }
+        // At least a partition of headroom, so p_max is still empty on the next run
+        if (highestBound <= maxRevision + width) {
+            auditPartitionRepository.splitMaxPartition(table, highestBound + width);
+        }
+        partitions = auditPartitionRepository.findPartitions(table);
+        if (!enabled) {
+            return 0;
+        }
+
+        List<AuditPartitionDTO> expired = partitions.stream()
+                .filter(p -> p.getBound() != null && p.getBound() <= expiredBound)
+                .collect(Collectors.toList());
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        auditPartitionRepository.dropPartitions(table, expired);
+        long rows = expired.stream().mapToLong(AuditPartitionDTO::getRows).sum();
+        counter("afterShip.audit.partitionsDropped", table).increment(expired.size());
+        counter("afterShip.audit.rowsPruned", table).increment(rows);
+        log.info("Aftership | Dropped {} partitions with about {} rows of audit table {}", expired.size(), rows, table);
+        return rows;
+    }
+
+    private Counter counter(String name, String table) {
+        return meterRegistry.counter(name, "table", table);
+    }
+}
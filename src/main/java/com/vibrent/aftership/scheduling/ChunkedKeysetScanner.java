@@ -0,0 +1,129 @@
+package com.vibrent.aftership.scheduling;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Scans a table in pages of {@code afterShip.scan.pageSize} rows by keyset ({@code id > lastId order by id}) instead
+ * of one long running streaming cursor. Every page is read and mapped in a short read only transaction, after which the
+ * persistence context is cleared; the mapped rows are then handed to the chunk consumer outside of that transaction.
+ */
+@Slf4j
+@Component
+public class ChunkedKeysetScanner {
+
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final int pageSize;
+
+    public ChunkedKeysetScanner(PlatformTransactionManager transactionManager,
+                                EntityManager entityManager,
+                                @Value("${afterShip.scan.pageSize}") int pageSize) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.entityManager = entityManager;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Scans all rows of the query in id order.
+     *
+     * @param query         fetches the page of rows with an id greater than the given one, ordered by id
+     * @param idOf          id of a row
+     * @param mapper        maps a row to what the consumer needs while the row is still attached, null skips the row
+     * @param chunkConsumer processes the mapped rows of one page
+     * @return number of rows scanned
+     */
+    public <T, R> long scan(KeysetQuery<T> query, ToLongFunction<T> idOf, Function<T, R> mapper, Consumer<List<R>> chunkConsumer) {
+        return scan(query, idOf, mapper, chunkConsumer, Long.MAX_VALUE);
+    }
+
+    /**
+     * Scans the rows of the query in id order, stopping after {@code maxRows} rows.
+     */
+    public <T, R> long scan(KeysetQuery<T> query, ToLongFunction<T> idOf, Function<T, R> mapper, Consumer<List<R>> chunkConsumer,
+                            long maxRows) {
+        return scan(query, idOf, mapper, chunkConsumer, 0, maxRows, (lastId, scanned) -> { });
+    }
+
+    /**
+     * Scans the rows of the query with an id greater than {@code startAfterId} in id order, stopping after
+     * {@code maxRows} rows. The checkpoint is called after every processed chunk, so an interrupted scan can be resumed
+     * after the last id it reported.
+     */
+    public <T, R> long scan(KeysetQuery<T> query, ToLongFunction<T> idOf, Function<T, R> mapper, Consumer<List<R>> chunkConsumer,
+                            long startAfterId, long maxRows, Checkpoint checkpoint) {
+        long lastId = startAfterId;
+        long scanned = 0;
+        while (scanned < maxRows) {
+            int limit = (int) Math.min(pageSize, maxRows - scanned);
+            Chunk<R> chunk = readChunk(query, idOf, mapper, lastId, limit);
+            if (chunk.size == 0) {
+                break;
+            }
+            scanned += chunk.size;
+            lastId = chunk.lastId;
+            if (!chunk.items.isEmpty()) {
+                chunkConsumer.accept(chunk.items);
+            }
+            checkpoint.completed(lastId, scanned);
+            if (chunk.size < limit) {
+                break;
+            }
+        }
+        return scanned;
+    }
+
+    private <T, R> Chunk<R> readChunk(KeysetQuery<T> query, ToLongFunction<T> idOf, Function<T, R> mapper, long afterId, int limit) {
+        return transactionTemplate.execute(status -> {
+            try {
+                List<T> page = query.fetch(afterId, PageRequest.of(0, limit));
+                Chunk<R> chunk = new Chunk<>(page.size(), afterId);
+                for (T row : page) {
+                    chunk.lastId = idOf.applyAsLong(row);
+                    R item = mapper.apply(row);
+                    if (item != null) {
+                        chunk.items.add(item);
+                    }
+                }
+                return chunk;
+            } finally {
+                entityManager.clear();
+            }
+        });
+    }
+
+    @FunctionalInterface
+    public interface KeysetQuery<T> {
+        List<T> fetch(long lastId, Pageable pageable);
+    }
+
+    @FunctionalInterface
+    public interface Checkpoint {
+        void completed(long lastId, long scanned);
+    }
+
+    private static class Chunk<R> {
+        private final int size;
+        private final List<R> items;
+        private long lastId;
+
+        private Chunk(int size, long lastId) {
+            this.size = size;
+            this.items = new ArrayList<>(size);
+            this.lastId = lastId;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.vibrent.aftership.scheduling;
+
+import com.vibrent.aftership.service.CarrierResponseStorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills the compact carrier response format: carrier responses still stored as JSON are trimmed and deflated
+ * once {@code afterShip.carrierResponse.format} is {@code COMPACT}.
+ */
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+public class CompactCarrierResponseJob implements Job {
+
+    private final CarrierResponseStorageService carrierResponseStorageService;
+
+    public CompactCarrierResponseJob(CarrierResponseStorageService carrierResponseStorageService) {
+        this.carrierResponseStorageService = carrierResponseStorageService;
+    }
+
+    @Override
+    public void execute(JobExecutionContext jobExecutionContext) throws JobExecutionException {
+        long startTime = System.currentTimeMillis();
+        log.info("Aftership | Started execution of CompactCarrierResponseJob at : {}", startTime);
+        long compacted = carrierResponseStorageService.compactStored();
+        log.info("Aftership | Completed execution of CompactCarrierResponseJob. Compacted {} carrier responses, Total time taken: {}",
+                compacted, System.currentTimeMillis() - startTime);
+    }
+}
@@ -1,98 +1,154 @@
 package com.vibrent.aftership.scheduling;
 
-import com.aftership.sdk.AfterShip;
-import com.aftership.sdk.exception.AftershipException;
-import com.aftership.sdk.model.tracking.SlugTrackingNumber;
 import com.aftership.sdk.model.tracking.Tracking;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.domain.PollRunCheckpoint;
 import com.vibrent.aftership.dto.NotificationDTO;
+import com.vibrent.aftership.dto.PollTargetDTO;
 import com.vibrent.aftership.enums.CarrierResponseType;
+import com.vibrent.aftership.enums.PollRunStatus;
 import com.vibrent.aftership.repository.TrackingRequestRepository;
-import com.vibrent.aftership.service.ExternalLogService;
-import com.vibrent.aftership.service.NotificationProcessService;
+import com.vibrent.aftership.repository.projection.TrackingRequestPollView;
+import com.vibrent.aftership.service.PollRunService;
 import com.vibrent.aftership.util.JacksonUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.Job;
+import org.quartz.JobDataMap;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import javax.validation.constraints.NotNull;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.Date;
 import java.util.List;
-import java.util.stream.Stream;
 
 @Slf4j
 @Component
 public class GetTrackingJob implements Job {
-    private final AfterShip afterShip;
     private final TrackingRequestRepository trackingRequestRepository;
-    private final NotificationProcessService notificationProcessService;
-    private final ExternalLogService externalLogService;
-    private final Integer fetchTrackingBeforeDays;
+    private final TrackingRefreshExecutor trackingRefreshExecutor;
+    private final PollShardScheduler pollShardScheduler;
+    private final ChunkedKeysetScanner chunkedKeysetScanner;
+    private final PollRunService pollRunService;
+    private final int batchSize;
     private final List<String> excludeStatusList;
 
-    public GetTrackingJob(AfterShip afterShip,
-                          TrackingRequestRepository trackingRequestRepository,
-                          NotificationProcessService notificationProcessService,
-                          ExternalLogService externalLogService, @Value("${afterShip.fetchTrackingBeforeDays}") Integer fetchTrackingBeforeDays,
+    public GetTrackingJob(TrackingRequestRepository trackingRequestRepository,
+                          TrackingRefreshExecutor trackingRefreshExecutor,
+                          PollShardScheduler pollShardScheduler,
+                          ChunkedKeysetScanner chunkedKeysetScanner,
+                          PollRunService pollRunService,
+                          @Value("${afterShip.poll.batchSize}") int batchSize,
                           @NotNull @Value("${afterShip.excludeStatus}") List<String> excludeStatusList) {
-        this.afterShip = afterShip;
         this.trackingRequestRepository = trackingRequestRepository;
-        this.notificationProcessService = notificationProcessService;
-        this.externalLogService = externalLogService;
-        this.fetchTrackingBeforeDays = fetchTrackingBeforeDays;
+        this.trackingRefreshExecutor = trackingRefreshExecutor;
+        this.pollShardScheduler = pollShardScheduler;
+        this.chunkedKeysetScanner = chunkedKeysetScanner;
+        this.pollRunService = pollRunService;
+        this.batchSize = batchSize;
         this.excludeStatusList = excludeStatusList;
     }
 
-    @Transactional
+    // Every page of the scan and every refresh run in transactions of their own
     @Override
     public void execute(JobExecutionContext jobExecutionContext) throws JobExecutionException {
-        long startTime = System.currentTimeMillis();
-        log.info("Aftership | Started execution of GetTrackingJob at : {}", startTime);
-        Stream<TrackingRequest> eligibleTrackingIds = getEligibleTrackingIds(getTimestamp());
+        boolean shardExecution = PollShardScheduler.isShardExecution(jobExecutionContext);
+        long runId = getRunId(jobExecutionContext);
+        try {
+            if (!shardExecution && pollShardScheduler.isSharded()) {
+                pollRunService.startRun(runId, pollShardScheduler.getShardCount());
+                // Shards of the previous run still running are not part of this one, the run completes without them
+                for (int shardIndex : pollShardScheduler.dispatch(jobExecutionContext, runId)) {
+                    pollRunService.skipShard(runId, shardIndex);
+                }
+                return;
+            }
+            if (shardExecution && !pollShardScheduler.tryClaim()) {
+                pollShardScheduler.defer(jobExecutionContext);
+                return;
+            }
+        } catch (SchedulerException e) {
+            throw new JobExecutionException("Aftership | Failed to schedule get tracking shards", e);
+        }
 
-        eligibleTrackingIds
-                .forEach(trackingRequest -> {
-                    String slug = null;
-                            try {
-                                slug = getSlugFromCarrierResponse(trackingRequest.getCarrierResponse(), trackingRequest.getCarrierResponseType());
-                                if (!StringUtils.hasText(slug)) {
-                                    log.warn("AfterShip| Carrier response don't have slug value for tracking id : {}", trackingRequest.getTrackingId());
-                                    return;
-                                }
-                                SlugTrackingNumber slugTrackingNumber = new SlugTrackingNumber(slug, trackingRequest.getTrackingId());
-                                Tracking tracking = afterShip.getTrackingEndpoint().getTracking(slugTrackingNumber, null);
-                                externalLogService.send(slugTrackingNumber, tracking, System.currentTimeMillis(), "Aftership | Successfully fetched latest tracking.", HttpStatus.OK.value());
-                                notificationProcessService.process(tracking, trackingRequest);
-                                log.info("Aftership | Fetched tracking for Tracking no: {}, Latest Status: {}", tracking.getTrackingNumber(), tracking.getTag());
+        try {
+            if (shardExecution) {
+                JobDataMap jobDataMap = jobExecutionContext.getMergedJobDataMap();
+                poll(runId, jobDataMap.getInt(PollShardScheduler.SHARD_INDEX), jobDataMap.getInt(PollShardScheduler.SHARD_COUNT));
+            } else {
+                poll(runId, 0, 1);
+            }
+        } finally {
+            if (shardExecution) {
+                pollShardScheduler.release();
+            }
+        }
+    }
 
-                            } catch (AftershipException e) {
-                                externalLogService.send(trackingRequest.getTrackingId(), slug , System.currentTimeMillis(), "Aftership | Exception whiling fetching latest tracking.", e.getCode());
-                                log.warn("AfterShip | AfterShip exception while fetching tracking id {} , Exception: {}", trackingRequest.getTrackingId(), e.getMessage(), e);
-                            } catch (Exception e) {
-                                externalLogService.send(trackingRequest.getTrackingId(), slug, System.currentTimeMillis(), "Aftership | Exception whiling fetching latest tracking.", HttpStatus.INTERNAL_SERVER_ERROR.value());
-                                log.warn("AfterShip | Exception while fetching tracking id {} , Exception: {}", trackingRequest.getTrackingId(), e.getMessage(), e);
-                            }
-                        }
+    private void poll(long runId, int shardIndex, int shardCount) {
+        PollRunCheckpoint checkpoint = pollRunService.startShard(runId, shardIndex, shardCount);
+        if (checkpoint.getStatus() == PollRunStatus.COMPLETED) {
+            log.info("Aftership | GetTrackingJob run {} shard {} of {} already completed, skipped", runId, shardIndex, shardCount);
+            return;
+        }
+        long resumeAfterId = checkpoint.getLastId();
+        long processedBefore = checkpoint.getProcessed();
 
-                );
-        log.info("Aftership | Completed execution of GetTrackingJob at : {} Total time take for execution: {} ms", System.currentTimeMillis(), System.currentTimeMillis() - startTime);
-    }
+        long startTime = System.currentTimeMillis();
+        log.info("Aftership | Started execution of GetTrackingJob at : {}, run {} shard {} of {}, resuming after id {}",
+                startTime, runId, shardIndex, shardCount, resumeAfterId);
 
-    private Stream<TrackingRequest> getEligibleTrackingIds(Long updatedOn) {
-        return trackingRequestRepository.findAllByStatusNotInAndUpdatedOnLessThan(excludeStatusList, updatedOn);
+        // Trackings become due spread over the day, every run refreshes at most a batch of the ones due now
+        long now = System.currentTimeMillis();
+        PollRunSummary summary = new PollRunSummary();
+        chunkedKeysetScanner.scan(
+                (lastId, page) -> trackingRequestRepository.findEligibleForPolling(lastId, excludeStatusList, now, shardIndex, shardCount, page),
+                TrackingRequestPollView::getId,
+                this::toPollTarget,
+                pollTargets -> trackingRefreshExecutor.refreshAll(pollTargets.stream(), summary, shardCount),
+                resumeAfterId,
+                Math.max(0, batchSize - processedBefore),
+                (lastId, scanned) -> pollRunService.checkpoint(runId, shardIndex, lastId, processedBefore + scanned));
+        pollRunService.completeShard(runId, shardIndex);
+        summary.complete();
+        log.info("Aftership | Completed execution of GetTrackingJob at : {} Total time take for execution: {} ms, run {} shard {} of {}, Summary: {}",
+                System.currentTimeMillis(), System.currentTimeMillis() - startTime, runId, shardIndex, shardCount, summary);
     }
 
+    /**
+     * Run id is the scheduled fire time of the cron trigger that started the run. Shards carry it in their job data and
+     * a recovered execution keeps the fire time of the trigger it recovers, so both continue the same run.
+     */
+    static long getRunId(JobExecutionContext jobExecutionContext) {
+        JobDataMap jobDataMap = jobExecutionContext.getMergedJobDataMap();
+        if (jobDataMap != null && jobDataMap.containsKey(PollShardScheduler.RUN_ID)) {
+            return jobDataMap.getLong(PollShardScheduler.RUN_ID);
+        }
+        if (jobExecutionContext.isRecovering() && jobDataMap != null
+                && jobDataMap.containsKey(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_FIRETIME_IN_MILLISECONDS)) {
+            return Long.parseLong(jobDataMap.getString(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_FIRETIME_IN_MILLISECONDS));
+        }
+        Date scheduledFireTime = jobExecutionContext.getScheduledFireTime();
+        return scheduledFireTime != null ? scheduledFireTime.getTime() : System.currentTimeMillis();
+    }
 
-    private Long getTimestamp() {
-        return Instant.now().minus(fetchTrackingBeforeDays, ChronoUnit.DAYS).toEpochMilli();
+    private PollTargetDTO toPollTarget(TrackingRequestPollView pollView) {
+        String slug = pollView.getSlug();
+        if (!StringUtils.hasText(slug)) {
+            // Rows created before the slug column existed and not backfilled load the carrier response, the refresh stores the slug
+            slug = trackingRequestRepository.findById(pollView.getId())
+                    .map(trackingRequest -> getSlugFromCarrierResponse(trackingRequest.getCarrierResponse(), trackingRequest.getCarrierResponseType()))
+                    .orElse(null);
+        }
+        if (!StringUtils.hasText(slug)) {
+            log.warn("AfterShip| Carrier response don't have slug value for tracking id : {}", pollView.getTrackingId());
+            return null;
+        }
+        return new PollTargetDTO(pollView.getId(), pollView.getTrackingId(), slug, pollView.getStatus(), pollView.getLastEventAt());
     }
 
 
@@ -0,0 +1,100 @@
+package com.vibrent.aftership.scheduling;
+
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.util.DateTimeUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.validation.constraints.NotNull;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static com.vibrent.aftership.constants.AfterShipConstants.TAG_AVAILABLE_FOR_PICKUP;
+import static com.vibrent.aftership.constants.AfterShipConstants.TAG_OUT_FOR_DELIVERY;
+
+/**
+ * Computes when a tracking is polled next. The interval backs off with the time since the status of the tracking last
+ * changed, from {@code afterShip.nextPoll.minInterval} up to {@code afterShip.fetchTrackingBeforeDays} days, is kept
+ * at the minimum while a delivery is imminent and does not run past the expected delivery date. Every interval is
+ * stretched by a per tracking factor of up to {@code afterShip.nextPoll.jitter} so polls spread evenly over the day.
+ * Trackings in an excluded status are not polled again.
+ */
+@Slf4j
+@Component
+public class NextPollCalculator {
+
+    private static final Set<String> IMMINENT_STATUS = Set.of(TAG_OUT_FOR_DELIVERY, TAG_AVAILABLE_FOR_PICKUP);
+
+    private final long minInterval;
+    private final long maxInterval;
+    private final double jitter;
+    private final List<String> excludeStatusList;
+
+    public NextPollCalculator(@Value("${afterShip.nextPoll.minInterval}") Duration minInterval,
+                              @Value("${afterShip.fetchTrackingBeforeDays}") Integer fetchTrackingBeforeDays,
+                              @Value("${afterShip.nextPoll.jitter}") double jitter,
+                              @NotNull @Value("${afterShip.excludeStatus}") List<String> excludeStatusList) {
+        this.minInterval = minInterval.toMillis();
+        this.maxInterval = Math.max(this.minInterval, Duration.ofDays(fetchTrackingBeforeDays).toMillis());
+        this.jitter = jitter;
+        this.excludeStatusList = excludeStatusList;
+    }
+
+    /**
+     * @return epoch millis of the next poll of the tracking, null when it is not polled again
+     */
+    public Long nextPollAt(TrackingRequest trackingRequest, String expectedDelivery, long now) {
+        return nextPollAt(trackingRequest.getTrackingId(), trackingRequest.getStatus(), trackingRequest.getLastEventAt(), expectedDelivery, now);
+    }
+
+    /**
+     * @return epoch millis of the next poll of the tracking, null when it is not polled again
+     */
+    public Long nextPollAt(String trackingId, String status, Long lastEventAt, String expectedDelivery, long now) {
+        if (status != null && excludeStatusList.contains(status)) {
+            return null;
+        }
+        long interval = getInterval(status, lastEventAt, getExpectedDeliveryAt(expectedDelivery), now);
+        return now + spread(interval, trackingId);
+    }
+
+    /**
+     * @return epoch millis of the next attempt after a failed poll of the tracking
+     */
+    public long retryAt(String trackingId, long now) {
+        return now + spread(minInterval, trackingId);
+    }
+
+    long getInterval(String status, Long lastEventAt, Long expectedDeliveryAt, long now) {
+        if (status != null && IMMINENT_STATUS.contains(status)) {
+            return minInterval;
+        }
+        long interval = lastEventAt == null ? minInterval : Math.max(0, now - lastEventAt) / 2;
+        if (expectedDeliveryAt != null && expectedDeliveryAt > now) {
+            interval = Math.min(interval, expectedDeliveryAt - now);
+        }
+        return Math.min(maxInterval, Math.max(minInterval, interval));
+    }
+
+    private long spread(long interval, String trackingId) {
+        double factor = trackingId == null ? 0 : (trackingId.hashCode() & Integer.MAX_VALUE) / (double) Integer.MAX_VALUE;
+        return (long) (interval * (1 + jitter * factor));
+    }
+
+    private static Long getExpectedDeliveryAt(String expectedDelivery) {
+        if (!StringUtils.hasText(expectedDelivery)) {
+            return null;
+        }
+        try {
+            return DateTimeUtil.getTimestampFromStringISODate(expectedDelivery, ZoneOffset.UTC);
+        } catch (DateTimeException e) {
+            log.debug("AfterShip: Ignoring unparsable expected delivery date {}", expectedDelivery);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.vibrent.aftership.scheduling;
+
+import com.vibrent.aftership.enums.PollOutcome;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome counts and refresh durations of one poll run. Thread safe, workers record into the same summary.
+ */
+public class PollRunSummary {
+
+    private final long startedAt = System.currentTimeMillis();
+    private final Map<PollOutcome, Long> outcomes = new EnumMap<>(PollOutcome.class);
+    private long[] durationsMillis = new long[64];
+    private int size;
+    private long completedAt;
+
+    public synchronized void record(PollOutcome outcome, long durationNanos) {
+        outcomes.merge(outcome, 1L, Long::sum);
+        if (size == durationsMillis.length) {
+            durationsMillis = Arrays.copyOf(durationsMillis, size * 2);
+        }
+        durationsMillis[size++] = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+    }
+
+    public synchronized void complete() {
+        completedAt = System.currentTimeMillis();
+    }
+
+    public synchronized long getCount(PollOutcome outcome) {
+        return outcomes.getOrDefault(outcome, 0L);
+    }
+
+    public synchronized long getTotal() {
+        return size;
+    }
+
+    public synchronized long getDurationMillis() {
+        return (completedAt == 0 ? System.currentTimeMillis() : completedAt) - startedAt;
+    }
+
+    /**
+     * Refreshes per second over the wall clock duration of the run.
+     */
+    public synchronized double getThroughput() {
+        long duration = getDurationMillis();
+        return duration == 0 ? size : size * 1000.0 / duration;
+    }
+
+    /**
+     * Refresh duration in ms at the given percentile (0..1) using the nearest rank method, 0 without refreshes.
+     */
+    public synchronized long percentile(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(durationsMillis, size);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile * size);
+        return sorted[Math.max(0, Math.min(size - 1, rank - 1))];
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("total=%d, refreshed=%d, notFound=%d, afterShipErrors=%d, failed=%d, duration=%dms, " +
+                        "throughput=%.2f/s, p50=%dms, p95=%dms, p99=%dms, max=%dms",
+                size, getCount(PollOutcome.REFRESHED), getCount(PollOutcome.NOT_FOUND), getCount(PollOutcome.AFTERSHIP_ERROR),
+                getCount(PollOutcome.FAILED), getDurationMillis(), getThroughput(),
+                percentile(0.5), percentile(0.95), percentile(0.99), percentile(1.0));
+    }
+}
@@ -0,0 +1,127 @@
+package com.vibrent.aftership.scheduling;
+
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits a get tracking run into {@code afterShip.poll.shards} shards of {@code id mod shards}. Every shard is a one
+ * shot trigger of the get tracking job in the clustered Quartz JDBC store, so any node can claim it, and the job is
+ * stored with {@code requestRecovery} so Quartz re-fires the shards of a node that died mid-run on another node.
+ * <p>
+ * A node runs at most {@code afterShip.poll.maxShardsPerNode} shards at a time; a shard claimed beyond that is pushed
+ * back by {@link #SHARD_DEFERRAL} for another node to pick up.
+ */
+@Slf4j
+@Component
+public class PollShardScheduler {
+
+    public static final String SHARD_INDEX = "shardIndex";
+    public static final String SHARD_COUNT = "shardCount";
+    public static final String RUN_ID = "runId";
+    static final String SHARD_TRIGGER_GROUP = "Get_Tracking_Shards";
+    static final Duration SHARD_DEFERRAL = Duration.ofSeconds(15);
+
+    private final int shardCount;
+    private final int maxShardsPerNode;
+    private final AtomicInteger runningShards = new AtomicInteger();
+
+    public PollShardScheduler(@Value("${afterShip.poll.shards}") int shardCount,
+                              @Value("${afterShip.poll.maxShardsPerNode}") int maxShardsPerNode) {
+        this.shardCount = shardCount;
+        this.maxShardsPerNode = maxShardsPerNode;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public static boolean isShardExecution(JobExecutionContext context) {
+        JobDataMap jobDataMap = context.getMergedJobDataMap();
+        return jobDataMap != null && jobDataMap.containsKey(SHARD_INDEX);
+    }
+
+    /**
+     * Schedules one trigger per shard of the run for the job that is currently executing. A shard whose trigger of the
+     * previous run still exists is left alone, it has not completed yet.
+     *
+     * @return indexes of the shards that were not scheduled for this run
+     */
+    public List<Integer> dispatch(JobExecutionContext context, long runId) throws SchedulerException {
+        Scheduler scheduler = context.getScheduler();
+        JobKey jobKey = context.getJobDetail().getKey();
+        List<Integer> skipped = new ArrayList<>();
+        for (int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+            Trigger trigger = TriggerBuilder.newTrigger()
+                    .forJob(jobKey)
+                    .withIdentity(shardTriggerKey(shardIndex))
+                    .withDescription("Get Tracking Details shard " + shardIndex + " of " + shardCount)
+                    .usingJobData(SHARD_INDEX, shardIndex)
+                    .usingJobData(SHARD_COUNT, shardCount)
+                    .usingJobData(RUN_ID, runId)
+                    .startNow()
+                    .withSchedule(SimpleScheduleBuilder.simpleSchedule().withMisfireHandlingInstructionFireNow())
+                    .build();
+            try {
+                scheduler.scheduleJob(trigger);
+            } catch (ObjectAlreadyExistsException e) {
+                log.warn("Aftership | Get tracking shard {} of the previous run has not completed, not scheduled again", shardIndex);
+                skipped.add(shardIndex);
+            }
+        }
+        log.info("Aftership | Dispatched {} get tracking shards of run {}", shardCount - skipped.size(), runId);
+        return skipped;
+    }
+
+    /**
+     * Claims a slot for running a shard on this node, false when the node already runs its maximum.
+     */
+    public boolean tryClaim() {
+        if (runningShards.incrementAndGet() > maxShardsPerNode) {
+            runningShards.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void release() {
+        runningShards.decrementAndGet();
+    }
+
+    /**
+     * Moves the trigger of the executing shard {@link #SHARD_DEFERRAL} into the future so another node can claim it.
+     */
+    public void defer(JobExecutionContext context) throws SchedulerException {
+        Trigger current = context.getTrigger();
+        Trigger deferred = current.getTriggerBuilder()
+                .startAt(new Date(System.currentTimeMillis() + SHARD_DEFERRAL.toMillis()))
+                .build();
+        context.getScheduler().rescheduleJob(current.getKey(), deferred);
+        log.info("Aftership | Node already runs {} get tracking shards, deferred shard {} by {}",
+                maxShardsPerNode, context.getMergedJobDataMap().getInt(SHARD_INDEX), SHARD_DEFERRAL);
+    }
+
+    static TriggerKey shardTriggerKey(int shardIndex) {
+        return new TriggerKey("Get_Tracking_Shard_" + shardIndex + "_Trigger", SHARD_TRIGGER_GROUP);
+    }
+}
@@ -1,9 +1,9 @@
 package com.vibrent.aftership.scheduling;
 
-import com.vibrent.aftership.domain.TrackingRequestError;
 import com.vibrent.aftership.dto.RetryRequestDTO;
 import com.vibrent.aftership.messaging.producer.impl.RetryTrackingDeliveryRequestProducer;
 import com.vibrent.aftership.repository.TrackingRequestErrorRepository;
+import com.vibrent.aftership.repository.projection.TrackingRequestErrorRetryView;
 import com.vibrent.aftership.util.JacksonUtil;
 import com.vibrent.aftership.vo.TrackDeliveryRequestVo;
 import com.vibrent.vxp.workflow.MessageHeaderDto;
@@ -13,46 +13,56 @@ import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.util.stream.Stream;
 
 @Slf4j
 @Component
 public class RetryTrackingDeliveryRequestJob implements Job {
     private final TrackingRequestErrorRepository trackingRequestErrorRepository;
     private final RetryTrackingDeliveryRequestProducer retryTrackingDeliveryRequestProducer;
+    private final ChunkedKeysetScanner chunkedKeysetScanner;
     private final Integer maxRetryCount;
 
     public RetryTrackingDeliveryRequestJob(TrackingRequestErrorRepository trackingRequestErrorRepository, RetryTrackingDeliveryRequestProducer retryTrackingDeliveryRequestProducer,
+                                           ChunkedKeysetScanner chunkedKeysetScanner,
                                            @Value("${afterShip.maxRetryCount}") Integer maxRetryCount) {
         this.trackingRequestErrorRepository = trackingRequestErrorRepository;
         this.retryTrackingDeliveryRequestProducer = retryTrackingDeliveryRequestProducer;
+        this.chunkedKeysetScanner = chunkedKeysetScanner;
         this.maxRetryCount = maxRetryCount;
     }
 
 
 
     @Override
-    @Transactional
     public void execute(JobExecutionContext jobExecutionContext) throws JobExecutionException {
         Long startTime = System.currentTimeMillis();
         log.info("Aftership | Started Retry Tracking Delivery Request Job Execution {}", startTime);
-        Stream<TrackingRequestError> trackingRequestErrors = trackingRequestErrorRepository.findByRetryCountLessThan(maxRetryCount);
-        trackingRequestErrors
-                .forEach(trackingRequestError ->
-                {
-                    try {
-                        TrackDeliveryRequestVo trackDeliveryRequestVo = JacksonUtil.getMapper().readValue(trackingRequestError.getTrackDeliveryRequest(), TrackDeliveryRequestVo.class);
-                        MessageHeaderDto messageHeaderDto = JacksonUtil.getMapper().readValue(trackingRequestError.getHeader(), MessageHeaderDto.class);
-                        log.info("Retrying tracking ID {} ", trackDeliveryRequestVo.getTrackingID());
-                        RetryRequestDTO retryRequestDTO = new RetryRequestDTO(trackDeliveryRequestVo, messageHeaderDto);
-                        retryTrackingDeliveryRequestProducer.send(retryRequestDTO);
-                    } catch (Exception e) {
-                        log.warn("Aftership | Failed to send error tracking request for Tracking id : {}, Exception {}", trackingRequestError.getTrackingId(), e);
-                    }
-                });
-
-        log.info("Aftership | Completes Retry Tracking Delivery Request Job Execution. Total time taken: {} ", System.currentTimeMillis() - startTime);
+        long scanned = chunkedKeysetScanner.scan(
+                (lastId, page) -> trackingRequestErrorRepository.findByIdGreaterThanAndRetryCountLessThanOrderByIdAsc(lastId, maxRetryCount, page),
+                TrackingRequestErrorRetryView::getId,
+                RetryTrackingDeliveryRequestJob::toRetryRequest,
+                retryRequests -> retryRequests.forEach(this::send));
+
+        log.info("Aftership | Completes Retry Tracking Delivery Request Job Execution. Scanned {} errors, Total time taken: {} ", scanned, System.currentTimeMillis() - startTime);
+    }
+
+    private static RetryRequestDTO toRetryRequest(TrackingRequestErrorRetryView trackingRequestError) {
+        try {
+            TrackDeliveryRequestVo trackDeliveryRequestVo = JacksonUtil.getMapper().readValue(trackingRequestError.getTrackDeliveryRequest(), TrackDeliveryRequestVo.class);
+            MessageHeaderDto messageHeaderDto = JacksonUtil.getMapper().readValue(trackingRequestError.getHeader(), MessageHeaderDto.class);
+            return new RetryRequestDTO(trackDeliveryRequestVo, messageHeaderDto);
+        } catch (Exception e) {
+            log.warn("Aftership | Failed to send error tracking request for Tracking id : {}, Exception {}", trackingRequestError.getTrackingId(), e);
+            return null;
+        }
+    }
+
+    private void send(RetryRequestDTO retryRequestDTO) {
+        try {
+            log.info("Retrying tracking ID {} ", retryRequestDTO.getTrackDeliveryRequestVo().getTrackingID());
+            retryTrackingDeliveryRequestProducer.send(retryRequestDTO);
+        } catch (Exception e) {
+            log.warn("Aftership | Failed to send error tracking request for Tracking id : {}, Exception {}", retryRequestDTO.getTrackDeliveryRequestVo().getTrackingID(), e);
+        }
     }
 }
@@ -0,0 +1,160 @@
+package com.vibrent.aftership.scheduling;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vibrent.aftership.dto.PollTargetDTO;
+import com.vibrent.aftership.enums.PollOutcome;
+import com.vibrent.aftership.service.TrackingRefreshService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Fans tracking refreshes out to a bounded pool of {@code afterShip.poll.threads} workers, at most two refreshes per
+ * worker are queued so the scan feeding the pool never runs far ahead of it.
+ * <p>
+ * {@code afterShip.poll.ratePerSecond} is the rate of the whole cluster. Every shard of a run gets an equal share of
+ * it, {@code ratePerSecond / shards}, and the workers of a node share one rate limiter set to the sum of the shares of
+ * the shards the node is refreshing. However the shards are spread over the nodes, the cluster stays within the rate.
+ * <p>
+ * Metrics: {@code afterShip.poll.refresh} timer tagged with the {@link PollOutcome}.
+ */
+@Slf4j
+@Component
+public class TrackingRefreshExecutor {
+
+    private final TrackingRefreshService trackingRefreshService;
+    private final double ratePerSecond;
+    private final RateLimiter rateLimiter;
+    // Share of the cluster wide rate of the shards refreshing on this node, guarded by the rate limiter
+    private double activeShare;
+    private final ExecutorService executor;
+    private final Semaphore capacity;
+    private final Map<PollOutcome, Timer> timers = new EnumMap<>(PollOutcome.class);
+
+    public TrackingRefreshExecutor(TrackingRefreshService trackingRefreshService,
+                                   @Value("${afterShip.poll.threads}") int threads,
+                                   @Value("${afterShip.poll.ratePerSecond}") double ratePerSecond,
+                                   MeterRegistry meterRegistry) {
+        this.trackingRefreshService = trackingRefreshService;
+        this.ratePerSecond = ratePerSecond;
+        this.rateLimiter = RateLimiter.create(ratePerSecond);
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("aftership-poll-%d").setDaemon(true).build());
+        this.capacity = new Semaphore(threads * 2);
+        for (PollOutcome outcome : PollOutcome.values()) {
+            timers.put(outcome, Timer.builder("afterShip.poll.refresh")
+                    .tag("outcome", outcome.name())
+                    .description("Duration of a tracking refresh by the get tracking job")
+                    .register(meterRegistry));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Refreshes all targets and waits until every refresh has completed.
+     */
+    public PollRunSummary refreshAll(Stream<PollTargetDTO> pollTargets) {
+        PollRunSummary summary = new PollRunSummary();
+        refreshAll(pollTargets, summary);
+        summary.complete();
+        return summary;
+    }
+
+    /**
+     * Refreshes all targets, recording into the given summary, and waits until every refresh has completed.
+     */
+    public void refreshAll(Stream<PollTargetDTO> pollTargets, PollRunSummary summary) {
+        refreshAll(pollTargets, summary, 1);
+    }
+
+    /**
+     * Refreshes all targets of one shard of a run split into {@code shardCount} shards at the share of the rate of the
+     * shard, recording into the given summary, and waits until every refresh has completed.
+     */
+    public void refreshAll(Stream<PollTargetDTO> pollTargets, PollRunSummary summary, int shardCount) {
+        double share = 1.0 / shardCount;
+        addRateShare(share);
+        try {
+            submitAll(pollTargets, summary);
+        } finally {
+            addRateShare(-share);
+        }
+    }
+
+    private void addRateShare(double share) {
+        synchronized (rateLimiter) {
+            activeShare += share;
+            // Without an active shard the last rate is kept, RateLimiter needs a positive rate
+            if (activeShare > 1e-9) {
+                rateLimiter.setRate(ratePerSecond * activeShare);
+            }
+        }
+    }
+
+    private void submitAll(Stream<PollTargetDTO> pollTargets, PollRunSummary summary) {
+        Phaser inFlight = new Phaser(1);
+        try {
+            Iterator<PollTargetDTO> iterator = pollTargets.iterator();
+            while (iterator.hasNext()) {
+                capacity.acquire();
+                submit(iterator.next(), summary, inFlight);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Aftership | Interrupted while submitting tracking refreshes, waiting for submitted refreshes to complete");
+        } finally {
+            inFlight.arriveAndAwaitAdvance();
+        }
+    }
+
+    private void submit(PollTargetDTO pollTarget, PollRunSummary summary, Phaser inFlight) {
+        inFlight.register();
+        try {
+            executor.execute(() -> {
+                try {
+                    rateLimiter.acquire();
+                    long start = System.nanoTime();
+                    PollOutcome outcome = refresh(pollTarget);
+                    long duration = System.nanoTime() - start;
+                    timers.get(outcome).record(duration, TimeUnit.NANOSECONDS);
+                    summary.record(outcome, duration);
+                } finally {
+                    capacity.release();
+                    inFlight.arriveAndDeregister();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            capacity.release();
+            inFlight.arriveAndDeregister();
+            throw e;
+        }
+    }
+
+    private PollOutcome refresh(PollTargetDTO pollTarget) {
+        try {
+            return trackingRefreshService.refresh(pollTarget);
+        } catch (RuntimeException e) {
+            log.warn("Aftership | Unexpected exception while refreshing tracking id {}", pollTarget.getTrackingId(), e);
+            return PollOutcome.FAILED;
+        }
+    }
+}
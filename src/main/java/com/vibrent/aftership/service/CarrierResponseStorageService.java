@@ -0,0 +1,20 @@
+package com.vibrent.aftership.service;
+
+import com.vibrent.aftership.domain.TrackingRequest;
+
+public interface CarrierResponseStorageService {
+
+    /**
+     * Sets the carrier response of the tracking request in the configured {@code afterShip.carrierResponse.format},
+     * as JSON or trimmed to the fields in use and the last checkpoints and deflated.
+     */
+    void store(TrackingRequest trackingRequest, String carrierResponse, String carrierResponseType);
+
+    /**
+     * Compacts the carrier responses still stored as JSON, in batches of a transaction each. Does nothing unless the
+     * compact format is configured.
+     *
+     * @return number of compacted tracking requests
+     */
+    long compactStored();
+}
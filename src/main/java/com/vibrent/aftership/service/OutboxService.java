@@ -0,0 +1,20 @@
+package com.vibrent.aftership.service;
+
+import org.springframework.messaging.Message;
+
+public interface OutboxService {
+
+    boolean isEnabled();
+
+    /**
+     * Writes the message to the outbox in the current transaction, the relay sends it to Kafka after the commit.
+     */
+    void enqueue(Message<?> message);
+
+    /**
+     * Claims a batch of outbox messages, sends them with one producer flush and deletes the sent ones.
+     *
+     * @return number of claimed messages
+     */
+    int relay();
+}
@@ -0,0 +1,39 @@
+package com.vibrent.aftership.service;
+
+import com.vibrent.aftership.domain.PollRunCheckpoint;
+import com.vibrent.aftership.dto.PollRunDTO;
+
+import java.util.List;
+
+public interface PollRunService {
+
+    /**
+     * Records the start of a run with a pending checkpoint per shard, nothing when the run is already recorded.
+     */
+    void startRun(long runId, int shardCount);
+
+    /**
+     * Starts or resumes a shard of a run.
+     *
+     * @return checkpoint of the shard, completed when the shard has nothing left to do
+     */
+    PollRunCheckpoint startShard(long runId, int shardIndex, int shardCount);
+
+    void checkpoint(long runId, int shardIndex, long lastId, long processed);
+
+    /**
+     * Completes a shard, and the run once all of its shards completed or were skipped.
+     */
+    void completeShard(long runId, int shardIndex);
+
+    /**
+     * Marks a shard that was not dispatched for the run as skipped, completing the run once all of its other shards
+     * completed.
+     */
+    void skipShard(long runId, int shardIndex);
+
+    /**
+     * @return latest runs with the progress of their shards, newest first
+     */
+    List<PollRunDTO> getRuns(int limit);
+}
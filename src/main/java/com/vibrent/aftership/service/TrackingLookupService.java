@@ -0,0 +1,17 @@
+package com.vibrent.aftership.service;
+
+import com.vibrent.aftership.dto.TrackingSummaryDTO;
+
+import java.util.List;
+
+public interface TrackingLookupService {
+
+    /**
+     * Finds the tracking requests of a participant by vibrent id, or by external id when no vibrent id is given, in id
+     * order. Archived tracking requests are not included.
+     *
+     * @param afterId id of the last tracking request of the previous page, 0 for the first page
+     * @param limit   maximum tracking requests of the page
+     */
+    List<TrackingSummaryDTO> findByParticipant(Long vibrentId, String externalId, long afterId, int limit);
+}
@@ -0,0 +1,12 @@
+package com.vibrent.aftership.service;
+
+import com.vibrent.aftership.dto.PollTargetDTO;
+import com.vibrent.aftership.enums.PollOutcome;
+
+public interface TrackingRefreshService {
+
+    /**
+     * Fetches the latest tracking from AfterShip and processes it in a transaction of its own.
+     */
+    PollOutcome refresh(PollTargetDTO pollTarget);
+}
@@ -0,0 +1,23 @@
+package com.vibrent.aftership.service;
+
+import com.vibrent.aftership.domain.TrackingRequest;
+
+import java.util.Optional;
+
+public interface TrackingRequestArchiveService {
+
+    /**
+     * Moves tracking requests in a terminal status that were last updated before {@code updatedBefore} to the archive,
+     * in batches of a transaction each.
+     *
+     * @return number of archived tracking requests
+     */
+    long archive(long updatedBefore);
+
+    /**
+     * Finds the tracking request of the tracking id, an archived one is restored to the tracking requests.
+     */
+    Optional<TrackingRequest> findByTrackingId(String trackingId);
+
+    boolean isArchived(String trackingId);
+}
@@ -0,0 +1,13 @@
+package com.vibrent.aftership.service;
+
+import com.vibrent.aftership.vo.TrackDeliveryRequestVo;
+import com.vibrent.vxp.workflow.MessageHeaderDto;
+
+public interface TrackingRequestErrorService {
+
+    /**
+     * Records a failed track delivery request for the retry job, a tracking id that already failed has its retry count
+     * incremented. Returns once the error is committed, or logs it when it could not be recorded.
+     */
+    void record(TrackDeliveryRequestVo trackDeliveryRequestVo, MessageHeaderDto messageHeaderDto, Throwable throwable);
+}
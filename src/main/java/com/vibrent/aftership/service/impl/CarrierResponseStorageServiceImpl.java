@@ -0,0 +1,170 @@
+package com.vibrent.aftership.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.enums.CarrierResponseFormat;
+import com.vibrent.aftership.enums.CarrierResponseType;
+import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.repository.projection.TrackingRequestCarrierResponseView;
+import com.vibrent.aftership.service.CarrierResponseStorageService;
+import com.vibrent.aftership.util.CompressionUtil;
+import com.vibrent.aftership.util.JacksonUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Stores carrier responses as JSON or, in the compact format, trimmed to the fields of the tracking we use and the
+ * last {@code afterShip.carrierResponse.checkpoints} checkpoints and deflated into {@code carrier_response_compressed}.
+ * {@link TrackingRequest#getCarrierResponse()} inflates compact rows, so readers see JSON in both formats.
+ * <p>
+ * Metrics: {@code afterShip.carrierResponse.size} of the JSON ({@code form=raw}) and of what is stored
+ * ({@code form=stored}), and {@code afterShip.carrierResponse.compacted} for rows compacted by the backfill.
+ */
+@Slf4j
+@Service
+public class CarrierResponseStorageServiceImpl implements CarrierResponseStorageService {
+
+    static final String CHECKPOINTS = "checkpoints";
+    static final String MSG = "msg";
+    static final List<String> TRACKING_FIELDS = List.of("id", "trackingNumber", "slug", "tag", "subtag", "subtagMessage",
+            "active", "customFields", "expectedDelivery", "shipmentDeliveryDate", "lastUpdatedAt", "updatedAt");
+    static final List<String> NOTIFICATION_FIELDS = List.of("event_id", "event", "is_tracking_first_tag", "ts");
+
+    private final TrackingRequestRepository trackingRequestRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CarrierResponseFormat format;
+    private final int checkpointCount;
+    private final int batchSize;
+
+    private final DistributionSummary rawSize;
+    private final DistributionSummary storedSize;
+    private final Counter compacted;
+
+    public CarrierResponseStorageServiceImpl(TrackingRequestRepository trackingRequestRepository,
+                                             PlatformTransactionManager transactionManager,
+                                             @Value("${afterShip.carrierResponse.format}") CarrierResponseFormat format,
+                                             @Value("${afterShip.carrierResponse.checkpoints}") int checkpointCount,
+                                             @Value("${afterShip.carrierResponse.batchSize}") int batchSize,
+                                             MeterRegistry meterRegistry) {
+        this.trackingRequestRepository = trackingRequestRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.format = format;
+        this.checkpointCount = checkpointCount;
+        this.batchSize = batchSize;
+
+        this.rawSize = DistributionSummary.builder("afterShip.carrierResponse.size").tag("form", "raw")
+                .baseUnit("bytes").register(meterRegistry);
+        this.storedSize = DistributionSummary.builder("afterShip.carrierResponse.size").tag("form", "stored")
+                .baseUnit("bytes").register(meterRegistry);
+        this.compacted = meterRegistry.counter("afterShip.carrierResponse.compacted");
+    }
+
+    @Override
+    public void store(TrackingRequest trackingRequest, String carrierResponse, String carrierResponseType) {
+        trackingRequest.setCarrierResponseType(carrierResponseType);
+        if (carrierResponse == null || format == CarrierResponseFormat.JSON) {
+            trackingRequest.setCarrierResponse(carrierResponse);
+            trackingRequest.setCarrierResponseCompressed(null);
+            return;
+        }
+        trackingRequest.setCarrierResponse(null);
+        trackingRequest.setCarrierResponseCompressed(compact(carrierResponse, carrierResponseType));
+    }
+
+    @Override
+    public long compactStored() {
+        if (format == CarrierResponseFormat.JSON) {
+            return 0;
+        }
+        long total = 0;
+        long lastId = 0;
+        while (true) {
+            List<TrackingRequestCarrierResponseView> page = trackingRequestRepository.findUncompressedCarrierResponses(lastId, PageRequest.of(0, batchSize));
+            if (page.isEmpty()) {
+                return total;
+            }
+            Integer updated = transactionTemplate.execute(status -> compactBatch(page));
+            total += updated == null ? 0 : updated;
+            lastId = page.get(page.size() - 1).getId();
+            if (page.size() < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    private int compactBatch(List<TrackingRequestCarrierResponseView> page) {
+        int updated = 0;
+        for (TrackingRequestCarrierResponseView view : page) {
+            byte[] compressed = compact(view.getCarrierResponse(), view.getCarrierResponseType());
+            updated += trackingRequestRepository.compressCarrierResponse(view.getId(), compressed, view.getUpdatedOn());
+        }
+        compacted.increment(updated);
+        return updated;
+    }
+
+    byte[] compact(String carrierResponse, String carrierResponseType) {
+        byte[] compressed = CompressionUtil.deflate(trim(carrierResponse, carrierResponseType));
+        rawSize.record(carrierResponse.getBytes(StandardCharsets.UTF_8).length);
+        storedSize.record(compressed.length);
+        return compressed;
+    }
+
+    String trim(String carrierResponse, String carrierResponseType) {
+        try {
+            JsonNode root = JacksonUtil.getMapper().readTree(carrierResponse);
+            if (root == null || !root.isObject()) {
+                return carrierResponse;
+            }
+            if (CarrierResponseType.NOTIFICATION.toString().equalsIgnoreCase(carrierResponseType)) {
+                ObjectNode trimmed = copyFields(root, NOTIFICATION_FIELDS);
+                JsonNode msg = root.get(MSG);
+                if (msg != null && msg.isObject()) {
+                    trimmed.set(MSG, trimTracking(msg));
+                }
+                return JacksonUtil.getMapper().writeValueAsString(trimmed);
+            }
+            if (CarrierResponseType.TRACKING.toString().equalsIgnoreCase(carrierResponseType)) {
+                return JacksonUtil.getMapper().writeValueAsString(trimTracking(root));
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("AfterShip: Carrier response is not valid JSON, it is compressed without trimming", e);
+        }
+        return carrierResponse;
+    }
+
+    private ObjectNode trimTracking(JsonNode tracking) {
+        ObjectNode trimmed = copyFields(tracking, TRACKING_FIELDS);
+        JsonNode checkpoints = tracking.get(CHECKPOINTS);
+        if (checkpoints != null && checkpoints.isArray()) {
+            ArrayNode lastCheckpoints = trimmed.putArray(CHECKPOINTS);
+            for (int i = Math.max(0, checkpoints.size() - checkpointCount); i < checkpoints.size(); i++) {
+                lastCheckpoints.add(checkpoints.get(i));
+            }
+        }
+        return trimmed;
+    }
+
+    private static ObjectNode copyFields(JsonNode source, List<String> fields) {
+        ObjectNode copy = JacksonUtil.getMapper().createObjectNode();
+        for (String field : fields) {
+            JsonNode value = source.get(field);
+            if (value != null) {
+                copy.set(field, value);
+            }
+        }
+        return copy;
+    }
+}
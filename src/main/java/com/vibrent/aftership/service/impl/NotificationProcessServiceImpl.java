@@ -2,21 +2,37 @@ package com.vibrent.aftership.service.impl;
 
 import com.aftership.sdk.model.tracking.Tracking;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.vibrent.aftership.audit.AuditDeltaWriter;
+import com.vibrent.aftership.audit.TrackingRequestRevisionWriter;
+import com.vibrent.aftership.cache.TrackingRequestCache;
 import com.vibrent.aftership.converter.FulfillmentTrackDeliveryResponseConverter;
 import com.vibrent.aftership.converter.TrackDeliveryResponseConverter;
 import com.vibrent.aftership.domain.TrackingRequest;
 import com.vibrent.aftership.dto.NotificationDTO;
+import com.vibrent.aftership.dto.RoutingTokenDTO;
 import com.vibrent.aftership.enums.CarrierResponseType;
 import com.vibrent.aftership.messaging.producer.impl.FulfillmentTrackingResponseProducer;
 import com.vibrent.aftership.messaging.producer.impl.TrackingResponseProducer;
 import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.routing.DeferredStatusWriter;
+import com.vibrent.aftership.scheduling.NextPollCalculator;
+import com.vibrent.aftership.service.CarrierResponseStorageService;
 import com.vibrent.aftership.service.NotificationProcessService;
+import com.vibrent.aftership.service.OutboxService;
+import com.vibrent.aftership.service.TrackingRequestArchiveService;
+import com.vibrent.aftership.util.FingerprintUtil;
 import com.vibrent.aftership.util.JacksonUtil;
+import com.vibrent.aftership.util.RoutingTokenUtil;
 import com.vibrent.vxp.workflow.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
 import javax.validation.constraints.NotNull;
@@ -27,24 +43,52 @@ import java.util.Optional;
 
 import static com.vibrent.aftership.constants.AfterShipConstants.TAG_EXCEPTION;
 import static com.vibrent.aftership.service.impl.TrackingRequestServiceImpl.CUSTOM_FIELD_PLATFORM_ID;
+import static com.vibrent.aftership.service.impl.TrackingRequestServiceImpl.CUSTOM_FIELD_ROUTING_TOKEN;
 
 @Slf4j
 @Service
 public class NotificationProcessServiceImpl implements NotificationProcessService {
 
+    static final List<String> STATUS_UPDATE_PROPERTIES = List.of("status", "subStatusCode", "subStatusDescription", "slug",
+            "carrierResponse", "carrierResponseCompressed", "carrierResponseType", "lastEventAt", "updatedOn");
+
     private final TrackDeliveryResponseConverter trackDeliveryResponseConverter;
     private final FulfillmentTrackDeliveryResponseConverter fulfillmentTrackDeliveryResponseConverter;
     private final TrackingResponseProducer trackingResponseProducer;
     private final FulfillmentTrackingResponseProducer fulfillmentTrackingResponseProducer;
     private final TrackingRequestRepository trackingRequestRepository;
+    private final NextPollCalculator nextPollCalculator;
+    private final TrackingRequestArchiveService trackingRequestArchiveService;
+    private final CarrierResponseStorageService carrierResponseStorageService;
+    private final TrackingRequestCache trackingRequestCache;
+    private final AuditDeltaWriter auditDeltaWriter;
+    private final TrackingRequestRevisionWriter trackingRequestRevisionWriter;
+    private final OutboxService outboxService;
+    private final DeferredStatusWriter deferredStatusWriter;
+    private final TransactionTemplate transactionTemplate;
     private List<String> exceptionSubStatus;
     private final String platform;
 
+    private final Counter updatesSkipped;
+    private final Counter statusChanges;
+    private final Counter carrierResponseUpdates;
+    private final Counter concurrentUpdates;
+
     public NotificationProcessServiceImpl(TrackDeliveryResponseConverter trackDeliveryResponseConverter,
                                           FulfillmentTrackDeliveryResponseConverter fulfillmentTrackDeliveryResponseConverter,
                                           TrackingResponseProducer trackingResponseProducer,
                                           FulfillmentTrackingResponseProducer fulfillmentTrackingResponseProducer,
                                           TrackingRequestRepository trackingRequestRepository,
+                                          NextPollCalculator nextPollCalculator,
+                                          TrackingRequestArchiveService trackingRequestArchiveService,
+                                          CarrierResponseStorageService carrierResponseStorageService,
+                                          TrackingRequestCache trackingRequestCache,
+                                          AuditDeltaWriter auditDeltaWriter,
+                                          TrackingRequestRevisionWriter trackingRequestRevisionWriter,
+                                          OutboxService outboxService,
+                                          DeferredStatusWriter deferredStatusWriter,
+                                          PlatformTransactionManager transactionManager,
+                                          MeterRegistry meterRegistry,
                                           @NotNull @Value("${afterShip.exceptionSubStatus}") List<String> exceptionSubStatus,
                                           @Value("${afterShip.platform}") String platform) {
         this.trackDeliveryResponseConverter = trackDeliveryResponseConverter;
@@ -52,13 +96,26 @@ public class NotificationProcessServiceImpl implements NotificationProcessServic
         this.trackingResponseProducer = trackingResponseProducer;
         this.fulfillmentTrackingResponseProducer = fulfillmentTrackingResponseProducer;
         this.trackingRequestRepository = trackingRequestRepository;
+        this.nextPollCalculator = nextPollCalculator;
+        this.trackingRequestArchiveService = trackingRequestArchiveService;
+        this.carrierResponseStorageService = carrierResponseStorageService;
+        this.trackingRequestCache = trackingRequestCache;
+        this.auditDeltaWriter = auditDeltaWriter;
+        this.trackingRequestRevisionWriter = trackingRequestRevisionWriter;
+        this.outboxService = outboxService;
+        this.deferredStatusWriter = deferredStatusWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.exceptionSubStatus = exceptionSubStatus;
         this.platform = platform;
+
+        this.updatesSkipped = meterRegistry.counter("afterShip.trackingUpdate", "result", "skipped");
+        this.statusChanges = meterRegistry.counter("afterShip.trackingUpdate", "result", "statusChanged");
+        this.carrierResponseUpdates = meterRegistry.counter("afterShip.trackingUpdate", "result", "carrierResponse");
+        this.concurrentUpdates = meterRegistry.counter("afterShip.trackingUpdate", "result", "concurrent");
     }
 
     @Override
     public void process(NotificationDTO notificationDTO) {
-        String carrierResponse = null;
         if (notificationDTO == null || notificationDTO.getMsg() == null) {
             log.warn("AfterShip: Cannot process the notification as received notificationDTO is null or notificationDTO.getMsg() is null");
             return;
@@ -68,29 +125,73 @@ public class NotificationProcessServiceImpl implements NotificationProcessServic
             return;
         }
         try {
+            String carrierResponse = getCarrierResponseAsString(notificationDTO);
+            if (!deferRoutedUpdate(notificationDTO.getMsg(), carrierResponse)) {
+                processStored(notificationDTO.getMsg(), carrierResponse);
+            }
+        } catch (Exception e) {
+            log.warn("AfterShip: Error while processing notificationDTO", e);
+        }
+    }
 
-            Optional<TrackingRequest> optionalTrackingRequest = this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber());
-            TrackingRequest trackingRequest = optionalTrackingRequest.orElse(null);
+    private void processStored(Tracking tracking, String carrierResponse) {
+        // Falls through to the archive when the tracking request is not found
+        Optional<TrackingRequest> optionalTrackingRequest = this.trackingRequestArchiveService.findByTrackingId(tracking.getTrackingNumber());
+        TrackingRequest trackingRequest = optionalTrackingRequest.orElse(null);
 
-            if (trackingRequest == null) {
-                log.info("AfterShip: Could not find the saved tracking request in DB for tracking number: " + notificationDTO.getMsg().getTrackingNumber());
-                return;
-            }
+        if (trackingRequest == null) {
+            log.info("AfterShip: Could not find the saved tracking request in DB for tracking number: " + tracking.getTrackingNumber());
+            return;
+        }
 
-            if(Objects.isNull(trackingRequest.getFulfillmentOrderID())){
-                TrackDeliveryResponseDto trackDeliveryResponseDto = this.trackDeliveryResponseConverter.convert(notificationDTO.getMsg(), trackingRequest);
-                sendTrackDeliveryResponse(notificationDTO.getMsg(), trackingRequest, trackDeliveryResponseDto);
-            }else {
-                FulfillmentTrackDeliveryResponseDto fulfillmentTrackDeliveryResponseDto = this.fulfillmentTrackDeliveryResponseConverter.convert(notificationDTO.getMsg(), trackingRequest);
-                sendTrackDeliveryResponse(notificationDTO.getMsg(), trackingRequest, fulfillmentTrackDeliveryResponseDto);
-            }
+        updateAndSendTrackDeliveryResponse(trackingRequest, tracking, carrierResponse, CarrierResponseType.NOTIFICATION.toString());
+    }
 
-            //Update tracking request
-            carrierResponse = getCarrierResponseAsString(notificationDTO);
-            updateTrackingRequest(trackingRequest, notificationDTO.getMsg(), carrierResponse, CarrierResponseType.NOTIFICATION.toString());
-        } catch (Exception e) {
-            log.warn("AfterShip: Error while processing notificationDTO", e);
+    /**
+     * With a routing token in the custom fields the response is built from the webhook and the token, without reading
+     * the tracking request, and the status update is queued for the deferred status writer. Its status change decides
+     * whether the response is sent; a tracking request it cannot find is processed from the stored one.
+     *
+     * @return true when the update was queued
+     */
+    private boolean deferRoutedUpdate(Tracking tracking, String carrierResponse) {
+        if (!deferredStatusWriter.isEnabled() || CollectionUtils.isEmpty(tracking.getCustomFields())) {
+            return false;
         }
+        Optional<RoutingTokenDTO> routingToken = RoutingTokenUtil.decode(tracking.getCustomFields().get(CUSTOM_FIELD_ROUTING_TOKEN));
+        if (routingToken.isEmpty()) {
+            return false;
+        }
+
+        // No stored status or participant, the writer only runs the response of an update that changed the status and
+        // the converters take the participant from the custom fields
+        TrackingRequest routed = new TrackingRequest();
+        routed.setTrackingId(tracking.getTrackingNumber());
+        routed.setProvider(routingToken.get().getProvider());
+        routed.setFulfillmentOrderID(routingToken.get().getFulfillmentOrderID());
+        routed.setParsedHeader(routingToken.get().getHeader());
+
+        long now = System.currentTimeMillis();
+        TrackingRequest updated = new TrackingRequest();
+        updated.setTrackingId(tracking.getTrackingNumber());
+        carrierResponseStorageService.store(updated, carrierResponse, CarrierResponseType.NOTIFICATION.toString());
+        updated.setStatus(tracking.getTag());
+        updated.setSubStatusCode(tracking.getSubtag());
+        updated.setSubStatusDescription(tracking.getSubtagMessage());
+        updated.setSlug(StringUtils.hasText(tracking.getSlug()) ? tracking.getSlug() : null);
+        updated.setLastEventAt(getEventTime(tracking, now));
+        updated.setNextPollAt(nextPollCalculator.nextPollAt(updated, tracking.getExpectedDelivery(), now));
+        updated.setFingerprint(FingerprintUtil.fingerprint(tracking));
+        updated.setUpdatedOn(now);
+
+        return deferredStatusWriter.enqueue(updated,
+                () -> sendTrackDeliveryResponse(tracking, routed),
+                () -> {
+                    // Only the sub status changed, with the stored tag the response of an unchanged tag is not sent again
+                    routed.setStatus(tracking.getTag());
+                    sendTrackDeliveryResponse(tracking, routed);
+                },
+                () -> processStored(tracking, carrierResponse));
     }
 
     /**
@@ -125,23 +226,41 @@ public class NotificationProcessServiceImpl implements NotificationProcessServic
                 return;
             }
 
-            if(Objects.isNull(trackingRequest.getFulfillmentOrderID())){
-                TrackDeliveryResponseDto trackDeliveryResponseDto = this.trackDeliveryResponseConverter.convert(tracking, trackingRequest);
-                sendTrackDeliveryResponse(tracking, trackingRequest, trackDeliveryResponseDto);
-            }else {
-                FulfillmentTrackDeliveryResponseDto fulfillmentTrackDeliveryResponseDto = this.fulfillmentTrackDeliveryResponseConverter.convert(tracking, trackingRequest);
-                sendTrackDeliveryResponse(tracking, trackingRequest, fulfillmentTrackDeliveryResponseDto);
-            }
-
-            //Update tracking request
             carrierResponse = getCarrierResponseAsString(tracking);
-            updateTrackingRequest(trackingRequest, tracking, carrierResponse, CarrierResponseType.TRACKING.toString());
+            updateAndSendTrackDeliveryResponse(trackingRequest, tracking, carrierResponse, CarrierResponseType.TRACKING.toString());
 
         } catch (Exception e) {
             log.warn("AfterShip: Error while processing tracking", e);
         }
     }
 
+    /**
+     * Updates the tracking request and records its audit revision in one transaction, the response is only sent by the
+     * update that changed the status. With the outbox the response is written in the transaction of the update, so it
+     * is relayed exactly when the update commits.
+     */
+    private void updateAndSendTrackDeliveryResponse(TrackingRequest trackingRequest, Tracking tracking, String carrierResponse, String carrierResponseType) {
+        if (outboxService.isEnabled()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (updateTrackingRequest(trackingRequest, tracking, carrierResponse, carrierResponseType)) {
+                    sendTrackDeliveryResponse(tracking, trackingRequest);
+                }
+            });
+        } else if (Boolean.TRUE.equals(transactionTemplate.execute(status -> updateTrackingRequest(trackingRequest, tracking, carrierResponse, carrierResponseType)))) {
+            sendTrackDeliveryResponse(tracking, trackingRequest);
+        }
+    }
+
+    private void sendTrackDeliveryResponse(Tracking tracking, TrackingRequest trackingRequest) {
+        if (Objects.isNull(trackingRequest.getFulfillmentOrderID())) {
+            TrackDeliveryResponseDto trackDeliveryResponseDto = this.trackDeliveryResponseConverter.convert(tracking, trackingRequest);
+            sendTrackDeliveryResponse(tracking, trackingRequest, trackDeliveryResponseDto);
+        } else {
+            FulfillmentTrackDeliveryResponseDto fulfillmentTrackDeliveryResponseDto = this.fulfillmentTrackDeliveryResponseConverter.convert(tracking, trackingRequest);
+            sendTrackDeliveryResponse(tracking, trackingRequest, fulfillmentTrackDeliveryResponseDto);
+        }
+    }
+
     private String getCarrierResponseAsString(Tracking tracking) {
         String carrierResponse = null;
         try {
@@ -189,13 +308,72 @@ public class NotificationProcessServiceImpl implements NotificationProcessServic
         }
     }
 
-    private void updateTrackingRequest(TrackingRequest trackingRequest, Tracking tracking, String carrierResponse, String carrierResponseType) {
-        trackingRequest.setCarrierResponse(carrierResponse);
-        trackingRequest.setStatus(tracking.getTag());
-        trackingRequest.setSubStatusCode(tracking.getSubtag());
-        trackingRequest.setSubStatusDescription(tracking.getSubtagMessage());
-        trackingRequest.setCarrierResponseType(carrierResponseType);
-        this.trackingRequestRepository.save(trackingRequest);
+    /**
+     * Writes the tracking to the tracking request in a single conditional statement. A status change only applies
+     * while the stored status still differs, so of concurrent updates to the same status exactly one applies it, and
+     * any other update only while the status is still the one read. The tracking request that was read is not
+     * changed; when it is managed it would otherwise be flushed ahead of the statement.
+     *
+     * @return true when this update changed the status
+     */
+    private boolean updateTrackingRequest(TrackingRequest trackingRequest, Tracking tracking, String carrierResponse, String carrierResponseType) {
+        long now = System.currentTimeMillis();
+        boolean statusChange = !Objects.equals(trackingRequest.getStatus(), tracking.getTag()) || !Objects.equals(trackingRequest.getSubStatusCode(), tracking.getSubtag());
+        long fingerprint = FingerprintUtil.fingerprint(tracking);
+        if (!statusChange && Objects.equals(trackingRequest.getFingerprint(), fingerprint)) {
+            log.debug("AfterShip: Nothing material changed for tracking number {}, tracking request not updated", trackingRequest.getTrackingId());
+            updatesSkipped.increment();
+            return false;
+        }
+
+        TrackingRequest updated = new TrackingRequest();
+        ReflectionUtils.shallowCopyFieldState(trackingRequest, updated);
+        if (statusChange) {
+            updated.setLastEventAt(getEventTime(tracking, now));
+        }
+        carrierResponseStorageService.store(updated, carrierResponse, carrierResponseType);
+        updated.setStatus(tracking.getTag());
+        updated.setSubStatusCode(tracking.getSubtag());
+        updated.setSubStatusDescription(tracking.getSubtagMessage());
+        if (StringUtils.hasText(tracking.getSlug())) {
+            updated.setSlug(tracking.getSlug());
+        }
+        updated.setNextPollAt(nextPollCalculator.nextPollAt(updated, tracking.getExpectedDelivery(), now));
+        updated.setFingerprint(fingerprint);
+        updated.setUpdatedOn(now);
+
+        // As stored, the getter would inflate a compact carrier response
+        String storedCarrierResponse = updated.getCarrierResponseCompressed() == null ? updated.getCarrierResponse() : null;
+        int applied = statusChange
+                ? trackingRequestRepository.compareAndSetStatus(updated.getTrackingId(), updated.getStatus(), updated.getSubStatusCode(),
+                updated.getSubStatusDescription(), updated.getSlug(), storedCarrierResponse, updated.getCarrierResponseCompressed(),
+                updated.getCarrierResponseType(), updated.getLastEventAt(), updated.getNextPollAt(), fingerprint, now)
+                : trackingRequestRepository.updateCarrierResponse(updated.getTrackingId(), updated.getStatus(), updated.getSubStatusCode(),
+                updated.getSubStatusDescription(), updated.getSlug(), storedCarrierResponse, updated.getCarrierResponseCompressed(),
+                updated.getCarrierResponseType(), updated.getNextPollAt(), fingerprint, now);
+        if (applied == 0) {
+            log.info("AfterShip: Tracking request for tracking number {} was updated concurrently, status {} not stored again", updated.getTrackingId(), tracking.getTag());
+            trackingRequestCache.invalidate(updated.getTrackingId());
+            concurrentUpdates.increment();
+            return false;
+        }
+        (statusChange ? statusChanges : carrierResponseUpdates).increment();
+        // The statement bypasses Envers, its revision is written explicitly unless the write-behind records the delta
+        if (auditDeltaWriter.isEnabled()) {
+            auditDeltaWriter.enqueueUpdate(trackingRequest, updated, updated.getId(), STATUS_UPDATE_PROPERTIES, now);
+        } else {
+            trackingRequestRevisionWriter.recordUpdate(updated.getTrackingId());
+        }
+        trackingRequestCache.saved(updated);
+        return statusChange;
+    }
+
+    /**
+     * Time AfterShip last updated the tracking, which orders the status changes: an older event delivered after a newer
+     * one does not overwrite its status. The time it was received when AfterShip sends none.
+     */
+    private static long getEventTime(Tracking tracking, long receivedAt) {
+        return tracking.getLastUpdatedAt() != null ? tracking.getLastUpdatedAt().getTime() : receivedAt;
     }
 
     private void sendTrackDeliveryResponse(Tracking tracking, TrackingRequest trackingRequest, FulfillmentTrackDeliveryResponseDto fulfillmentTrackDeliveryResponseDto) {
@@ -219,5 +397,4 @@ public class NotificationProcessServiceImpl implements NotificationProcessServic
             log.info("AfterShip: Received status other than TrackingStatusEnum from AfterShip. Received tag: {}", tracking.getTag());
         }
     }
-
 }
@@ -0,0 +1,215 @@
+package com.vibrent.aftership.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vibrent.aftership.service.OutboxService;
+import com.vibrent.aftership.util.JacksonUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.converter.MessagingMessageConverter;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Service;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Transactional outbox for outbound Kafka messages. A message is converted to its Kafka record as the
+ * {@link KafkaTemplate} would send it and written to {@code outbox_message} in the transaction of the caller, so it is
+ * stored exactly when the status update commits. A relay thread on every node polls the outbox every
+ * {@code afterShip.outbox.pollInterval}, sends up to {@code afterShip.outbox.batchSize} messages with one producer
+ * flush and deletes the sent ones.
+ * <p>
+ * MySQL 5.7 has no {@code SKIP LOCKED}, a relay claims its batch with a lease of {@code afterShip.outbox.claimTimeout}
+ * instead and the other relays skip the claimed rows. Messages whose send failed are sent again once their lease
+ * expired, so delivery is at least once and relays on several nodes may send messages out of order.
+ * <p>
+ * Metrics: {@code afterShip.outbox.relayed}, {@code afterShip.outbox.failed}, {@code afterShip.outbox.batchSize} and
+ * {@code afterShip.outbox.lag} from the enqueue to the send of a message.
+ */
+@Slf4j
+@Service
+public class OutboxServiceImpl implements OutboxService {
+
+    static final String INSERT_MESSAGE = "INSERT INTO outbox_message (topic, message_key, payload, headers, created_on) VALUES (?, ?, ?, ?, ?)";
+    // Both claims read index_outbox_message_claimed_until_id in index order and lock only the rows they claim: unclaimed
+    // messages all have claimed_until 0 and are claimed in id order, expired leases oldest first
+    static final String CLAIM_UNCLAIMED = "UPDATE outbox_message SET claimed_by = ?, claimed_until = ? WHERE claimed_until = 0 ORDER BY id LIMIT ?";
+    static final String CLAIM_EXPIRED = "UPDATE outbox_message SET claimed_by = ?, claimed_until = ? " +
+            "WHERE claimed_until > 0 AND claimed_until < ? ORDER BY claimed_until LIMIT ?";
+    static final String SELECT_CLAIMED = "SELECT id, topic, message_key, payload, headers, created_on FROM outbox_message WHERE claimed_by = ? ORDER BY id";
+    static final String DELETE_MESSAGE = "DELETE FROM outbox_message WHERE id = ?";
+
+    private static final TypeReference<LinkedHashMap<String, byte[]>> HEADERS_TYPE = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration claimTimeout;
+    private final MessagingMessageConverter messageConverter = new MessagingMessageConverter();
+    private final JsonSerializer<Object> jsonSerializer = new JsonSerializer<>();
+    private final ScheduledExecutorService executor;
+
+    private final Counter relayed;
+    private final Counter failed;
+    private final DistributionSummary batchSizes;
+    private final Timer lag;
+
+    public OutboxServiceImpl(JdbcTemplate jdbcTemplate,
+                             KafkaTemplate<String, byte[]> outboxKafkaTemplate,
+                             @Value("${afterShip.outbox.enabled}") boolean enabled,
+                             @Value("${afterShip.outbox.batchSize}") int batchSize,
+                             @Value("${afterShip.outbox.pollInterval}") Duration pollInterval,
+                             @Value("${afterShip.outbox.claimTimeout}") Duration claimTimeout,
+                             MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.kafkaTemplate = outboxKafkaTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.claimTimeout = claimTimeout;
+
+        this.relayed = meterRegistry.counter("afterShip.outbox.relayed");
+        this.failed = meterRegistry.counter("afterShip.outbox.failed");
+        this.batchSizes = DistributionSummary.builder("afterShip.outbox.batchSize")
+                .description("Outbox messages sent with one producer flush").register(meterRegistry);
+        this.lag = Timer.builder("afterShip.outbox.lag")
+                .description("Time from the enqueue to the send of an outbox message").register(meterRegistry);
+
+        if (enabled) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("aftership-outbox-relay-%d").setDaemon(true).build());
+            this.executor.scheduleWithFixedDelay(this::relayAll, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void enqueue(Message<?> message) {
+        ProducerRecord<?, ?> producerRecord = messageConverter.fromMessage(message, null);
+        Map<String, byte[]> headers = new LinkedHashMap<>();
+        producerRecord.headers().forEach(header -> headers.put(header.key(), header.value()));
+        try {
+            jdbcTemplate.update(INSERT_MESSAGE, producerRecord.topic(),
+                    producerRecord.key() == null ? null : producerRecord.key().toString(),
+                    jsonSerializer.serialize(producerRecord.topic(), producerRecord.value()),
+                    JacksonUtil.getMapper().writeValueAsString(headers), System.currentTimeMillis());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Headers of the outbox message to " + producerRecord.topic() + " cannot be written", e);
+        }
+    }
+
+    @Override
+    public int relay() {
+        String claim = UUID.randomUUID().toString();
+        long now = System.currentTimeMillis();
+        long claimedUntil = now + claimTimeout.toMillis();
+        // Committed on their own, the rows are not locked while they are sent
+        int claimed = jdbcTemplate.update(CLAIM_EXPIRED, claim, claimedUntil, now, batchSize);
+        if (claimed < batchSize) {
+            claimed += jdbcTemplate.update(CLAIM_UNCLAIMED, claim, claimedUntil, batchSize - claimed);
+        }
+        if (claimed == 0) {
+            return 0;
+        }
+        List<OutboxMessage> messages = jdbcTemplate.query(SELECT_CLAIMED, (rs, rowNum) -> new OutboxMessage(rs.getLong("id"),
+                rs.getString("topic"), rs.getString("message_key"), rs.getBytes("payload"), rs.getString("headers"),
+                rs.getLong("created_on")), claim);
+
+        List<ListenableFuture<SendResult<String, byte[]>>> sends = new ArrayList<>(messages.size());
+        for (OutboxMessage message : messages) {
+            sends.add(kafkaTemplate.send(toProducerRecord(message)));
+        }
+        kafkaTemplate.flush();
+
+        List<Long> sent = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            OutboxMessage message = messages.get(i);
+            try {
+                sends.get(i).get(claimTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                sent.add(message.id);
+                lag.record(System.currentTimeMillis() - message.createdOn, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | TimeoutException e) {
+                failed.increment();
+                log.warn("Aftership | Failed to relay outbox message {} to {}, sent again after its claim expired", message.id, message.topic, e);
+            }
+        }
+        jdbcTemplate.batchUpdate(DELETE_MESSAGE, sent, sent.size(), (ps, id) -> ps.setLong(1, id));
+        relayed.increment(sent.size());
+        batchSizes.record(messages.size());
+        return messages.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private void relayAll() {
+        try {
+            while (relay() == batchSize) {
+                log.debug("Aftership | Relayed a full outbox batch, relaying the next");
+            }
+        } catch (Exception e) {
+            log.warn("Aftership | Failed to relay outbox messages", e);
+        }
+    }
+
+    private static ProducerRecord<String, byte[]> toProducerRecord(OutboxMessage message) {
+        RecordHeaders headers = new RecordHeaders();
+        if (message.headers != null) {
+            try {
+                JacksonUtil.getMapper().readValue(message.headers, HEADERS_TYPE).forEach(headers::add);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Headers of outbox message " + message.id + " cannot be read", e);
+            }
+        }
+        return new ProducerRecord<>(message.topic, null, message.key, message.payload, headers);
+    }
+
+    @AllArgsConstructor
+    private static class OutboxMessage {
+        private final long id;
+        private final String topic;
+        private final String key;
+        private final byte[] payload;
+        private final String headers;
+        private final long createdOn;
+    }
+}
@@ -0,0 +1,143 @@
+package com.vibrent.aftership.service.impl;
+
+import com.vibrent.aftership.domain.PollRun;
+import com.vibrent.aftership.domain.PollRunCheckpoint;
+import com.vibrent.aftership.dto.PollRunDTO;
+import com.vibrent.aftership.dto.PollRunShardDTO;
+import com.vibrent.aftership.enums.PollRunStatus;
+import com.vibrent.aftership.repository.PollRunCheckpointRepository;
+import com.vibrent.aftership.repository.PollRunRepository;
+import com.vibrent.aftership.service.PollRunService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class PollRunServiceImpl implements PollRunService {
+
+    private static final List<PollRunStatus> FINISHED = List.of(PollRunStatus.COMPLETED, PollRunStatus.SKIPPED);
+
+    private final PollRunRepository pollRunRepository;
+    private final PollRunCheckpointRepository pollRunCheckpointRepository;
+    private final Duration retention;
+
+    public PollRunServiceImpl(PollRunRepository pollRunRepository,
+                              PollRunCheckpointRepository pollRunCheckpointRepository,
+                              @Value("${afterShip.pollRun.retention}") Duration retention) {
+        this.pollRunRepository = pollRunRepository;
+        this.pollRunCheckpointRepository = pollRunCheckpointRepository;
+        this.retention = retention;
+    }
+
+    @Override
+    @Transactional
+    public void startRun(long runId, int shardCount) {
+        if (pollRunRepository.findByRunId(runId).isPresent()) {
+            return;
+        }
+        PollRun pollRun = new PollRun();
+        pollRun.setRunId(runId);
+        pollRun.setShardCount(shardCount);
+        pollRun.setStatus(PollRunStatus.RUNNING);
+        pollRunRepository.save(pollRun);
+        for (int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+            pollRunCheckpointRepository.save(newCheckpoint(runId, shardIndex));
+        }
+
+        long expiredBefore = runId - retention.toMillis();
+        int purged = pollRunRepository.deleteByRunIdLessThan(expiredBefore);
+        pollRunCheckpointRepository.deleteByRunIdLessThan(expiredBefore);
+        log.debug("Aftership | Started get tracking run {}, purged {} runs older than {}", runId, purged, retention);
+    }
+
+    @Override
+    @Transactional
+    public PollRunCheckpoint startShard(long runId, int shardIndex, int shardCount) {
+        startRun(runId, shardCount);
+        PollRunCheckpoint checkpoint = pollRunCheckpointRepository.findByRunIdAndShardIndex(runId, shardIndex)
+                .orElseGet(() -> newCheckpoint(runId, shardIndex));
+        if (checkpoint.getStatus() != PollRunStatus.COMPLETED) {
+            checkpoint.setStatus(PollRunStatus.RUNNING);
+            pollRunCheckpointRepository.save(checkpoint);
+        }
+        return checkpoint;
+    }
+
+    @Override
+    @Transactional
+    public void checkpoint(long runId, int shardIndex, long lastId, long processed) {
+        pollRunCheckpointRepository.updateProgress(runId, shardIndex, lastId, processed, System.currentTimeMillis());
+    }
+
+    @Override
+    @Transactional
+    public void completeShard(long runId, int shardIndex) {
+        finishShard(runId, shardIndex, PollRunStatus.COMPLETED);
+    }
+
+    @Override
+    @Transactional
+    public void skipShard(long runId, int shardIndex) {
+        finishShard(runId, shardIndex, PollRunStatus.SKIPPED);
+    }
+
+    private void finishShard(long runId, int shardIndex, PollRunStatus status) {
+        // Locking the run serializes the last shards completing on different nodes
+        PollRun pollRun = pollRunRepository.findByRunIdForUpdate(runId).orElse(null);
+        long now = System.currentTimeMillis();
+        pollRunCheckpointRepository.findByRunIdAndShardIndex(runId, shardIndex).ifPresent(checkpoint -> {
+            checkpoint.setStatus(status);
+            checkpoint.setCompletedOn(now);
+            pollRunCheckpointRepository.save(checkpoint);
+        });
+        if (pollRun != null && pollRunCheckpointRepository.countByRunIdAndStatusNotIn(runId, FINISHED) == 0) {
+            pollRun.setStatus(PollRunStatus.COMPLETED);
+            pollRun.setCompletedOn(now);
+            pollRunRepository.save(pollRun);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PollRunDTO> getRuns(int limit) {
+        List<PollRun> pollRuns = pollRunRepository.findAllByOrderByRunIdDesc(PageRequest.of(0, limit));
+        if (pollRuns.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<PollRunShardDTO>> shardsByRun = pollRunCheckpointRepository
+                .findByRunIdInOrderByRunIdDescShardIndexAsc(pollRuns.stream().map(PollRun::getRunId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.groupingBy(PollRunCheckpoint::getRunId,
+                        Collectors.mapping(PollRunServiceImpl::toShardDTO, Collectors.toList())));
+
+        return pollRuns.stream().map(pollRun -> {
+            List<PollRunShardDTO> shards = shardsByRun.getOrDefault(pollRun.getRunId(), List.of());
+            long processed = shards.stream().mapToLong(shard -> shard.getProcessed() == null ? 0 : shard.getProcessed()).sum();
+            return new PollRunDTO(pollRun.getRunId(), pollRun.getShardCount(), pollRun.getStatus(), pollRun.getCreatedOn(),
+                    pollRun.getCompletedOn(), processed, shards);
+        }).collect(Collectors.toList());
+    }
+
+    private static PollRunCheckpoint newCheckpoint(long runId, int shardIndex) {
+        PollRunCheckpoint checkpoint = new PollRunCheckpoint();
+        checkpoint.setRunId(runId);
+        checkpoint.setShardIndex(shardIndex);
+        checkpoint.setStatus(PollRunStatus.PENDING);
+        checkpoint.setLastId(0L);
+        checkpoint.setProcessed(0L);
+        return checkpoint;
+    }
+
+    private static PollRunShardDTO toShardDTO(PollRunCheckpoint checkpoint) {
+        return new PollRunShardDTO(checkpoint.getShardIndex(), checkpoint.getStatus(), checkpoint.getLastId(),
+                checkpoint.getProcessed(), checkpoint.getCreatedOn(), checkpoint.getUpdatedOn(), checkpoint.getCompletedOn());
+    }
+}
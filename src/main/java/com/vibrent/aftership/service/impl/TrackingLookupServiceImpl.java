@@ -0,0 +1,48 @@
+package com.vibrent.aftership.service.impl;
+
+import com.vibrent.aftership.dto.TrackingSummaryDTO;
+import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.repository.projection.TrackingRequestSummaryView;
+import com.vibrent.aftership.service.TrackingLookupService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+public class TrackingLookupServiceImpl implements TrackingLookupService {
+
+    private final TrackingRequestRepository trackingRequestRepository;
+    private final boolean archiveListed;
+
+    public TrackingLookupServiceImpl(TrackingRequestRepository trackingRequestRepository,
+                                     @Value("${afterShip.archive.listed}") boolean archiveListed) {
+        this.trackingRequestRepository = trackingRequestRepository;
+        this.archiveListed = archiveListed;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TrackingSummaryDTO> findByParticipant(Long vibrentId, String externalId, long afterId, int limit) {
+        List<TrackingRequestSummaryView> page;
+        if (archiveListed) {
+            page = vibrentId != null
+                    ? trackingRequestRepository.findByVibrentIdWithArchive(vibrentId, afterId, limit)
+                    : trackingRequestRepository.findByExternalIdWithArchive(externalId, afterId, limit);
+        } else {
+            page = vibrentId != null
+                    ? trackingRequestRepository.findByVibrentId(vibrentId, afterId, PageRequest.of(0, limit))
+                    : trackingRequestRepository.findByExternalId(externalId, afterId, PageRequest.of(0, limit));
+        }
+        return page.stream().map(TrackingLookupServiceImpl::toSummary).collect(Collectors.toList());
+    }
+
+    private static TrackingSummaryDTO toSummary(TrackingRequestSummaryView view) {
+        return new TrackingSummaryDTO(view.getId(), view.getTrackingId(), view.getProvider(), view.getSlug(), view.getStatus(),
+                view.getSubStatusCode(), view.getSubStatusDescription(), view.getFulfillmentOrderID(), view.getVibrentId(),
+                view.getExternalId(), view.getLastEventAt(), view.getCreatedOn(), view.getUpdatedOn());
+    }
+}
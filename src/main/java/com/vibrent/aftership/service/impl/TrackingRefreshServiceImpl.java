@@ -0,0 +1,128 @@
+package com.vibrent.aftership.service.impl;
+
+import com.aftership.sdk.AfterShip;
+import com.aftership.sdk.exception.AftershipException;
+import com.aftership.sdk.model.tracking.SlugTrackingNumber;
+import com.aftership.sdk.model.tracking.Tracking;
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.dto.PollTargetDTO;
+import com.vibrent.aftership.enums.PollOutcome;
+import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.resiliency.HedgedRequestExecutor;
+import com.vibrent.aftership.scheduling.NextPollCalculator;
+import com.vibrent.aftership.service.ExternalLogService;
+import com.vibrent.aftership.service.NotificationProcessService;
+import com.vibrent.aftership.service.TrackingRefreshService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.Optional;
+
+@Slf4j
+@Service
+public class TrackingRefreshServiceImpl implements TrackingRefreshService {
+
+    private final AfterShip afterShip;
+    private final TrackingRequestRepository trackingRequestRepository;
+    private final NotificationProcessService notificationProcessService;
+    private final ExternalLogService externalLogService;
+    private final HedgedRequestExecutor hedgedRequestExecutor;
+    private final NextPollCalculator nextPollCalculator;
+    private final TransactionTemplate transactionTemplate;
+
+    public TrackingRefreshServiceImpl(AfterShip afterShip,
+                                      TrackingRequestRepository trackingRequestRepository,
+                                      NotificationProcessService notificationProcessService,
+                                      ExternalLogService externalLogService,
+                                      HedgedRequestExecutor hedgedRequestExecutor,
+                                      NextPollCalculator nextPollCalculator,
+                                      PlatformTransactionManager transactionManager) {
+        this.afterShip = afterShip;
+        this.trackingRequestRepository = trackingRequestRepository;
+        this.notificationProcessService = notificationProcessService;
+        this.externalLogService = externalLogService;
+        this.hedgedRequestExecutor = hedgedRequestExecutor;
+        this.nextPollCalculator = nextPollCalculator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public PollOutcome refresh(PollTargetDTO pollTarget) {
+        SlugTrackingNumber slugTrackingNumber = new SlugTrackingNumber(pollTarget.getSlug(), pollTarget.getTrackingId());
+        try {
+            // The AfterShip call is made outside of the transaction, so no connection is held while waiting for it
+            Tracking tracking = hedgedRequestExecutor.execute(() -> afterShip.getTrackingEndpoint().getTracking(slugTrackingNumber, null));
+            externalLogService.send(slugTrackingNumber, tracking, System.currentTimeMillis(), "Aftership | Successfully fetched latest tracking.", HttpStatus.OK.value());
+
+            Boolean found = isUnchanged(pollTarget, tracking) ? reschedule(pollTarget, tracking) : update(pollTarget, tracking);
+            if (!Boolean.TRUE.equals(found)) {
+                log.warn("AfterShip | Tracking request {} no longer exists, fetched tracking is not processed", pollTarget.getTrackingId());
+                return PollOutcome.NOT_FOUND;
+            }
+            log.info("Aftership | Fetched tracking for Tracking no: {}, Latest Status: {}", tracking.getTrackingNumber(), tracking.getTag());
+            return PollOutcome.REFRESHED;
+
+        } catch (AftershipException e) {
+            externalLogService.send(pollTarget.getTrackingId(), pollTarget.getSlug(), System.currentTimeMillis(), "Aftership | Exception whiling fetching latest tracking.", e.getCode());
+            log.warn("AfterShip | AfterShip exception while fetching tracking id {} , Exception: {}", pollTarget.getTrackingId(), e.getMessage(), e);
+            postpone(pollTarget);
+            return PollOutcome.AFTERSHIP_ERROR;
+        } catch (Exception e) {
+            externalLogService.send(pollTarget.getTrackingId(), pollTarget.getSlug(), System.currentTimeMillis(), "Aftership | Exception whiling fetching latest tracking.", HttpStatus.INTERNAL_SERVER_ERROR.value());
+            log.warn("AfterShip | Exception while fetching tracking id {} , Exception: {}", pollTarget.getTrackingId(), e.getMessage(), e);
+            postpone(pollTarget);
+            return PollOutcome.FAILED;
+        }
+    }
+
+    // Same check as the early return of the notification processing, an unchanged tracking has nothing to persist
+    private static boolean isUnchanged(PollTargetDTO pollTarget, Tracking tracking) {
+        return StringUtils.hasText(pollTarget.getStatus()) && pollTarget.getStatus().equals(tracking.getTag());
+    }
+
+    // An unchanged tracking only gets its next poll time, without loading the tracking request
+    private Boolean reschedule(PollTargetDTO pollTarget, Tracking tracking) {
+        Long nextPollAt = nextPollCalculator.nextPollAt(pollTarget.getTrackingId(), pollTarget.getStatus(),
+                pollTarget.getLastEventAt(), tracking.getExpectedDelivery(), System.currentTimeMillis());
+        Integer updated = transactionTemplate.execute(status ->
+                trackingRequestRepository.updateNextPollAtAndSlug(pollTarget.getId(), nextPollAt, pollTarget.getSlug()));
+        return updated != null && updated > 0;
+    }
+
+    // Loaded outside of a transaction, the tracking is written by a conditional statement of its own
+    private Boolean update(PollTargetDTO pollTarget, Tracking tracking) {
+        Optional<TrackingRequest> trackingRequest = trackingRequestRepository.findById(pollTarget.getId());
+        if (trackingRequest.isEmpty()) {
+            return false;
+        }
+        TrackingRequest request = trackingRequest.get();
+        if (StringUtils.hasText(request.getStatus()) && request.getStatus().equals(tracking.getTag())) {
+            // Changed by a notification since the poll target was read, only the next poll time is due
+            Long nextPollAt = nextPollCalculator.nextPollAt(request, tracking.getExpectedDelivery(), System.currentTimeMillis());
+            Integer updated = transactionTemplate.execute(status ->
+                    trackingRequestRepository.updateNextPollAtAndSlug(request.getId(), nextPollAt, pollTarget.getSlug()));
+            return updated != null && updated > 0;
+        }
+        if (!StringUtils.hasText(request.getSlug())) {
+            request.setSlug(pollTarget.getSlug());
+        }
+        notificationProcessService.process(tracking, request);
+        return true;
+    }
+
+    // A failed poll is retried after the minimum interval instead of on every run
+    private void postpone(PollTargetDTO pollTarget) {
+        try {
+            long retryAt = nextPollCalculator.retryAt(pollTarget.getTrackingId(), System.currentTimeMillis());
+            transactionTemplate.execute(status -> trackingRequestRepository.updateNextPollAt(pollTarget.getId(), retryAt));
+        } catch (Exception e) {
+            log.warn("AfterShip | Failed to postpone next poll of tracking id {}", pollTarget.getTrackingId(), e);
+        }
+    }
+}
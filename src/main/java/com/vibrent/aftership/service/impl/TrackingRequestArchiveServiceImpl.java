@@ -0,0 +1,101 @@
+package com.vibrent.aftership.service.impl;
+
+import com.vibrent.aftership.cache.TrackingRequestCache;
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.service.TrackingRequestArchiveService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+import java.util.Optional;
+
+@Slf4j
+@Service
+public class TrackingRequestArchiveServiceImpl implements TrackingRequestArchiveService {
+
+    private final TrackingRequestRepository trackingRequestRepository;
+    private final TrackingRequestCache trackingRequestCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final List<String> terminalStatusList;
+
+    public TrackingRequestArchiveServiceImpl(TrackingRequestRepository trackingRequestRepository,
+                                             TrackingRequestCache trackingRequestCache,
+                                             PlatformTransactionManager transactionManager,
+                                             @Value("${afterShip.archive.batchSize}") int batchSize,
+                                             @NotNull @Value("${afterShip.excludeStatus}") List<String> terminalStatusList) {
+        this.trackingRequestRepository = trackingRequestRepository;
+        this.trackingRequestCache = trackingRequestCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.terminalStatusList = terminalStatusList;
+    }
+
+    @Override
+    public long archive(long updatedBefore) {
+        long archived = 0;
+        while (true) {
+            List<String> moved = transactionTemplate.execute(status -> archiveBatch(updatedBefore));
+            if (moved == null || moved.isEmpty()) {
+                return archived;
+            }
+            archived += moved.size();
+            // Snapshots of archived rows must not be saved back into the tracking requests
+            moved.forEach(trackingRequestCache::invalidate);
+            if (moved.size() < batchSize) {
+                return archived;
+            }
+        }
+    }
+
+    // Archived rows leave the table, so every batch reads the first page again
+    private List<String> archiveBatch(long updatedBefore) {
+        List<Long> ids = trackingRequestRepository.findArchivableIds(terminalStatusList, updatedBefore, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // A row updated since it was read no longer matches and stays, only copied rows are deleted
+        trackingRequestRepository.copyToArchive(ids, terminalStatusList, updatedBefore, System.currentTimeMillis());
+        List<String> trackingIds = trackingRequestRepository.findArchivedTrackingIds(ids);
+        trackingRequestRepository.deleteArchived(ids);
+        return trackingIds;
+    }
+
+    @Override
+    public Optional<TrackingRequest> findByTrackingId(String trackingId) {
+        Optional<TrackingRequest> trackingRequest = trackingRequestCache.findByTrackingId(trackingId);
+        if (trackingRequest.isPresent()) {
+            return trackingRequest;
+        }
+        // A replica behind the primary may not have the row yet, the primary is read again before restoring from the archive
+        try {
+            return transactionTemplate.execute(status -> findOrRestore(trackingId));
+        } catch (DataIntegrityViolationException e) {
+            // Restored by a concurrent request first, its committed row is read in a new transaction
+            log.info("AfterShip: Archived tracking request for tracking id: {} was restored concurrently", trackingId);
+            return transactionTemplate.execute(status -> trackingRequestRepository.findByTrackingId(trackingId));
+        }
+    }
+
+    private Optional<TrackingRequest> findOrRestore(String trackingId) {
+        Optional<TrackingRequest> trackingRequest = trackingRequestCache.findByTrackingId(trackingId);
+        if (trackingRequest.isPresent() || trackingRequestRepository.restoreFromArchive(trackingId) == 0) {
+            return trackingRequest;
+        }
+        trackingRequestRepository.deleteFromArchive(trackingId);
+        log.info("AfterShip: Restored archived tracking request for tracking id: {}", trackingId);
+        return trackingRequestRepository.findByTrackingId(trackingId);
+    }
+
+    @Override
+    public boolean isArchived(String trackingId) {
+        return trackingRequestRepository.countArchivedByTrackingId(trackingId) > 0;
+    }
+}
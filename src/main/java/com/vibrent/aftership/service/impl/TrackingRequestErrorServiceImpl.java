@@ -0,0 +1,264 @@
+package com.vibrent.aftership.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vibrent.aftership.audit.AuditDeltaWriter;
+import com.vibrent.aftership.audit.TrackingRequestRevisionWriter;
+import com.vibrent.aftership.converter.TrackingRequestErrorConverter;
+import com.vibrent.aftership.domain.TrackingRequestError;
+import com.vibrent.aftership.dto.AuditDeltaDTO;
+import com.vibrent.aftership.service.TrackingRequestErrorService;
+import com.vibrent.aftership.util.JacksonUtil;
+import com.vibrent.aftership.vo.TrackDeliveryRequestVo;
+import com.vibrent.vxp.workflow.MessageHeaderDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Records failed track delivery requests with one {@code INSERT ... ON DUPLICATE KEY UPDATE} per error, keyed by the
+ * unique tracking id, instead of a lookup and a save. Errors are group committed: a single writer thread drains up to
+ * {@code afterShip.trackingRequestError.batchSize} queued errors into one JDBC batch and transaction, so during an
+ * AfterShip outage the failures of all consumers share a commit. Callers wait for the commit of their batch, at most
+ * {@code afterShip.trackingRequestError.writeTimeout}. A batch that fails is written again one error at a time, so only
+ * the error that cannot be written fails. At most {@code afterShip.trackingRequestError.queueCapacity} errors
+ * wait for the writer; when the queue is full the consumer writes its error itself.
+ * <p>
+ * Ids come from the {@code id_allocation} table through the generator of {@link TrackingRequestError}, an id is used
+ * up even when the tracking id already failed. The statement bypasses the Envers listener, the upserted rows are copied
+ * into the revision of the batch, or queued as audit deltas with the audit write-behind.
+ * <p>
+ * Metrics: {@code afterShip.trackingRequestError.written}, {@code afterShip.trackingRequestError.failed},
+ * {@code afterShip.trackingRequestError.overflow} and {@code afterShip.trackingRequestError.batchSize}.
+ */
+@Slf4j
+@Service
+public class TrackingRequestErrorServiceImpl implements TrackingRequestErrorService {
+
+    static final String UPSERT_ERROR = "INSERT INTO tracking_request_error " +
+            "(id, tracking_id, error_code, retry_count, track_delivery_request, header, created_on, updated_on) " +
+            "VALUES (?, ?, ?, 0, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE retry_count = retry_count + 1, error_code = IFNULL(VALUES(error_code), error_code), " +
+            "track_delivery_request = VALUES(track_delivery_request), header = VALUES(header), updated_on = VALUES(updated_on)";
+
+    private final TrackingRequestErrorConverter trackingRequestErrorConverter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionFactoryImplementor sessionFactory;
+    private final AuditDeltaWriter auditDeltaWriter;
+    private final TrackingRequestRevisionWriter trackingRequestRevisionWriter;
+    private final int batchSize;
+    private final Duration writeTimeout;
+    private final BlockingQueue<PendingError> queue;
+    private final ExecutorService executor;
+
+    private final Counter written;
+    private final Counter failed;
+    private final Counter overflow;
+    private final DistributionSummary batchSizes;
+
+    public TrackingRequestErrorServiceImpl(TrackingRequestErrorConverter trackingRequestErrorConverter,
+                                           JdbcTemplate jdbcTemplate,
+                                           PlatformTransactionManager transactionManager,
+                                           EntityManagerFactory entityManagerFactory,
+                                           AuditDeltaWriter auditDeltaWriter,
+                                           TrackingRequestRevisionWriter trackingRequestRevisionWriter,
+                                           @Value("${afterShip.trackingRequestError.batchSize}") int batchSize,
+                                           @Value("${afterShip.trackingRequestError.writeTimeout}") Duration writeTimeout,
+                                           @Value("${afterShip.trackingRequestError.queueCapacity}") int queueCapacity,
+                                           MeterRegistry meterRegistry) {
+        this.trackingRequestErrorConverter = trackingRequestErrorConverter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.auditDeltaWriter = auditDeltaWriter;
+        this.trackingRequestRevisionWriter = trackingRequestRevisionWriter;
+        this.batchSize = batchSize;
+        this.writeTimeout = writeTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.written = meterRegistry.counter("afterShip.trackingRequestError.written");
+        this.failed = meterRegistry.counter("afterShip.trackingRequestError.failed");
+        this.overflow = meterRegistry.counter("afterShip.trackingRequestError.overflow");
+        this.batchSizes = DistributionSummary.builder("afterShip.trackingRequestError.batchSize")
+                .description("Errors committed together").register(meterRegistry);
+
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("aftership-error-writer-%d").setDaemon(true).build());
+        this.executor.execute(this::writeQueued);
+    }
+
+    @Override
+    public void record(TrackDeliveryRequestVo trackDeliveryRequestVo, MessageHeaderDto messageHeaderDto, Throwable throwable) {
+        TrackingRequestError trackingRequestError = trackingRequestErrorConverter.toTrackingRequestError(trackDeliveryRequestVo, messageHeaderDto, throwable);
+        if (trackingRequestError == null) {
+            return;
+        }
+        PendingError pendingError = new PendingError(trackingRequestError);
+        if (!queue.offer(pendingError)) {
+            // The writer is behind, the consumer commits its own error instead of queueing without bound
+            overflow.increment();
+            write(List.of(pendingError));
+        }
+        try {
+            pendingError.committed.get(writeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("AfterShip: Interrupted while recording the error of tracking id {}", trackingRequestError.getTrackingId());
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("AfterShip: Failed to record the error of tracking id {}", trackingRequestError.getTrackingId(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        List<PendingError> remaining = new ArrayList<>();
+        while (queue.drainTo(remaining, batchSize) > 0) {
+            write(remaining);
+            remaining.clear();
+        }
+    }
+
+    private void writeQueued() {
+        List<PendingError> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // Whatever queued up while the previous batch committed goes into this one
+            queue.drainTo(batch, batchSize - 1);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<PendingError> batch) {
+        try {
+            List<TrackingRequestError> errors = new ArrayList<>(batch.size());
+            batch.forEach(pendingError -> errors.add(pendingError.trackingRequestError));
+            // In tracking id order, concurrent batches of several nodes lock the rows in the same order
+            errors.sort(Comparator.comparing(TrackingRequestError::getTrackingId));
+            allocateIds(errors);
+            long now = System.currentTimeMillis();
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(UPSERT_ERROR, errors, errors.size(), (ps, error) -> {
+                    ps.setLong(1, error.getId());
+                    ps.setString(2, error.getTrackingId());
+                    if (error.getErrorCode() == null) {
+                        ps.setNull(3, Types.INTEGER);
+                    } else {
+                        ps.setInt(3, error.getErrorCode());
+                    }
+                    ps.setString(4, error.getTrackDeliveryRequest());
+                    ps.setString(5, error.getHeader());
+                    ps.setLong(6, now);
+                    ps.setLong(7, now);
+                });
+                recordAudit(errors, now);
+            });
+            written.increment(batch.size());
+            batchSizes.record(batch.size());
+            batch.forEach(pendingError -> pendingError.committed.complete(null));
+        } catch (Exception e) {
+            if (batch.size() > 1) {
+                // One bad error must not lose the errors of every caller sharing its commit
+                log.warn("AfterShip: Failed to record {} errors together, recording them one at a time", batch.size(), e);
+                batch.forEach(pendingError -> write(List.of(pendingError)));
+                return;
+            }
+            failed.increment(batch.size());
+            batch.forEach(pendingError -> pendingError.committed.completeExceptionally(e));
+        }
+    }
+
+    private void recordAudit(List<TrackingRequestError> errors, long now) {
+        // Of errors of the same tracking id in one batch the last one is stored
+        Map<String, TrackingRequestError> byTrackingId = new LinkedHashMap<>();
+        errors.forEach(error -> byTrackingId.put(error.getTrackingId(), error));
+        if (!auditDeltaWriter.isEnabled()) {
+            trackingRequestRevisionWriter.recordErrors(byTrackingId.keySet());
+            return;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(byTrackingId.size(), "?"));
+        jdbcTemplate.query("SELECT id, tracking_id, error_code, retry_count FROM tracking_request_error WHERE tracking_id IN (" + placeholders + ")",
+                (RowCallbackHandler) rs -> enqueueDelta(byTrackingId.get(rs.getString("tracking_id")), rs.getLong("id"),
+                        (Integer) rs.getObject("error_code"), rs.getInt("retry_count"), now),
+                byTrackingId.keySet().toArray());
+    }
+
+    private void enqueueDelta(TrackingRequestError error, long id, Integer errorCode, int retryCount, long now) {
+        // An upserted error with no retry yet was inserted by the statement
+        boolean inserted = retryCount == 0;
+        Map<String, Object> changes = new LinkedHashMap<>();
+        if (inserted) {
+            changes.put("trackingId", error.getTrackingId());
+        }
+        changes.put("errorCode", errorCode);
+        changes.put("retryCount", retryCount);
+        changes.put("trackDeliveryRequest", error.getTrackDeliveryRequest());
+        changes.put("header", error.getHeader());
+        if (inserted) {
+            changes.put("createdOn", now);
+        }
+        changes.put("updatedOn", now);
+        try {
+            auditDeltaWriter.enqueueAfterCommit(new AuditDeltaDTO(TrackingRequestError.class.getName(), id,
+                    inserted ? AuditDeltaDTO.INSERT : AuditDeltaDTO.UPDATE, JacksonUtil.getMapper().writeValueAsString(changes), now));
+        } catch (JsonProcessingException e) {
+            log.warn("AfterShip: Failed to write the audit delta of the error of tracking id {}", error.getTrackingId(), e);
+        }
+    }
+
+    private void allocateIds(List<TrackingRequestError> errors) {
+        IdentifierGenerator idGenerator = sessionFactory.getIdentifierGenerator(TrackingRequestError.class.getName());
+        try (Session session = sessionFactory.openSession()) {
+            for (TrackingRequestError error : errors) {
+                error.setId((Long) idGenerator.generate((SharedSessionContractImplementor) session, error));
+            }
+        }
+    }
+
+    private static class PendingError {
+        private final TrackingRequestError trackingRequestError;
+        private final CompletableFuture<Void> committed = new CompletableFuture<>();
+
+        private PendingError(TrackingRequestError trackingRequestError) {
+            this.trackingRequestError = trackingRequestError;
+        }
+    }
+}
@@ -3,26 +3,26 @@ package com.vibrent.aftership.service.impl;
 import com.aftership.sdk.model.tracking.NewTracking;
 import com.aftership.sdk.model.tracking.Tracking;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.vibrent.aftership.cache.TrackingRequestCache;
 import com.vibrent.aftership.converter.TrackingRequestConverter;
-import com.vibrent.aftership.converter.TrackingRequestErrorConverter;
 import com.vibrent.aftership.domain.TrackingRequest;
-import com.vibrent.aftership.domain.TrackingRequestError;
 import com.vibrent.aftership.exception.AfterShipException;
-import com.vibrent.aftership.repository.TrackingRequestErrorRepository;
 import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.resiliency.AfterShipCallExecutor;
+import com.vibrent.aftership.scheduling.NextPollCalculator;
 import com.vibrent.aftership.service.AfterShipTrackingService;
 import com.vibrent.aftership.service.ExternalLogService;
+import com.vibrent.aftership.service.TrackingRequestArchiveService;
+import com.vibrent.aftership.service.TrackingRequestErrorService;
 import com.vibrent.aftership.service.TrackingRequestService;
 import com.vibrent.aftership.util.JacksonUtil;
+import com.vibrent.aftership.util.RoutingTokenUtil;
 import com.vibrent.aftership.vo.TrackDeliveryRequestVo;
 import com.vibrent.vxp.workflow.MessageHeaderDto;
 import com.vibrent.vxp.workflow.ParticipantDetailsDto;
 import com.vibrenthealth.resiliency.core.Output;
-import com.vibrenthealth.resiliency.core.RetryModesEnum;
-import com.vibrenthealth.resiliency.core.RockSteadySystem;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
-import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -39,29 +39,39 @@ public class TrackingRequestServiceImpl implements TrackingRequestService {
     public static final String CUSTOM_FIELD_EXTERNAL_ID = "externalId";
     public static final String CUSTOM_FIELD_VIBRENT_ID = "vibrentId";
     public static final String CUSTOM_FIELD_PLATFORM_ID = "platform";
+    public static final String CUSTOM_FIELD_ROUTING_TOKEN = "routing";
 
     private final AfterShipTrackingService afterShipTrackingService;
     private final TrackingRequestConverter trackingRequestConverter;
     private final TrackingRequestRepository trackingRequestRepository;
-    private final RockSteadySystem rockSteadySystem;
-    private final TrackingRequestErrorRepository trackingRequestErrorRepository;
+    private final AfterShipCallExecutor afterShipCallExecutor;
+    private final TrackingRequestErrorService trackingRequestErrorService;
     private final ExternalLogService externalLogService;
-    private final TrackingRequestErrorConverter trackingRequestErrorConverter;
+    private final NextPollCalculator nextPollCalculator;
+    private final TrackingRequestArchiveService trackingRequestArchiveService;
+    private final TrackingRequestCache trackingRequestCache;
     private final String platform;
+    private final boolean routingTokenEnabled;
 
     public TrackingRequestServiceImpl(AfterShipTrackingService afterShipTrackingService, TrackingRequestConverter trackingRequestConverter,
-                                      TrackingRequestRepository trackingRequestRepository, RockSteadySystem rockSteadySystem,
-                                      TrackingRequestErrorRepository trackingRequestErrorRepository, ExternalLogService externalLogService,
-                                      TrackingRequestErrorConverter trackingRequestErrorConverter,
-                                      @Value("${afterShip.platform}") String platform) {
+                                      TrackingRequestRepository trackingRequestRepository, AfterShipCallExecutor afterShipCallExecutor,
+                                      TrackingRequestErrorService trackingRequestErrorService, ExternalLogService externalLogService,
+                                      NextPollCalculator nextPollCalculator,
+                                      TrackingRequestArchiveService trackingRequestArchiveService,
+                                      TrackingRequestCache trackingRequestCache,
+                                      @Value("${afterShip.platform}") String platform,
+                                      @Value("${afterShip.routingToken.enabled}") boolean routingTokenEnabled) {
         this.afterShipTrackingService = afterShipTrackingService;
         this.trackingRequestConverter = trackingRequestConverter;
         this.trackingRequestRepository = trackingRequestRepository;
-        this.rockSteadySystem = rockSteadySystem;
-        this.trackingRequestErrorRepository = trackingRequestErrorRepository;
+        this.afterShipCallExecutor = afterShipCallExecutor;
+        this.trackingRequestErrorService = trackingRequestErrorService;
         this.externalLogService = externalLogService;
-        this.trackingRequestErrorConverter = trackingRequestErrorConverter;
+        this.nextPollCalculator = nextPollCalculator;
+        this.trackingRequestArchiveService = trackingRequestArchiveService;
+        this.trackingRequestCache = trackingRequestCache;
         this.platform = platform;
+        this.routingTokenEnabled = routingTokenEnabled;
     }
 
     @Override
@@ -74,8 +84,8 @@ public class TrackingRequestServiceImpl implements TrackingRequestService {
             return false;
         }
 
-        Optional<TrackingRequest> optionalTrackingRequest = this.trackingRequestRepository.findByTrackingId(trackDeliveryRequestVo.getTrackingID());
-        if (optionalTrackingRequest.isPresent()) {
+        Optional<TrackingRequest> optionalTrackingRequest = this.trackingRequestCache.findByTrackingId(trackDeliveryRequestVo.getTrackingID());
+        if (optionalTrackingRequest.isPresent() || this.trackingRequestArchiveService.isArchived(trackDeliveryRequestVo.getTrackingID())) {
             log.warn("AfterShip: Received duplicate tracking request for tracking ID: {}, Ignoring the track delivery message: {}",
                     trackDeliveryRequestVo.getTrackingID(), trackDeliveryRequestVo);
             return false;
@@ -83,17 +93,17 @@ public class TrackingRequestServiceImpl implements TrackingRequestService {
 
         NewTracking newTracking = new NewTracking();
         newTracking.setTrackingNumber(trackDeliveryRequestVo.getTrackingID());
-        newTracking.setCustomFields(getCustomFields(trackDeliveryRequestVo));
+        newTracking.setCustomFields(getCustomFields(trackDeliveryRequestVo, messageHeader));
         Tracking tracking = createTracking(() -> afterShipTrackingService.createTracking(newTracking), newTracking, trackDeliveryRequestVo, messageHeader);
         boolean isSuccess = tracking != null;
         if (isSuccess) {
-            saveTrackingRequest(trackDeliveryRequestVo, messageHeader);
+            saveTrackingRequest(trackDeliveryRequestVo, messageHeader, tracking);
         }
         return isSuccess;
 
     }
 
-    private  HashMap<String, String> getCustomFields(TrackDeliveryRequestVo trackDeliveryRequestVo) {
+    private  HashMap<String, String> getCustomFields(TrackDeliveryRequestVo trackDeliveryRequestVo, MessageHeaderDto messageHeader) {
         HashMap<String, String> customFields = new HashMap<>();
         ParticipantDetailsDto participant = trackDeliveryRequestVo.getParticipant();
 
@@ -102,19 +112,28 @@ public class TrackingRequestServiceImpl implements TrackingRequestService {
             customFields.put(CUSTOM_FIELD_EXTERNAL_ID, participant.getExternalID());
         }
         customFields.put(CUSTOM_FIELD_PLATFORM_ID, platform);
+        // Lets a webhook of the tracking be answered without reading the tracking request
+        if (routingTokenEnabled) {
+            customFields.put(CUSTOM_FIELD_ROUTING_TOKEN, RoutingTokenUtil.encode(messageHeader,
+                    trackDeliveryRequestVo.getFulfillmentOrderID(), trackDeliveryRequestVo.getCarrierCode()));
+        }
         return customFields;
     }
 
-    private void saveTrackingRequest(TrackDeliveryRequestVo trackDeliveryRequestVo, MessageHeaderDto messageHeader) {
+    private void saveTrackingRequest(TrackDeliveryRequestVo trackDeliveryRequestVo, MessageHeaderDto messageHeader, Tracking tracking) {
         TrackingRequest trackingRequest = this.trackingRequestConverter.toTrackingRequest(trackDeliveryRequestVo, messageHeader);
-        this.trackingRequestRepository.save(trackingRequest);
+        long now = System.currentTimeMillis();
+        trackingRequest.setSlug(tracking.getSlug());
+        trackingRequest.setLastEventAt(now);
+        trackingRequest.setNextPollAt(nextPollCalculator.nextPollAt(trackingRequest, tracking.getExpectedDelivery(), now));
+        this.trackingRequestCache.saved(this.trackingRequestRepository.save(trackingRequest));
     }
 
     private Tracking createTracking(@NonNull Supplier<Tracking> createTracking, NewTracking newTracking,
                                     TrackDeliveryRequestVo trackDeliveryRequestVo, MessageHeaderDto messageHeaderDto) {
         log.info("AfterShip: Received request to create new tracking {}", newTracking);
         Long requestTimeStamp = System.currentTimeMillis();
-        Output<Tracking> outputFromAfterShip = rockSteadySystem.executeWithRetries(createTracking, MDC.getCopyOfContextMap(), RetryModesEnum.IMMEDIATE);
+        Output<Tracking> outputFromAfterShip = afterShipCallExecutor.executeWithRetries(createTracking);
         Long responseTimeStamp = System.currentTimeMillis();
 
         if (outputFromAfterShip.result != null) {
@@ -126,7 +145,7 @@ public class TrackingRequestServiceImpl implements TrackingRequestService {
         } else {
             String message = outputFromAfterShip.error == null ? "NA" : outputFromAfterShip.error.getMessage();
             log.warn("AfterShip: Failed to create new trackingRequest, cause - {}, trackingRequest: {}", message, newTracking);
-            saveTrackingRequestError(trackDeliveryRequestVo, messageHeaderDto, outputFromAfterShip.error);
+            this.trackingRequestErrorService.record(trackDeliveryRequestVo, messageHeaderDto, outputFromAfterShip.error);
             //Sending event in case of AfterShipException. For other CircuitBreaker exception like CallNotPermitted not sending the event
             //as we are not communicating with AfterShip cloud service
             if (outputFromAfterShip.error instanceof AfterShipException) {
@@ -138,12 +157,6 @@ public class TrackingRequestServiceImpl implements TrackingRequestService {
         }
     }
 
-    private void saveTrackingRequestError(TrackDeliveryRequestVo trackDeliveryRequestVo, MessageHeaderDto messageHeaderDto,
-                                          Throwable throwable) {
-        TrackingRequestError trackingRequestError = this.trackingRequestErrorConverter.toTrackingRequestError(trackDeliveryRequestVo, messageHeaderDto, throwable);
-        this.trackingRequestErrorRepository.save(trackingRequestError);
-    }
-
     private static Integer getErrorCode(Output<Tracking> outputFromAfterShip) {
         Integer errorCode = null;
 
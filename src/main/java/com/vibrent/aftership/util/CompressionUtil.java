@@ -0,0 +1,43 @@
+package com.vibrent.aftership.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Deflate (zlib) compression of text columns
+ */
+public class CompressionUtil {
+
+    private CompressionUtil() {
+        //private constructor
+    }
+
+    public static byte[] deflate(String value) {
+        if (value == null) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(value.length() / 4 + 16);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+            deflater.write(value.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static String inflate(byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        try (InflaterInputStream inflater = new InflaterInputStream(new ByteArrayInputStream(value))) {
+            return new String(inflater.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.vibrent.aftership.util;
+
+import com.aftership.sdk.model.tracking.Tracking;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fingerprint of the tracking fields that are stored in the tracking request columns or sent in a tracking response.
+ * Checkpoints and other carrier details are not part of it, a tracking that only got a new checkpoint keeps its
+ * fingerprint.
+ */
+public class FingerprintUtil {
+
+    private FingerprintUtil() {
+        //private constructor
+    }
+
+    public static long fingerprint(Tracking tracking) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        putField(hasher, tracking.getTag());
+        putField(hasher, tracking.getSubtag());
+        putField(hasher, tracking.getSubtagMessage());
+        putField(hasher, tracking.getSlug());
+        putField(hasher, tracking.getExpectedDelivery());
+        return hasher.hash().asLong();
+    }
+
+    // Length prefixed, so neither a null nor a value moved to the next field gives the same fingerprint
+    private static void putField(Hasher hasher, String value) {
+        if (value == null) {
+            hasher.putInt(-1);
+            return;
+        }
+        hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+    }
+}
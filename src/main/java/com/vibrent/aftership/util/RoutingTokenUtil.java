@@ -0,0 +1,118 @@
+package com.vibrent.aftership.util;
+
+import com.vibrent.aftership.dto.RoutingTokenDTO;
+import com.vibrent.vxp.workflow.ContextTypeEnum;
+import com.vibrent.vxp.workflow.IntegrationPatternEnum;
+import com.vibrent.vxp.workflow.MessageHeaderDto;
+import com.vibrent.vxp.workflow.WorkflowNameEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Compact routing token of a tracking: tenant, program, workflow and the other saved header fields of the response
+ * header, fulfillment order id and provider, written as length prefixed binary fields behind a version byte and
+ * encoded as unpadded base64url, about 150 characters for a header with a UUID workflow instance id.
+ */
+@Slf4j
+public class RoutingTokenUtil {
+
+    private static final byte VERSION = 1;
+
+    private RoutingTokenUtil() {
+        //private constructor
+    }
+
+    public static String encode(MessageHeaderDto header, Long fulfillmentOrderID, String provider) {
+        if (header == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            writeLong(out, header.getVxpTenantID());
+            writeLong(out, header.getVxpProgramID());
+            writeString(out, header.getVxpWorkflowInstanceID());
+            writeString(out, header.getVxpWorkflowName() == null ? null : header.getVxpWorkflowName().name());
+            writeString(out, header.getVxpHeaderVersion());
+            writeString(out, header.getVxpMessageSpecVersion());
+            writeString(out, header.getVxpPattern() == null ? null : header.getVxpPattern().name());
+            writeString(out, header.getVxpTrigger() == null ? null : header.getVxpTrigger().name());
+            writeLong(out, fulfillmentOrderID);
+            writeString(out, provider);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * @return the routing token, empty when there is none or it cannot be read
+     */
+    public static Optional<RoutingTokenDTO> decode(String token) {
+        if (!StringUtils.hasText(token)) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                log.warn("AfterShip: Ignoring routing token of unknown version {}", version);
+                return Optional.empty();
+            }
+            MessageHeaderDto header = new MessageHeaderDto();
+            Long tenantID = readLong(in);
+            if (tenantID != null) {
+                header.setVxpTenantID(tenantID);
+            }
+            Long programID = readLong(in);
+            if (programID != null) {
+                header.setVxpProgramID(programID);
+            }
+            header.setVxpWorkflowInstanceID(readString(in));
+            String workflowName = readString(in);
+            header.setVxpWorkflowName(workflowName == null ? null : WorkflowNameEnum.valueOf(workflowName));
+            header.setVxpHeaderVersion(readString(in));
+            header.setVxpMessageSpecVersion(readString(in));
+            String pattern = readString(in);
+            header.setVxpPattern(pattern == null ? null : IntegrationPatternEnum.valueOf(pattern));
+            String trigger = readString(in);
+            header.setVxpTrigger(trigger == null ? null : ContextTypeEnum.valueOf(trigger));
+            Long fulfillmentOrderID = readLong(in);
+            String provider = readString(in);
+            return Optional.of(new RoutingTokenDTO(header, fulfillmentOrderID, provider));
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("AfterShip: Ignoring routing token that cannot be read: {}", token, e);
+            return Optional.empty();
+        }
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.vibrent.aftership.web;
+
+import com.vibrent.aftership.dto.PollRunDTO;
+import com.vibrent.aftership.service.PollRunService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin")
+@Slf4j
+public class PollRunResource {
+
+    private static final int MAX_LIMIT = 200;
+
+    private final PollRunService pollRunService;
+
+    public PollRunResource(PollRunService pollRunService) {
+        this.pollRunService = pollRunService;
+    }
+
+    /**
+     * History and progress of the latest get tracking runs, newest first.
+     */
+    @GetMapping(value = "/poll-runs")
+    public ResponseEntity<List<PollRunDTO>> getPollRuns(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(pollRunService.getRuns(Math.max(1, Math.min(limit, MAX_LIMIT))));
+    }
+}
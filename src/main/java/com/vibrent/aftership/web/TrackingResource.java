@@ -0,0 +1,42 @@
+package com.vibrent.aftership.web;
+
+import com.vibrent.aftership.dto.TrackingSummaryDTO;
+import com.vibrent.aftership.service.TrackingLookupService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api")
+@Slf4j
+public class TrackingResource {
+
+    private static final int MAX_LIMIT = 200;
+
+    private final TrackingLookupService trackingLookupService;
+
+    public TrackingResource(TrackingLookupService trackingLookupService) {
+        this.trackingLookupService = trackingLookupService;
+    }
+
+    /**
+     * Tracking requests of a participant by {@code vibrentId} or {@code externalId}, in pages ordered by id. The next
+     * page starts after the id of the last tracking request of the previous one.
+     */
+    @GetMapping(value = "/trackings")
+    public ResponseEntity<List<TrackingSummaryDTO>> getTrackings(@RequestParam(value = "vibrentId", required = false) Long vibrentId,
+                                                                 @RequestParam(value = "externalId", required = false) String externalId,
+                                                                 @RequestParam(value = "afterId", defaultValue = "0") long afterId,
+                                                                 @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        if (vibrentId == null && !StringUtils.hasText(externalId)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(trackingLookupService.findByParticipant(vibrentId, externalId, afterId, Math.max(1, Math.min(limit, MAX_LIMIT))));
+    }
+}
@@ -0,0 +1,36 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Added table to archive tracking requests in a terminal status,
+--                                                      audit rows outlive the archived tracking request
+-- --------------------------------------------------------------------------------------------------------------------
+
+ALTER TABLE `tracking_request_aud`
+	DROP FOREIGN KEY `fk_tracking_request_audit_id`;
+
+CREATE TABLE IF NOT EXISTS `tracking_request_archive`
+(
+  id                      bigint(20)   not null primary key,
+  operation               varchar(45)  not null,
+  provider                varchar(45)  not null,
+  tracking_id             varchar(45)  not null,
+  participant             json         null,
+  status                  varchar(45)  null,
+  sub_status_code         varchar(45)  null,
+  sub_status_description  text         null,
+  carrier_response        json         null,
+  carrier_response_type   varchar(50)  null,
+  slug                    varchar(100) null,
+  last_event_at           bigint(20)   null,
+  next_poll_at            bigint(20)   null,
+  fulfillment_order_id    bigint(20)   null,
+  header                  json         null,
+  created_on              bigint(20)   null,
+  updated_on              bigint(20)   null,
+  archived_on             bigint(20)   not null,
+  constraint tracking_request_archive_tracking_id_uindex unique (tracking_id)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8;
+
+CREATE INDEX `index_tracking_request_archive_archived_on` ON `tracking_request_archive` (`archived_on`);
+
+CREATE INDEX `index_tracking_request_status_updated_on` ON `tracking_request` (`status`, `updated_on`);
@@ -0,0 +1,28 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Partition revinfo and the audit tables by revision, existing
+--                                                      revisions go to one partition that expires with its newest row
+-- --------------------------------------------------------------------------------------------------------------------
+
+-- Partitioned tables can not have foreign keys
+ALTER TABLE `tracking_request_aud`
+	DROP FOREIGN KEY `fk_tracking_request_audit_revinfo`;
+
+SET @initial_bound = (SELECT COALESCE(MAX(`rev`), 0) + 1 FROM `revinfo`);
+SET @partitions = CONCAT(' PARTITION BY RANGE (`rev`) (PARTITION p_', @initial_bound, ' VALUES LESS THAN (', @initial_bound,
+                         '), PARTITION p_max VALUES LESS THAN MAXVALUE)');
+
+SET @partition_sql = CONCAT('ALTER TABLE `revinfo`', @partitions);
+PREPARE partition_statement FROM @partition_sql;
+EXECUTE partition_statement;
+DEALLOCATE PREPARE partition_statement;
+
+SET @partition_sql = CONCAT('ALTER TABLE `tracking_request_aud`', @partitions);
+PREPARE partition_statement FROM @partition_sql;
+EXECUTE partition_statement;
+DEALLOCATE PREPARE partition_statement;
+
+SET @partition_sql = CONCAT('ALTER TABLE `tracking_request_error_aud`', @partitions);
+PREPARE partition_statement FROM @partition_sql;
+EXECUTE partition_statement;
+DEALLOCATE PREPARE partition_statement;
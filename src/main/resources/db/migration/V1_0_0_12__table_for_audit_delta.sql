@@ -0,0 +1,18 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Added table for the changed columns of audited entities, written
+--                                                      behind the transaction instead of the Envers audit tables
+-- --------------------------------------------------------------------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS `audit_delta`
+(
+  id                      bigint(20)   auto_increment primary key,
+  entity_name             varchar(100) not null,
+  entity_id               bigint(20)   not null,
+  revtype                 tinyint      not null,
+  changes                 json         null,
+  changed_on              bigint(20)   not null
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8;
+
+CREATE INDEX `index_audit_delta_entity` ON `audit_delta` (`entity_name`, `entity_id`);
@@ -0,0 +1,14 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Alter script to add the trimmed and deflated carrier response,
+--                                                      existing rows are compacted by the compact carrier response job
+-- --------------------------------------------------------------------------------------------------------------------
+
+ALTER TABLE `tracking_request`
+	ADD COLUMN `carrier_response_compressed` mediumblob NULL DEFAULT NULL;
+
+ALTER TABLE `tracking_request_aud`
+	ADD COLUMN `carrier_response_compressed` mediumblob NULL DEFAULT NULL;
+
+ALTER TABLE `tracking_request_archive`
+	ADD COLUMN `carrier_response_compressed` mediumblob NULL DEFAULT NULL;
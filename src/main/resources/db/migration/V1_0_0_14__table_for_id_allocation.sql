@@ -0,0 +1,25 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Added table to allocate ids in blocks instead of auto increment,
+--                                                      the allocation continues after every id used so far
+-- --------------------------------------------------------------------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS `id_allocation`
+(
+  sequence_name           varchar(100) not null primary key,
+  next_val                bigint(20)   not null
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8;
+
+INSERT INTO `id_allocation` (sequence_name, next_val)
+SELECT 'tracking_request', GREATEST(
+        COALESCE((SELECT AUTO_INCREMENT FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'tracking_request'), 1),
+        COALESCE((SELECT MAX(id) FROM tracking_request), 0) + 1,
+        COALESCE((SELECT MAX(id) FROM tracking_request_archive), 0) + 1,
+        COALESCE((SELECT MAX(id) FROM tracking_request_aud), 0) + 1);
+
+INSERT INTO `id_allocation` (sequence_name, next_val)
+SELECT 'tracking_request_error', GREATEST(
+        COALESCE((SELECT AUTO_INCREMENT FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'tracking_request_error'), 1),
+        COALESCE((SELECT MAX(id) FROM tracking_request_error), 0) + 1,
+        COALESCE((SELECT MAX(id) FROM tracking_request_error_aud), 0) + 1);
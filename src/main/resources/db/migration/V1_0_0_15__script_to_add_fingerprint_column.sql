@@ -0,0 +1,11 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Alter script to add the fingerprint of the material tracking
+--                                                      fields, not audited
+-- --------------------------------------------------------------------------------------------------------------------
+
+ALTER TABLE `tracking_request`
+	ADD COLUMN `fingerprint` bigint(20) NULL DEFAULT NULL;
+
+ALTER TABLE `tracking_request_archive`
+	ADD COLUMN `fingerprint` bigint(20) NULL DEFAULT NULL;
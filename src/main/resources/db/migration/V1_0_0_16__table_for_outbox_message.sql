@@ -0,0 +1,20 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Added table for outbound Kafka messages written in the transaction
+--                                                      of the status update and relayed to Kafka in batches
+-- --------------------------------------------------------------------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS `outbox_message`
+(
+  id                      bigint(20)   auto_increment primary key,
+  topic                   varchar(255) not null,
+  message_key             varchar(255) null,
+  payload                 mediumblob   not null,
+  headers                 text         null,
+  created_on              bigint(20)   not null,
+  claimed_by              varchar(64)  null,
+  claimed_until           bigint(20)   not null default 0
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8;
+
+CREATE INDEX `index_outbox_message_claimed_by` ON `outbox_message` (`claimed_by`);
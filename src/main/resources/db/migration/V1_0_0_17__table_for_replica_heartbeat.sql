@@ -0,0 +1,14 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Added table for the heartbeat written on the primary and read
+--                                                      back from the replica to measure its replication lag
+-- --------------------------------------------------------------------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS `replica_heartbeat`
+(
+  id                      int(11)      not null primary key,
+  beat_at                 bigint(20)   not null default 0
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8;
+
+INSERT IGNORE INTO `replica_heartbeat` (id, beat_at) VALUES (1, 0);
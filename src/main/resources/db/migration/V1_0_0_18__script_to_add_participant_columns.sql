@@ -0,0 +1,27 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Alter script to add the vibrent id and external id of the
+--                                                      participant as indexed columns and backfill them from the
+--                                                      participant JSON, not audited
+-- --------------------------------------------------------------------------------------------------------------------
+
+ALTER TABLE `tracking_request`
+	ADD COLUMN `vibrent_id` bigint(20) NULL DEFAULT NULL,
+	ADD COLUMN `external_id` varchar(255) NULL DEFAULT NULL;
+
+ALTER TABLE `tracking_request_archive`
+	ADD COLUMN `vibrent_id` bigint(20) NULL DEFAULT NULL,
+	ADD COLUMN `external_id` varchar(255) NULL DEFAULT NULL;
+
+UPDATE `tracking_request`
+SET `vibrent_id` = CAST(NULLIF(JSON_UNQUOTE(JSON_EXTRACT(`participant`, '$.vibrentId')), 'null') AS SIGNED),
+    `external_id` = NULLIF(JSON_UNQUOTE(JSON_EXTRACT(`participant`, '$.externalId')), 'null')
+WHERE `participant` IS NOT NULL;
+
+UPDATE `tracking_request_archive`
+SET `vibrent_id` = CAST(NULLIF(JSON_UNQUOTE(JSON_EXTRACT(`participant`, '$.vibrentId')), 'null') AS SIGNED),
+    `external_id` = NULLIF(JSON_UNQUOTE(JSON_EXTRACT(`participant`, '$.externalId')), 'null')
+WHERE `participant` IS NOT NULL;
+
+CREATE INDEX `index_tracking_request_vibrent_id` ON `tracking_request` (`vibrent_id`, `id`);
+CREATE INDEX `index_tracking_request_external_id` ON `tracking_request` (`external_id`, `id`);
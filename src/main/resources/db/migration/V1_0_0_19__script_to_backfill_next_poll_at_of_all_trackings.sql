@@ -0,0 +1,10 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Backfill of the next poll time of the trackings V1_0_0_8 left
+--                                                      without one, whatever their status; which statuses are polled
+--                                                      is decided by the configured excludeStatus of the poll query
+-- --------------------------------------------------------------------------------------------------------------------
+
+UPDATE `tracking_request`
+SET `next_poll_at` = UNIX_TIMESTAMP() * 1000 + MOD(`id`, 1440) * 60000
+WHERE `next_poll_at` IS NULL;
@@ -0,0 +1,7 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Alter script to add the index used by the relay to claim the
+--                                                      oldest unclaimed or expired outbox messages
+-- --------------------------------------------------------------------------------------------------------------------
+
+CREATE INDEX `index_outbox_message_claimed_until_id` ON `outbox_message` (`claimed_until`, `id`);
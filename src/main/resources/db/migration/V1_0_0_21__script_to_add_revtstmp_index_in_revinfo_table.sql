@@ -0,0 +1,7 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Alter script to add the index used by the audit retention job to
+--                                                      find the newest revision created before a timestamp
+-- --------------------------------------------------------------------------------------------------------------------
+
+CREATE INDEX `index_revinfo_revtstmp` ON `aftership`.`revinfo` (`revtstmp`);
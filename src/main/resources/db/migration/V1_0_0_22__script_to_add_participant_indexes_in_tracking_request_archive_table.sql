@@ -0,0 +1,8 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Alter script to add the participant indexes V1_0_0_18 added to
+--                                                      tracking_request to the archive, used by the participant lookup
+-- --------------------------------------------------------------------------------------------------------------------
+
+CREATE INDEX `index_tracking_request_archive_vibrent_id` ON `tracking_request_archive` (`vibrent_id`, `id`);
+CREATE INDEX `index_tracking_request_archive_external_id` ON `tracking_request_archive` (`external_id`, `id`);
@@ -0,0 +1,19 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Alter script to add courier slug column and backfill it from
+--                                                      the stored carrier response
+-- --------------------------------------------------------------------------------------------------------------------
+
+ALTER TABLE `tracking_request`
+	ADD COLUMN `slug` VARCHAR(100) NULL DEFAULT NULL;
+
+ALTER TABLE `tracking_request_aud`
+	ADD COLUMN `slug` VARCHAR(100) NULL DEFAULT NULL;
+
+UPDATE `tracking_request`
+SET `slug` = NULLIF(JSON_UNQUOTE(JSON_EXTRACT(`carrier_response`, '$.msg.slug')), 'null')
+WHERE `slug` IS NULL AND `carrier_response` IS NOT NULL AND `carrier_response_type` = 'NOTIFICATION';
+
+UPDATE `tracking_request`
+SET `slug` = NULLIF(JSON_UNQUOTE(JSON_EXTRACT(`carrier_response`, '$.slug')), 'null')
+WHERE `slug` IS NULL AND `carrier_response` IS NOT NULL AND `carrier_response_type` = 'TRACKING';
@@ -0,0 +1,22 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Alter script to add the next poll time and the time of the last
+--                                                      status change, existing trackings are spread over the next day
+-- --------------------------------------------------------------------------------------------------------------------
+
+ALTER TABLE `tracking_request`
+	ADD COLUMN `last_event_at` bigint(20) NULL DEFAULT NULL,
+	ADD COLUMN `next_poll_at` bigint(20) NULL DEFAULT NULL;
+
+ALTER TABLE `tracking_request_aud`
+	ADD COLUMN `last_event_at` bigint(20) NULL DEFAULT NULL;
+
+UPDATE `tracking_request`
+SET `last_event_at` = `updated_on`
+WHERE `last_event_at` IS NULL;
+
+UPDATE `tracking_request`
+SET `next_poll_at` = UNIX_TIMESTAMP() * 1000 + MOD(`id`, 1440) * 60000
+WHERE `next_poll_at` IS NULL AND `status` NOT IN ('Delivered', 'Exception', 'Expired');
+
+CREATE INDEX `index_tracking_request_next_poll_at` ON `tracking_request` (`next_poll_at`);
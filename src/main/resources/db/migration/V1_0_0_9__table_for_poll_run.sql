@@ -0,0 +1,38 @@
+-- --------------------------------------------------------------------------------------------------------------------
+-- Date          : Oct 19, 2026             Added By  : Aftership Team
+-- JIRA ID       : NA                       Comments  : Added tables to store get tracking runs and the progress
+--                                                      checkpoint of every shard of a run
+-- --------------------------------------------------------------------------------------------------------------------
+-- -----------------------------------------------------
+-- Table `aftership`.`poll_run`
+-- -----------------------------------------------------
+create table aftership.poll_run
+(
+  id                      bigint(20) auto_increment primary key,
+  run_id                  bigint(20)  not null,
+  shard_count             int         null,
+  status                  varchar(20) not null,
+  completed_on            bigint(20)  null,
+  created_on              bigint(20)  null,
+  updated_on              bigint(20)  null,
+  constraint poll_run_run_id_uindex unique (run_id)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8;
+
+-- -----------------------------------------------------
+-- Table `aftership`.`poll_run_checkpoint`
+-- -----------------------------------------------------
+create table aftership.poll_run_checkpoint
+(
+  id                      bigint(20) auto_increment primary key,
+  run_id                  bigint(20)  not null,
+  shard_index             int         not null,
+  status                  varchar(20) not null,
+  last_id                 bigint(20)  not null default 0,
+  processed               bigint(20)  not null default 0,
+  completed_on            bigint(20)  null,
+  created_on              bigint(20)  null,
+  updated_on              bigint(20)  null,
+  constraint poll_run_checkpoint_run_id_shard_index_uindex unique (run_id, shard_index)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8;
@@ -0,0 +1,124 @@
+package com.vibrent.aftership.audit;
+
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.dto.AuditDeltaDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditDeltaWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AuditDeltaWriter auditDeltaWriter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // disabled, so no background thread flushes while the test runs
+        auditDeltaWriter = new AuditDeltaWriter(jdbcTemplate, false, 3, 2, Duration.ofSeconds(1), meterRegistry);
+    }
+
+    @DisplayName("When queued deltas are flushed " +
+            "Then verify they are written in batches of the batch size")
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushWritesBatches() {
+        for (int i = 0; i < 3; i++) {
+            auditDeltaWriter.enqueue(delta(i));
+        }
+        assertEquals(3, meterRegistry.get("afterShip.audit.delta.queueDepth").gauge().value());
+
+        auditDeltaWriter.flush();
+
+        ArgumentCaptor<Collection<AuditDeltaDTO>> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batches.capture(), anyInt(), any());
+        assertEquals(2, batches.getAllValues().get(0).size());
+        assertEquals(1, batches.getAllValues().get(1).size());
+        assertEquals(3, meterRegistry.counter("afterShip.audit.delta.written").count());
+        assertEquals(0, meterRegistry.get("afterShip.audit.delta.queueDepth").gauge().value());
+    }
+
+    @DisplayName("When the queue is full " +
+            "Then verify the delta is written by the caller instead of being dropped")
+    @Test
+    void fullQueueWritesInline() {
+        for (int i = 0; i < 4; i++) {
+            auditDeltaWriter.enqueue(delta(i));
+        }
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), any(Collection.class), eq(1), any());
+        assertEquals(1, meterRegistry.counter("afterShip.audit.delta.overflow").count());
+        assertEquals(3, meterRegistry.get("afterShip.audit.delta.queueDepth").gauge().value());
+    }
+
+    @DisplayName("When a batch fails to write " +
+            "Then verify it is counted as failed and the writer carries on")
+    @Test
+    void failedBatchIsCounted() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(), any()))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+        auditDeltaWriter.enqueue(delta(1));
+
+        auditDeltaWriter.flush();
+
+        assertEquals(1, meterRegistry.counter("afterShip.audit.delta.failed").count());
+        assertEquals(0, meterRegistry.counter("afterShip.audit.delta.written").count());
+    }
+
+    @DisplayName("When an entity updated by a statement is queued " +
+            "Then verify only its changed properties are written")
+    @Test
+    @SuppressWarnings("unchecked")
+    void enqueueUpdateQueuesChangedProperties() throws InterruptedException {
+        AuditDeltaWriter enabledWriter = new AuditDeltaWriter(jdbcTemplate, true, 3, 2, Duration.ofHours(1), meterRegistry);
+        try {
+            TrackingRequest before = new TrackingRequest();
+            before.setStatus("Pending");
+            before.setSlug("usps");
+            TrackingRequest after = new TrackingRequest();
+            after.setStatus("InTransit");
+            after.setSlug("usps");
+
+            enabledWriter.enqueueUpdate(before, after, 11L, List.of("status", "slug"), 1760875200000L);
+            enabledWriter.enqueueUpdate(before, before, 11L, List.of("status", "slug"), 1760875200000L);
+            enabledWriter.flush();
+
+            ArgumentCaptor<Collection<AuditDeltaDTO>> batches = ArgumentCaptor.forClass(Collection.class);
+            verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batches.capture(), anyInt(), any());
+            assertEquals(1, batches.getValue().size());
+            AuditDeltaDTO delta = batches.getValue().iterator().next();
+            assertEquals(TrackingRequest.class.getName(), delta.getEntityName());
+            assertEquals(11L, delta.getEntityId());
+            assertEquals(AuditDeltaDTO.UPDATE, delta.getRevType());
+            assertEquals("{\"status\":\"InTransit\"}", delta.getChanges());
+        } finally {
+            enabledWriter.shutdown();
+        }
+    }
+
+    private static AuditDeltaDTO delta(long id) {
+        return new AuditDeltaDTO("com.vibrent.aftership.domain.TrackingRequest", id, AuditDeltaDTO.UPDATE, "{\"status\":\"InTransit\"}", 1760875200000L);
+    }
+}
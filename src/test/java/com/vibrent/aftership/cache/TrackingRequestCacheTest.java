@@ -0,0 +1,161 @@
+package com.vibrent.aftership.cache;
+
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.dto.CacheInvalidationDTO;
+import com.vibrent.aftership.messaging.producer.impl.CacheInvalidationProducer;
+import com.vibrent.aftership.repository.TrackingRequestRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TrackingRequestCacheTest {
+
+    private static final String TRACKING_ID = "trackingId";
+
+    @Mock
+    private TrackingRequestRepository trackingRequestRepository;
+
+    @Mock
+    private CacheInvalidationProducer cacheInvalidationProducer;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TrackingRequestCache trackingRequestCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        trackingRequestCache = cache(true, true);
+    }
+
+    @DisplayName("When a tracking request is looked up twice " +
+            "Then verify the second lookup is answered from the cache with a copy")
+    @Test
+    void lookupIsReadThrough() {
+        when(trackingRequestRepository.findByTrackingId(TRACKING_ID)).thenReturn(Optional.of(trackingRequest(1L, "InTransit")));
+
+        TrackingRequest first = trackingRequestCache.findByTrackingId(TRACKING_ID).orElseThrow();
+        first.setStatus("Delivered");
+        TrackingRequest second = trackingRequestCache.findByTrackingId(TRACKING_ID).orElseThrow();
+
+        verify(trackingRequestRepository, times(1)).findByTrackingId(TRACKING_ID);
+        assertNotSame(first, second);
+        assertEquals("InTransit", second.getStatus());
+        assertEquals(0.5, meterRegistry.get("afterShip.cache.trackingRequest.hitRate").gauge().value(), 0.001);
+    }
+
+    @DisplayName("When a tracking request is saved " +
+            "Then verify it replaces the cached one and the change is broadcast")
+    @Test
+    void saveReplacesSnapshot() {
+        when(trackingRequestRepository.findByTrackingId(TRACKING_ID)).thenReturn(Optional.of(trackingRequest(1L, "InTransit")));
+        trackingRequestCache.findByTrackingId(TRACKING_ID);
+
+        trackingRequestCache.saved(trackingRequest(2L, "Delivered"));
+
+        assertEquals("Delivered", trackingRequestCache.findByTrackingId(TRACKING_ID).orElseThrow().getStatus());
+        verify(trackingRequestRepository, times(1)).findByTrackingId(TRACKING_ID);
+        ArgumentCaptor<CacheInvalidationDTO> invalidation = ArgumentCaptor.forClass(CacheInvalidationDTO.class);
+        verify(cacheInvalidationProducer).send(invalidation.capture());
+        assertEquals(TRACKING_ID, invalidation.getValue().getTrackingId());
+        assertEquals(trackingRequestCache.getNodeId(), invalidation.getValue().getNodeId());
+    }
+
+    @DisplayName("When a lookup read the row before a concurrent save " +
+            "Then verify it does not replace the snapshot of the save")
+    @Test
+    void olderLoadDoesNotReplaceSave() {
+        when(trackingRequestRepository.findByTrackingId(TRACKING_ID)).thenReturn(Optional.of(trackingRequest(1L, "InTransit")));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            trackingRequestCache.findByTrackingId(TRACKING_ID);
+            trackingRequestCache.saved(trackingRequest(2L, "Delivered"));
+            // the save commits first
+            TransactionSynchronizationManager.getSynchronizations().stream()
+                    .skip(1).forEach(TransactionSynchronization::afterCommit);
+            TransactionSynchronizationManager.getSynchronizations().stream()
+                    .limit(1).forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals("Delivered", trackingRequestCache.findByTrackingId(TRACKING_ID).orElseThrow().getStatus());
+    }
+
+    @DisplayName("When the transaction of a lookup or save does not commit " +
+            "Then verify nothing is cached")
+    @Test
+    void nothingIsCachedBeforeCommit() {
+        when(trackingRequestRepository.findByTrackingId(TRACKING_ID)).thenReturn(Optional.of(trackingRequest(1L, "InTransit")));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            trackingRequestCache.findByTrackingId(TRACKING_ID);
+            trackingRequestCache.saved(trackingRequest(2L, "Delivered"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(0, trackingRequestCache.size());
+        verify(cacheInvalidationProducer, never()).send(any());
+    }
+
+    @DisplayName("When a tracking request is invalidated " +
+            "Then verify it is read again from the database and the invalidation is broadcast")
+    @Test
+    void invalidateEvicts() {
+        when(trackingRequestRepository.findByTrackingId(TRACKING_ID)).thenReturn(Optional.of(trackingRequest(1L, "InTransit")));
+        trackingRequestCache.findByTrackingId(TRACKING_ID);
+
+        trackingRequestCache.invalidateAll();
+        trackingRequestCache.findByTrackingId(TRACKING_ID);
+
+        verify(trackingRequestRepository, times(2)).findByTrackingId(TRACKING_ID);
+        ArgumentCaptor<CacheInvalidationDTO> invalidation = ArgumentCaptor.forClass(CacheInvalidationDTO.class);
+        verify(cacheInvalidationProducer).send(invalidation.capture());
+        assertNull(invalidation.getValue().getTrackingId());
+    }
+
+    @DisplayName("When the cache is disabled " +
+            "Then verify every lookup reads the database and nothing is broadcast")
+    @Test
+    void disabledPassesThrough() {
+        TrackingRequestCache disabled = cache(false, true);
+        when(trackingRequestRepository.findByTrackingId(TRACKING_ID)).thenReturn(Optional.of(trackingRequest(1L, "InTransit")));
+
+        disabled.findByTrackingId(TRACKING_ID);
+        disabled.saved(trackingRequest(2L, "Delivered"));
+        disabled.findByTrackingId(TRACKING_ID);
+
+        verify(trackingRequestRepository, times(2)).findByTrackingId(TRACKING_ID);
+        assertEquals(0, disabled.size());
+        verify(cacheInvalidationProducer, never()).send(any());
+    }
+
+    private TrackingRequestCache cache(boolean enabled, boolean broadcast) {
+        return new TrackingRequestCache(trackingRequestRepository, cacheInvalidationProducer, enabled, 100,
+                Duration.ofMinutes(1), broadcast, meterRegistry);
+    }
+
+    private static TrackingRequest trackingRequest(Long updatedOn, String status) {
+        TrackingRequest trackingRequest = new TrackingRequest();
+        trackingRequest.setId(1L);
+        trackingRequest.setTrackingId(TRACKING_ID);
+        trackingRequest.setStatus(status);
+        trackingRequest.setUpdatedOn(updatedOn);
+        return trackingRequest;
+    }
+}
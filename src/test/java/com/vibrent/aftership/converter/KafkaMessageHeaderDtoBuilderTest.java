@@ -0,0 +1,58 @@
+package com.vibrent.aftership.converter;
+
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.vxp.workflow.MessageHeaderDto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.ReflectionUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaMessageHeaderDtoBuilderTest {
+
+    static final String HEADER = "{\"source\":\"AfterShip\",\"VXP-Header-Version\":\"2.1.3\",\"VXP-Message-Id\":\"MessageID_1\"," +
+            "\"VXP-Message-Spec\":\"TRACK_DELIVERY_RESPONSE\",\"VXP-Message-Spec-Version\":\"2.1.2\",\"VXP-Message-Timestamp\":1630645343162," +
+            "\"VXP-Originator\":\"PTBE\",\"VXP-Pattern\":\"WORKFLOW\",\"VXP-Trigger\":\"EVENT\",\"VXP-User-ID\":1000," +
+            "\"VXP-Workflow-Instance-ID\":\"WorkflowInstanceID_1\",\"VXP-Workflow-Name\":\"SALIVARY_KIT_ORDER\"}";
+
+    @Test
+    @DisplayName("When the header of a cached tracking request is read from its copies then verify it is parsed once")
+    void getMessageHeaderDtoWhenReadFromCopiesThenVerifyParsedOnce() {
+        TrackingRequest snapshot = new TrackingRequest();
+        snapshot.setHeader(HEADER);
+
+        MessageHeaderDto first = KafkaMessageHeaderDtoBuilder.getMessageHeaderDto(copy(snapshot));
+        MessageHeaderDto second = KafkaMessageHeaderDtoBuilder.getMessageHeaderDto(copy(snapshot));
+
+        assertNotNull(first);
+        assertEquals("WorkflowInstanceID_1", first.getVxpWorkflowInstanceID());
+        assertSame(first, second);
+        assertSame(first, KafkaMessageHeaderDtoBuilder.getMessageHeaderDto(snapshot));
+    }
+
+    @Test
+    @DisplayName("When the header of a tracking request changes then verify it is parsed again")
+    void getMessageHeaderDtoWhenHeaderChangesThenVerifyParsedAgain() {
+        TrackingRequest trackingRequest = new TrackingRequest();
+        trackingRequest.setHeader(HEADER);
+        MessageHeaderDto parsed = KafkaMessageHeaderDtoBuilder.getMessageHeaderDto(trackingRequest);
+
+        trackingRequest.setHeader(HEADER.replace("WorkflowInstanceID_1", "WorkflowInstanceID_2"));
+
+        MessageHeaderDto reparsed = KafkaMessageHeaderDtoBuilder.getMessageHeaderDto(trackingRequest);
+        assertNotSame(parsed, reparsed);
+        assertEquals("WorkflowInstanceID_2", reparsed.getVxpWorkflowInstanceID());
+
+        trackingRequest.setHeader("not a header");
+        assertNull(KafkaMessageHeaderDtoBuilder.getMessageHeaderDto(trackingRequest));
+        trackingRequest.setHeader(null);
+        assertNull(KafkaMessageHeaderDtoBuilder.getMessageHeaderDto(trackingRequest));
+    }
+
+    // As the tracking request cache copies its snapshots
+    static TrackingRequest copy(TrackingRequest trackingRequest) {
+        TrackingRequest copy = new TrackingRequest();
+        ReflectionUtils.shallowCopyFieldState(trackingRequest, copy);
+        return copy;
+    }
+}
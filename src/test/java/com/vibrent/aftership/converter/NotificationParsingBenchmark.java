@@ -0,0 +1,119 @@
+package com.vibrent.aftership.converter;
+
+import com.aftership.sdk.model.tracking.Tracking;
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.vxp.workflow.OperationEnum;
+import com.vibrent.vxp.workflow.ProviderEnum;
+import com.vibrent.vxp.workflow.TrackDeliveryResponseDto;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the response conversion of a notification. {@code loadedParsesHeaderAndParticipant} converts a
+ * tracking request loaded from the database without the participant columns, which parses the header and participant
+ * JSON; {@code loadedParsesHeader} reads the participant columns and {@code snapshotReusesParsedHeader} also reuses the
+ * parsed header of a cached snapshot, so each step changes one thing. The benchmark only runs with
+ * {@code mvn test -Dtest=NotificationParsingBenchmark -Dbenchmark=true} and writes its results to
+ * {@code target/notification-parsing-benchmark.json}.
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationParsingBenchmark {
+
+    private static final String PARTICIPANT = "{\"externalId\":\"P1000\",\"vibrentId\":1000}";
+    private static final String HEADER = "{\"source\":\"AfterShip\",\"VXP-Header-Version\":\"2.1.3\",\"VXP-Message-Id\":\"MessageID_1\"," +
+            "\"VXP-Message-Spec\":\"TRACK_DELIVERY_RESPONSE\",\"VXP-Message-Spec-Version\":\"2.1.2\",\"VXP-Message-Timestamp\":1630645343162," +
+            "\"VXP-Originator\":\"PTBE\",\"VXP-Pattern\":\"WORKFLOW\",\"VXP-Trigger\":\"EVENT\",\"VXP-User-ID\":1000," +
+            "\"VXP-Workflow-Instance-ID\":\"WorkflowInstanceID_1\",\"VXP-Workflow-Name\":\"SALIVARY_KIT_ORDER\"}";
+
+    private final TrackDeliveryResponseConverter trackDeliveryResponseConverter = new TrackDeliveryResponseConverter();
+    private Tracking tracking;
+    private TrackingRequest snapshot;
+
+    @Setup
+    public void setUp() {
+        tracking = new Tracking();
+        tracking.setTrackingNumber("tracking_number_1");
+        tracking.setExpectedDelivery("2021-08-15");
+        tracking.setTag("InTransit");
+        tracking.setLastUpdatedAt(new Date());
+
+        snapshot = loadedTrackingRequest(true);
+    }
+
+    @Benchmark
+    public void loadedParsesHeaderAndParticipant(Blackhole blackhole) {
+        convert(loadedTrackingRequest(false), blackhole);
+    }
+
+    @Benchmark
+    public void loadedParsesHeader(Blackhole blackhole) {
+        convert(loadedTrackingRequest(true), blackhole);
+    }
+
+    @Benchmark
+    public void snapshotReusesParsedHeader(Blackhole blackhole) {
+        convert(copy(snapshot), blackhole);
+    }
+
+    @Test
+    @DisplayName("When the notification parsing benchmark runs, " +
+            "Then log the time per notification of every step from the loaded tracking request to the parsed snapshot.")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkNotificationParsing() throws RunnerException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(NotificationParsingBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/notification-parsing-benchmark.json")
+                .build()).run();
+        results.forEach(result -> log.info("Aftership | Notification parsing benchmark {}: {} ns per notification, error {}",
+                result.getParams().getBenchmark(), String.format("%.1f", result.getPrimaryResult().getScore()),
+                String.format("%.1f", result.getPrimaryResult().getScoreError())));
+    }
+
+    private void convert(TrackingRequest trackingRequest, Blackhole blackhole) {
+        TrackDeliveryResponseDto trackDeliveryResponseDto = trackDeliveryResponseConverter.convert(tracking, trackingRequest);
+        blackhole.consume(trackDeliveryResponseDto);
+        blackhole.consume(trackDeliveryResponseConverter.populateMessageHeaderDTO(trackDeliveryResponseDto.getParticipant(), trackingRequest));
+    }
+
+    private static TrackingRequest loadedTrackingRequest(boolean participantColumns) {
+        TrackingRequest trackingRequest = new TrackingRequest();
+        trackingRequest.setTrackingId("tracking_number_1");
+        trackingRequest.setProvider(ProviderEnum.USPS.toValue());
+        trackingRequest.setOperation(OperationEnum.TRACK_DELIVERY);
+        trackingRequest.setParticipant(PARTICIPANT);
+        trackingRequest.setHeader(HEADER);
+        if (participantColumns) {
+            trackingRequest.setVibrentId(1000L);
+            trackingRequest.setExternalId("P1000");
+        }
+        return trackingRequest;
+    }
+
+    // As the tracking request cache copies its snapshots
+    private static TrackingRequest copy(TrackingRequest trackingRequest) {
+        TrackingRequest copy = new TrackingRequest();
+        ReflectionUtils.shallowCopyFieldState(trackingRequest, copy);
+        return copy;
+    }
+}
@@ -56,6 +56,19 @@ public class TrackDeliveryResponseConverterTest {
         assertEquals(1628985600000L, dateDto.getDate());
     }
 
+    @Test
+    @DisplayName("When the participant ids are stored in their columns then verify the participant is read from them")
+    void convertWhenParticipantColumnsAreStoredThenVerifyParticipant() {
+        trackingRequest.setParticipant("{\"externalId\":\"P1000\",\"vibrentId\":1000}");
+        trackingRequest.setVibrentId(2000L);
+        trackingRequest.setExternalId("P2000");
+
+        TrackDeliveryResponseDto trackDeliveryResponseDto = trackDeliveryResponseConverter.convert(tracking, trackingRequest);
+
+        assertEquals(2000, trackDeliveryResponseDto.getParticipant().getVibrentID());
+        assertEquals("P2000", trackDeliveryResponseDto.getParticipant().getExternalID());
+    }
+
     @Test
     @DisplayName("When notificationDTO tag is Delivered then verify trackDeliveryResponseDto status")
     void convertWhenNotificationDtoTagIsDeliveredThenVerifyStatus() {
@@ -45,6 +45,8 @@ class TrackingRequestConverterTest {
         assertEquals(OperationEnum.TRACK_DELIVERY, trackingRequest.getOperation());
         assertEquals(StatusEnum.PENDING_TRACKING.toValue(), trackingRequest.getStatus());
         assertEquals("{\"externalId\":\"P1000\",\"vibrentId\":1000}", trackingRequest.getParticipant());
+        assertEquals(1000L, trackingRequest.getVibrentId());
+        assertEquals("P1000", trackingRequest.getExternalId());
         assertEquals("{\"source\":\"AfterShip\",\"VXP-Header-Version\":\"2.1.3\",\"VXP-Message-Id\":\"MessageID_1\",\"VXP-Message-Spec\":\"TRACK_DELIVERY_RESPONSE\",\"VXP-Message-Spec-Version\":\"2.1.2\",\"VXP-Message-Timestamp\":1630645343162,\"VXP-Originator\":\"PTBE\",\"VXP-Pattern\":\"WORKFLOW\",\"VXP-Trigger\":\"EVENT\",\"VXP-User-ID\":1000,\"VXP-Workflow-Instance-ID\":\"WorkflowInstanceID_1\",\"VXP-Workflow-Name\":\"SALIVARY_KIT_ORDER\"}", trackingRequest.getHeader());
     }
 
@@ -5,20 +5,15 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.read.ListAppender;
 import com.vibrent.aftership.domain.TrackingRequestError;
 import com.vibrent.aftership.exception.AfterShipRetriableException;
-import com.vibrent.aftership.repository.TrackingRequestErrorRepository;
 import com.vibrent.aftership.util.JacksonUtil;
 import com.vibrent.aftership.vo.TrackDeliveryRequestVo;
 import com.vibrent.vxp.workflow.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
 import org.slf4j.LoggerFactory;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@ExtendWith(MockitoExtension.class)
 class TrackingRequestErrorConverterTest {
 
     private static final String VXP_HEADER_VERSION = "2.1.3";
@@ -30,12 +25,9 @@ class TrackingRequestErrorConverterTest {
     private TrackDeliveryRequestVo trackDeliveryRequestVo;
     private MessageHeaderDto messageHeaderDto;
 
-    @Mock
-    private TrackingRequestErrorRepository trackingRequestErrorRepository;
-
     @BeforeEach
     void setUp() {
-        trackingRequestErrorConverter = new TrackingRequestErrorConverter(trackingRequestErrorRepository);
+        trackingRequestErrorConverter = new TrackingRequestErrorConverter();
         initializeTrackDeliveryRequestDto();
         initializeMessageHeaderDto();
     }
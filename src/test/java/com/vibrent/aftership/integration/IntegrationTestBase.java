@@ -1,6 +1,7 @@
 package com.vibrent.aftership.integration;
 
 import com.vibrent.aftership.AfterShipServiceApplication;
+import com.vibrent.aftership.simulator.AfterShipSimulator;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -32,6 +33,9 @@ import java.util.Map;
 )
 public abstract class IntegrationTestBase {
 
+    public static final String AFTERSHIP_API_KEY = "318e9cd7-b436-4667-bbf1-0094248167f4";
+    public static final String AFTERSHIP_WEBHOOK_SECRET = "95f35e6b3dbc26527029cbd9cfa51b87";
+
     public static KafkaContainer startKafkaContainer() {
         KafkaContainer kafka = new KafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:5.4.3"))
                 .withReuse(true);
@@ -42,6 +46,14 @@ public abstract class IntegrationTestBase {
         return kafka;
     }
 
+    /**
+     * Starts an offline AfterShip API simulator using the test api key and webhook secret. Register its base url as
+     * {@code afterShip.baseUrl} through a {@code @DynamicPropertySource} in the test class.
+     */
+    public static AfterShipSimulator startAfterShipSimulator() {
+        return new AfterShipSimulator(AFTERSHIP_API_KEY, AFTERSHIP_WEBHOOK_SECRET).start();
+    }
+
     public static <T> KafkaTemplate<String, T> getKafkaTemplate(KafkaContainer kafkaContainer) {
         Map<String, Object> props = new HashMap<>();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaContainer.getBootstrapServers());
@@ -0,0 +1,121 @@
+package com.vibrent.aftership.integration.audit;
+
+import com.vibrent.aftership.audit.AuditDeltaWriter;
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.integration.IntegrationTestBase;
+import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.routing.DeferredStatusWriter;
+import com.vibrent.vxp.workflow.OperationEnum;
+import com.vibrent.vxp.workflow.ProviderEnum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional, deltas are only written for committed changes
+@TestPropertySource(properties = {
+        "afterShip.audit.writeBehind.enabled=true",
+        "afterShip.audit.writeBehind.flushInterval=1h",
+        "afterShip.routingToken.enabled=true"
+})
+class AuditDeltaWriteBehindTest extends IntegrationTestBase {
+
+    private static final String TRACKING_ID = "AUDIT_DELTA_1";
+
+    @Autowired
+    private TrackingRequestRepository trackingRequestRepository;
+
+    @Autowired
+    private AuditDeltaWriter auditDeltaWriter;
+
+    @Autowired
+    private DeferredStatusWriter deferredStatusWriter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long trackingRequestId;
+
+    @AfterEach
+    void tearDown() {
+        trackingRequestRepository.deleteById(trackingRequestId);
+        jdbcTemplate.update("DELETE FROM audit_delta WHERE entity_id = ?", trackingRequestId);
+    }
+
+    @DisplayName("When a routed status update is written with write-behind audit, " +
+            "Then verify the columns it wrote are written to audit_delta.")
+    @Test
+    void whenRoutedStatusUpdateIsWrittenThenVerifyItIsAudited() throws InterruptedException {
+        TrackingRequest trackingRequest = new TrackingRequest();
+        trackingRequest.setTrackingId(TRACKING_ID);
+        trackingRequest.setProvider(ProviderEnum.USPS.toValue());
+        trackingRequest.setOperation(OperationEnum.TRACK_DELIVERY);
+        trackingRequest.setStatus("Pending");
+        trackingRequestId = trackingRequestRepository.save(trackingRequest).getId();
+
+        TrackingRequest updated = new TrackingRequest();
+        updated.setTrackingId(TRACKING_ID);
+        updated.setStatus("InTransit");
+        updated.setCarrierResponse("{}");
+        updated.setCarrierResponseType("NOTIFICATION");
+        updated.setLastEventAt(System.currentTimeMillis());
+        updated.setUpdatedOn(System.currentTimeMillis());
+        TrackingRequest missing = new TrackingRequest();
+        missing.setTrackingId("AUDIT_DELTA_MISSING");
+        CountDownLatch written = new CountDownLatch(1);
+        assertTrue(deferredStatusWriter.enqueue(updated, () -> { }, () -> { }, () -> { }));
+        // Queued last, its fallback runs once the update before it committed
+        assertTrue(deferredStatusWriter.enqueue(missing, () -> { }, () -> { }, written::countDown));
+        assertTrue(written.await(30, TimeUnit.SECONDS));
+        auditDeltaWriter.flush();
+
+        List<String> changes = jdbcTemplate.queryForList(
+                "SELECT changes FROM audit_delta WHERE entity_id = ? AND entity_name LIKE '%TrackingRequest' AND revtype = 1 ORDER BY id",
+                String.class, trackingRequestId);
+        assertEquals(1, changes.size());
+        assertTrue(changes.get(0).contains("InTransit"));
+        assertTrue(changes.get(0).contains("carrierResponseType"));
+    }
+
+    @DisplayName("When a tracking request is saved and updated with write-behind audit, " +
+            "Then verify only the changed columns are written to audit_delta and no Envers copy is made.")
+    @Test
+    void whenTrackingRequestIsUpdatedThenVerifyOnlyChangedColumnsAreAudited() {
+        TrackingRequest trackingRequest = new TrackingRequest();
+        trackingRequest.setTrackingId(TRACKING_ID);
+        trackingRequest.setProvider(ProviderEnum.USPS.toValue());
+        trackingRequest.setOperation(OperationEnum.TRACK_DELIVERY);
+        trackingRequest.setStatus("Pending");
+        trackingRequest.setCarrierResponse("{\"tag\": \"Pending\"}");
+        trackingRequest = trackingRequestRepository.save(trackingRequest);
+        trackingRequestId = trackingRequest.getId();
+
+        trackingRequest.setStatus("InTransit");
+        trackingRequestRepository.save(trackingRequest);
+        auditDeltaWriter.flush();
+
+        List<Map<String, Object>> deltas = jdbcTemplate.queryForList(
+                "SELECT revtype, changes FROM audit_delta WHERE entity_id = ? AND entity_name LIKE '%TrackingRequest' ORDER BY id",
+                trackingRequest.getId());
+        assertEquals(2, deltas.size());
+        assertEquals(0, ((Number) deltas.get(0).get("revtype")).intValue());
+        assertTrue(deltas.get(0).get("changes").toString().contains("carrierResponse"));
+        assertEquals(1, ((Number) deltas.get(1).get("revtype")).intValue());
+        String changes = deltas.get(1).get("changes").toString();
+        assertTrue(changes.contains("InTransit"));
+        assertFalse(changes.contains("carrierResponse"));
+        assertFalse(changes.contains("trackingId"));
+
+        Long enversCopies = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tracking_request_aud WHERE id = ?", Long.class, trackingRequest.getId());
+        assertEquals(0L, enversCopies);
+    }
+}
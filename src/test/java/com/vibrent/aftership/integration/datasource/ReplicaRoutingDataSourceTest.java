@@ -0,0 +1,121 @@
+package com.vibrent.aftership.integration.datasource;
+
+import com.vibrent.aftership.datasource.ReplicaLagGuard;
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.integration.IntegrationTestBase;
+import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.service.TrackingRequestArchiveService;
+import com.vibrent.vxp.workflow.OperationEnum;
+import com.vibrent.vxp.workflow.ProviderEnum;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Primary and replica are two MySQL containers without replication, the test writes what the replica has replicated
+@TestPropertySource(properties = {
+        "afterShip.replica.enabled=true",
+        "afterShip.replica.lagCheckInterval=1h",
+        "afterShip.cache.trackingRequest.enabled=false"
+})
+class ReplicaRoutingDataSourceTest extends IntegrationTestBase {
+
+    private static final String REPLICA_TRACKING_ID = "REPLICA_ROUTING_1";
+    private static final String PRIMARY_TRACKING_ID = "REPLICA_ROUTING_2";
+
+    @Autowired
+    private ReplicaLagGuard replicaLagGuard;
+
+    @Autowired
+    private TrackingRequestRepository trackingRequestRepository;
+
+    @Autowired
+    private TrackingRequestArchiveService trackingRequestArchiveService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${afterShip.replica.url}")
+    private String replicaUrl;
+
+    private JdbcTemplate replicaJdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        Flyway.configure().dataSource(replicaUrl, "root", "password").load().migrate();
+        replicaJdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(replicaUrl, "root", "password"));
+        replicaJdbcTemplate.update("INSERT INTO tracking_request (id, operation, provider, tracking_id, status) VALUES (?, ?, ?, ?, ?)",
+                999_999_001L, OperationEnum.TRACK_DELIVERY.name(), ProviderEnum.USPS.toValue(), REPLICA_TRACKING_ID, "InTransit");
+    }
+
+    @AfterEach
+    void tearDown() {
+        replicaJdbcTemplate.update("DELETE FROM tracking_request WHERE tracking_id = ?", REPLICA_TRACKING_ID);
+        // Read write, a read only lookup may use the replica
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                trackingRequestRepository.findByTrackingId(PRIMARY_TRACKING_ID).ifPresent(trackingRequestRepository::delete));
+    }
+
+    @DisplayName("When the replica keeps up, " +
+            "Then verify read only lookups use the replica and read write transactions the primary.")
+    @Test
+    void whenReplicaKeepsUpThenVerifyReadOnlyLookupsUseTheReplica() {
+        replicateHeartbeat(System.currentTimeMillis());
+
+        replicaLagGuard.check();
+
+        assertTrue(replicaLagGuard.isReplicaUsable());
+        assertTrue(trackingRequestRepository.findByTrackingId(REPLICA_TRACKING_ID).isPresent());
+        Optional<TrackingRequest> readWrite = new TransactionTemplate(transactionManager)
+                .execute(status -> trackingRequestRepository.findByTrackingId(REPLICA_TRACKING_ID));
+        assertNotNull(readWrite);
+        assertFalse(readWrite.isPresent());
+    }
+
+    @DisplayName("When the replica falls behind, " +
+            "Then verify read only lookups use the primary.")
+    @Test
+    void whenReplicaFallsBehindThenVerifyReadOnlyLookupsUseThePrimary() {
+        replicateHeartbeat(System.currentTimeMillis() - 60_000);
+
+        replicaLagGuard.check();
+
+        assertFalse(replicaLagGuard.isReplicaUsable());
+        assertFalse(trackingRequestRepository.findByTrackingId(REPLICA_TRACKING_ID).isPresent());
+    }
+
+    @DisplayName("When a tracking request is not replicated yet, " +
+            "Then verify its lookup is read again from the primary.")
+    @Test
+    void whenTrackingRequestIsNotReplicatedThenVerifyLookupFallsBackToThePrimary() {
+        TrackingRequest trackingRequest = new TrackingRequest();
+        trackingRequest.setTrackingId(PRIMARY_TRACKING_ID);
+        trackingRequest.setProvider(ProviderEnum.USPS.toValue());
+        trackingRequest.setOperation(OperationEnum.TRACK_DELIVERY);
+        trackingRequest.setStatus("InTransit");
+        trackingRequestRepository.save(trackingRequest);
+        replicateHeartbeat(System.currentTimeMillis());
+
+        replicaLagGuard.check();
+
+        assertTrue(replicaLagGuard.isReplicaUsable());
+        assertFalse(trackingRequestRepository.findByTrackingId(PRIMARY_TRACKING_ID).isPresent());
+        assertTrue(trackingRequestArchiveService.findByTrackingId(PRIMARY_TRACKING_ID).isPresent());
+    }
+
+    private void replicateHeartbeat(long beatAt) {
+        replicaJdbcTemplate.update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1", beatAt);
+    }
+}
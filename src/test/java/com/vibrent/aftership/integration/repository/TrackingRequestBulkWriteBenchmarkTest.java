@@ -0,0 +1,136 @@
+package com.vibrent.aftership.integration.repository;
+
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.integration.IntegrationTestBase;
+import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.vxp.workflow.OperationEnum;
+import com.vibrent.vxp.workflow.ProviderEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ids of tracking requests come from the id allocation table, so bulk inserts and updates are sent in JDBC batches.
+ * The benchmark only runs with {@code -Dbenchmark=true}, it compares unbatched writes, the round trip per row the
+ * IDENTITY ids caused before, with the configured batch size and logs the throughput of both and their ratio.
+ */
+@Slf4j
+class TrackingRequestBulkWriteBenchmarkTest extends IntegrationTestBase {
+
+    private static final int BENCHMARK_ROWS = 2000;
+
+    @Autowired
+    private TrackingRequestRepository trackingRequestRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DisplayName("When tracking requests are saved together, " +
+            "Then verify their ids are allocated from the id allocation table.")
+    @Test
+    void whenSavedTogetherThenVerifyIdsAreAllocatedInBlocks() {
+        List<TrackingRequest> saved = new ArrayList<>();
+        trackingRequestRepository.saveAll(trackingRequests(3)).forEach(saved::add);
+        try {
+            assertEquals(saved.get(0).getId() + 1, saved.get(1).getId());
+            assertEquals(saved.get(1).getId() + 1, saved.get(2).getId());
+            Long nextVal = jdbcTemplate.queryForObject("SELECT next_val FROM id_allocation WHERE sequence_name = 'tracking_request'", Long.class);
+            assertNotNull(nextVal);
+            assertTrue(nextVal > saved.get(2).getId());
+        } finally {
+            trackingRequestRepository.deleteAll(saved);
+        }
+    }
+
+    @DisplayName("When the bulk write benchmark runs, " +
+            "Then verify batched inserts and updates write every row and log the throughput of both.")
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkBulkWrites() {
+        // warm up the connection pool, the statement caches and the id allocation
+        run(1);
+        run(50);
+
+        long[] unbatched = run(1);
+        long[] batched = run(50);
+
+        log.info("Aftership | Bulk write benchmark of {} tracking requests, inserts/s unbatched: {} batched: {} ({}x), updates/s unbatched: {} batched: {} ({}x)",
+                BENCHMARK_ROWS, perSecond(unbatched[0]), perSecond(batched[0]), speedup(unbatched[0], batched[0]),
+                perSecond(unbatched[1]), perSecond(batched[1]), speedup(unbatched[1], batched[1]));
+    }
+
+    // Inserts and then updates the benchmark rows with the JDBC batch size, returns both durations in nanos, the update
+    // includes the query loading the rows
+    private long[] run(int batchSize) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<TrackingRequest> trackingRequests = trackingRequests(BENCHMARK_ROWS);
+        String trackingIdPattern = trackingRequests.get(0).getTrackingId().substring(0, 14) + "%";
+
+        long insertNanos = timed(transactionTemplate, batchSize, session -> trackingRequests.forEach(session::persist));
+        long updateNanos = timed(transactionTemplate, batchSize, session -> session
+                .createQuery("FROM TrackingRequest t WHERE t.trackingId LIKE :pattern", TrackingRequest.class)
+                .setParameter("pattern", trackingIdPattern)
+                .getResultList()
+                .forEach(trackingRequest -> trackingRequest.setStatus("InTransit")));
+
+        assertEquals(BENCHMARK_ROWS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tracking_request WHERE status = 'InTransit' AND tracking_id LIKE ?",
+                Long.class, trackingIdPattern));
+        jdbcTemplate.update("DELETE FROM tracking_request WHERE tracking_id LIKE ?", trackingIdPattern);
+        return new long[]{insertNanos, updateNanos};
+    }
+
+    private long timed(TransactionTemplate transactionTemplate, int batchSize, Consumer<Session> work) {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            session.setJdbcBatchSize(batchSize);
+            work.accept(session);
+            session.flush();
+            session.clear();
+        });
+        return System.nanoTime() - start;
+    }
+
+    private static long perSecond(long nanos) {
+        return BENCHMARK_ROWS * 1_000_000_000L / Math.max(1, nanos);
+    }
+
+    private static String speedup(long unbatchedNanos, long batchedNanos) {
+        return String.format("%.1f", (double) unbatchedNanos / Math.max(1, batchedNanos));
+    }
+
+    private static List<TrackingRequest> trackingRequests(int count) {
+        // 14 character prefix shared by the rows of a run
+        String prefix = "BULK_" + UUID.randomUUID().toString().substring(0, 8) + "_";
+        List<TrackingRequest> trackingRequests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TrackingRequest trackingRequest = new TrackingRequest();
+            trackingRequest.setTrackingId(prefix + i);
+            trackingRequest.setOperation(OperationEnum.TRACK_DELIVERY);
+            trackingRequest.setProvider(ProviderEnum.USPS.toValue());
+            trackingRequest.setStatus("Pending");
+            trackingRequests.add(trackingRequest);
+        }
+        return trackingRequests;
+    }
+}
@@ -0,0 +1,122 @@
+package com.vibrent.aftership.integration.routing;
+
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.integration.IntegrationTestBase;
+import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.routing.DeferredStatusWriter;
+import com.vibrent.vxp.workflow.OperationEnum;
+import com.vibrent.vxp.workflow.ProviderEnum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional, updates are committed by the writer thread
+@TestPropertySource(properties = "afterShip.routingToken.enabled=true")
+class DeferredStatusWriterTest extends IntegrationTestBase {
+
+    private static final String CHANGED_TRACKING_ID = "DEFERRED_STATUS_1";
+    private static final String UNCHANGED_TRACKING_ID = "DEFERRED_STATUS_2";
+    private static final String MISSING_TRACKING_ID = "DEFERRED_STATUS_3";
+    private static final String DELIVERED_TRACKING_ID = "DEFERRED_STATUS_4";
+    private static final String SUB_STATUS_TRACKING_ID = "DEFERRED_STATUS_5";
+    private static final long FINGERPRINT = 11L;
+
+    @Autowired
+    private DeferredStatusWriter deferredStatusWriter;
+
+    @Autowired
+    private TrackingRequestRepository trackingRequestRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        for (String trackingId : List.of(CHANGED_TRACKING_ID, UNCHANGED_TRACKING_ID, DELIVERED_TRACKING_ID, SUB_STATUS_TRACKING_ID)) {
+            trackingRequestRepository.findByTrackingId(trackingId).ifPresent(trackingRequestRepository::delete);
+        }
+    }
+
+    @DisplayName("When routed status updates are queued, " +
+            "Then verify a status change is stored and answered once, a sub status change runs its own callback, " +
+            "an unchanged tracking request is not written, an event older than the stored status change is ignored and an unknown one falls back.")
+    @Test
+    void whenRoutedUpdatesAreQueuedThenVerifyStatusChangesDecideTheResponses() throws InterruptedException {
+        saveTrackingRequest(CHANGED_TRACKING_ID, "InfoReceived", null);
+        Long unchangedUpdatedOn = saveTrackingRequest(UNCHANGED_TRACKING_ID, "InTransit", FINGERPRINT).getUpdatedOn();
+        saveTrackingRequest(DELIVERED_TRACKING_ID, "Delivered", null);
+        TrackingRequest outOfOrder = update(DELIVERED_TRACKING_ID, "InTransit", 1L);
+        outOfOrder.setLastEventAt(System.currentTimeMillis() - 120_000);
+        saveTrackingRequest(SUB_STATUS_TRACKING_ID, "InTransit", null);
+        jdbcTemplate.update("UPDATE tracking_request SET sub_status_code = 'InTransit_001' WHERE tracking_id = ?", SUB_STATUS_TRACKING_ID);
+        TrackingRequest subStatusChange = update(SUB_STATUS_TRACKING_ID, "InTransit", 1L);
+        subStatusChange.setSubStatusCode("InTransit_002");
+        AtomicInteger responses = new AtomicInteger();
+        AtomicInteger subStatusResponses = new AtomicInteger();
+        AtomicInteger fallbacks = new AtomicInteger();
+        CountDownLatch written = new CountDownLatch(1);
+
+        // The same webhook twice, of repeated webhooks only the first changes the status
+        assertTrue(deferredStatusWriter.enqueue(update(CHANGED_TRACKING_ID, "InTransit", 1L), responses::incrementAndGet, subStatusResponses::incrementAndGet, fallbacks::incrementAndGet));
+        assertTrue(deferredStatusWriter.enqueue(update(CHANGED_TRACKING_ID, "InTransit", 1L), responses::incrementAndGet, subStatusResponses::incrementAndGet, fallbacks::incrementAndGet));
+        assertTrue(deferredStatusWriter.enqueue(update(UNCHANGED_TRACKING_ID, "InTransit", FINGERPRINT), responses::incrementAndGet, subStatusResponses::incrementAndGet, fallbacks::incrementAndGet));
+        assertTrue(deferredStatusWriter.enqueue(outOfOrder, responses::incrementAndGet, subStatusResponses::incrementAndGet, fallbacks::incrementAndGet));
+        // Same tag as stored, the response of the tag is not sent again
+        assertTrue(deferredStatusWriter.enqueue(subStatusChange, responses::incrementAndGet, subStatusResponses::incrementAndGet, fallbacks::incrementAndGet));
+        // Queued last, its fallback runs once all updates before it are written
+        assertTrue(deferredStatusWriter.enqueue(update(MISSING_TRACKING_ID, "InTransit", 1L), responses::incrementAndGet, subStatusResponses::incrementAndGet, written::countDown));
+
+        assertTrue(written.await(30, TimeUnit.SECONDS));
+        assertEquals(1, responses.get());
+        assertEquals(1, subStatusResponses.get());
+        assertEquals(0, fallbacks.get());
+        TrackingRequest changed = trackingRequestRepository.findByTrackingId(CHANGED_TRACKING_ID).orElseThrow();
+        assertEquals("InTransit", changed.getStatus());
+        assertEquals(1L, (long) changed.getFingerprint());
+        assertEquals("usps", changed.getSlug());
+        // Written by a statement, the Envers revision of the status change is recorded explicitly
+        assertEquals("InTransit", jdbcTemplate.queryForObject("SELECT status FROM tracking_request_aud WHERE id = ? AND revtype = 1 ORDER BY rev DESC LIMIT 1",
+                String.class, changed.getId()));
+        TrackingRequest unchanged = trackingRequestRepository.findByTrackingId(UNCHANGED_TRACKING_ID).orElseThrow();
+        assertEquals(unchangedUpdatedOn, unchanged.getUpdatedOn());
+        assertEquals("Delivered", trackingRequestRepository.findByTrackingId(DELIVERED_TRACKING_ID).orElseThrow().getStatus());
+        assertEquals("InTransit_002", trackingRequestRepository.findByTrackingId(SUB_STATUS_TRACKING_ID).orElseThrow().getSubStatusCode());
+    }
+
+    private TrackingRequest saveTrackingRequest(String trackingId, String status, Long fingerprint) {
+        TrackingRequest trackingRequest = new TrackingRequest();
+        trackingRequest.setTrackingId(trackingId);
+        trackingRequest.setProvider(ProviderEnum.USPS.toValue());
+        trackingRequest.setOperation(OperationEnum.TRACK_DELIVERY);
+        trackingRequest.setStatus(status);
+        trackingRequest.setSlug("usps");
+        trackingRequest.setFingerprint(fingerprint);
+        trackingRequest.setLastEventAt(System.currentTimeMillis() - 60_000);
+        trackingRequest.setUpdatedOn(System.currentTimeMillis() - 60_000);
+        return trackingRequestRepository.save(trackingRequest);
+    }
+
+    private static TrackingRequest update(String trackingId, String status, long fingerprint) {
+        long now = System.currentTimeMillis();
+        TrackingRequest updated = new TrackingRequest();
+        updated.setTrackingId(trackingId);
+        updated.setStatus(status);
+        updated.setCarrierResponse("{}");
+        updated.setCarrierResponseType("NOTIFICATION");
+        updated.setLastEventAt(now);
+        updated.setNextPollAt(now + 60_000);
+        updated.setFingerprint(fingerprint);
+        updated.setUpdatedOn(now);
+        return updated;
+    }
+}
@@ -0,0 +1,89 @@
+package com.vibrent.aftership.integration.scheduling;
+
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.integration.IntegrationTestBase;
+import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.scheduling.ArchiveTrackingJob;
+import com.vibrent.aftership.service.TrackingRequestArchiveService;
+import com.vibrent.vxp.workflow.OperationEnum;
+import com.vibrent.vxp.workflow.ProviderEnum;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.quartz.JobExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Transactional
+class ArchiveTrackingJobTest extends IntegrationTestBase {
+
+    private static final String DELIVERED_TRACKING_ID = "ARCHIVE_DELIVERED_1";
+    private static final String IN_TRANSIT_TRACKING_ID = "ARCHIVE_IN_TRANSIT_1";
+
+    @Autowired
+    private TrackingRequestRepository trackingRequestRepository;
+
+    @Autowired
+    private TrackingRequestArchiveService trackingRequestArchiveService;
+
+    @Mock
+    private JobExecutionContext context;
+
+    @DisplayName("When tracking requests are archived, " +
+            "Then verify only the ones in a terminal status move to the archive.")
+    @Test
+    void whenArchivedThenVerifyOnlyTerminalTrackingRequestsAreMoved() {
+        saveTrackingRequest(DELIVERED_TRACKING_ID, "Delivered");
+        saveTrackingRequest(IN_TRANSIT_TRACKING_ID, "InTransit");
+
+        long archived = trackingRequestArchiveService.archive(System.currentTimeMillis() + 60_000);
+
+        assertEquals(1, archived);
+        assertFalse(trackingRequestRepository.findByTrackingId(DELIVERED_TRACKING_ID).isPresent());
+        assertTrue(trackingRequestArchiveService.isArchived(DELIVERED_TRACKING_ID));
+        assertTrue(trackingRequestRepository.findByTrackingId(IN_TRANSIT_TRACKING_ID).isPresent());
+        assertFalse(trackingRequestArchiveService.isArchived(IN_TRANSIT_TRACKING_ID));
+    }
+
+    @DisplayName("When an archived tracking request is looked up, " +
+            "Then verify it is restored with its id and removed from the archive.")
+    @Test
+    void whenArchivedTrackingRequestIsLookedUpThenVerifyItIsRestored() {
+        Long id = saveTrackingRequest(DELIVERED_TRACKING_ID, "Delivered").getId();
+        trackingRequestArchiveService.archive(System.currentTimeMillis() + 60_000);
+
+        TrackingRequest restored = trackingRequestArchiveService.findByTrackingId(DELIVERED_TRACKING_ID).orElse(null);
+
+        assertNotNull(restored);
+        assertEquals(id, restored.getId());
+        assertEquals("Delivered", restored.getStatus());
+        assertFalse(trackingRequestArchiveService.isArchived(DELIVERED_TRACKING_ID));
+        assertFalse(trackingRequestArchiveService.findByTrackingId("ARCHIVE_UNKNOWN_1").isPresent());
+    }
+
+    @DisplayName("When Archive Tracking Job executed, " +
+            "Then verify recently updated tracking requests are not archived.")
+    @Test
+    void whenJobExecutesThenVerifyRecentTrackingRequestsAreKept() throws Exception {
+        saveTrackingRequest(DELIVERED_TRACKING_ID, "Delivered");
+
+        new ArchiveTrackingJob(trackingRequestArchiveService, Duration.ofDays(90)).execute(context);
+
+        assertTrue(trackingRequestRepository.findByTrackingId(DELIVERED_TRACKING_ID).isPresent());
+        assertFalse(trackingRequestArchiveService.isArchived(DELIVERED_TRACKING_ID));
+    }
+
+    private TrackingRequest saveTrackingRequest(String trackingId, String status) {
+        TrackingRequest trackingRequest = new TrackingRequest();
+        trackingRequest.setTrackingId(trackingId);
+        trackingRequest.setProvider(ProviderEnum.USPS.toValue());
+        trackingRequest.setOperation(OperationEnum.TRACK_DELIVERY);
+        trackingRequest.setStatus(status);
+        trackingRequest.setSlug("usps");
+        return trackingRequestRepository.save(trackingRequest);
+    }
+}
@@ -0,0 +1,102 @@
+package com.vibrent.aftership.integration.scheduling;
+
+import com.vibrent.aftership.dto.AuditPartitionDTO;
+import com.vibrent.aftership.integration.IntegrationTestBase;
+import com.vibrent.aftership.repository.AuditPartitionRepository;
+import com.vibrent.aftership.scheduling.AuditRetentionJob;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.quartz.JobExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional, partitions are changed by DDL statements which commit on their own
+class AuditRetentionJobTest extends IntegrationTestBase {
+
+    @Autowired
+    private AuditPartitionRepository auditPartitionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private JobExecutionContext context;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @DisplayName("When Audit Retention Job executed and pruning is disabled, " +
+            "Then verify partitions are added ahead of the newest revision, the last partition stays empty and revisions are kept.")
+    @Test
+    void whenPruningIsDisabledThenVerifyPartitionsAreAddedAheadAndKept() throws Exception {
+        long rev = insertRevision(System.currentTimeMillis());
+
+        new AuditRetentionJob(auditPartitionRepository, false, Duration.ofDays(1), meterRegistry).execute(context);
+
+        for (String table : List.of("tracking_request_aud", "tracking_request_error_aud", "revinfo")) {
+            List<AuditPartitionDTO> partitions = auditPartitionRepository.findPartitions(table);
+            assertEquals(AuditPartitionRepository.MAX_PARTITION, partitions.get(partitions.size() - 1).getName());
+            assertTrue(highestBound(partitions) > rev + 1, table);
+        }
+        assertEquals(0, countMaxPartitionRevisions());
+        assertEquals(1, countRevision(rev));
+        assertTrue(meterRegistry.get("afterShip.audit.table.bytes").tag("table", "revinfo").gauge().value() > 0);
+
+        // Revisions written since land in the partitions ahead, p_max stays empty for the next run
+        long next = insertRevision(System.currentTimeMillis());
+        new AuditRetentionJob(auditPartitionRepository, false, Duration.ofDays(1), meterRegistry).execute(context);
+        assertEquals(0, countMaxPartitionRevisions());
+        assertEquals(1, countRevision(next));
+    }
+
+    @DisplayName("When Audit Retention Job executed and a partition is older than the retention, " +
+            "Then verify the partition is dropped in every table.")
+    @Test
+    void whenPartitionIsExpiredThenVerifyPartitionIsDropped() throws Exception {
+        new AuditRetentionJob(auditPartitionRepository, false, Duration.ofDays(1), meterRegistry).execute(context);
+        // The newest revision of the highest range partition is older than the retention
+        long bound = highestBound(auditPartitionRepository.findPartitions("revinfo"));
+        long rev = bound - 1;
+        jdbcTemplate.update("INSERT INTO revinfo (rev, revtstmp) VALUES (?, ?)", rev, System.currentTimeMillis() - Duration.ofDays(2).toMillis());
+
+        new AuditRetentionJob(auditPartitionRepository, true, Duration.ofDays(1), meterRegistry).execute(context);
+
+        for (String table : List.of("tracking_request_aud", "tracking_request_error_aud", "revinfo")) {
+            assertTrue(auditPartitionRepository.findPartitions(table).stream().noneMatch(p -> p.getBound() != null && p.getBound() <= bound), table);
+            assertTrue(meterRegistry.get("afterShip.audit.partitionsDropped").tag("table", table).counter().count() >= 1, table);
+        }
+        assertEquals(0, countRevision(rev));
+        assertEquals(0, countMaxPartitionRevisions());
+    }
+
+    private static long highestBound(List<AuditPartitionDTO> partitions) {
+        return partitions.stream().filter(p -> p.getBound() != null).mapToLong(AuditPartitionDTO::getBound).max().orElse(0);
+    }
+
+    private long countMaxPartitionRevisions() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM revinfo PARTITION (" + AuditPartitionRepository.MAX_PARTITION + ")", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private long insertRevision(long revisionTimestamp) {
+        jdbcTemplate.update("INSERT INTO revinfo (revtstmp) VALUES (?)", revisionTimestamp);
+        return auditPartitionRepository.getMaxRevision();
+    }
+
+    private long countRevision(long rev) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM revinfo WHERE rev = ?", Long.class, rev);
+        return count == null ? 0 : count;
+    }
+}
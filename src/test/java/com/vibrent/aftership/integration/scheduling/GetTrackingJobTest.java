@@ -11,33 +11,51 @@ import com.aftership.sdk.exception.RequestException;
 import com.aftership.sdk.exception.SdkException;
 import com.aftership.sdk.model.tracking.SlugTrackingNumber;
 import com.aftership.sdk.model.tracking.Tracking;
+import com.vibrent.aftership.domain.PollRunCheckpoint;
 import com.vibrent.aftership.domain.TrackingRequest;
 import com.vibrent.aftership.enums.CarrierResponseType;
+import com.vibrent.aftership.enums.PollRunStatus;
 import com.vibrent.aftership.integration.IntegrationTestBase;
 import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.repository.projection.TrackingRequestPollView;
+import com.vibrent.aftership.resiliency.AdaptiveConcurrencyLimiter;
+import com.vibrent.aftership.resiliency.HedgedRequestExecutor;
+import com.vibrent.aftership.scheduling.ChunkedKeysetScanner;
 import com.vibrent.aftership.scheduling.GetTrackingJob;
+import com.vibrent.aftership.scheduling.NextPollCalculator;
+import com.vibrent.aftership.scheduling.PollShardScheduler;
+import com.vibrent.aftership.scheduling.TrackingRefreshExecutor;
 import com.vibrent.aftership.service.ExternalLogService;
 import com.vibrent.aftership.service.NotificationProcessService;
+import com.vibrent.aftership.service.PollRunService;
+import com.vibrent.aftership.service.TrackingRefreshService;
+import com.vibrent.aftership.service.impl.TrackingRefreshServiceImpl;
 import com.vibrent.vxp.workflow.OperationEnum;
 import com.vibrent.vxp.workflow.ProviderEnum;
 import com.vibrent.vxp.workflow.StatusEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.kafka.test.TestUtils;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
+import org.quartz.JobDataMap;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Stream;
+import java.util.Optional;
 
 import static com.vibrent.aftership.constants.AfterShipConstants.TAG_DELIVERED;
 import static com.vibrent.aftership.constants.AfterShipConstants.TAG_EXCEPTION;
@@ -66,10 +84,18 @@ class GetTrackingJobTest extends IntegrationTestBase {
     @Mock
     private NotificationProcessService notificationProcessService;
 
-    private Integer fetchTrackingBeforeDays = 3;
+    private int batchSize = 1000;
 
     GetTrackingJob getTrackingJob;
 
+    private TrackingRefreshExecutor trackingRefreshExecutor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ChunkedKeysetScanner chunkedKeysetScanner;
+
     private TrackingRequest trackingRequest;
 
     @Mock
@@ -78,6 +104,9 @@ class GetTrackingJobTest extends IntegrationTestBase {
     @Mock
     JobExecutionContext context;
 
+    @Mock
+    private PollRunService pollRunService;
+
     private Tracking tracking;
 
     private SlugTrackingNumber slugTrackingNumber;
@@ -92,7 +121,19 @@ class GetTrackingJobTest extends IntegrationTestBase {
         initializeExcludeStatusList();
         afterShip = new AfterShip("key");
         TestUtils.setFieldValue(afterShip, "trackingEndpoint", trackingEndpoint);
-        getTrackingJob = new GetTrackingJob(afterShip, trackingRequestRepository, notificationProcessService, externalLogService, fetchTrackingBeforeDays, excludeStatus);
+        TrackingRefreshService trackingRefreshService = new TrackingRefreshServiceImpl(afterShip, trackingRequestRepository, notificationProcessService, externalLogService,
+                new HedgedRequestExecutor(false, Duration.ofMillis(500), Duration.ofSeconds(15),
+                        new AdaptiveConcurrencyLimiter(false, 10, 1, 50, 100, Duration.ofSeconds(30), new SimpleMeterRegistry()), new SimpleMeterRegistry()),
+                new NextPollCalculator(Duration.ofHours(2), 3, 0.2, excludeStatus), transactionManager);
+        trackingRefreshExecutor = new TrackingRefreshExecutor(trackingRefreshService, 2, 100, new SimpleMeterRegistry());
+        getTrackingJob = new GetTrackingJob(trackingRequestRepository, trackingRefreshExecutor, new PollShardScheduler(1, 1), chunkedKeysetScanner, pollRunService, batchSize, excludeStatus);
+        when(trackingRequestRepository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(trackingRequest));
+        when(pollRunService.startShard(anyLong(), anyInt(), anyInt())).thenReturn(checkpoint(PollRunStatus.PENDING, 0L, 0L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        trackingRefreshExecutor.shutdown();
     }
 
     @DisplayName("When Get Tracking Job executed and carrier response type is tracking, " +
@@ -103,10 +144,12 @@ class GetTrackingJobTest extends IntegrationTestBase {
         TrackingRequest trackingRequest = initializeTrackingRequest(CarrierResponseType.TRACKING.toString(), trackingCarrierResponse);
         String slugFromCarrierResponse = GetTrackingJob.getSlugFromCarrierResponse(trackingRequest.getCarrierResponse(), CarrierResponseType.TRACKING.toString());
         slugTrackingNumber = new SlugTrackingNumber(slugFromCarrierResponse, trackingRequest.getTrackingId());
-        when(trackingRequestRepository.findAllByStatusNotInAndUpdatedOnLessThan(anyList(), anyLong())).thenReturn(Stream.of(trackingRequest));
+        when(trackingRequestRepository.findEligibleForPolling(anyLong(), anyList(), anyLong(), eq(0L), eq(1L), any())).thenReturn(List.of(pollView(trackingRequest)));
         when(trackingEndpoint.getTracking(slugTrackingNumber, null)).thenReturn(tracking);
         getTrackingJob.execute(context);
         verify(notificationProcessService, times(1)).process(any(Tracking.class), any(TrackingRequest.class));
+        // the next poll is stored with the status change
+        verify(trackingRequestRepository, never()).updateNextPollAt(any(), any());
         verify(externalLogService, times(1)).send(slugTrackingNumberArgumentCaptor.capture(), any(Tracking.class), anyLong(), anyString(), anyInt());
         SlugTrackingNumber value = slugTrackingNumberArgumentCaptor.getValue();
         assertEquals("usps-api", value.getSlug());
@@ -120,7 +163,7 @@ class GetTrackingJobTest extends IntegrationTestBase {
         TrackingRequest trackingRequest = initializeTrackingRequest(CarrierResponseType.NOTIFICATION.toString(), notificationCarrierResponse);
         String slugFromCarrierResponse = GetTrackingJob.getSlugFromCarrierResponse(trackingRequest.getCarrierResponse(), CarrierResponseType.NOTIFICATION.toString());
         slugTrackingNumber = new SlugTrackingNumber(slugFromCarrierResponse, trackingRequest.getTrackingId());
-        when(trackingRequestRepository.findAllByStatusNotInAndUpdatedOnLessThan(anyList(), anyLong())).thenReturn(Stream.of(trackingRequest));
+        when(trackingRequestRepository.findEligibleForPolling(anyLong(), anyList(), anyLong(), eq(0L), eq(1L), any())).thenReturn(List.of(pollView(trackingRequest)));
         when(trackingEndpoint.getTracking(slugTrackingNumber, null)).thenReturn(tracking);
         getTrackingJob.execute(context);
         verify(notificationProcessService, times(1)).process(any(Tracking.class), any(TrackingRequest.class));
@@ -129,13 +172,40 @@ class GetTrackingJobTest extends IntegrationTestBase {
         assertEquals("dhl", value.getSlug());
     }
 
+    @DisplayName("When Get Tracking Job executed and the slug column is set, " +
+            "Then verify the slug column is used without reading the carrier response.")
+    @Test
+    void whenJobExecutesAndSlugColumnIsSetThenVerifyCarrierResponseIsNotRead() throws Exception {
+        initializeTracking();
+        TrackingRequest trackingRequest = initializeTrackingRequest(CarrierResponseType.TRACKING.toString(), invalidCarrierResponse);
+        trackingRequest.setSlug("fedex");
+        when(trackingRequestRepository.findEligibleForPolling(anyLong(), anyList(), anyLong(), eq(0L), eq(1L), any())).thenReturn(List.of(pollView(trackingRequest)));
+        when(trackingEndpoint.getTracking(new SlugTrackingNumber("fedex", trackingRequest.getTrackingId()), null)).thenReturn(tracking);
+        getTrackingJob.execute(context);
+        verify(notificationProcessService, times(1)).process(any(Tracking.class), any(TrackingRequest.class));
+        verify(externalLogService, times(1)).send(slugTrackingNumberArgumentCaptor.capture(), any(Tracking.class), anyLong(), anyString(), anyInt());
+        assertEquals("fedex", slugTrackingNumberArgumentCaptor.getValue().getSlug());
+    }
+
+    @DisplayName("When Get Tracking Job executed and the slug column is not set, " +
+            "Then verify the slug resolved from the carrier response is stored on the tracking request.")
+    @Test
+    void whenJobExecutesAndSlugColumnIsNotSetThenVerifySlugIsStored() throws Exception {
+        initializeTracking();
+        TrackingRequest trackingRequest = initializeTrackingRequest(CarrierResponseType.NOTIFICATION.toString(), notificationCarrierResponse);
+        when(trackingRequestRepository.findEligibleForPolling(anyLong(), anyList(), anyLong(), eq(0L), eq(1L), any())).thenReturn(List.of(pollView(trackingRequest)));
+        when(trackingEndpoint.getTracking(new SlugTrackingNumber("dhl", trackingRequest.getTrackingId()), null)).thenReturn(tracking);
+        getTrackingJob.execute(context);
+        assertEquals("dhl", trackingRequest.getSlug());
+    }
+
     @DisplayName("When Get Tracking Job executed, " +
             "And carrier response does not contains slug" +
             "Then verify tracking request not sent.")
     @Test
     void whenJobExecutesAndSlugValueNotPresentThenVerifyLatestTrackingIsNotFetched() throws JobExecutionException {
         initializeTracking();
-        when(trackingRequestRepository.findAllByStatusNotInAndUpdatedOnLessThan(anyList(), anyLong())).thenReturn(Stream.of(initializeTrackingRequest("someInvalidType", withoutSlug)));
+        when(trackingRequestRepository.findEligibleForPolling(anyLong(), anyList(), anyLong(), eq(0L), eq(1L), any())).thenReturn(List.of(pollView(initializeTrackingRequest("someInvalidType", withoutSlug))));
         ListAppender<ILoggingEvent> listAppender = new ListAppender<>();
         Logger logger = (Logger) LoggerFactory.getLogger(GetTrackingJob.class);
         logger.addAppender(listAppender);
@@ -154,7 +224,7 @@ class GetTrackingJobTest extends IntegrationTestBase {
     @Test
     void whenJobExecutesAndCarrierResponseIsNullNotPresentThenVerifyLatestTrackingIsNotFetched() throws JobExecutionException {
         initializeTracking();
-        when(trackingRequestRepository.findAllByStatusNotInAndUpdatedOnLessThan(anyList(), anyLong())).thenReturn(Stream.of(initializeTrackingRequest("someInvalidType", null)));
+        when(trackingRequestRepository.findEligibleForPolling(anyLong(), anyList(), anyLong(), eq(0L), eq(1L), any())).thenReturn(List.of(pollView(initializeTrackingRequest("someInvalidType", null))));
         ListAppender<ILoggingEvent> listAppender = new ListAppender<>();
         Logger logger = (Logger) LoggerFactory.getLogger(GetTrackingJob.class);
         logger.addAppender(listAppender);
@@ -173,7 +243,7 @@ class GetTrackingJobTest extends IntegrationTestBase {
     @Test
     void whenJobExecutesAndCarrierResponseInInvalidThenVerifyLatestTrackingIsNotFetched() throws JobExecutionException {
         initializeTracking();
-        when(trackingRequestRepository.findAllByStatusNotInAndUpdatedOnLessThan(anyList(), anyLong())).thenReturn(Stream.of(initializeTrackingRequest(CarrierResponseType.TRACKING.toString(), invalidCarrierResponse)));
+        when(trackingRequestRepository.findEligibleForPolling(anyLong(), anyList(), anyLong(), eq(0L), eq(1L), any())).thenReturn(List.of(pollView(initializeTrackingRequest(CarrierResponseType.TRACKING.toString(), invalidCarrierResponse))));
         ListAppender<ILoggingEvent> listAppender = new ListAppender<>();
         Logger logger = (Logger) LoggerFactory.getLogger(GetTrackingJob.class);
         logger.addAppender(listAppender);
@@ -195,13 +265,84 @@ class GetTrackingJobTest extends IntegrationTestBase {
     void whenJobExecutesAndExceptionEncountersThenVerifyEventLogToExternalLog() throws JobExecutionException, RequestException, ApiException, SdkException {
         initializeTracking();
         slugTrackingNumber = new SlugTrackingNumber("USPS", "123456789");
-        when(trackingRequestRepository.findAllByStatusNotInAndUpdatedOnLessThan(anyList(), anyLong())).thenReturn(Stream.of(initializeTrackingRequest(CarrierResponseType.TRACKING.toString(), trackingCarrierResponse)));
+        when(trackingRequestRepository.findEligibleForPolling(anyLong(), anyList(), anyLong(), eq(0L), eq(1L), any())).thenReturn(List.of(pollView(initializeTrackingRequest(CarrierResponseType.TRACKING.toString(), trackingCarrierResponse))));
         when(trackingEndpoint.getTracking(slugTrackingNumber, null)).thenThrow(new RuntimeException());
         getTrackingJob.execute(context);
         verify(notificationProcessService, times(0)).process(any(Tracking.class), any(TrackingRequest.class));
         verify(externalLogService, times(1)).send(anyString(),anyString(), anyLong(), anyString(), anyInt());
     }
     
+    @DisplayName("When Get Tracking Job executed for a shard, " +
+            "Then verify only the tracking requests of that shard are fetched.")
+    @Test
+    void whenJobExecutesForShardThenVerifyOnlyShardIsFetched() throws Exception {
+        initializeTracking();
+        TrackingRequest trackingRequest = initializeTrackingRequest(CarrierResponseType.TRACKING.toString(), trackingCarrierResponse);
+        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap.put(PollShardScheduler.SHARD_INDEX, 1);
+        jobDataMap.put(PollShardScheduler.SHARD_COUNT, 4);
+        when(context.getMergedJobDataMap()).thenReturn(jobDataMap);
+        when(trackingRequestRepository.findEligibleForPolling(anyLong(), anyList(), anyLong(), eq(1L), eq(4L), any())).thenReturn(List.of(pollView(trackingRequest)));
+        when(trackingEndpoint.getTracking(new SlugTrackingNumber("usps-api", trackingRequest.getTrackingId()), null)).thenReturn(tracking);
+
+        new GetTrackingJob(trackingRequestRepository, trackingRefreshExecutor, new PollShardScheduler(4, 1), chunkedKeysetScanner, pollRunService, batchSize, excludeStatus)
+                .execute(context);
+
+        verify(trackingRequestRepository, never()).findEligibleForPolling(anyLong(), anyList(), anyLong(), eq(0L), eq(1L), any());
+        verify(notificationProcessService, times(1)).process(any(Tracking.class), any(TrackingRequest.class));
+    }
+
+    @DisplayName("When Get Tracking Job executes a run that was interrupted, " +
+            "Then verify the scan resumes after the checkpoint and progress is checkpointed and completed.")
+    @Test
+    void whenRunIsResumedThenVerifyScanContinuesAfterCheckpoint() throws Exception {
+        initializeTracking();
+        TrackingRequest trackingRequest = initializeTrackingRequest(CarrierResponseType.TRACKING.toString(), trackingCarrierResponse);
+        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap.put(PollShardScheduler.RUN_ID, 1760875200000L);
+        when(context.getMergedJobDataMap()).thenReturn(jobDataMap);
+        when(pollRunService.startShard(1760875200000L, 0, 1)).thenReturn(checkpoint(PollRunStatus.RUNNING, 10L, 3L));
+        when(trackingRequestRepository.findEligibleForPolling(eq(10L), anyList(), anyLong(), eq(0L), eq(1L), any())).thenReturn(List.of(pollView(trackingRequest)));
+        when(trackingEndpoint.getTracking(new SlugTrackingNumber("usps-api", trackingRequest.getTrackingId()), null)).thenReturn(tracking);
+
+        getTrackingJob.execute(context);
+
+        verify(notificationProcessService, times(1)).process(any(Tracking.class), any(TrackingRequest.class));
+        verify(pollRunService).checkpoint(1760875200000L, 0, 11L, 4L);
+        verify(pollRunService).completeShard(1760875200000L, 0);
+    }
+
+    @DisplayName("When Get Tracking Job executes a run that already completed, " +
+            "Then verify no tracking is fetched again.")
+    @Test
+    void whenRunIsCompletedThenVerifyNothingIsFetched() throws Exception {
+        when(pollRunService.startShard(anyLong(), anyInt(), anyInt())).thenReturn(checkpoint(PollRunStatus.COMPLETED, 10L, 3L));
+
+        getTrackingJob.execute(context);
+
+        verify(trackingRequestRepository, never()).findEligibleForPolling(anyLong(), anyList(), anyLong(), anyLong(), anyLong(), any());
+        verify(pollRunService, never()).completeShard(anyLong(), anyInt());
+    }
+
+    @DisplayName("When Get Tracking Job executed and the fetched status is unchanged, " +
+            "Then verify only the next poll time is updated without loading the tracking request.")
+    @Test
+    void whenStatusIsUnchangedThenVerifyTrackingRequestIsNotLoaded() throws Exception {
+        initializeTracking();
+        TrackingRequest trackingRequest = initializeTrackingRequest(CarrierResponseType.TRACKING.toString(), trackingCarrierResponse);
+        trackingRequest.setSlug("usps-api");
+        trackingRequest.setStatus("Delivered");
+        when(trackingRequestRepository.findEligibleForPolling(anyLong(), anyList(), anyLong(), eq(0L), eq(1L), any())).thenReturn(List.of(pollView(trackingRequest)));
+        when(trackingRequestRepository.updateNextPollAtAndSlug(any(), any(), any())).thenReturn(1);
+        when(trackingEndpoint.getTracking(new SlugTrackingNumber("usps-api", trackingRequest.getTrackingId()), null)).thenReturn(tracking);
+
+        getTrackingJob.execute(context);
+
+        verify(trackingRequestRepository, never()).findById(any());
+        verify(trackingRequestRepository, times(1)).updateNextPollAtAndSlug(11L, null, "usps-api");
+        verify(notificationProcessService, never()).process(any(Tracking.class), any(TrackingRequest.class));
+    }
+
     @Test
     void testGetSlugFromCarrierResponse() {
         assertEquals("dhl", GetTrackingJob.getSlugFromCarrierResponse(notificationCarrierResponse, CarrierResponseType.NOTIFICATION.toString()));
@@ -212,8 +353,51 @@ class GetTrackingJobTest extends IntegrationTestBase {
 
     }
 
+    private static PollRunCheckpoint checkpoint(PollRunStatus status, long lastId, long processed) {
+        PollRunCheckpoint checkpoint = new PollRunCheckpoint();
+        checkpoint.setStatus(status);
+        checkpoint.setLastId(lastId);
+        checkpoint.setProcessed(processed);
+        return checkpoint;
+    }
+
+    private static TrackingRequestPollView pollView(TrackingRequest trackingRequest) {
+        return new TrackingRequestPollView() {
+            @Override
+            public Long getId() {
+                return trackingRequest.getId();
+            }
+
+            @Override
+            public String getTrackingId() {
+                return trackingRequest.getTrackingId();
+            }
+
+            @Override
+            public String getSlug() {
+                return trackingRequest.getSlug();
+            }
+
+            @Override
+            public String getStatus() {
+                return trackingRequest.getStatus();
+            }
+
+            @Override
+            public Long getLastEventAt() {
+                return trackingRequest.getLastEventAt();
+            }
+
+            @Override
+            public Long getFulfillmentOrderID() {
+                return trackingRequest.getFulfillmentOrderID();
+            }
+        };
+    }
+
     private TrackingRequest initializeTrackingRequest(String carrierResponseType, String carrierResponse) {
         trackingRequest = new TrackingRequest();
+        trackingRequest.setId(11L);
         trackingRequest.setTrackingId("123456789");
         trackingRequest.setProvider(ProviderEnum.USPS.toValue());
         trackingRequest.setOperation(OperationEnum.TRACK_DELIVERY);
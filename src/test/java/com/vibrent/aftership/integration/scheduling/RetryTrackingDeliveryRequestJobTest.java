@@ -6,6 +6,7 @@ import com.vibrent.aftership.dto.RetryRequestDTO;
 import com.vibrent.aftership.integration.IntegrationTestBase;
 import com.vibrent.aftership.messaging.producer.impl.RetryTrackingDeliveryRequestProducer;
 import com.vibrent.aftership.repository.TrackingRequestErrorRepository;
+import com.vibrent.aftership.scheduling.ChunkedKeysetScanner;
 import com.vibrent.aftership.scheduling.RetryTrackingDeliveryRequestJob;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -31,6 +32,9 @@ class RetryTrackingDeliveryRequestJobTest extends IntegrationTestBase {
     @Autowired
     private TrackingRequestErrorRepository trackingRequestErrorRepository;
 
+    @Autowired
+    private ChunkedKeysetScanner chunkedKeysetScanner;
+
     @Mock
     RetryTrackingDeliveryRequestProducer retryTrackingDeliveryRequestProducer;
 
@@ -41,7 +45,7 @@ class RetryTrackingDeliveryRequestJobTest extends IntegrationTestBase {
 
     @BeforeEach
     void setUp() throws Exception {
-        retryTrackingDeliveryRequestJob = new RetryTrackingDeliveryRequestJob(trackingRequestErrorRepository, retryTrackingDeliveryRequestProducer, maxRetryCount);
+        retryTrackingDeliveryRequestJob = new RetryTrackingDeliveryRequestJob(trackingRequestErrorRepository, retryTrackingDeliveryRequestProducer, chunkedKeysetScanner, maxRetryCount);
         saveTrackingRequestError();
     }
 
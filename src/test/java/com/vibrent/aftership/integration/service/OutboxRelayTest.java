@@ -0,0 +1,109 @@
+package com.vibrent.aftership.integration.service;
+
+import com.vibrent.aftership.dto.CacheInvalidationDTO;
+import com.vibrent.aftership.integration.IntegrationTestBase;
+import com.vibrent.aftership.service.OutboxService;
+import com.vibrent.aftership.util.JacksonUtil;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Not transactional, the relay only sees committed messages
+@TestPropertySource(properties = {
+        "afterShip.outbox.enabled=true",
+        "afterShip.outbox.pollInterval=1h"
+})
+class OutboxRelayTest extends IntegrationTestBase {
+
+    private static final String TOPIC = "event.aftership.outbox.test";
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean(name = "outboxKafkaTemplate")
+    private KafkaTemplate<String, byte[]> outboxKafkaTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM outbox_message WHERE topic = ?", TOPIC);
+    }
+
+    @DisplayName("When messages are in the outbox, " +
+            "Then verify they are sent as serialized with one flush and deleted.")
+    @Test
+    void whenMessagesAreRelayedThenVerifyTheyAreSentAndDeleted() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            enqueue("tracking" + i);
+        }
+        when(outboxKafkaTemplate.send(any(ProducerRecord.class))).thenReturn(sendResult(true));
+
+        assertEquals(3, outboxService.relay());
+
+        ArgumentCaptor<ProducerRecord<String, byte[]>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(outboxKafkaTemplate, times(3)).send(records.capture());
+        verify(outboxKafkaTemplate, times(1)).flush();
+        ProducerRecord<String, byte[]> first = records.getAllValues().get(0);
+        assertEquals(TOPIC, first.topic());
+        assertEquals("tracking0", JacksonUtil.getMapper().readValue(first.value(), CacheInvalidationDTO.class).getTrackingId());
+        assertEquals(0, pendingMessages());
+        assertEquals(0, outboxService.relay());
+    }
+
+    @DisplayName("When a message fails to send, " +
+            "Then verify it stays claimed by the relay until its claim expired and is sent again.")
+    @Test
+    void whenSendFailsThenVerifyMessageIsSentAgainAfterItsClaimExpired() {
+        enqueue("tracking0");
+        enqueue("tracking1");
+        when(outboxKafkaTemplate.send(any(ProducerRecord.class))).thenReturn(sendResult(false), sendResult(true));
+
+        assertEquals(2, outboxService.relay());
+        assertEquals(1, pendingMessages());
+        assertEquals(0, outboxService.relay());
+
+        jdbcTemplate.update("UPDATE outbox_message SET claimed_until = ? WHERE topic = ?", System.currentTimeMillis() - 1, TOPIC);
+        when(outboxKafkaTemplate.send(any(ProducerRecord.class))).thenReturn(sendResult(true));
+        assertEquals(1, outboxService.relay());
+        assertEquals(0, pendingMessages());
+    }
+
+    private void enqueue(String trackingId) {
+        outboxService.enqueue(MessageBuilder.withPayload(new CacheInvalidationDTO(trackingId, "node1"))
+                .setHeader(KafkaHeaders.TOPIC, TOPIC).build());
+    }
+
+    private int pendingMessages() {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM outbox_message WHERE topic = ?", Long.class, TOPIC);
+        return ids.size();
+    }
+
+    private static SettableListenableFuture<SendResult<String, byte[]>> sendResult(boolean success) {
+        SettableListenableFuture<SendResult<String, byte[]>> future = new SettableListenableFuture<>();
+        if (success) {
+            future.set(null);
+        } else {
+            future.setException(new IllegalStateException("broker unavailable"));
+        }
+        return future;
+    }
+}
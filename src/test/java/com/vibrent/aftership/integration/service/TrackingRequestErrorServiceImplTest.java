@@ -0,0 +1,123 @@
+package com.vibrent.aftership.integration.service;
+
+import com.vibrent.aftership.domain.TrackingRequestError;
+import com.vibrent.aftership.exception.AfterShipRetriableException;
+import com.vibrent.aftership.integration.IntegrationTestBase;
+import com.vibrent.aftership.repository.TrackingRequestErrorRepository;
+import com.vibrent.aftership.service.TrackingRequestErrorService;
+import com.vibrent.aftership.vo.TrackDeliveryRequestVo;
+import com.vibrent.vxp.workflow.MessageHeaderDto;
+import com.vibrent.vxp.workflow.ProviderEnum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional, errors are committed by the writer thread
+class TrackingRequestErrorServiceImplTest extends IntegrationTestBase {
+
+    private static final String TRACKING_ID_PREFIX = "ERROR_UPSERT_";
+
+    @Autowired
+    private TrackingRequestErrorService trackingRequestErrorService;
+
+    @Autowired
+    private TrackingRequestErrorRepository trackingRequestErrorRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        for (int i = 0; i < 5; i++) {
+            trackingRequestErrorRepository.findByTrackingId(TRACKING_ID_PREFIX + i).ifPresent(trackingRequestErrorRepository::delete);
+        }
+    }
+
+    @DisplayName("When failures of the same tracking ids are recorded concurrently, " +
+            "Then verify one error per tracking id is stored with the retry count of its further failures.")
+    @Test
+    void whenFailuresAreRecordedConcurrentlyThenVerifyRetryCountsAreIncremented() {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<Void>> records = new ArrayList<>();
+            for (int failure = 0; failure < 4; failure++) {
+                for (int i = 0; i < 5; i++) {
+                    TrackDeliveryRequestVo trackDeliveryRequestVo = trackDeliveryRequestVo(TRACKING_ID_PREFIX + i);
+                    records.add(CompletableFuture.runAsync(() -> trackingRequestErrorService.record(trackDeliveryRequestVo,
+                            new MessageHeaderDto(), new AfterShipRetriableException("Service Unavailable", 503)), executor));
+                }
+            }
+            CompletableFuture.allOf(records.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int i = 0; i < 5; i++) {
+            TrackingRequestError trackingRequestError = trackingRequestErrorRepository.findByTrackingId(TRACKING_ID_PREFIX + i).orElseThrow();
+            assertNotNull(trackingRequestError.getId());
+            assertEquals(3, trackingRequestError.getRetryCount());
+            assertEquals(503, trackingRequestError.getErrorCode());
+            assertTrue(trackingRequestError.getTrackDeliveryRequest().contains(TRACKING_ID_PREFIX + i));
+        }
+    }
+
+    @DisplayName("When a failure without an error code is recorded for a tracking id that failed before, " +
+            "Then verify the stored error code is kept and both writes are audited.")
+    @Test
+    void whenFailureHasNoErrorCodeThenVerifyStoredErrorCodeIsKept() {
+        TrackDeliveryRequestVo trackDeliveryRequestVo = trackDeliveryRequestVo(TRACKING_ID_PREFIX + 0);
+
+        trackingRequestErrorService.record(trackDeliveryRequestVo, new MessageHeaderDto(), new AfterShipRetriableException("Service Unavailable", 503));
+        trackingRequestErrorService.record(trackDeliveryRequestVo, new MessageHeaderDto(), new IllegalStateException("CallNotPermitted"));
+
+        TrackingRequestError trackingRequestError = trackingRequestErrorRepository.findByTrackingId(TRACKING_ID_PREFIX + 0).orElseThrow();
+        assertEquals(1, trackingRequestError.getRetryCount());
+        assertEquals(503, trackingRequestError.getErrorCode());
+        // Upserted by a statement, the Envers revisions are recorded explicitly
+        assertEquals(List.of(0, 1), jdbcTemplate.queryForList("SELECT revtype FROM tracking_request_error_aud WHERE id = ? ORDER BY rev",
+                Integer.class, trackingRequestError.getId()));
+    }
+
+    @DisplayName("When an error that cannot be written is recorded together with others, " +
+            "Then verify the other errors are still recorded.")
+    @Test
+    void whenOneErrorCannotBeWrittenThenVerifyTheOthersAreRecorded() {
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<CompletableFuture<Void>> records = new ArrayList<>();
+            // Longer than the tracking id column, fails the batch it is written in
+            TrackDeliveryRequestVo oversized = trackDeliveryRequestVo(TRACKING_ID_PREFIX + "X".repeat(64));
+            records.add(CompletableFuture.runAsync(() -> trackingRequestErrorService.record(oversized,
+                    new MessageHeaderDto(), new AfterShipRetriableException("Service Unavailable", 503)), executor));
+            for (int i = 0; i < 5; i++) {
+                TrackDeliveryRequestVo trackDeliveryRequestVo = trackDeliveryRequestVo(TRACKING_ID_PREFIX + i);
+                records.add(CompletableFuture.runAsync(() -> trackingRequestErrorService.record(trackDeliveryRequestVo,
+                        new MessageHeaderDto(), new AfterShipRetriableException("Service Unavailable", 503)), executor));
+            }
+            CompletableFuture.allOf(records.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(trackingRequestErrorRepository.findByTrackingId(TRACKING_ID_PREFIX + i).isPresent());
+        }
+    }
+
+    private static TrackDeliveryRequestVo trackDeliveryRequestVo(String trackingId) {
+        TrackDeliveryRequestVo trackDeliveryRequestVo = new TrackDeliveryRequestVo();
+        trackDeliveryRequestVo.setTrackingID(trackingId);
+        trackDeliveryRequestVo.setCarrierCode(ProviderEnum.USPS.toValue());
+        return trackDeliveryRequestVo;
+    }
+}
@@ -0,0 +1,147 @@
+package com.vibrent.aftership.integration.simulator;
+
+import com.vibrent.aftership.constants.AfterShipConstants;
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.integration.IntegrationTestBase;
+import com.vibrent.aftership.messaging.producer.impl.TrackingResponseProducer;
+import com.vibrent.aftership.repository.TrackingRequestErrorRepository;
+import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.service.ExternalLogService;
+import com.vibrent.aftership.service.TrackingRequestService;
+import com.vibrent.aftership.simulator.AfterShipSimulator;
+import com.vibrent.aftership.vo.TrackDeliveryRequestVo;
+import com.vibrent.aftership.web.AfterShipCallbackResource;
+import com.vibrent.vxp.workflow.*;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Runs the create tracking and webhook flows against the offline AfterShip simulator instead of a mocked SDK.
+ */
+class AfterShipSimulatorIntegrationTest extends IntegrationTestBase {
+
+    private static final AfterShipSimulator SIMULATOR = startAfterShipSimulator();
+
+    @DynamicPropertySource
+    static void afterShipProperties(DynamicPropertyRegistry registry) {
+        registry.add("afterShip.baseUrl", SIMULATOR::getBaseUrl);
+    }
+
+    @Autowired
+    private TrackingRequestService trackingRequestService;
+
+    @Autowired
+    private TrackingRequestRepository trackingRequestRepository;
+
+    @Autowired
+    private TrackingRequestErrorRepository trackingRequestErrorRepository;
+
+    @Autowired
+    private AfterShipCallbackResource afterShipCallbackResource;
+
+    @MockBean
+    private TrackingResponseProducer trackingResponseProducer;
+
+    @MockBean
+    private ExternalLogService externalLogService;
+
+    @Captor
+    private ArgumentCaptor<TrackDeliveryResponseDtoWrapper> responseDtoWrapperArgumentCaptor;
+
+    @AfterAll
+    static void stopSimulator() {
+        SIMULATOR.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        SIMULATOR.reset();
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(afterShipCallbackResource).build();
+        SIMULATOR.withWebhookSink((body, signature) -> mockMvc.perform(post("/api/aftership/notification")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(AfterShipConstants.HEADER_HMAC_SHA256_V4_4_3, signature)
+                        .content(body))
+                .andReturn().getResponse().getStatus());
+    }
+
+    @SneakyThrows
+    @DisplayName("When a track delivery request is created and AfterShip later reports delivery through a webhook " +
+            "Then verify the tracking request is saved, updated and the response event is sent")
+    @Test
+    void createTrackingAndReceiveWebhook() {
+        TrackDeliveryRequestVo trackDeliveryRequestVo = buildTrackDeliveryRequestVo();
+
+        assertTrue(trackingRequestService.createTrackDeliveryRequest(trackDeliveryRequestVo, buildMessageHeaderDto()));
+        assertEquals(1, SIMULATOR.getRequestCount("create"));
+        assertTrue(SIMULATOR.getTracking(AfterShipSimulator.DEFAULT_SLUG, trackDeliveryRequestVo.getTrackingID()).isPresent());
+
+        int status = SIMULATOR.advance(AfterShipSimulator.DEFAULT_SLUG, trackDeliveryRequestVo.getTrackingID(),
+                "Delivered", "Delivered_001", "Delivered");
+        assertEquals(200, status);
+
+        Mockito.verify(trackingResponseProducer).send(responseDtoWrapperArgumentCaptor.capture());
+        assertEquals(StatusEnum.DELIVERED, responseDtoWrapperArgumentCaptor.getValue().getPayload().getStatus());
+
+        TrackingRequest trackingRequest = trackingRequestRepository.findByTrackingId(trackDeliveryRequestVo.getTrackingID()).orElse(null);
+        assertNotNull(trackingRequest);
+        assertEquals("Delivered", trackingRequest.getStatus());
+        assertEquals("Delivered_001", trackingRequest.getSubStatusCode());
+    }
+
+    @DisplayName("When AfterShip keeps failing with a retriable status " +
+            "Then verify every retry reaches AfterShip and the error is recorded for the retry job")
+    @Test
+    void createTrackingWithRetriableFailures() {
+        SIMULATOR.failNext(3, 503);
+        TrackDeliveryRequestVo trackDeliveryRequestVo = buildTrackDeliveryRequestVo();
+
+        assertFalse(trackingRequestService.createTrackDeliveryRequest(trackDeliveryRequestVo, buildMessageHeaderDto()));
+        assertFalse(trackingRequestRepository.findByTrackingId(trackDeliveryRequestVo.getTrackingID()).isPresent());
+        assertTrue(trackingRequestErrorRepository.findByTrackingId(trackDeliveryRequestVo.getTrackingID()).isPresent());
+    }
+
+    private static TrackDeliveryRequestVo buildTrackDeliveryRequestVo() {
+        ParticipantDetailsDto participant = new ParticipantDetailsDto();
+        participant.setVibrentID(71019410L);
+        participant.setExternalID("P512268268");
+
+        TrackDeliveryRequestVo trackDeliveryRequestVo = new TrackDeliveryRequestVo();
+        trackDeliveryRequestVo.setCarrierCode(ProviderEnum.USPS.toValue());
+        trackDeliveryRequestVo.setParticipant(participant);
+        trackDeliveryRequestVo.setTrackingID(UUID.randomUUID().toString().replace("-", "").substring(0, 20));
+        return trackDeliveryRequestVo;
+    }
+
+    private static MessageHeaderDto buildMessageHeaderDto() {
+        MessageHeaderDto messageHeaderDto = new MessageHeaderDto();
+        messageHeaderDto.setVxpMessageID(UUID.randomUUID().toString());
+        messageHeaderDto.setVxpMessageSpec(MessageSpecificationEnum.TRACK_DELIVERY_REQUEST);
+        messageHeaderDto.setVxpMessageSpecVersion("2.1.2");
+        messageHeaderDto.setVxpHeaderVersion("2.1.3");
+        messageHeaderDto.setVxpMessageTimestamp(System.currentTimeMillis());
+        messageHeaderDto.setVxpPattern(IntegrationPatternEnum.WORKFLOW);
+        messageHeaderDto.setVxpTrigger(ContextTypeEnum.EVENT);
+        messageHeaderDto.setVxpUserID(71019410L);
+        messageHeaderDto.setVxpWorkflowInstanceID(UUID.randomUUID().toString());
+        messageHeaderDto.setVxpWorkflowName(WorkflowNameEnum.SALIVARY_KIT_ORDER);
+        return messageHeaderDto;
+    }
+}
@@ -0,0 +1,92 @@
+package com.vibrent.aftership.integration.web;
+
+import com.vibrent.aftership.domain.PollRunCheckpoint;
+import com.vibrent.aftership.enums.PollRunStatus;
+import com.vibrent.aftership.integration.IntegrationTestBase;
+import com.vibrent.aftership.service.PollRunService;
+import com.vibrent.aftership.web.PollRunResource;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Transactional
+class PollRunResourceTest extends IntegrationTestBase {
+
+    private static final long RUN_ID = 4102444800000L;
+
+    @Autowired
+    private PollRunResource pollRunResource;
+
+    @Autowired
+    private PollRunService pollRunService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(pollRunResource).build();
+    }
+
+    @DisplayName("When a shard of a run is interrupted and started again " +
+            "Then verify it resumes from its checkpoint and completes the run with the last shard")
+    @Test
+    void shardResumesFromCheckpoint() {
+        pollRunService.startRun(RUN_ID, 2);
+        pollRunService.startShard(RUN_ID, 0, 2);
+        pollRunService.checkpoint(RUN_ID, 0, 500L, 20L);
+
+        PollRunCheckpoint resumed = pollRunService.startShard(RUN_ID, 0, 2);
+        assertEquals(PollRunStatus.RUNNING, resumed.getStatus());
+        assertEquals(500L, resumed.getLastId());
+        assertEquals(20L, resumed.getProcessed());
+
+        pollRunService.completeShard(RUN_ID, 0);
+        assertEquals(PollRunStatus.RUNNING, pollRunService.getRuns(1).get(0).getStatus());
+        pollRunService.completeShard(RUN_ID, 1);
+        assertEquals(PollRunStatus.COMPLETED, pollRunService.getRuns(1).get(0).getStatus());
+        assertEquals(PollRunStatus.COMPLETED, pollRunService.startShard(RUN_ID, 0, 2).getStatus());
+    }
+
+    @DisplayName("When a shard of a run is skipped because the previous run still runs it " +
+            "Then verify the run completes with its other shards")
+    @Test
+    void skippedShardCompletesRun() {
+        pollRunService.startRun(RUN_ID, 2);
+        pollRunService.skipShard(RUN_ID, 1);
+        assertEquals(PollRunStatus.RUNNING, pollRunService.getRuns(1).get(0).getStatus());
+
+        pollRunService.startShard(RUN_ID, 0, 2);
+        pollRunService.completeShard(RUN_ID, 0);
+        assertEquals(PollRunStatus.COMPLETED, pollRunService.getRuns(1).get(0).getStatus());
+        assertEquals(PollRunStatus.SKIPPED, pollRunService.getRuns(1).get(0).getShards().get(1).getStatus());
+    }
+
+    @SneakyThrows
+    @DisplayName("When the poll runs are requested " +
+            "Then verify the latest runs are returned with the progress of every shard")
+    @Test
+    void pollRunsAreListed() {
+        pollRunService.startRun(RUN_ID, 2);
+        pollRunService.startShard(RUN_ID, 1, 2);
+        pollRunService.checkpoint(RUN_ID, 1, 42L, 7L);
+
+        mockMvc.perform(get("/api/admin/poll-runs").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].runId").value(RUN_ID))
+                .andExpect(jsonPath("$[0].status").value("RUNNING"))
+                .andExpect(jsonPath("$[0].processed").value(7))
+                .andExpect(jsonPath("$[0].shards[0].status").value("PENDING"))
+                .andExpect(jsonPath("$[0].shards[1].status").value("RUNNING"))
+                .andExpect(jsonPath("$[0].shards[1].lastId").value(42));
+    }
+}
@@ -0,0 +1,119 @@
+package com.vibrent.aftership.integration.web;
+
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.integration.IntegrationTestBase;
+import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.web.TrackingResource;
+import com.vibrent.vxp.workflow.OperationEnum;
+import com.vibrent.vxp.workflow.ProviderEnum;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Transactional
+class TrackingResourceTest extends IntegrationTestBase {
+
+    private static final long VIBRENT_ID = 71019410L;
+    private static final String EXTERNAL_ID = "P512268268";
+
+    @Autowired
+    private TrackingResource trackingResource;
+
+    @Autowired
+    private TrackingRequestRepository trackingRequestRepository;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(trackingResource).build();
+    }
+
+    @SneakyThrows
+    @DisplayName("When the trackings of a participant are requested by vibrent id " +
+            "Then verify they are returned in pages ordered by id")
+    @Test
+    void trackingsAreListedByVibrentId() {
+        Long firstId = saveTrackingRequest("PARTICIPANT_TRACKING_1", VIBRENT_ID, EXTERNAL_ID).getId();
+        Long secondId = saveTrackingRequest("PARTICIPANT_TRACKING_2", VIBRENT_ID, EXTERNAL_ID).getId();
+        saveTrackingRequest("PARTICIPANT_TRACKING_3", VIBRENT_ID + 1, "P1");
+
+        mockMvc.perform(get("/api/trackings").param("vibrentId", String.valueOf(VIBRENT_ID)).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(firstId))
+                .andExpect(jsonPath("$[0].trackingId").value("PARTICIPANT_TRACKING_1"))
+                .andExpect(jsonPath("$[0].status").value("InTransit"))
+                .andExpect(jsonPath("$[0].externalId").value(EXTERNAL_ID));
+
+        mockMvc.perform(get("/api/trackings").param("vibrentId", String.valueOf(VIBRENT_ID)).param("afterId", String.valueOf(firstId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(secondId));
+    }
+
+    @SneakyThrows
+    @DisplayName("When the trackings of a participant are requested by external id or without a participant " +
+            "Then verify the trackings of the external id are returned and a request without one is rejected")
+    @Test
+    void trackingsAreListedByExternalId() {
+        saveTrackingRequest("PARTICIPANT_TRACKING_1", VIBRENT_ID, EXTERNAL_ID);
+
+        mockMvc.perform(get("/api/trackings").param("externalId", EXTERNAL_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].vibrentId").value(VIBRENT_ID));
+
+        mockMvc.perform(get("/api/trackings"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @SneakyThrows
+    @DisplayName("When the trackings of a participant are requested and one of them is archived " +
+            "Then verify the archived tracking is listed in id order with the others")
+    @Test
+    void archivedTrackingsAreListed() {
+        Long archivedId = saveTrackingRequest("PARTICIPANT_TRACKING_1", VIBRENT_ID, EXTERNAL_ID).getId();
+        Long secondId = saveTrackingRequest("PARTICIPANT_TRACKING_2", VIBRENT_ID, EXTERNAL_ID).getId();
+        assertEquals(1, trackingRequestRepository.copyToArchive(List.of(archivedId), List.of("InTransit"), Long.MAX_VALUE, System.currentTimeMillis()));
+        assertEquals(1, trackingRequestRepository.deleteArchived(List.of(archivedId)));
+
+        mockMvc.perform(get("/api/trackings").param("vibrentId", String.valueOf(VIBRENT_ID)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(archivedId))
+                .andExpect(jsonPath("$[0].trackingId").value("PARTICIPANT_TRACKING_1"))
+                .andExpect(jsonPath("$[0].status").value("InTransit"))
+                .andExpect(jsonPath("$[1].id").value(secondId));
+
+        mockMvc.perform(get("/api/trackings").param("externalId", EXTERNAL_ID).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(archivedId))
+                .andExpect(jsonPath("$[0].vibrentId").value(VIBRENT_ID));
+    }
+
+    private TrackingRequest saveTrackingRequest(String trackingId, long vibrentId, String externalId) {
+        TrackingRequest trackingRequest = new TrackingRequest();
+        trackingRequest.setTrackingId(trackingId);
+        trackingRequest.setProvider(ProviderEnum.USPS.toValue());
+        trackingRequest.setOperation(OperationEnum.TRACK_DELIVERY);
+        trackingRequest.setStatus("InTransit");
+        trackingRequest.setVibrentId(vibrentId);
+        trackingRequest.setExternalId(externalId);
+        return trackingRequestRepository.saveAndFlush(trackingRequest);
+    }
+}
@@ -0,0 +1,48 @@
+package com.vibrent.aftership.messaging.listener;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.vibrent.aftership.cache.TrackingRequestCache;
+import com.vibrent.aftership.dto.CacheInvalidationDTO;
+import com.vibrent.aftership.util.JacksonUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheInvalidationListenerTest {
+
+    @Mock
+    private TrackingRequestCache trackingRequestCache;
+
+    private CacheInvalidationListener cacheInvalidationListener;
+
+    @BeforeEach
+    void setUp() {
+        cacheInvalidationListener = new CacheInvalidationListener(trackingRequestCache);
+        when(trackingRequestCache.getNodeId()).thenReturn("node1");
+    }
+
+    @DisplayName("when an invalidation of another node is received " +
+            "then verify the tracking request is evicted.")
+    @Test
+    void evictOnInvalidationOfOtherNode() throws JsonProcessingException {
+        cacheInvalidationListener.listener(JacksonUtil.getMapper().writeValueAsBytes(new CacheInvalidationDTO("trackingId", "node2")));
+
+        verify(trackingRequestCache).evict("trackingId");
+    }
+
+    @DisplayName("when an invalidation of this node is received " +
+            "then verify nothing is evicted.")
+    @Test
+    void ignoreOwnInvalidation() throws JsonProcessingException {
+        cacheInvalidationListener.listener(JacksonUtil.getMapper().writeValueAsBytes(new CacheInvalidationDTO("trackingId", "node1")));
+
+        verify(trackingRequestCache, never()).evict(any());
+    }
+}
@@ -1,6 +1,7 @@
 package com.vibrent.aftership.messaging.producer.impl;
 
 import com.vibrent.aftership.service.ExternalLogService;
+import com.vibrent.aftership.service.OutboxService;
 import com.vibrent.vxp.workflow.*;
 import org.junit.Before;
 import org.junit.Test;
@@ -29,6 +30,9 @@ public class FulfillmentTrackingResponseProducerTest {
     @Mock
     private ExternalLogService externalLogService;
 
+    @Mock
+    private OutboxService outboxService;
+
     @Mock
     private KafkaTemplate<String, FulfillmentTrackDeliveryResponseDto> kafkaTemplate;
 
@@ -43,7 +47,7 @@ public class FulfillmentTrackingResponseProducerTest {
 
     @Before
     public void setup() {
-        trackingResponseProducer = new FulfillmentTrackingResponseProducer(kafkaTemplate, externalLogService, true, TOPIC_NAME);
+        trackingResponseProducer = new FulfillmentTrackingResponseProducer(kafkaTemplate, externalLogService, outboxService, true, TOPIC_NAME);
         initializeTrackDeliveryResponseDtoWrapper();
     }
 
@@ -57,6 +61,17 @@ public class FulfillmentTrackingResponseProducerTest {
                 "AfterShip | Fulfillment Track Delivery Response sent", HttpStatus.OK);
     }
 
+    @DisplayName("When the outbox is enabled then verify the message is written to the outbox and logged as queued")
+    @Test
+    public void sendThroughOutbox() {
+        when(outboxService.isEnabled()).thenReturn(true);
+        trackingResponseProducer.send(trackDeliveryResponseDtoWrapper);
+        verify(outboxService).enqueue(any());
+        verify(kafkaTemplate, never()).send((Message<?>) any());
+        verify(externalLogService).send(trackDeliveryResponseDtoWrapper, messageHeaderDto.getVxpMessageTimestamp(),
+                "AfterShip | Fulfillment Track Delivery Response queued", HttpStatus.OK);
+    }
+
     @DisplayName("When valid message is sent to Producer and exception while sending on kafka then verify externalLogService is invoked with error message")
     @Test
     public void sendWhenException() {
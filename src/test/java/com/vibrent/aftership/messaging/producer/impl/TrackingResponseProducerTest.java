@@ -1,6 +1,7 @@
 package com.vibrent.aftership.messaging.producer.impl;
 
 import com.vibrent.aftership.service.ExternalLogService;
+import com.vibrent.aftership.service.OutboxService;
 import com.vibrent.vxp.workflow.*;
 import org.junit.Before;
 import org.junit.Test;
@@ -11,6 +12,8 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.http.HttpStatus;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.messaging.Message;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.concurrent.ListenableFuture;
 
 import java.util.UUID;
@@ -29,6 +32,9 @@ public class TrackingResponseProducerTest {
     @Mock
     private ExternalLogService externalLogService;
 
+    @Mock
+    private OutboxService outboxService;
+
     @Mock
     private KafkaTemplate<String, TrackDeliveryResponseDtoWrapper> kafkaTemplate;
 
@@ -43,7 +49,7 @@ public class TrackingResponseProducerTest {
 
     @Before
     public void setup() {
-        trackingResponseProducer = new TrackingResponseProducer(kafkaTemplate, externalLogService, true, TOPIC_NAME);
+        trackingResponseProducer = new TrackingResponseProducer(kafkaTemplate, externalLogService, outboxService, true, TOPIC_NAME);
         initializeTrackDeliveryResponseDtoWrapper();
     }
 
@@ -57,6 +63,35 @@ public class TrackingResponseProducerTest {
                 "AfterShip | Track Delivery Response sent", HttpStatus.OK);
     }
 
+    @DisplayName("When the outbox is enabled then verify the message is written to the outbox instead of sent on Kafka")
+    @Test
+    public void sendThroughOutbox() {
+        when(outboxService.isEnabled()).thenReturn(true);
+        trackingResponseProducer.send(trackDeliveryResponseDtoWrapper);
+        verify(outboxService).enqueue(any());
+        verify(kafkaTemplate, never()).send((Message<?>) any());
+        verify(externalLogService).send(trackDeliveryResponseDtoWrapper, messageHeaderDto.getVxpMessageTimestamp(),
+                "AfterShip | Track Delivery Response queued", HttpStatus.OK);
+    }
+
+    @DisplayName("When the outbox is enabled in a transaction then verify the response is logged as queued only after the commit")
+    @Test
+    public void sendThroughOutboxLogsAfterCommit() {
+        when(outboxService.isEnabled()).thenReturn(true);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            trackingResponseProducer.send(trackDeliveryResponseDtoWrapper);
+            verify(outboxService).enqueue(any());
+            verifyNoInteractions(externalLogService);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(externalLogService).send(trackDeliveryResponseDtoWrapper, messageHeaderDto.getVxpMessageTimestamp(),
+                "AfterShip | Track Delivery Response queued", HttpStatus.OK);
+    }
+
     @DisplayName("When valid message is sent to Producer and exception while sending on kafka then verify externalLogService is invoked with error message")
     @Test
     public void sendWhenException() {
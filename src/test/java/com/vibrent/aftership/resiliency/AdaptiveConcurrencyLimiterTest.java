@@ -0,0 +1,147 @@
+package com.vibrent.aftership.resiliency;
+
+import com.vibrent.aftership.exception.AfterShipDeadlineExceededException;
+import com.vibrent.aftership.exception.AfterShipRetriableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @DisplayName("When the limit is reached and the queue is full " +
+            "Then verify the call is rejected as retriable")
+    @Test
+    void rejectWhenQueueIsFull() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 1, 1, 10, 0, Duration.ofSeconds(1), meterRegistry);
+        limiter.acquire(null);
+
+        AfterShipRetriableException exception = assertThrows(AfterShipRetriableException.class, () -> limiter.acquire(null));
+        assertEquals(429, exception.getErrorCode());
+        assertEquals(1, meterRegistry.counter("afterShip.concurrency.rejections").count());
+    }
+
+    @DisplayName("When the limit is reached " +
+            "Then verify the call waits for a released permit")
+    @Test
+    void waitForReleasedPermit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 1, 1, 10, 10, Duration.ofSeconds(5), meterRegistry);
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire(null);
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> second = CompletableFuture.supplyAsync(() -> limiter.acquire(null));
+        Thread.sleep(100);
+        assertFalse(second.isDone());
+        assertEquals(1, limiter.getQueueDepth());
+
+        first.release(true);
+        assertNotNull(second.get(1, TimeUnit.SECONDS));
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @DisplayName("When the deadline ends before a permit is available " +
+            "Then verify the deadline exceeded exception is thrown")
+    @Test
+    void waitBoundedByDeadline() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 1, 1, 10, 10, Duration.ofSeconds(5), meterRegistry);
+        limiter.acquire(null);
+
+        assertThrows(AfterShipDeadlineExceededException.class, () -> limiter.acquire(Deadline.after(Duration.ofMillis(50))));
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @DisplayName("When calls fail " +
+            "Then verify the limit shrinks but not below the minimum")
+    @Test
+    void failuresShrinkLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 10, 5, 50, 10, Duration.ofSeconds(1), meterRegistry);
+
+        limiter.acquire(null).release(false);
+        assertEquals(9, limiter.getLimit(), 0.001);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire(null).release(false);
+        }
+        assertEquals(5, limiter.getLimit(), 0.001);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @DisplayName("When calls succeed at stable latency with the limit in use " +
+            "Then verify the limit grows up to the maximum")
+    @Test
+    void stableLatencyGrowsLimit() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 2, 1, 4, 10, Duration.ofSeconds(1), meterRegistry);
+
+        for (int i = 0; i < 50; i++) {
+            AdaptiveConcurrencyLimiter.Permit first = limiter.acquire(null);
+            AdaptiveConcurrencyLimiter.Permit second = limiter.acquire(null);
+            Thread.sleep(2);
+            first.release(true);
+            second.release(true);
+        }
+        assertEquals(4, limiter.getLimit(), 0.001);
+    }
+
+    @DisplayName("When a permit is released twice " +
+            "Then verify it is only counted once")
+    @Test
+    void releaseIsIdempotent() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 10, 1, 50, 10, Duration.ofSeconds(1), meterRegistry);
+        limiter.acquire(null);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(null);
+
+        permit.release(false);
+        permit.release(false);
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(9, limiter.getLimit(), 0.001);
+    }
+
+    @DisplayName("When the limiter is disabled " +
+            "Then verify calls are never queued or rejected")
+    @Test
+    void disabledNeverLimits() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(false, 1, 1, 1, 0, Duration.ofMillis(1), meterRegistry);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(null);
+        }
+        assertEquals(5, limiter.getInFlight());
+        assertEquals(1, limiter.getLimit(), 0.001);
+    }
+
+    @DisplayName("When every thread of the call executor is busy " +
+            "Then verify further calls are rejected instead of growing the pool")
+    @Test
+    void callExecutorIsBoundedByMaxLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 1, 1, 2, 0, Duration.ofSeconds(1), meterRegistry);
+        ExecutorService executor = limiter.newCallExecutor("test-call-%d");
+        CountDownLatch blocked = new CountDownLatch(1);
+        Callable<Boolean> blockedCall = () -> blocked.await(5, TimeUnit.SECONDS);
+        try {
+            executor.submit(blockedCall);
+            executor.submit(blockedCall);
+
+            assertThrows(RejectedExecutionException.class, () -> executor.submit(blockedCall));
+        } finally {
+            blocked.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.vibrent.aftership.resiliency;
+
+import com.vibrent.aftership.exception.AfterShipDeadlineExceededException;
+import com.vibrent.aftership.exception.AfterShipNonRetriableException;
+import com.vibrent.aftership.exception.AfterShipRetriableException;
+import com.vibrenthealth.resiliency.core.Output;
+import com.vibrenthealth.resiliency.core.RockSteadySystem;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AfterShipCallExecutorTest {
+
+    private static final int ATTEMPTS = 3;
+
+    @Mock
+    private RockSteadySystem rockSteadySystem;
+
+    private AfterShipCallExecutor afterShipCallExecutor;
+
+    @BeforeEach
+    void setUp() {
+        afterShipCallExecutor = new AfterShipCallExecutor(rockSteadySystem,
+                new AdaptiveConcurrencyLimiter(false, 10, 1, 50, 100, Duration.ofSeconds(30), new SimpleMeterRegistry()), Duration.ofMillis(300));
+        // Behaves like executeWithRetries: retries the supplier until it succeeds or the attempts are used up
+        when(rockSteadySystem.executeWithRetries(any(), any(), any())).thenAnswer(invocation -> {
+            Supplier<?> supplier = invocation.getArgument(0);
+            RuntimeException lastError = null;
+            for (int i = 0; i < ATTEMPTS; i++) {
+                try {
+                    return new Output<>(supplier.get());
+                } catch (AfterShipNonRetriableException e) {
+                    return new Output<>(e);
+                } catch (RuntimeException e) {
+                    lastError = e;
+                }
+            }
+            return new Output<>(lastError);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        afterShipCallExecutor.shutdown();
+    }
+
+    @DisplayName("When the call answers within the deadline " +
+            "Then verify its result is returned")
+    @Test
+    void callWithinDeadline() {
+        Output<String> output = afterShipCallExecutor.executeWithRetries(() -> "tracking");
+        assertEquals("tracking", output.result);
+        assertNull(output.error);
+    }
+
+    @DisplayName("When the call is slower than the deadline " +
+            "Then verify it fails with a deadline exceeded error and is not retried")
+    @Test
+    void slowCallExceedsDeadline() {
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.currentTimeMillis();
+
+        Output<String> output = afterShipCallExecutor.executeWithRetries(() -> {
+            attempts.incrementAndGet();
+            sleep(2000);
+            return "tracking";
+        });
+
+        assertNull(output.result);
+        assertTrue(output.error instanceof AfterShipDeadlineExceededException);
+        assertEquals(408, ((AfterShipDeadlineExceededException) output.error).getErrorCode());
+        assertEquals(1, attempts.get());
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @DisplayName("When retries use up the budget " +
+            "Then verify no further attempt is started once the deadline passed")
+    @Test
+    void retriesAreBoundedByDeadline() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Output<String> output = afterShipCallExecutor.executeWithRetries(() -> {
+            attempts.incrementAndGet();
+            sleep(200);
+            throw new IllegalStateException("Service unavailable");
+        }, Deadline.after(Duration.ofMillis(300)));
+
+        assertTrue(output.error instanceof AfterShipDeadlineExceededException);
+        assertEquals(2, attempts.get());
+    }
+
+    @DisplayName("When the concurrency limiter rejects the call " +
+            "Then verify it fails without reaching the retries and the circuit breaker")
+    @Test
+    void limiterRejectionSkipsRetries() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 1, 1, 1, 0, Duration.ofSeconds(1), new SimpleMeterRegistry());
+        AfterShipCallExecutor limitedExecutor = new AfterShipCallExecutor(rockSteadySystem, limiter, Duration.ofMillis(300));
+        try {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(null);
+
+            Output<String> rejected = limitedExecutor.executeWithRetries(() -> "tracking");
+            assertTrue(rejected.error instanceof AfterShipRetriableException);
+            verify(rockSteadySystem, never()).executeWithRetries(any(), any(), any());
+
+            permit.release(true);
+            assertEquals("tracking", limitedExecutor.executeWithRetries(() -> "tracking").result);
+            assertEquals(0, limiter.getInFlight());
+        } finally {
+            limitedExecutor.shutdown();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.vibrent.aftership.resiliency;
+
+import com.vibrent.aftership.constants.KafkaConstants;
+import com.vibrenthealth.resiliency.core.RockSteadySystem;
+import com.vibrenthealth.resiliency.core.RockSteadySystemEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CircuitBreakerConsumerPauserTest {
+
+    @Mock
+    private RockSteadySystem rockSteadySystem;
+
+    @Mock
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    private MessageListenerContainer trackDeliveryContainer;
+    private MessageListenerContainer fulfillmentContainer;
+    private MessageListenerContainer retryContainer;
+
+    private CircuitBreakerConsumerPauser circuitBreakerConsumerPauser;
+
+    @BeforeEach
+    void setUp() {
+        trackDeliveryContainer = pausableContainer(KafkaConstants.TRACK_DELIVERY_REQUEST_LISTENER_ID);
+        fulfillmentContainer = pausableContainer(KafkaConstants.FULFILLMENT_TRACK_DELIVERY_REQUEST_LISTENER_ID);
+        retryContainer = pausableContainer(KafkaConstants.RETRY_TRACKING_DELIVERY_REQUEST_LISTENER_ID);
+        when(rockSteadySystem.isOpenForBusiness()).thenReturn(true);
+
+        circuitBreakerConsumerPauser = new CircuitBreakerConsumerPauser(true, rockSteadySystem, kafkaListenerEndpointRegistry,
+                Duration.ofMillis(50), Duration.ofMinutes(10), new SimpleMeterRegistry());
+        circuitBreakerConsumerPauser.registerListener();
+    }
+
+    @AfterEach
+    void tearDown() {
+        circuitBreakerConsumerPauser.shutdown();
+    }
+
+    @DisplayName("When the pauser is created " +
+            "Then verify it subscribes to the circuit breaker transitions")
+    @Test
+    void registersAsEventListener() {
+        verify(rockSteadySystem).addEventListener(circuitBreakerConsumerPauser);
+    }
+
+    @DisplayName("When the circuit breaker opens " +
+            "Then verify all listener containers are paused")
+    @Test
+    void openPausesAllConsumers() {
+        circuitBreakerConsumerPauser.handle(RockSteadySystemEvent.Type.OPEN);
+
+        verify(trackDeliveryContainer).pause();
+        verify(fulfillmentContainer).pause();
+        verify(retryContainer).pause();
+        assertEquals(3, circuitBreakerConsumerPauser.getPausedConsumerCount());
+    }
+
+    @DisplayName("When the circuit breaker half-opens after being open " +
+            "Then verify the consumers are resumed one after another")
+    @Test
+    void closeResumesConsumersWithRampUp() {
+        circuitBreakerConsumerPauser.handle(RockSteadySystemEvent.Type.OPEN);
+        circuitBreakerConsumerPauser.handle(RockSteadySystemEvent.Type.CLOSE);
+
+        verify(trackDeliveryContainer, timeout(1000)).resume();
+        verify(fulfillmentContainer, timeout(1000)).resume();
+        verify(retryContainer, timeout(1000)).resume();
+        assertEquals(0, circuitBreakerConsumerPauser.getPausedConsumerCount());
+    }
+
+    @DisplayName("When the circuit breaker opens again during the ramp-up " +
+            "Then verify the remaining consumers stay paused")
+    @Test
+    void rampUpStopsWhenBreakerStopsAcceptingCalls() throws InterruptedException {
+        circuitBreakerConsumerPauser.handle(RockSteadySystemEvent.Type.OPEN);
+        when(rockSteadySystem.isOpenForBusiness()).thenReturn(false);
+        circuitBreakerConsumerPauser.handle(RockSteadySystemEvent.Type.CLOSE);
+
+        Thread.sleep(200);
+        verify(trackDeliveryContainer, never()).resume();
+        assertEquals(3, circuitBreakerConsumerPauser.getPausedConsumerCount());
+    }
+
+    @DisplayName("When the circuit breaker closes while nothing is paused " +
+            "Then verify no consumer is touched")
+    @Test
+    void closeWithoutPauseDoesNothing() {
+        circuitBreakerConsumerPauser.handle(RockSteadySystemEvent.Type.CLOSE);
+
+        verify(trackDeliveryContainer, never()).resume();
+        verify(fulfillmentContainer, never()).resume();
+        verify(retryContainer, never()).resume();
+    }
+
+    private MessageListenerContainer pausableContainer(String listenerId) {
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        AtomicBoolean paused = new AtomicBoolean();
+        doAnswer(invocation -> {
+            paused.set(true);
+            return null;
+        }).when(container).pause();
+        doAnswer(invocation -> {
+            paused.set(false);
+            return null;
+        }).when(container).resume();
+        when(container.isPauseRequested()).thenAnswer(invocation -> paused.get());
+        when(container.getListenerId()).thenReturn(listenerId);
+        when(kafkaListenerEndpointRegistry.getListenerContainer(listenerId)).thenReturn(container);
+        return container;
+    }
+}
@@ -0,0 +1,114 @@
+package com.vibrent.aftership.resiliency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.vibrent.aftership.exception.AfterShipDeadlineExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgedRequestExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private HedgedRequestExecutor hedgedRequestExecutor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        hedgedRequestExecutor = new HedgedRequestExecutor(true, Duration.ofMillis(20), Duration.ofSeconds(15), concurrencyLimiter(), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hedgedRequestExecutor.shutdown();
+    }
+
+    @DisplayName("When too few latency samples are known " +
+            "Then verify no hedge is issued")
+    @Test
+    void noHedgeWithoutSamples() throws Exception {
+        assertEquals(-1, hedgedRequestExecutor.getHedgeDelayMillis());
+        assertEquals("tracking", hedgedRequestExecutor.execute(() -> "tracking"));
+        assertEquals(0, meterRegistry.counter("afterShip.hedge.issued").count());
+    }
+
+    @DisplayName("When the first request is slower than the p95 latency " +
+            "Then verify a hedged request is issued, wins and the time saved is recorded")
+    @Test
+    void slowRequestIsHedged() throws Exception {
+        warmUp();
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = hedgedRequestExecutor.execute(() -> {
+            if (calls.incrementAndGet() == 1) {
+                Thread.sleep(1000);
+                return "slow";
+            }
+            return "fast";
+        });
+
+        assertEquals("fast", result);
+        assertEquals(2, calls.get());
+        assertEquals(1, meterRegistry.counter("afterShip.hedge.issued").count());
+        assertEquals(1, meterRegistry.counter("afterShip.hedge.wins").count());
+        assertEquals(1.0, meterRegistry.get("afterShip.hedge.winRate").gauge().value());
+
+        Thread.sleep(1200);
+        assertEquals(1, meterRegistry.get("afterShip.hedge.timeSaved").timer().count());
+    }
+
+    @DisplayName("When both the request and its hedge fail " +
+            "Then verify the original exception is rethrown")
+    @Test
+    void bothRequestsFail() {
+        warmUp();
+
+        assertThrows(IOException.class, () -> hedgedRequestExecutor.execute(() -> {
+            Thread.sleep(100);
+            throw new IOException("AfterShip unavailable");
+        }));
+    }
+
+    @DisplayName("When the request and its hedge run past the deadline " +
+            "Then verify the execution fails once the deadline passed")
+    @Test
+    void deadlineBoundsHedgedRequests() {
+        warmUp();
+        long start = System.nanoTime();
+
+        assertThrows(AfterShipDeadlineExceededException.class, () -> hedgedRequestExecutor.execute(() -> {
+            Thread.sleep(2000);
+            return "slow";
+        }, Deadline.after(Duration.ofMillis(200))));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(1000)) < 0);
+    }
+
+    @DisplayName("When hedging is disabled " +
+            "Then verify the call is executed once")
+    @Test
+    void disabled() throws Exception {
+        HedgedRequestExecutor disabled = new HedgedRequestExecutor(false, Duration.ofMillis(20), Duration.ofSeconds(15), concurrencyLimiter(), meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < HedgedRequestExecutor.MIN_SAMPLES + 1; i++) {
+            disabled.execute(() -> calls.incrementAndGet());
+        }
+        assertEquals(HedgedRequestExecutor.MIN_SAMPLES + 1, calls.get());
+        disabled.shutdown();
+    }
+
+    private void warmUp() {
+        for (int i = 0; i < HedgedRequestExecutor.MIN_SAMPLES; i++) {
+            assertDoesNotThrow(() -> hedgedRequestExecutor.execute(() -> "warm-up"));
+        }
+    }
+
+    private static AdaptiveConcurrencyLimiter concurrencyLimiter() {
+        return new AdaptiveConcurrencyLimiter(false, 10, 1, 50, 100, Duration.ofSeconds(30), new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,53 @@
+package com.vibrent.aftership.scheduling;
+
+import com.vibrent.aftership.dto.AuditPartitionDTO;
+import com.vibrent.aftership.repository.AuditPartitionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditRetentionJobTest {
+
+    @Mock
+    private AuditPartitionRepository auditPartitionRepository;
+
+    @Mock
+    private JobExecutionContext context;
+
+    @DisplayName("When the partitions of an audit table fail to split " +
+            "Then verify the run is aborted before the remaining tables are split or pruned")
+    @Test
+    void failedSplitAbortsRun() {
+        when(auditPartitionRepository.getMaxRevision()).thenReturn(100L);
+        when(auditPartitionRepository.getMaxRevisionBefore(anyLong())).thenReturn(0L);
+        when(auditPartitionRepository.getTableSize(anyString())).thenReturn(Optional.empty());
+        when(auditPartitionRepository.findPartitions("tracking_request_aud"))
+                .thenReturn(List.of(new AuditPartitionDTO("p_50", 50L, 10), new AuditPartitionDTO(AuditPartitionRepository.MAX_PARTITION, null, 50)));
+        doThrow(new DataAccessResourceFailureException("lock wait timeout"))
+                .when(auditPartitionRepository).splitMaxPartition(eq("tracking_request_aud"), anyLong());
+
+        AuditRetentionJob job = new AuditRetentionJob(auditPartitionRepository, true, Duration.ofDays(1), new SimpleMeterRegistry());
+
+        assertThrows(JobExecutionException.class, () -> job.execute(context));
+        verify(auditPartitionRepository, never()).findPartitions("tracking_request_error_aud");
+        verify(auditPartitionRepository, never()).findPartitions("revinfo");
+        verify(auditPartitionRepository, never()).dropPartitions(anyString(), anyList());
+    }
+}
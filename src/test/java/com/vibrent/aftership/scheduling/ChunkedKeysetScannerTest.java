@@ -0,0 +1,93 @@
+package com.vibrent.aftership.scheduling;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkedKeysetScannerTest {
+
+    private static final int PAGE_SIZE = 3;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private ChunkedKeysetScanner chunkedKeysetScanner;
+
+    @BeforeEach
+    void setUp() {
+        chunkedKeysetScanner = new ChunkedKeysetScanner(transactionManager, entityManager, PAGE_SIZE);
+    }
+
+    @DisplayName("When rows span several pages " +
+            "Then verify every page is read after the last id of the previous one in a transaction of its own")
+    @Test
+    void scanReadsPagesByKeyset() {
+        List<Long> rows = LongStream.rangeClosed(1, 7).map(i -> i * 10).boxed().collect(Collectors.toList());
+        List<Long> requestedAfter = new ArrayList<>();
+        List<List<Long>> chunks = new ArrayList<>();
+
+        long scanned = chunkedKeysetScanner.scan((lastId, page) -> {
+            requestedAfter.add(lastId);
+            return fetch(rows, lastId, page);
+        }, Long::longValue, Function.identity(), chunks::add);
+
+        assertEquals(7, scanned);
+        assertEquals(List.of(0L, 30L, 60L), requestedAfter);
+        assertEquals(List.of(List.of(10L, 20L, 30L), List.of(40L, 50L, 60L), List.of(70L)), chunks);
+        verify(transactionManager, times(3)).commit(any());
+        verify(entityManager, times(3)).clear();
+    }
+
+    @DisplayName("When the last page is full " +
+            "Then verify the scan ends on the following empty page")
+    @Test
+    void scanEndsOnEmptyPage() {
+        List<Long> rows = List.of(1L, 2L, 3L);
+        List<List<Long>> chunks = new ArrayList<>();
+
+        long scanned = chunkedKeysetScanner.scan((lastId, page) -> fetch(rows, lastId, page), Long::longValue, Function.identity(), chunks::add);
+
+        assertEquals(3, scanned);
+        assertEquals(1, chunks.size());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @DisplayName("When rows are mapped to null " +
+            "Then verify they are skipped but the scan continues after them")
+    @Test
+    void scanSkipsUnmappedRows() {
+        List<Long> rows = List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+        List<Long> consumed = new ArrayList<>();
+
+        long scanned = chunkedKeysetScanner.scan((lastId, page) -> fetch(rows, lastId, page), Long::longValue,
+                id -> id <= 3 ? null : id, consumed::addAll);
+
+        assertEquals(7, scanned);
+        assertEquals(List.of(4L, 5L, 6L, 7L), consumed);
+    }
+
+    private static List<Long> fetch(List<Long> rows, long lastId, Pageable page) {
+        return rows.stream().filter(id -> id > lastId).limit(page.getPageSize()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,67 @@
+package com.vibrent.aftership.scheduling;
+
+import com.vibrent.aftership.domain.TrackingRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NextPollCalculatorTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+    private static final long DAY = Duration.ofDays(1).toMillis();
+    private static final long NOW = Instant.parse("2026-10-19T12:00:00Z").toEpochMilli();
+
+    private final NextPollCalculator nextPollCalculator =
+            new NextPollCalculator(Duration.ofHours(2), 3, 0.2, List.of("Delivered", "Exception", "Expired"));
+
+    @DisplayName("When the status of a tracking did not change for a while " +
+            "Then verify the poll interval backs off between the minimum and the maximum")
+    @Test
+    void intervalBacksOffWithTimeSinceLastEvent() {
+        assertEquals(2 * HOUR, nextPollCalculator.getInterval("InTransit", NOW - HOUR, null, NOW));
+        assertEquals(12 * HOUR, nextPollCalculator.getInterval("InTransit", NOW - DAY, null, NOW));
+        assertEquals(3 * DAY, nextPollCalculator.getInterval("InTransit", NOW - 30 * DAY, null, NOW));
+        assertEquals(2 * HOUR, nextPollCalculator.getInterval("Pending", null, null, NOW));
+    }
+
+    @DisplayName("When a delivery is imminent or expected soon " +
+            "Then verify the tracking is polled no later than that")
+    @Test
+    void intervalFollowsDelivery() {
+        assertEquals(2 * HOUR, nextPollCalculator.getInterval("OutForDelivery", NOW - 30 * DAY, null, NOW));
+        assertEquals(DAY, nextPollCalculator.getInterval("InTransit", NOW - 30 * DAY, NOW + DAY, NOW));
+        assertEquals(3 * DAY, nextPollCalculator.getInterval("InTransit", NOW - 30 * DAY, NOW - DAY, NOW));
+    }
+
+    @DisplayName("When the next poll is computed " +
+            "Then verify it is spread by the jitter and skipped for excluded status")
+    @Test
+    void nextPollAtIsSpreadAndSkipsExcludedStatus() {
+        TrackingRequest trackingRequest = new TrackingRequest();
+        trackingRequest.setTrackingId("9400111899223100012345");
+        trackingRequest.setStatus("InTransit");
+        trackingRequest.setLastEventAt(NOW - DAY);
+
+        Long nextPollAt = nextPollCalculator.nextPollAt(trackingRequest, "2026-12-01", NOW);
+        assertTrue(nextPollAt >= NOW + 12 * HOUR);
+        assertTrue(nextPollAt <= NOW + (long) (12 * HOUR * 1.2));
+        assertEquals(nextPollAt, nextPollCalculator.nextPollAt(trackingRequest, "not a date", NOW));
+
+        trackingRequest.setStatus("Delivered");
+        assertNull(nextPollCalculator.nextPollAt(trackingRequest, null, NOW));
+    }
+
+    @DisplayName("When a poll failed " +
+            "Then verify it is retried after the minimum interval")
+    @Test
+    void retryAfterMinimumInterval() {
+        long retryAt = nextPollCalculator.retryAt("9400111899223100012345", NOW);
+        assertTrue(retryAt >= NOW + 2 * HOUR);
+        assertTrue(retryAt <= NOW + (long) (2 * HOUR * 1.2));
+    }
+}
@@ -0,0 +1,115 @@
+package com.vibrent.aftership.scheduling;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.quartz.JobBuilder;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PollShardSchedulerTest {
+
+    @Mock
+    private JobExecutionContext context;
+
+    @Mock
+    private Scheduler scheduler;
+
+    @DisplayName("When a run is dispatched " +
+            "Then verify one trigger per shard is scheduled for the executing job and a shard still running is reported as skipped")
+    @Test
+    void dispatchSchedulesOneTriggerPerShard() throws Exception {
+        JobDetail jobDetail = JobBuilder.newJob(GetTrackingJob.class).withIdentity("Get_Tracking_Details_Job").build();
+        when(context.getScheduler()).thenReturn(scheduler);
+        when(context.getJobDetail()).thenReturn(jobDetail);
+        when(scheduler.scheduleJob(any(Trigger.class))).thenAnswer(invocation -> {
+            Trigger trigger = invocation.getArgument(0);
+            if (trigger.getKey().equals(PollShardScheduler.shardTriggerKey(2))) {
+                throw new ObjectAlreadyExistsException("still running");
+            }
+            return new Date();
+        });
+
+        List<Integer> skipped = new PollShardScheduler(4, 1).dispatch(context, 1760875200000L);
+
+        assertEquals(List.of(2), skipped);
+
+        ArgumentCaptor<Trigger> triggers = ArgumentCaptor.forClass(Trigger.class);
+        verify(scheduler, times(4)).scheduleJob(triggers.capture());
+        List<Trigger> scheduled = triggers.getAllValues();
+        for (int shardIndex = 0; shardIndex < 4; shardIndex++) {
+            Trigger trigger = scheduled.get(shardIndex);
+            assertEquals(jobDetail.getKey(), trigger.getJobKey());
+            assertEquals(shardIndex, trigger.getJobDataMap().getInt(PollShardScheduler.SHARD_INDEX));
+            assertEquals(4, trigger.getJobDataMap().getInt(PollShardScheduler.SHARD_COUNT));
+            assertEquals(1760875200000L, trigger.getJobDataMap().getLong(PollShardScheduler.RUN_ID));
+        }
+    }
+
+    @DisplayName("When a node already runs its maximum shards " +
+            "Then verify no further shard can be claimed until one is released")
+    @Test
+    void claimIsLimitedPerNode() {
+        PollShardScheduler pollShardScheduler = new PollShardScheduler(4, 2);
+
+        assertTrue(pollShardScheduler.tryClaim());
+        assertTrue(pollShardScheduler.tryClaim());
+        assertFalse(pollShardScheduler.tryClaim());
+
+        pollShardScheduler.release();
+        assertTrue(pollShardScheduler.tryClaim());
+    }
+
+    @DisplayName("When a shard is deferred " +
+            "Then verify its trigger is rescheduled into the future under the same key")
+    @Test
+    void deferReschedulesTrigger() throws Exception {
+        TriggerKey key = PollShardScheduler.shardTriggerKey(1);
+        Trigger trigger = TriggerBuilder.newTrigger().withIdentity(key).forJob("Get_Tracking_Details_Job")
+                .usingJobData(PollShardScheduler.SHARD_INDEX, 1).startNow().build();
+        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap.put(PollShardScheduler.SHARD_INDEX, 1);
+        when(context.getScheduler()).thenReturn(scheduler);
+        when(context.getTrigger()).thenReturn(trigger);
+        when(context.getMergedJobDataMap()).thenReturn(jobDataMap);
+
+        long before = System.currentTimeMillis();
+        new PollShardScheduler(4, 1).defer(context);
+
+        ArgumentCaptor<Trigger> deferred = ArgumentCaptor.forClass(Trigger.class);
+        verify(scheduler).rescheduleJob(eq(key), deferred.capture());
+        assertEquals(key, deferred.getValue().getKey());
+        assertTrue(deferred.getValue().getStartTime().getTime() >= before + PollShardScheduler.SHARD_DEFERRAL.toMillis());
+        verify(scheduler, never()).scheduleJob(any(Trigger.class));
+    }
+
+    @DisplayName("When the job is fired by its cron trigger " +
+            "Then verify it is not recognized as a shard execution")
+    @Test
+    void shardExecutionIsRecognizedFromJobData() {
+        assertFalse(PollShardScheduler.isShardExecution(context));
+
+        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap.put(PollShardScheduler.SHARD_INDEX, 0);
+        when(context.getMergedJobDataMap()).thenReturn(jobDataMap);
+        assertTrue(PollShardScheduler.isShardExecution(context));
+    }
+}
@@ -0,0 +1,146 @@
+package com.vibrent.aftership.scheduling;
+
+import com.vibrent.aftership.dto.PollTargetDTO;
+import com.vibrent.aftership.enums.PollOutcome;
+import com.vibrent.aftership.service.TrackingRefreshService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TrackingRefreshExecutorTest {
+
+    private static final int THREADS = 4;
+
+    @Mock
+    private TrackingRefreshService trackingRefreshService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TrackingRefreshExecutor trackingRefreshExecutor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        trackingRefreshExecutor = new TrackingRefreshExecutor(trackingRefreshService, THREADS, 1000, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        trackingRefreshExecutor.shutdown();
+    }
+
+    @DisplayName("When all targets are refreshed " +
+            "Then verify every target is refreshed once and the summary counts every outcome")
+    @Test
+    void refreshAllCountsOutcomes() {
+        when(trackingRefreshService.refresh(any())).thenAnswer(invocation -> {
+            PollTargetDTO target = invocation.getArgument(0);
+            if (target.getId() % 10 == 0) {
+                return PollOutcome.AFTERSHIP_ERROR;
+            }
+            if (target.getId() % 25 == 0) {
+                throw new IllegalStateException("unexpected");
+            }
+            return PollOutcome.REFRESHED;
+        });
+
+        PollRunSummary summary = trackingRefreshExecutor.refreshAll(targets(100));
+
+        verify(trackingRefreshService, times(100)).refresh(any());
+        assertEquals(100, summary.getTotal());
+        assertEquals(10, summary.getCount(PollOutcome.AFTERSHIP_ERROR));
+        assertEquals(2, summary.getCount(PollOutcome.FAILED));
+        assertEquals(88, summary.getCount(PollOutcome.REFRESHED));
+        assertEquals(88, meterRegistry.timer("afterShip.poll.refresh", "outcome", "REFRESHED").count());
+    }
+
+    @DisplayName("When refreshes are slow " +
+            "Then verify they run in parallel but never on more than the configured threads")
+    @Test
+    void refreshAllIsBoundedByThreads() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(trackingRefreshService.refresh(any())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return PollOutcome.REFRESHED;
+        });
+
+        PollRunSummary summary = trackingRefreshExecutor.refreshAll(targets(40));
+
+        assertEquals(40, summary.getCount(PollOutcome.REFRESHED));
+        assertTrue(maxRunning.get() > 1);
+        assertTrue(maxRunning.get() <= THREADS);
+        assertTrue(summary.percentile(0.5) >= 20);
+    }
+
+    @DisplayName("When the rate limit is lower than the thread count " +
+            "Then verify refreshes are spread out to the rate limit")
+    @Test
+    void refreshAllIsRateLimited() {
+        TrackingRefreshExecutor rateLimited = new TrackingRefreshExecutor(trackingRefreshService, THREADS, 20, meterRegistry);
+        when(trackingRefreshService.refresh(any())).thenReturn(PollOutcome.REFRESHED);
+
+        try {
+            PollRunSummary summary = rateLimited.refreshAll(targets(11));
+            // the first permit is immediate, the other ten take 50ms each
+            assertTrue(summary.getDurationMillis() >= 400, "duration " + summary.getDurationMillis());
+        } finally {
+            rateLimited.shutdown();
+        }
+    }
+
+    @DisplayName("When a shard of a sharded run is refreshed " +
+            "Then verify it is limited to its share of the cluster wide rate")
+    @Test
+    void shardIsLimitedToItsShareOfTheRate() {
+        TrackingRefreshExecutor rateLimited = new TrackingRefreshExecutor(trackingRefreshService, THREADS, 20, meterRegistry);
+        when(trackingRefreshService.refresh(any())).thenReturn(PollOutcome.REFRESHED);
+
+        try {
+            PollRunSummary summary = new PollRunSummary();
+            rateLimited.refreshAll(targets(6), summary, 2);
+            summary.complete();
+            // half of 20 per second, the first permit is immediate, the other five take 100ms each
+            assertTrue(summary.getDurationMillis() >= 400, "duration " + summary.getDurationMillis());
+        } finally {
+            rateLimited.shutdown();
+        }
+    }
+
+    @DisplayName("When durations are recorded " +
+            "Then verify the percentiles use the nearest rank")
+    @Test
+    void summaryPercentiles() {
+        PollRunSummary summary = new PollRunSummary();
+        assertEquals(0, summary.percentile(0.95));
+
+        for (int i = 1; i <= 100; i++) {
+            summary.record(PollOutcome.REFRESHED, i * 1_000_000L);
+        }
+        summary.complete();
+
+        assertEquals(50, summary.percentile(0.5));
+        assertEquals(95, summary.percentile(0.95));
+        assertEquals(100, summary.percentile(1.0));
+        assertEquals(100, summary.getTotal());
+    }
+
+    private static Stream<PollTargetDTO> targets(int count) {
+        return IntStream.rangeClosed(1, count).mapToObj(i -> new PollTargetDTO((long) i, "tracking" + i, "usps", null, null));
+    }
+}
@@ -4,34 +4,46 @@ import com.aftership.sdk.AfterShip;
 import com.aftership.sdk.endpoint.TrackingEndpoint;
 import com.aftership.sdk.model.tracking.NewTracking;
 import com.aftership.sdk.model.tracking.Tracking;
+import com.vibrent.aftership.cache.TrackingRequestCache;
 import com.vibrent.aftership.converter.TrackingRequestConverter;
-import com.vibrent.aftership.converter.TrackingRequestErrorConverter;
 import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.dto.RoutingTokenDTO;
 import com.vibrent.aftership.exception.AfterShipNonRetriableException;
-import com.vibrent.aftership.repository.TrackingRequestErrorRepository;
+import com.vibrent.aftership.messaging.producer.impl.CacheInvalidationProducer;
 import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.resiliency.AdaptiveConcurrencyLimiter;
+import com.vibrent.aftership.resiliency.AfterShipCallExecutor;
+import com.vibrent.aftership.scheduling.NextPollCalculator;
 import com.vibrent.aftership.service.impl.AfterShipTrackingServiceImpl;
 import com.vibrent.aftership.service.impl.TrackingRequestServiceImpl;
+import com.vibrent.aftership.util.RoutingTokenUtil;
 import com.vibrent.aftership.vo.TrackDeliveryRequestVo;
 import com.vibrent.vxp.workflow.MessageHeaderDto;
 import com.vibrent.vxp.workflow.ParticipantDetailsDto;
 import com.vibrent.vxp.workflow.ProviderEnum;
 import com.vibrenthealth.resiliency.core.Output;
 import com.vibrenthealth.resiliency.core.RockSteadySystem;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.SneakyThrows;
 import org.apache.kafka.test.TestUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -51,7 +63,7 @@ class TrackingRequestServiceTest {
     private RockSteadySystem rockSteadySystem;
 
     @Mock
-    private TrackingRequestErrorRepository trackingRequestErrorRepository;
+    private TrackingRequestErrorService trackingRequestErrorService;
 
     @Mock
     private TrackingEndpoint trackingEndpoint;
@@ -60,7 +72,10 @@ class TrackingRequestServiceTest {
     private ExternalLogService externalLogService;
 
     @Mock
-    private TrackingRequestErrorConverter trackingRequestErrorConverter;
+    private TrackingRequestArchiveService trackingRequestArchiveService;
+
+    @Mock
+    private CacheInvalidationProducer cacheInvalidationProducer;
 
     private static TrackDeliveryRequestVo buildTrackDeliveryRequestVo() {
         ParticipantDetailsDto participant = new ParticipantDetailsDto();
@@ -75,14 +90,22 @@ class TrackingRequestServiceTest {
 
     @BeforeEach
     void setUp() throws Exception {
+        trackingRequestService = buildTrackingRequestService(false);
+
+        initializeTracking();
+    }
+
+    private TrackingRequestService buildTrackingRequestService(boolean routingTokenEnabled) throws Exception {
         AfterShip afterShip = new AfterShip("key");
         AfterShipTrackingService afterShipTrackingService = new AfterShipTrackingServiceImpl(afterShip, "408,429,503,504");
         TestUtils.setFieldValue(afterShip, "trackingEndpoint", trackingEndpoint);
 
-        trackingRequestService = new TrackingRequestServiceImpl(afterShipTrackingService, trackingRequestConverter, trackingRequestRepository,
-                rockSteadySystem, trackingRequestErrorRepository, externalLogService, trackingRequestErrorConverter, "PMI");
-
-        initializeTracking();
+        return new TrackingRequestServiceImpl(afterShipTrackingService, trackingRequestConverter, trackingRequestRepository,
+                new AfterShipCallExecutor(rockSteadySystem,
+                        new AdaptiveConcurrencyLimiter(false, 10, 1, 50, 100, Duration.ofSeconds(30), new SimpleMeterRegistry()), Duration.ofSeconds(15)), trackingRequestErrorService, externalLogService,
+                new NextPollCalculator(Duration.ofHours(2), 3, 0.2, List.of("Delivered", "Exception", "Expired")), trackingRequestArchiveService,
+                new TrackingRequestCache(trackingRequestRepository, cacheInvalidationProducer, true, 100, Duration.ofMinutes(1), false, new SimpleMeterRegistry()),
+                "PMI", routingTokenEnabled);
     }
 
     @DisplayName("when createTrackDeliveryRequest is invoked with null request " +
@@ -111,6 +134,17 @@ class TrackingRequestServiceTest {
         assertFalse(response);
     }
 
+    @DisplayName("when try to creating the tracking request for an archived trackingId " +
+            "then verify createTrackDeliveryRequest return false value.")
+    @Test
+    void whenArchivedTrackingIDReceivedThenVerifyCreateTrackDeliveryRequestReturnsFalseResponse() {
+        TrackDeliveryRequestVo requestDto = buildTrackDeliveryRequestVo();
+        when(trackingRequestRepository.findByTrackingId(requestDto.getTrackingID())).thenReturn(Optional.empty());
+        when(trackingRequestArchiveService.isArchived(requestDto.getTrackingID())).thenReturn(true);
+
+        assertFalse(trackingRequestService.createTrackDeliveryRequest(requestDto, new MessageHeaderDto()));
+        verify(trackingRequestRepository, never()).save(any());
+    }
 
     @DisplayName("Given createTrackDeliveryRequest is invoked with valid request and " +
             " aftership's createTracking request is successful " +
@@ -128,7 +162,7 @@ class TrackingRequestServiceTest {
         assertTrue(response);
         verify(trackingRequestConverter).toTrackingRequest(request, messageHeaderDto);
         verify(trackingRequestRepository).save(any());
-        verify(trackingRequestErrorRepository, times(0)).save(any());
+        verify(trackingRequestErrorService, times(0)).record(any(), any(), any());
         verify(externalLogService, times(1)).send(any(TrackDeliveryRequestVo.class), any(Long.class), any(Integer.class),
                 any(NewTracking.class), any(Long.class), any(String.class), any(String.class));
     }
@@ -147,7 +181,7 @@ class TrackingRequestServiceTest {
         var response = trackingRequestService.createTrackDeliveryRequest(request, new MessageHeaderDto());
         assertFalse(response);
         verify(trackingRequestRepository, times(0)).save(any());
-        verify(trackingRequestErrorRepository, times(1)).save(any());
+        verify(trackingRequestErrorService, times(1)).record(eq(request), any(), any(AfterShipNonRetriableException.class));
         verify(externalLogService, times(1)).send(any(TrackDeliveryRequestVo.class), any(Long.class), any(Integer.class),
                 any(NewTracking.class), any(Long.class), any(String.class), any(String.class));
     }
@@ -166,11 +200,38 @@ class TrackingRequestServiceTest {
         var response = trackingRequestService.createTrackDeliveryRequest(request, new MessageHeaderDto());
         assertFalse(response);
         verify(trackingRequestRepository, times(0)).save(any());
-        verify(trackingRequestErrorRepository, times(1)).save(any());
+        verify(trackingRequestErrorService, times(1)).record(eq(request), any(), any(AfterShipNonRetriableException.class));
         verify(externalLogService, times(1)).send(any(TrackDeliveryRequestVo.class), any(Long.class), nullable(Integer.class),
                 any(NewTracking.class), any(Long.class), any(String.class), any(String.class));
     }
 
+    @DisplayName("When the routing token is enabled and a tracking is created " +
+            "then verify the custom fields carry a routing token of the header, fulfillment order and provider.")
+    @SneakyThrows
+    @Test
+    void whenRoutingTokenEnabledVerifyTokenIsSentInCustomFields() {
+        trackingRequestService = buildTrackingRequestService(true);
+        var request = buildTrackDeliveryRequestVo();
+        request.setFulfillmentOrderID(7L);
+        request.setCarrierCode(ProviderEnum.USPS.toValue());
+        var messageHeaderDto = new MessageHeaderDto();
+        messageHeaderDto.setVxpWorkflowInstanceID("WorkflowInstanceID_1");
+        when(rockSteadySystem.executeWithRetries(any(), any(), any())).thenReturn(new Output<>(tracking));
+        when(trackingRequestConverter.toTrackingRequest(request, messageHeaderDto)).thenReturn(new TrackingRequest());
+        when(trackingRequestRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertTrue(trackingRequestService.createTrackDeliveryRequest(request, messageHeaderDto));
+
+        ArgumentCaptor<NewTracking> newTracking = ArgumentCaptor.forClass(NewTracking.class);
+        verify(externalLogService).send(any(TrackDeliveryRequestVo.class), any(Long.class), any(Integer.class),
+                newTracking.capture(), any(Long.class), any(String.class), any(String.class));
+        Map<String, String> customFields = newTracking.getValue().getCustomFields();
+        assertEquals("PMI", customFields.get(TrackingRequestServiceImpl.CUSTOM_FIELD_PLATFORM_ID));
+        RoutingTokenDTO routingToken = RoutingTokenUtil.decode(customFields.get(TrackingRequestServiceImpl.CUSTOM_FIELD_ROUTING_TOKEN)).orElseThrow();
+        assertEquals("WorkflowInstanceID_1", routingToken.getHeader().getVxpWorkflowInstanceID());
+        assertEquals(7L, (long) routingToken.getFulfillmentOrderID());
+        assertEquals(ProviderEnum.USPS.toValue(), routingToken.getProvider());
+    }
 
     private void initializeTracking() {
         tracking = new Tracking();
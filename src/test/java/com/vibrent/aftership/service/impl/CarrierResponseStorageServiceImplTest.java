@@ -0,0 +1,162 @@
+package com.vibrent.aftership.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.vibrent.aftership.domain.TrackingRequest;
+import com.vibrent.aftership.enums.CarrierResponseFormat;
+import com.vibrent.aftership.enums.CarrierResponseType;
+import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.repository.projection.TrackingRequestCarrierResponseView;
+import com.vibrent.aftership.scheduling.GetTrackingJob;
+import com.vibrent.aftership.util.CompressionUtil;
+import com.vibrent.aftership.util.JacksonUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.vibrent.aftership.integration.scheduling.GetTrackingJobTest.invalidCarrierResponse;
+import static com.vibrent.aftership.integration.scheduling.GetTrackingJobTest.notificationCarrierResponse;
+import static com.vibrent.aftership.integration.scheduling.GetTrackingJobTest.trackingCarrierResponse;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CarrierResponseStorageServiceImplTest {
+
+    @Mock
+    private TrackingRequestRepository trackingRequestRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @DisplayName("When a notification is stored in the compact format " +
+            "Then verify it is deflated to a fraction of its size and keeps the slug and the last checkpoints")
+    @Test
+    void compactNotificationKeepsUsedFields() throws Exception {
+        TrackingRequest trackingRequest = new TrackingRequest();
+
+        service(CarrierResponseFormat.COMPACT).store(trackingRequest, notificationCarrierResponse, CarrierResponseType.NOTIFICATION.toString());
+
+        byte[] compressed = trackingRequest.getCarrierResponseCompressed();
+        assertNotNull(compressed);
+        assertTrue(compressed.length * 5 < notificationCarrierResponse.getBytes(StandardCharsets.UTF_8).length,
+                "compressed " + compressed.length + " bytes");
+
+        JsonNode stored = JacksonUtil.getMapper().readTree(trackingRequest.getCarrierResponse());
+        assertEquals("tracking_update", stored.get("event").asText());
+        assertEquals(3, stored.get("msg").get("checkpoints").size());
+        assertEquals("Delivered", stored.get("msg").get("checkpoints").get(2).get("tag").asText());
+        assertEquals("85381410", stored.get("msg").get("customFields").get("vibrentid").asText());
+        assertNull(stored.get("msg").get("courierRedirectLink"));
+        assertEquals("dhl", GetTrackingJob.getSlugFromCarrierResponse(trackingRequest.getCarrierResponse(), trackingRequest.getCarrierResponseType()));
+        assertEquals(compressed.length, meterRegistry.summary("afterShip.carrierResponse.size", "form", "stored").totalAmount());
+    }
+
+    @DisplayName("When a tracking is stored in the compact format " +
+            "Then verify the slug is read from the inflated carrier response")
+    @Test
+    void compactTrackingKeepsSlug() {
+        TrackingRequest trackingRequest = new TrackingRequest();
+
+        service(CarrierResponseFormat.COMPACT).store(trackingRequest, trackingCarrierResponse, CarrierResponseType.TRACKING.toString());
+
+        assertTrue(trackingRequest.getCarrierResponseCompressed().length * 3 < trackingCarrierResponse.length());
+        assertEquals("usps-api", GetTrackingJob.getSlugFromCarrierResponse(trackingRequest.getCarrierResponse(), CarrierResponseType.TRACKING.toString()));
+    }
+
+    @DisplayName("When a carrier response is not valid JSON " +
+            "Then verify it is compressed without trimming")
+    @Test
+    void compactInvalidJsonIsNotTrimmed() {
+        TrackingRequest trackingRequest = new TrackingRequest();
+
+        service(CarrierResponseFormat.COMPACT).store(trackingRequest, invalidCarrierResponse, CarrierResponseType.TRACKING.toString());
+
+        assertEquals(invalidCarrierResponse, CompressionUtil.inflate(trackingRequest.getCarrierResponseCompressed()));
+    }
+
+    @DisplayName("When a carrier response is stored in the JSON format " +
+            "Then verify it is stored as received and a compressed one is cleared")
+    @Test
+    void jsonFormatStoresAsReceived() {
+        TrackingRequest trackingRequest = new TrackingRequest();
+        trackingRequest.setCarrierResponseCompressed(CompressionUtil.deflate("{}"));
+
+        service(CarrierResponseFormat.JSON).store(trackingRequest, trackingCarrierResponse, CarrierResponseType.TRACKING.toString());
+
+        assertNull(trackingRequest.getCarrierResponseCompressed());
+        assertEquals(trackingCarrierResponse, trackingRequest.getCarrierResponse());
+        assertEquals(CarrierResponseType.TRACKING.toString(), trackingRequest.getCarrierResponseType());
+    }
+
+    @DisplayName("When stored carrier responses are compacted in the JSON format " +
+            "Then verify nothing is read")
+    @Test
+    void compactStoredSkippedInJsonFormat() {
+        assertEquals(0, service(CarrierResponseFormat.JSON).compactStored());
+        verifyNoInteractions(trackingRequestRepository);
+    }
+
+    @DisplayName("When stored carrier responses are compacted " +
+            "Then verify every page is compacted after the last id and rows updated meanwhile are not counted")
+    @Test
+    void compactStoredPagesByKeyset() {
+        CarrierResponseStorageServiceImpl service = new CarrierResponseStorageServiceImpl(trackingRequestRepository, transactionManager,
+                CarrierResponseFormat.COMPACT, 3, 2, meterRegistry);
+        when(trackingRequestRepository.findUncompressedCarrierResponses(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(view(1L), view(4L)));
+        when(trackingRequestRepository.findUncompressedCarrierResponses(eq(4L), any(Pageable.class)))
+                .thenReturn(List.of(view(7L)));
+        when(trackingRequestRepository.compressCarrierResponse(anyLong(), any(byte[].class), anyLong())).thenReturn(1, 0, 1);
+
+        assertEquals(2, service.compactStored());
+
+        verify(trackingRequestRepository, times(3)).compressCarrierResponse(anyLong(), any(byte[].class), eq(100L));
+        assertEquals(2, meterRegistry.counter("afterShip.carrierResponse.compacted").count());
+    }
+
+    private CarrierResponseStorageServiceImpl service(CarrierResponseFormat format) {
+        return new CarrierResponseStorageServiceImpl(trackingRequestRepository, transactionManager, format, 3, 500, meterRegistry);
+    }
+
+    private static TrackingRequestCarrierResponseView view(Long id) {
+        return new TrackingRequestCarrierResponseView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getCarrierResponse() {
+                return trackingCarrierResponse;
+            }
+
+            @Override
+            public String getCarrierResponseType() {
+                return CarrierResponseType.TRACKING.toString();
+            }
+
+            @Override
+            public Long getUpdatedOn() {
+                return 100L;
+            }
+        };
+    }
+}
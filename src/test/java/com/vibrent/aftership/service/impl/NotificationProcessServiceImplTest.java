@@ -1,28 +1,48 @@
 package com.vibrent.aftership.service.impl;
 
 import com.aftership.sdk.model.tracking.Tracking;
+import com.vibrent.aftership.audit.AuditDeltaWriter;
+import com.vibrent.aftership.audit.TrackingRequestRevisionWriter;
+import com.vibrent.aftership.cache.TrackingRequestCache;
 import com.vibrent.aftership.converter.FulfillmentTrackDeliveryResponseConverter;
 import com.vibrent.aftership.converter.TrackDeliveryResponseConverter;
 import com.vibrent.aftership.domain.TrackingRequest;
 import com.vibrent.aftership.dto.NotificationDTO;
+import com.vibrent.aftership.enums.CarrierResponseFormat;
+import com.vibrent.aftership.messaging.producer.impl.CacheInvalidationProducer;
 import com.vibrent.aftership.messaging.producer.impl.FulfillmentTrackingResponseProducer;
 import com.vibrent.aftership.messaging.producer.impl.TrackingResponseProducer;
 import com.vibrent.aftership.repository.TrackingRequestRepository;
+import com.vibrent.aftership.routing.DeferredStatusWriter;
+import com.vibrent.aftership.scheduling.NextPollCalculator;
 import com.vibrent.aftership.service.NotificationProcessService;
+import com.vibrent.aftership.service.OutboxService;
+import com.vibrent.aftership.util.FingerprintUtil;
+import com.vibrent.aftership.util.RoutingTokenUtil;
+import com.vibrent.vxp.workflow.MessageHeaderDto;
 import com.vibrent.vxp.workflow.OperationEnum;
 import com.vibrent.vxp.workflow.ProviderEnum;
 import com.vibrent.vxp.workflow.StatusEnum;
+import com.vibrent.vxp.workflow.TrackDeliveryResponseDtoWrapper;
+import com.vibrent.vxp.workflow.WorkflowNameEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.util.*;
 
 import static com.vibrent.aftership.service.impl.TrackingRequestServiceImpl.*;
-import static org.mockito.ArgumentMatchers.any;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -43,46 +63,95 @@ public class NotificationProcessServiceImplTest {
     @Mock
     private TrackingRequestRepository trackingRequestRepository;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private CacheInvalidationProducer cacheInvalidationProducer;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private DeferredStatusWriter deferredStatusWriter;
+
+    @Mock
+    private TrackingRequestRevisionWriter trackingRequestRevisionWriter;
+
     private NotificationDTO notificationDTO;
     private TrackingRequest trackingRequest;
     List<String> exceptionSubStatus;
 
     private final Date lastUpdatedAt = new Date();
+    private SimpleMeterRegistry meterRegistry;
 
     @Before
     public void setup() {
         initializeExceptionSubStatusList();
         trackDeliveryResponseConverter = new TrackDeliveryResponseConverter();
         fulfillmentTrackDeliveryResponseConverter = new FulfillmentTrackDeliveryResponseConverter();
-        notificationProcessService = new NotificationProcessServiceImpl(trackDeliveryResponseConverter, fulfillmentTrackDeliveryResponseConverter, trackingResponseProducer, fulfillmentTrackingResponseProducer, trackingRequestRepository, exceptionSubStatus, "PMI");
+        meterRegistry = new SimpleMeterRegistry();
+        TrackingRequestCache trackingRequestCache = new TrackingRequestCache(trackingRequestRepository, cacheInvalidationProducer,
+                false, 100, Duration.ofMinutes(1), false, new SimpleMeterRegistry());
+        notificationProcessService = new NotificationProcessServiceImpl(trackDeliveryResponseConverter, fulfillmentTrackDeliveryResponseConverter, trackingResponseProducer, fulfillmentTrackingResponseProducer, trackingRequestRepository,
+                new NextPollCalculator(Duration.ofHours(2), 3, 0.2, List.of("Delivered", "Exception", "Expired")),
+                new TrackingRequestArchiveServiceImpl(trackingRequestRepository, trackingRequestCache, transactionManager, 500, List.of("Delivered", "Exception", "Expired")),
+                new CarrierResponseStorageServiceImpl(trackingRequestRepository, transactionManager, CarrierResponseFormat.JSON, 3, 500, new SimpleMeterRegistry()),
+                trackingRequestCache, new AuditDeltaWriter(null, false, 10, 10, Duration.ofSeconds(1), new SimpleMeterRegistry()),
+                trackingRequestRevisionWriter, outboxService, deferredStatusWriter, transactionManager, meterRegistry, exceptionSubStatus, "PMI");
         initializeNotificationDTO();
         initializeTrackingRequest();
     }
 
     @Test
     public void process() {
+        statusUpdateApplies();
         when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
         notificationProcessService.process(notificationDTO);
         verify(trackingResponseProducer).send(any());
-        verify(trackingRequestRepository).save(any());
+        verifyStatusUpdate();
+    }
+
+    @DisplayName("When the tracking request of a notification was archived then verify it is restored and processed")
+    @Test
+    public void processWhenTrackingRequestIsArchived() {
+        statusUpdateApplies();
+        when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.empty(), Optional.of(trackingRequest));
+        when(this.trackingRequestRepository.restoreFromArchive(notificationDTO.getMsg().getTrackingNumber())).thenReturn(1);
+        notificationProcessService.process(notificationDTO);
+        verify(trackingRequestRepository).deleteFromArchive(notificationDTO.getMsg().getTrackingNumber());
+        verify(trackingResponseProducer).send(any());
+        verifyStatusUpdate();
+    }
+
+    @DisplayName("When the tracking request of a notification is neither stored nor archived then verify nothing is processed")
+    @Test
+    public void processWhenTrackingRequestIsNotFound() {
+        when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.empty());
+        notificationProcessService.process(notificationDTO);
+        verify(trackingRequestRepository, never()).deleteFromArchive(any());
+        verify(trackingResponseProducer, never()).send(any());
+        verifyNoUpdate();
     }
 
     @Test
     public void processFulfillmentDto() {
+        statusUpdateApplies();
         trackingRequest.setFulfillmentOrderID(1L);
         when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
         notificationProcessService.process(notificationDTO);
         verify(fulfillmentTrackingResponseProducer, times(1)).send(any());
-        verify(trackingRequestRepository, times(1)).save(any());
+        verifyStatusUpdate();
     }
 
     @Test
     public void processWhenUnknownStatus() {
+        statusUpdateApplies();
         when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
         notificationDTO.getMsg().setTag("Unknown");
         notificationProcessService.process(notificationDTO);
         verify(trackingResponseProducer, times(0)).send(any());
-        verify(trackingRequestRepository, times(1)).save(any());
+        verifyStatusUpdate();
     }
 
     @DisplayName("When same status is received in Notification msg then verify no tracking response sent")
@@ -95,24 +164,41 @@ public class NotificationProcessServiceImplTest {
         notificationProcessService.process(notificationDTO);
 
         verify(trackingResponseProducer, times(0)).send(any());
-        verify(trackingRequestRepository, times(1)).save(any());
+        verify(trackingRequestRepository, never()).compareAndSetStatus(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any());
+        verify(trackingRequestRepository).updateCarrierResponse(any(), eq("InTransit"), isNull(), any(), any(), any(), any(), eq("NOTIFICATION"), any(), any(), anyLong());
+    }
+
+    @DisplayName("When the same status and details as last stored are received then verify the tracking request is not written")
+    @Test
+    public void processWhenNothingMaterialChanged() {
+        trackingRequest.setStatus("InTransit");
+        trackingRequest.setFingerprint(FingerprintUtil.fingerprint(notificationDTO.getMsg()));
+        when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
+
+        notificationProcessService.process(notificationDTO);
+
+        verify(trackingResponseProducer, never()).send(any());
+        verifyNoUpdate();
+        assertEquals(1, meterRegistry.counter("afterShip.trackingUpdate", "result", "skipped").count(), 0);
     }
 
     @DisplayName("When exception sub tag verify no tracking response sent")
     @Test
     public void processWhenExceptionStatusReceived() {
+        statusUpdateApplies();
         when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
         notificationDTO.getMsg().setSubtag("Exception_011");
 
         notificationProcessService.process(notificationDTO);
 
         verify(trackingResponseProducer, times(0)).send(any());
-        verify(trackingRequestRepository, times(1)).save(any());
+        verifyStatusUpdate();
     }
 
     @DisplayName("When different status is received in Notification msg and status saved in DB is null then verify tracking response sent")
     @Test
     public void processWhenDifferentStatusReceivedAndStatusInDbIsNull() {
+        statusUpdateApplies();
         trackingRequest.setStatus(null);
         when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
         notificationDTO.getMsg().setTag("InTransit");
@@ -120,12 +206,13 @@ public class NotificationProcessServiceImplTest {
         notificationProcessService.process(notificationDTO);
 
         verify(trackingResponseProducer, times(1)).send(any());
-        verify(trackingRequestRepository, times(1)).save(any());
+        verifyStatusUpdate();
     }
 
     @DisplayName("When different status is received in Notification msg and status saved in DB is not null then verify tracking response sent")
     @Test
     public void processWhenDifferentStatusReceived() {
+        statusUpdateApplies();
         trackingRequest.setStatus(StatusEnum.PENDING_TRACKING.toValue());
         when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
         notificationDTO.getMsg().setTag("InTransit");
@@ -133,54 +220,89 @@ public class NotificationProcessServiceImplTest {
         notificationProcessService.process(notificationDTO);
 
         verify(trackingResponseProducer, times(1)).send(any());
-        verify(trackingRequestRepository, times(1)).save(any());
+        verifyStatusUpdate();
     }
 
     @DisplayName("When Pending status is received in Tracking object then verify notification get process and tracking response sent")
     @Test
     public void processGetTracking() {
+        statusUpdateApplies();
         notificationProcessService.process(notificationDTO.getMsg(),trackingRequest);
         verify(trackingResponseProducer, times(1)).send(any());
-        verify(trackingRequestRepository, times(1)).save(any());
+        verifyStatusUpdate();
+    }
+
+    @DisplayName("When the Tracking object contains a slug then verify it is stored on the tracking request")
+    @Test
+    public void processGetTrackingStoresSlug() {
+        statusUpdateApplies();
+        notificationDTO.getMsg().setSlug("usps");
+        notificationProcessService.process(notificationDTO.getMsg(), trackingRequest);
+        verify(trackingRequestRepository).compareAndSetStatus(any(), any(), any(), any(), eq("usps"), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @DisplayName("When the status of the tracking changes then verify the carrier event time of the status change and the next poll are stored")
+    @Test
+    public void processGetTrackingSchedulesNextPoll() {
+        statusUpdateApplies();
+        notificationProcessService.process(notificationDTO.getMsg(), trackingRequest);
+        ArgumentCaptor<Long> lastEventAt = ArgumentCaptor.forClass(Long.class);
+        ArgumentCaptor<Long> nextPollAt = ArgumentCaptor.forClass(Long.class);
+        verify(trackingRequestRepository).compareAndSetStatus(any(), any(), any(), any(), any(), any(), any(), any(), lastEventAt.capture(), nextPollAt.capture(), any(), any());
+        assertEquals(lastUpdatedAt.getTime(), (long) lastEventAt.getValue());
+        assertTrue(nextPollAt.getValue() >= lastEventAt.getValue() + Duration.ofHours(2).toMillis());
+    }
+
+    @DisplayName("When the status of the tracking changes and the audit write-behind is disabled then verify the revision of the update is recorded")
+    @Test
+    public void processGetTrackingRecordsRevision() {
+        statusUpdateApplies();
+        trackingRequest.setTrackingId(notificationDTO.getMsg().getTrackingNumber());
+        notificationProcessService.process(notificationDTO.getMsg(), trackingRequest);
+        verify(trackingRequestRevisionWriter).recordUpdate(notificationDTO.getMsg().getTrackingNumber());
     }
 
     @DisplayName("When FulfillmentId is received in Tracking object then verify notification get process and tracking response sent")
     @Test
     public void processGetTrackingFulfillment() {
+        statusUpdateApplies();
         trackingRequest.setFulfillmentOrderID(1L);
         notificationProcessService.process(notificationDTO.getMsg(),trackingRequest);
         verify(fulfillmentTrackingResponseProducer, times(1)).send(any());
-        verify(trackingRequestRepository, times(1)).save(any());
+        verifyStatusUpdate();
     }
 
     @DisplayName("When FulfillmentId is received in Tracking object and status is received in Notification msg and status saved in DB is not null then verify tracking response not sent")
     @Test
     public void processGetTrackingFulfillmentUnknownTag() {
+        statusUpdateApplies();
         trackingRequest.setFulfillmentOrderID(1L);
         notificationDTO.getMsg().setTag("Unknown");
         notificationProcessService.process(notificationDTO.getMsg(),trackingRequest);
         verify(trackingResponseProducer, times(0)).send(any());
-        verify(trackingRequestRepository, times(1)).save(any());
+        verifyStatusUpdate();
     }
 
     @DisplayName("When FulfillmentId is received in Tracking object and Exception status is received in Notification msg and status saved in DB is not null then verify tracking response not sent")
     @Test
     public void processGetTrackingFulfillmentReturnNull() {
+        statusUpdateApplies();
         trackingRequest.setFulfillmentOrderID(1L);
         notificationDTO.getMsg().setTag("Exception");
         notificationDTO.getMsg().setSubtag("Exception_007");
         notificationProcessService.process(notificationDTO.getMsg(),trackingRequest);
         verify(trackingResponseProducer, times(0)).send(any());
-        verify(trackingRequestRepository, times(1)).save(any());
+        verifyStatusUpdate();
     }
 
     @DisplayName("When same status is received in Notification msg then verify no tracking response not sent")
     @Test
     public void processGetTrackingWhenUnknownStatus() {
+        statusUpdateApplies();
         notificationDTO.getMsg().setTag("Unknown");
         notificationProcessService.process(notificationDTO.getMsg(),trackingRequest);
         verify(trackingResponseProducer, times(0)).send(any());
-        verify(trackingRequestRepository, times(1)).save(any());
+        verifyStatusUpdate();
     }
 
     @DisplayName("When same status is received in Notification msg then verify no tracking response sent")
@@ -192,36 +314,39 @@ public class NotificationProcessServiceImplTest {
         notificationProcessService.process(notificationDTO.getMsg(),trackingRequest);
 
         verify(trackingResponseProducer, times(0)).send(any());
-        verify(trackingRequestRepository, times(0)).save(any());
+        verifyNoUpdate();
     }
 
     @DisplayName("When different status is received in Notification msg and status saved in DB is null then verify tracking response sent")
     @Test
     public void processGetTrackingWhenDifferentStatusReceivedAndStatusInDbIsNull() {
+        statusUpdateApplies();
         trackingRequest.setStatus(null);
         notificationDTO.getMsg().setTag("InTransit");
 
         notificationProcessService.process(notificationDTO.getMsg(),trackingRequest);
 
         verify(trackingResponseProducer, times(1)).send(any());
-        verify(trackingRequestRepository, times(1)).save(any());
+        verifyStatusUpdate();
     }
 
     @DisplayName("When different status is received in Notification msg and status saved in DB is not null then verify tracking response sent")
     @Test
     public void processGetTrackingWhenDifferentStatusReceived() {
+        statusUpdateApplies();
         trackingRequest.setStatus(StatusEnum.PENDING_TRACKING.toValue());
         notificationDTO.getMsg().setTag("InTransit");
 
         notificationProcessService.process(notificationDTO.getMsg(),trackingRequest);
 
         verify(trackingResponseProducer, times(1)).send(any());
-        verify(trackingRequestRepository, times(1)).save(any());
+        verifyStatusUpdate();
     }
 
     @DisplayName("When Exception_011 sub tag received in Notification msg then verify no tracking response sent")
     @Test
     public void processGetTrackingWhenExceptionSubTag11StatusReceived() {
+        statusUpdateApplies();
         notificationDTO.getMsg().setTag("Exception");
         notificationDTO.getMsg().setSubtag("Exception_011");
         notificationProcessService.process(notificationDTO.getMsg(),trackingRequest);
@@ -232,6 +357,7 @@ public class NotificationProcessServiceImplTest {
     @DisplayName("When Exception_012 sub tag received in Notification msg then verify no tracking response sent")
     @Test
     public void processGetTrackingWhenExceptionSubTag12StatusReceived() {
+        statusUpdateApplies();
         notificationDTO.getMsg().setTag("Exception");
         notificationDTO.getMsg().setSubtag("Exception_012");
         notificationProcessService.process(notificationDTO.getMsg(),trackingRequest);
@@ -242,6 +368,7 @@ public class NotificationProcessServiceImplTest {
     @DisplayName("When Exception_013 sub tag received in Notification msg then verify no tracking response sent")
     @Test
     public void processGetTrackingWhenExceptionSubTag13StatusReceived() {
+        statusUpdateApplies();
 
         notificationDTO.getMsg().setSubtag("Exception_013");
         notificationProcessService.process(notificationDTO.getMsg(),trackingRequest);
@@ -252,6 +379,7 @@ public class NotificationProcessServiceImplTest {
     @DisplayName("When Exception_002 sub tag received in Notification msg then verify no tracking response sent")
     @Test
     public void processGetTrackingWhenExceptionSubTag02StatusReceived() {
+        statusUpdateApplies();
         notificationDTO.getMsg().setTag("Exception");
         notificationDTO.getMsg().setSubtag("Exception_002");
         notificationProcessService.process(notificationDTO.getMsg(),trackingRequest);
@@ -262,6 +390,7 @@ public class NotificationProcessServiceImplTest {
     @DisplayName("When Exception_003 sub tag received in Notification msg then verify no tracking response sent")
     @Test
     public void processGetTrackingWhenExceptionSubTag03StatusReceived() {
+        statusUpdateApplies();
         notificationDTO.getMsg().setTag("Exception");
         notificationDTO.getMsg().setSubtag("Exception_003");
         notificationProcessService.process(notificationDTO.getMsg(),trackingRequest);
@@ -271,6 +400,7 @@ public class NotificationProcessServiceImplTest {
     @DisplayName("When Exception_007 sub tag received in Notification msg then verify no tracking response sent")
     @Test
     public void processGetTrackingWhenExceptionSubTag07StatusReceived() {
+        statusUpdateApplies();
         notificationDTO.getMsg().setTag("Exception");
         notificationDTO.getMsg().setSubtag("Exception_007");
         notificationProcessService.process(notificationDTO.getMsg(),trackingRequest);
@@ -284,33 +414,196 @@ public class NotificationProcessServiceImplTest {
         notificationDTO.getMsg().getCustomFields().put(CUSTOM_FIELD_PLATFORM_ID, "VRP");
         notificationProcessService.process(notificationDTO);
         verify(fulfillmentTrackingResponseProducer, times(0)).send(any());
-        verify(trackingRequestRepository, times(0)).save(any());
+        verifyNoUpdate();
 
     }
     @DisplayName("When platform requested platform is null then verify request got process")
     @Test
     public void processTrackingWhenPlatformIsNull() {
+        statusUpdateApplies();
         when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
         notificationDTO.getMsg().getCustomFields().put(CUSTOM_FIELD_PLATFORM_ID, null);
         notificationProcessService.process(notificationDTO);
         verify(trackingResponseProducer).send(any());
-        verify(trackingRequestRepository).save(any());
+        verifyStatusUpdate();
     }
 
     @DisplayName("When platform requested platform  is empty then verify request got process")
     @Test
     public void processTrackingWhenPlatformIsEmpty() {
+        statusUpdateApplies();
         when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
         notificationDTO.getMsg().getCustomFields().put(CUSTOM_FIELD_PLATFORM_ID, "");
         notificationProcessService.process(notificationDTO);
         verify(trackingResponseProducer).send(any());
-        verify(trackingRequestRepository).save(any());
+        verifyStatusUpdate();
+
+    }
+
+    @DisplayName("When a concurrent update changed the status first then verify no tracking response sent")
+    @Test
+    public void processWhenStatusChangedConcurrently() {
+        when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
+        when(trackingRequestRepository.compareAndSetStatus(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any())).thenReturn(0);
+
+        notificationProcessService.process(notificationDTO);
+
+        verifyStatusUpdate();
+        verify(trackingResponseProducer, never()).send(any());
+    }
+
+    @DisplayName("When the outbox is enabled then verify the status update and the response are committed together")
+    @Test
+    public void processWithOutbox() {
+        statusUpdateApplies();
+        when(outboxService.isEnabled()).thenReturn(true);
+        when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
+
+        notificationProcessService.process(notificationDTO);
+
+        verifyStatusUpdate();
+        verify(trackingResponseProducer).send(any());
+        verify(transactionManager).commit(any());
+    }
+
+    @DisplayName("When the outbox is enabled and the response cannot be written then verify the status update is rolled back")
+    @Test
+    public void processWithOutboxWhenResponseFails() {
+        statusUpdateApplies();
+        when(outboxService.isEnabled()).thenReturn(true);
+        when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
+        doThrow(new IllegalStateException("outbox unavailable")).when(trackingResponseProducer).send(any());
+
+        notificationProcessService.process(notificationDTO);
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @DisplayName("When the status change is applied then verify the read tracking request is left unchanged")
+    @Test
+    public void processGetTrackingLeavesTrackingRequestUnchanged() {
+        statusUpdateApplies();
+        notificationProcessService.process(notificationDTO.getMsg(), trackingRequest);
+        assertEquals(StatusEnum.PENDING_TRACKING.toValue(), trackingRequest.getStatus());
+        assertNull(trackingRequest.getCarrierResponse());
+        verify(trackingRequestRepository, never()).save(any());
+    }
+
+    @DisplayName("When a notification carries a routing token then verify its update is queued without reading the tracking request " +
+            "and the response built from the token is sent once the status changed")
+    @Test
+    public void processRoutedNotification() {
+        routingTokenEnabled();
+        when(deferredStatusWriter.enqueue(any(), any(), any(), any())).thenReturn(true);
+
+        notificationProcessService.process(notificationDTO);
+
+        verify(trackingRequestRepository, never()).findByTrackingId(any());
+        ArgumentCaptor<TrackingRequest> updated = ArgumentCaptor.forClass(TrackingRequest.class);
+        ArgumentCaptor<Runnable> onStatusChanged = ArgumentCaptor.forClass(Runnable.class);
+        verify(deferredStatusWriter).enqueue(updated.capture(), onStatusChanged.capture(), any(), any());
+        assertEquals("tracking_number_1", updated.getValue().getTrackingId());
+        assertEquals("InTransit", updated.getValue().getStatus());
+        assertEquals(FingerprintUtil.fingerprint(notificationDTO.getMsg()), updated.getValue().getFingerprint().longValue());
+        verify(trackingResponseProducer, never()).send(any());
+
+        onStatusChanged.getValue().run();
+
+        ArgumentCaptor<TrackDeliveryResponseDtoWrapper> response = ArgumentCaptor.forClass(TrackDeliveryResponseDtoWrapper.class);
+        verify(trackingResponseProducer).send(response.capture());
+        assertEquals("WorkflowInstanceID_1", response.getValue().getHeader().getVxpWorkflowInstanceID());
+        assertEquals(1000L, (long) response.getValue().getHeader().getVxpUserID());
+        verifyNoUpdate();
+    }
+
+    @DisplayName("When a routed notification only changes the sub status then verify the response of its unchanged tag is not sent again")
+    @Test
+    public void processRoutedNotificationSubStatusChange() {
+        routingTokenEnabled();
+        when(deferredStatusWriter.enqueue(any(), any(), any(), any())).thenReturn(true);
+
+        notificationProcessService.process(notificationDTO);
+        ArgumentCaptor<Runnable> onSubStatusChanged = ArgumentCaptor.forClass(Runnable.class);
+        verify(deferredStatusWriter).enqueue(any(), any(), onSubStatusChanged.capture(), any());
+        onSubStatusChanged.getValue().run();
+
+        verify(trackingResponseProducer, never()).send(any());
+        verifyNoUpdate();
+    }
+
+    @DisplayName("When the deferred update of a routed notification falls back then verify it is processed from the stored tracking request")
+    @Test
+    public void processRoutedNotificationFallback() {
+        routingTokenEnabled();
+        statusUpdateApplies();
+        when(deferredStatusWriter.enqueue(any(), any(), any(), any())).thenReturn(true);
+        when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
+
+        notificationProcessService.process(notificationDTO);
+        ArgumentCaptor<Runnable> fallback = ArgumentCaptor.forClass(Runnable.class);
+        verify(deferredStatusWriter).enqueue(any(), any(), any(), fallback.capture());
+        fallback.getValue().run();
+
+        verify(trackingResponseProducer).send(any());
+        verifyStatusUpdate();
+    }
+
+    @DisplayName("When the deferred status writer does not take a routed notification then verify it is processed from the stored tracking request")
+    @Test
+    public void processRoutedNotificationWhenQueueIsFull() {
+        routingTokenEnabled();
+        statusUpdateApplies();
+        when(deferredStatusWriter.enqueue(any(), any(), any(), any())).thenReturn(false);
+        when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
+
+        notificationProcessService.process(notificationDTO);
+
+        verify(trackingResponseProducer).send(any());
+        verifyStatusUpdate();
+    }
+
+    @DisplayName("When a notification has no routing token then verify it is processed from the stored tracking request")
+    @Test
+    public void processNotificationWithoutRoutingToken() {
+        when(deferredStatusWriter.isEnabled()).thenReturn(true);
+        statusUpdateApplies();
+        when(this.trackingRequestRepository.findByTrackingId(notificationDTO.getMsg().getTrackingNumber())).thenReturn(Optional.of(trackingRequest));
+
+        notificationProcessService.process(notificationDTO);
+
+        verify(deferredStatusWriter, never()).enqueue(any(), any(), any(), any());
+        verify(trackingResponseProducer).send(any());
+        verifyStatusUpdate();
+    }
+
+    private void routingTokenEnabled() {
+        when(deferredStatusWriter.isEnabled()).thenReturn(true);
+        MessageHeaderDto messageHeaderDto = new MessageHeaderDto();
+        messageHeaderDto.setVxpHeaderVersion("2.1.3");
+        messageHeaderDto.setVxpMessageSpecVersion("2.1.2");
+        messageHeaderDto.setVxpWorkflowName(WorkflowNameEnum.SALIVARY_KIT_ORDER);
+        messageHeaderDto.setVxpWorkflowInstanceID("WorkflowInstanceID_1");
+        notificationDTO.getMsg().getCustomFields().put(CUSTOM_FIELD_ROUTING_TOKEN,
+                RoutingTokenUtil.encode(messageHeaderDto, null, ProviderEnum.USPS.toValue()));
+    }
+
+    private void statusUpdateApplies() {
+        when(trackingRequestRepository.compareAndSetStatus(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any())).thenReturn(1);
+    }
+
+    private void verifyStatusUpdate() {
+        verify(trackingRequestRepository).compareAndSetStatus(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
 
+    private void verifyNoUpdate() {
+        verify(trackingRequestRepository, never()).compareAndSetStatus(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any());
+        verify(trackingRequestRepository, never()).updateCarrierResponse(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any());
     }
 
     private void verifyNoTrackingResponseSent(){
         verify(trackingResponseProducer, times(0)).send(any());
-        verify(trackingRequestRepository, times(1)).save(any());
+        verifyStatusUpdate();
     }
     private void initializeNotificationDTO() {
         notificationDTO = new NotificationDTO();
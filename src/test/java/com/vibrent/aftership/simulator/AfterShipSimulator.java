@@ -0,0 +1,551 @@
+package com.vibrent.aftership.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.vibrent.aftership.util.JacksonUtil;
+import com.vibrent.aftership.util.SignatureUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embeddable, offline stand-in for the AfterShip v4 tracking API.
+ * <p>
+ * Supports create, get, list trackings and last checkpoint with an in-memory tracking store and AfterShip shaped
+ * payloads, so that the real {@code AfterShip} SDK (and therefore our HTTP behaviour, retries and load) can be
+ * exercised in tests. Latency, error injection and rate limiting are configurable at runtime, and tracking updates
+ * can be pushed to our webhook endpoint as signed callbacks.
+ * <p>
+ * Point the service at {@link #getBaseUrl()} through the {@code afterShip.baseUrl} property.
+ */
+@Slf4j
+public class AfterShipSimulator implements AutoCloseable {
+
+    public static final String BASE_PATH = "/v4";
+    public static final String HEADER_API_KEY = "aftership-api-key";
+    public static final String HEADER_RATE_LIMIT = "X-RateLimit-Limit";
+    public static final String HEADER_RATE_LIMIT_REMAINING = "X-RateLimit-Remaining";
+    public static final String HEADER_RATE_LIMIT_RESET = "X-RateLimit-Reset";
+    public static final String HEADER_WEBHOOK_SIGNATURE = "aftership-hmac-sha256";
+    public static final String DEFAULT_SLUG = "usps";
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssxxx");
+
+    private final String apiKey;
+    private final String webhookSecret;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final Map<String, ObjectNode> trackings = new ConcurrentHashMap<>();
+    private final List<String> creationOrder = new CopyOnWriteArrayList<>();
+    private final List<ScriptedFault> scriptedFaults = new CopyOnWriteArrayList<>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+
+    private volatile LatencyDistribution latency = LatencyDistribution.none();
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+    private volatile int rateLimitPerSecond;
+    private volatile WebhookSink webhookSink;
+
+    private final AtomicLong rateLimitWindow = new AtomicLong();
+    private final AtomicInteger rateLimitUsed = new AtomicInteger();
+
+    public AfterShipSimulator(String apiKey, String webhookSecret) {
+        this.apiKey = apiKey;
+        this.webhookSecret = webhookSecret;
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to bind AfterShip simulator", e);
+        }
+        this.executor = Executors.newFixedThreadPool(32);
+        this.server.setExecutor(executor);
+        this.server.createContext(BASE_PATH, this::handle);
+    }
+
+    public AfterShipSimulator start() {
+        server.start();
+        log.info("AfterShip simulator started on {}", getBaseUrl());
+        return this;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + BASE_PATH;
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Behaviour configuration
+    // ---------------------------------------------------------------------------------------------------------------
+
+    public AfterShipSimulator withLatency(LatencyDistribution latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Fails the given fraction of calls with {@code status}.
+     */
+    public AfterShipSimulator withErrorRate(double errorRate, int status) {
+        this.errorRate = errorRate;
+        this.errorStatus = status;
+        return this;
+    }
+
+    /**
+     * Enforces an API rate limit; calls above the limit within one second are rejected with 429. Zero disables it.
+     */
+    public AfterShipSimulator withRateLimit(int requestsPerSecond) {
+        this.rateLimitPerSecond = requestsPerSecond;
+        return this;
+    }
+
+    public AfterShipSimulator withWebhookSink(WebhookSink webhookSink) {
+        this.webhookSink = webhookSink;
+        return this;
+    }
+
+    /**
+     * Fails the next {@code times} calls with {@code status}, regardless of the configured error rate.
+     */
+    public AfterShipSimulator failNext(int times, int status) {
+        scriptedFaults.add(new ScriptedFault(times, status));
+        return this;
+    }
+
+    /**
+     * Clears the store, the counters and all injected faults.
+     */
+    public void reset() {
+        trackings.clear();
+        creationOrder.clear();
+        scriptedFaults.clear();
+        requestCounts.clear();
+        latency = LatencyDistribution.none();
+        errorRate = 0;
+        rateLimitPerSecond = 0;
+    }
+
+    public int getRequestCount(String operation) {
+        AtomicInteger count = requestCounts.get(operation);
+        return count == null ? 0 : count.get();
+    }
+
+    public Optional<JsonNode> getTracking(String slug, String trackingNumber) {
+        return Optional.ofNullable(trackings.get(key(slug, trackingNumber)));
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Carrier side of the simulation
+    // ---------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Adds a checkpoint to a stored tracking, moves it to the given tag / subtag and, when a webhook sink is
+     * configured, sends the signed {@code tracking_update} callback.
+     *
+     * @return HTTP status returned by the webhook receiver, or -1 if no sink is configured
+     */
+    public int advance(String slug, String trackingNumber, String tag, String subtag, String subtagMessage) throws Exception {
+        ObjectNode tracking = trackings.get(key(slug, trackingNumber));
+        if (tracking == null) {
+            throw new IllegalArgumentException("Unknown tracking " + slug + "/" + trackingNumber);
+        }
+
+        boolean firstTag;
+        String now = now();
+        synchronized (tracking) {
+            firstTag = !tag.equals(tracking.path("tag").asText());
+            ArrayNode checkpoints = (ArrayNode) tracking.get("checkpoints");
+            checkpoints.add(buildCheckpoint(slug, tag, subtag, subtagMessage, now));
+            tracking.put("tag", tag);
+            tracking.put("subtag", subtag);
+            tracking.put("subtag_message", subtagMessage);
+            tracking.put("active", !"Delivered".equals(tag) && !"Expired".equals(tag));
+            tracking.put("tracked_count", tracking.path("tracked_count").asInt() + 1);
+            tracking.put("updated_at", now);
+            tracking.put("last_updated_at", now);
+        }
+        return sendWebhook(tracking, firstTag);
+    }
+
+    public int sendWebhook(JsonNode tracking, boolean firstTag) throws Exception {
+        if (webhookSink == null) {
+            return -1;
+        }
+
+        ObjectNode webhook = JacksonUtil.getMapper().createObjectNode();
+        webhook.put("event_id", UUID.randomUUID().toString());
+        webhook.put("event", "tracking_update");
+        webhook.put("is_tracking_first_tag", firstTag);
+        webhook.set("msg", tracking.deepCopy());
+        webhook.put("ts", System.currentTimeMillis() / 1000);
+
+        String body = JacksonUtil.getMapper().writeValueAsString(webhook);
+        return webhookSink.deliver(body, SignatureUtil.generateSignature(body, webhookSecret));
+    }
+
+    /**
+     * Webhook sink that posts the callback to a real HTTP endpoint, e.g. {@code http://localhost:8080/api/aftership/notification}.
+     */
+    public static WebhookSink httpSink(String callbackUrl) {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        return (body, signature) -> client.send(HttpRequest.newBuilder(URI.create(callbackUrl))
+                        .header("Content-Type", "application/json")
+                        .header(HEADER_WEBHOOK_SIGNATURE, signature)
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(), HttpResponse.BodyHandlers.discarding())
+                .statusCode();
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // HTTP handling
+    // ---------------------------------------------------------------------------------------------------------------
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath().substring(BASE_PATH.length());
+            String[] segments = path.replaceAll("^/+|/+$", "").split("/");
+            String method = exchange.getRequestMethod();
+
+            sleep(latency.nextDelayMillis());
+
+            if (apiKey != null && !apiKey.equals(exchange.getRequestHeaders().getFirst(HEADER_API_KEY))) {
+                writeError(exchange, 401, 401, "Unauthorized", "Invalid API key.");
+                return;
+            }
+            if (!acquireRateLimit(exchange)) {
+                writeError(exchange, 429, 429, "TooManyRequests",
+                        "You have exceeded the API call rate limit. Default limit is " + rateLimitPerSecond + " req/sec.");
+                return;
+            }
+            Integer fault = nextFault();
+            if (fault != null) {
+                writeError(exchange, fault, fault, "InternalError", "Simulated failure.");
+                return;
+            }
+
+            if ("trackings".equals(segments[0]) && segments.length == 1 && "POST".equals(method)) {
+                count("create");
+                createTracking(exchange);
+            } else if ("trackings".equals(segments[0]) && segments.length == 1 && "GET".equals(method)) {
+                count("list");
+                listTrackings(exchange);
+            } else if ("trackings".equals(segments[0]) && segments.length == 3 && "GET".equals(method)) {
+                count("get");
+                getTracking(exchange, segments[1], segments[2]);
+            } else if ("last_checkpoint".equals(segments[0]) && segments.length == 3 && "GET".equals(method)) {
+                count("lastCheckpoint");
+                getLastCheckpoint(exchange, segments[1], segments[2]);
+            } else {
+                writeError(exchange, 404, 404, "NotFound", "The URI requested is invalid or the resource requested does not exist.");
+            }
+        } catch (Exception e) {
+            log.warn("AfterShip simulator failed to handle request {}", exchange.getRequestURI(), e);
+            writeError(exchange, 500, 500, "InternalError", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void createTracking(HttpExchange exchange) throws IOException {
+        JsonNode request;
+        try (InputStream body = exchange.getRequestBody()) {
+            request = JacksonUtil.getMapper().readTree(body).path("tracking");
+        }
+
+        String trackingNumber = request.path("tracking_number").asText(null);
+        if (trackingNumber == null || trackingNumber.isEmpty()) {
+            writeError(exchange, 400, 4005, "BadRequest", "The value of `tracking_number` is invalid.");
+            return;
+        }
+        String slug = request.path("slug").asText(DEFAULT_SLUG);
+        if (slug.isEmpty()) {
+            slug = DEFAULT_SLUG;
+        }
+
+        ObjectNode tracking = buildTracking(slug, trackingNumber, request);
+        if (trackings.putIfAbsent(key(slug, trackingNumber), tracking) != null) {
+            writeError(exchange, 400, 4003, "BadRequest", "Tracking already exists.");
+            return;
+        }
+        creationOrder.add(key(slug, trackingNumber));
+
+        ObjectNode data = JacksonUtil.getMapper().createObjectNode();
+        data.set("tracking", tracking);
+        writeData(exchange, 201, data);
+    }
+
+    private void getTracking(HttpExchange exchange, String slug, String trackingNumber) throws IOException {
+        ObjectNode tracking = trackings.get(key(slug, trackingNumber));
+        if (tracking == null) {
+            writeError(exchange, 404, 4004, "NotFound", "Tracking does not exist.");
+            return;
+        }
+        ObjectNode data = JacksonUtil.getMapper().createObjectNode();
+        data.set("tracking", tracking.deepCopy());
+        writeData(exchange, 200, data);
+    }
+
+    private void listTrackings(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        int page = Math.max(1, Integer.parseInt(query.getOrDefault("page", "1")));
+        int limit = Math.min(200, Math.max(1, Integer.parseInt(query.getOrDefault("limit", "100"))));
+        String tag = query.get("tag");
+
+        List<JsonNode> matches = new ArrayList<>();
+        for (String key : creationOrder) {
+            ObjectNode tracking = trackings.get(key);
+            if (tracking != null && (tag == null || tag.equals(tracking.path("tag").asText()))) {
+                matches.add(tracking);
+            }
+        }
+
+        ObjectNode data = JacksonUtil.getMapper().createObjectNode();
+        data.put("page", page);
+        data.put("limit", limit);
+        data.put("count", matches.size());
+        ArrayNode items = data.putArray("trackings");
+        matches.stream().skip((long) (page - 1) * limit).limit(limit).forEach(t -> items.add(t.deepCopy()));
+        writeData(exchange, 200, data);
+    }
+
+    private void getLastCheckpoint(HttpExchange exchange, String slug, String trackingNumber) throws IOException {
+        ObjectNode tracking = trackings.get(key(slug, trackingNumber));
+        if (tracking == null) {
+            writeError(exchange, 404, 4004, "NotFound", "Tracking does not exist.");
+            return;
+        }
+
+        ObjectNode data = JacksonUtil.getMapper().createObjectNode();
+        synchronized (tracking) {
+            data.put("id", tracking.get("id").asText());
+            data.put("tracking_number", trackingNumber);
+            data.put("slug", slug);
+            data.put("tag", tracking.get("tag").asText());
+            data.put("subtag", tracking.get("subtag").asText());
+            data.put("subtag_message", tracking.get("subtag_message").asText());
+            JsonNode checkpoints = tracking.get("checkpoints");
+            if (checkpoints.size() > 0) {
+                data.set("checkpoint", checkpoints.get(checkpoints.size() - 1).deepCopy());
+            } else {
+                data.putObject("checkpoint");
+            }
+        }
+        writeData(exchange, 200, data);
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Payload builders
+    // ---------------------------------------------------------------------------------------------------------------
+
+    private static ObjectNode buildTracking(String slug, String trackingNumber, JsonNode request) {
+        String now = now();
+        ObjectNode tracking = JacksonUtil.getMapper().createObjectNode();
+        tracking.put("id", UUID.randomUUID().toString().replace("-", "").substring(0, 24));
+        tracking.put("tracking_number", trackingNumber);
+        tracking.put("title", request.path("title").asText(trackingNumber));
+        tracking.putNull("note");
+        tracking.putNull("origin_country_iso3");
+        tracking.putNull("destination_country_iso3");
+        tracking.put("active", true);
+        tracking.putNull("order_id");
+        tracking.putNull("customer_name");
+        tracking.put("source", "api");
+        tracking.putArray("emails");
+        tracking.putArray("smses");
+        tracking.putArray("subscribed_smses");
+        tracking.putArray("subscribed_emails");
+        tracking.put("return_to_sender", false);
+        JsonNode customFields = request.get("custom_fields");
+        if (customFields != null && customFields.isObject()) {
+            tracking.set("custom_fields", customFields.deepCopy());
+        } else {
+            tracking.putObject("custom_fields");
+        }
+        tracking.put("tag", "Pending");
+        tracking.put("subtag", "Pending_001");
+        tracking.put("subtag_message", "Pending");
+        tracking.put("tracked_count", 0);
+        tracking.putNull("expected_delivery");
+        tracking.putNull("signed_by");
+        tracking.putNull("shipment_type");
+        tracking.put("created_at", now);
+        tracking.put("updated_at", now);
+        tracking.put("slug", slug);
+        tracking.put("unique_token", "deprecated");
+        tracking.put("path", "deprecated");
+        tracking.put("delivery_time", 0);
+        tracking.put("last_updated_at", now);
+        tracking.putArray("checkpoints");
+        tracking.put("courier_tracking_link", "https://tools.usps.com/go/TrackConfirmAction?tLabels=" + trackingNumber);
+        return tracking;
+    }
+
+    private static ObjectNode buildCheckpoint(String slug, String tag, String subtag, String subtagMessage, String time) {
+        ObjectNode checkpoint = JacksonUtil.getMapper().createObjectNode();
+        checkpoint.put("slug", slug);
+        checkpoint.put("city", "MEMPHIS");
+        checkpoint.put("created_at", time);
+        checkpoint.put("location", "MEMPHIS, TN 38118");
+        checkpoint.put("country_name", "USA");
+        checkpoint.put("message", subtagMessage);
+        checkpoint.put("country_iso3", "USA");
+        checkpoint.put("tag", tag);
+        checkpoint.put("subtag", subtag);
+        checkpoint.put("subtag_message", subtagMessage);
+        checkpoint.put("checkpoint_time", time);
+        checkpoint.putArray("coordinates");
+        checkpoint.put("state", "TN");
+        checkpoint.put("zip", "38118");
+        checkpoint.put("raw_tag", tag.toUpperCase());
+        return checkpoint;
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Helpers
+    // ---------------------------------------------------------------------------------------------------------------
+
+    private boolean acquireRateLimit(HttpExchange exchange) {
+        int limit = rateLimitPerSecond;
+        if (limit <= 0) {
+            return true;
+        }
+
+        long second = System.currentTimeMillis() / 1000;
+        long window = rateLimitWindow.get();
+        if (window != second && rateLimitWindow.compareAndSet(window, second)) {
+            rateLimitUsed.set(0);
+        }
+        int used = rateLimitUsed.incrementAndGet();
+
+        exchange.getResponseHeaders().add(HEADER_RATE_LIMIT, String.valueOf(limit));
+        exchange.getResponseHeaders().add(HEADER_RATE_LIMIT_REMAINING, String.valueOf(Math.max(0, limit - used)));
+        exchange.getResponseHeaders().add(HEADER_RATE_LIMIT_RESET, String.valueOf(second + 1));
+        return used <= limit;
+    }
+
+    private Integer nextFault() {
+        Iterator<ScriptedFault> iterator = scriptedFaults.iterator();
+        while (iterator.hasNext()) {
+            ScriptedFault fault = iterator.next();
+            if (fault.remaining.getAndDecrement() > 0) {
+                return fault.status;
+            }
+            scriptedFaults.remove(fault);
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            return errorStatus;
+        }
+        return null;
+    }
+
+    private void count(String operation) {
+        requestCounts.computeIfAbsent(operation, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static void writeData(HttpExchange exchange, int status, JsonNode data) throws IOException {
+        ObjectNode body = JacksonUtil.getMapper().createObjectNode();
+        body.putObject("meta").put("code", status);
+        body.set("data", data);
+        write(exchange, status, body);
+    }
+
+    private static void writeError(HttpExchange exchange, int status, int code, String type, String message) throws IOException {
+        ObjectNode body = JacksonUtil.getMapper().createObjectNode();
+        ObjectNode meta = body.putObject("meta");
+        meta.put("code", code);
+        meta.put("type", type);
+        meta.put("message", message);
+        body.putObject("data");
+        write(exchange, status, body);
+    }
+
+    private static void write(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = JacksonUtil.getMapper().writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int idx = pair.indexOf('=');
+            if (idx > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, idx), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(idx + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String key(String slug, String trackingNumber) {
+        return slug + "/" + trackingNumber;
+    }
+
+    private static String now() {
+        return OffsetDateTime.now(ZoneOffset.UTC).format(DATE_FORMAT);
+    }
+
+    private static final class ScriptedFault {
+        private final AtomicInteger remaining;
+        private final int status;
+
+        private ScriptedFault(int times, int status) {
+            this.remaining = new AtomicInteger(times);
+            this.status = status;
+        }
+    }
+}
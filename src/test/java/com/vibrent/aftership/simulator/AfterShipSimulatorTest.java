@@ -0,0 +1,162 @@
+package com.vibrent.aftership.simulator;
+
+import com.aftership.sdk.AfterShip;
+import com.aftership.sdk.model.AftershipOption;
+import com.aftership.sdk.model.tracking.NewTracking;
+import com.aftership.sdk.model.tracking.SlugTrackingNumber;
+import com.aftership.sdk.model.tracking.Tracking;
+import com.aftership.sdk.utils.JsonUtils;
+import com.vibrent.aftership.dto.NotificationDTO;
+import com.vibrent.aftership.exception.AfterShipNonRetriableException;
+import com.vibrent.aftership.exception.AfterShipRetriableException;
+import com.vibrent.aftership.service.AfterShipTrackingService;
+import com.vibrent.aftership.service.impl.AfterShipTrackingServiceImpl;
+import com.vibrent.aftership.util.SignatureUtil;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AfterShipSimulatorTest {
+
+    private static final String API_KEY = "simulator-key";
+    private static final String WEBHOOK_SECRET = "simulator-secret";
+
+    private static AfterShipSimulator simulator;
+
+    private AfterShip afterShip;
+    private AfterShipTrackingService afterShipTrackingService;
+
+    @BeforeAll
+    static void startSimulator() {
+        simulator = new AfterShipSimulator(API_KEY, WEBHOOK_SECRET).start();
+    }
+
+    @AfterAll
+    static void stopSimulator() {
+        simulator.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        simulator.reset();
+        AftershipOption option = new AftershipOption();
+        option.setEndpoint(simulator.getBaseUrl());
+        afterShip = new AfterShip(API_KEY, option);
+        afterShipTrackingService = new AfterShipTrackingServiceImpl(afterShip, "408,429,503,504");
+    }
+
+    @DisplayName("When a tracking is created through the SDK " +
+            "Then verify it can be fetched back with the custom fields and the default slug")
+    @SneakyThrows
+    @Test
+    void createAndGetTracking() {
+        String trackingNumber = newTrackingNumber();
+        Tracking created = afterShipTrackingService.createTracking(newTracking(trackingNumber));
+
+        assertNotNull(created);
+        assertEquals(trackingNumber, created.getTrackingNumber());
+        assertEquals(AfterShipSimulator.DEFAULT_SLUG, created.getSlug());
+        assertEquals("Pending", created.getTag());
+
+        Tracking fetched = afterShip.getTrackingEndpoint().getTracking(new SlugTrackingNumber(AfterShipSimulator.DEFAULT_SLUG, trackingNumber), null);
+        assertEquals(trackingNumber, fetched.getTrackingNumber());
+        assertEquals("123", fetched.getCustomFields().get("vibrentId"));
+        assertEquals(1, simulator.getRequestCount("create"));
+        assertEquals(1, simulator.getRequestCount("get"));
+    }
+
+    @DisplayName("When the same tracking is created twice " +
+            "Then verify the second call fails with a non retriable exception")
+    @Test
+    void duplicateTrackingIsRejected() {
+        String trackingNumber = newTrackingNumber();
+        afterShipTrackingService.createTracking(newTracking(trackingNumber));
+
+        assertThrows(AfterShipNonRetriableException.class, () -> afterShipTrackingService.createTracking(newTracking(trackingNumber)));
+    }
+
+    @DisplayName("When the rate limit is exceeded " +
+            "Then verify the call fails with a retriable 429")
+    @Test
+    void rateLimitExceededReturns429() {
+        simulator.withRateLimit(1);
+        afterShipTrackingService.createTracking(newTracking(newTrackingNumber()));
+
+        AfterShipRetriableException exception = assertThrows(AfterShipRetriableException.class,
+                () -> afterShipTrackingService.createTracking(newTracking(newTrackingNumber())));
+        assertEquals(429, exception.getErrorCode());
+    }
+
+    @DisplayName("When a failure is injected " +
+            "Then verify only the scripted number of calls fail")
+    @Test
+    void injectedFailures() {
+        simulator.failNext(1, 503);
+
+        AfterShipRetriableException exception = assertThrows(AfterShipRetriableException.class,
+                () -> afterShipTrackingService.createTracking(newTracking(newTrackingNumber())));
+        assertEquals(503, exception.getErrorCode());
+        assertNotNull(afterShipTrackingService.createTracking(newTracking(newTrackingNumber())));
+    }
+
+    @DisplayName("When latency is configured " +
+            "Then verify calls take at least that long")
+    @Test
+    void latencyIsApplied() {
+        simulator.withLatency(LatencyDistribution.fixed(200));
+
+        long start = System.currentTimeMillis();
+        afterShipTrackingService.createTracking(newTracking(newTrackingNumber()));
+        assertTrue(System.currentTimeMillis() - start >= 200);
+    }
+
+    @DisplayName("When a tracking is advanced " +
+            "Then verify a correctly signed webhook is delivered and can be parsed as a notification")
+    @SneakyThrows
+    @Test
+    void advanceSendsSignedWebhook() {
+        List<String> bodies = new ArrayList<>();
+        simulator.withWebhookSink((body, signature) -> {
+            assertTrue(SignatureUtil.isSignatureValid(signature, body, WEBHOOK_SECRET));
+            bodies.add(body);
+            return 200;
+        });
+        String trackingNumber = newTrackingNumber();
+        afterShipTrackingService.createTracking(newTracking(trackingNumber));
+
+        int status = simulator.advance(AfterShipSimulator.DEFAULT_SLUG, trackingNumber, "Delivered", "Delivered_001", "Delivered");
+
+        assertEquals(200, status);
+        assertEquals(1, bodies.size());
+        NotificationDTO notification = JsonUtils.getGson().fromJson(bodies.get(0), NotificationDTO.class);
+        assertEquals(trackingNumber, notification.getMsg().getTrackingNumber());
+        assertEquals("Delivered", notification.getMsg().getTag());
+        assertEquals("Delivered_001", notification.getMsg().getSubtag());
+        assertEquals(1, notification.getMsg().getCheckpoints().size());
+    }
+
+    private static String newTrackingNumber() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 20);
+    }
+
+    private static NewTracking newTracking(String trackingNumber) {
+        Map<String, String> customFields = new HashMap<>();
+        customFields.put("vibrentId", "123");
+        customFields.put("externalId", "P123");
+        NewTracking newTracking = new NewTracking();
+        newTracking.setTrackingNumber(trackingNumber);
+        newTracking.setCustomFields(customFields);
+        return newTracking;
+    }
+}
@@ -0,0 +1,43 @@
+package com.vibrent.aftership.simulator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Response latency model used by the {@link AfterShipSimulator}. Every simulated API call sleeps for
+ * {@link #nextDelayMillis()} before the response is written.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    long nextDelayMillis();
+
+    static LatencyDistribution none() {
+        return () -> 0L;
+    }
+
+    static LatencyDistribution fixed(long millis) {
+        return () -> millis;
+    }
+
+    static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        return () -> ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+    }
+
+    /**
+     * Long-tailed latency, closest to what the real AfterShip API shows: most calls are near the median
+     * while a small fraction take several times longer.
+     *
+     * @param medianMillis median latency
+     * @param sigma        shape of the tail, 0.5 gives a p99 of roughly 3x the median
+     */
+    static LatencyDistribution logNormal(long medianMillis, double sigma) {
+        return () -> Math.round(medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    /**
+     * Uses {@code base} for most calls and {@code spike} for the given fraction of calls.
+     */
+    static LatencyDistribution withSpikes(LatencyDistribution base, LatencyDistribution spike, double spikeRate) {
+        return () -> ThreadLocalRandom.current().nextDouble() < spikeRate ? spike.nextDelayMillis() : base.nextDelayMillis();
+    }
+}
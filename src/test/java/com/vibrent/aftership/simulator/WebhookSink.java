@@ -0,0 +1,17 @@
+package com.vibrent.aftership.simulator;
+
+/**
+ * Receiver of webhook callbacks emitted by the {@link AfterShipSimulator}. Integration tests running with a mock
+ * servlet environment can plug in a MockMvc backed sink, otherwise {@link AfterShipSimulator#httpSink(String)} posts
+ * to a real URL.
+ */
+@FunctionalInterface
+public interface WebhookSink {
+
+    /**
+     * @param body      webhook JSON body
+     * @param signature Base64 HmacSHA256 of the body, as sent by AfterShip in the {@code aftership-hmac-sha256} header
+     * @return HTTP status returned by the receiver
+     */
+    int deliver(String body, String signature) throws Exception;
+}
@@ -0,0 +1,48 @@
+package com.vibrent.aftership.util;
+
+import com.aftership.sdk.model.checkpoint.Checkpoint;
+import com.aftership.sdk.model.tracking.Tracking;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FingerprintUtilTest {
+
+    @Test
+    void fingerprintIgnoresCheckpoints() {
+        Tracking tracking = tracking("InTransit", "InTransit_001");
+        long fingerprint = FingerprintUtil.fingerprint(tracking);
+
+        tracking.setCheckpoints(List.of(new Checkpoint()));
+
+        assertEquals(fingerprint, FingerprintUtil.fingerprint(tracking));
+    }
+
+    @Test
+    void fingerprintChangesWithMaterialFields() {
+        long fingerprint = FingerprintUtil.fingerprint(tracking("InTransit", "InTransit_001"));
+
+        assertNotEquals(fingerprint, FingerprintUtil.fingerprint(tracking("InTransit", "InTransit_002")));
+        assertNotEquals(fingerprint, FingerprintUtil.fingerprint(tracking("Delivered", "InTransit_001")));
+
+        Tracking expectedDeliveryChanged = tracking("InTransit", "InTransit_001");
+        expectedDeliveryChanged.setExpectedDelivery("2021-08-16");
+        assertNotEquals(fingerprint, FingerprintUtil.fingerprint(expectedDeliveryChanged));
+    }
+
+    @Test
+    void fingerprintTellsNullFromEmpty() {
+        assertNotEquals(FingerprintUtil.fingerprint(tracking("InTransit", null)), FingerprintUtil.fingerprint(tracking("InTransit", "")));
+    }
+
+    private static Tracking tracking(String tag, String subtag) {
+        Tracking tracking = new Tracking();
+        tracking.setTag(tag);
+        tracking.setSubtag(subtag);
+        tracking.setSlug("usps");
+        tracking.setExpectedDelivery("2021-08-15");
+        return tracking;
+    }
+}
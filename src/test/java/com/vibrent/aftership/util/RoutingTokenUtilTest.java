@@ -0,0 +1,77 @@
+package com.vibrent.aftership.util;
+
+import com.vibrent.aftership.dto.RoutingTokenDTO;
+import com.vibrent.vxp.workflow.ContextTypeEnum;
+import com.vibrent.vxp.workflow.IntegrationPatternEnum;
+import com.vibrent.vxp.workflow.MessageHeaderDto;
+import com.vibrent.vxp.workflow.ProviderEnum;
+import com.vibrent.vxp.workflow.WorkflowNameEnum;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutingTokenUtilTest {
+
+    @Test
+    void decodeReturnsTheEncodedRouting() {
+        MessageHeaderDto header = header();
+
+        String token = RoutingTokenUtil.encode(header, 42L, ProviderEnum.USPS.toValue());
+        RoutingTokenDTO routingToken = RoutingTokenUtil.decode(token).orElseThrow();
+
+        assertEquals(header.getVxpTenantID(), routingToken.getHeader().getVxpTenantID());
+        assertEquals(header.getVxpProgramID(), routingToken.getHeader().getVxpProgramID());
+        assertEquals(header.getVxpWorkflowInstanceID(), routingToken.getHeader().getVxpWorkflowInstanceID());
+        assertEquals(WorkflowNameEnum.SALIVARY_KIT_ORDER, routingToken.getHeader().getVxpWorkflowName());
+        assertEquals("2.1.3", routingToken.getHeader().getVxpHeaderVersion());
+        assertEquals("2.1.2", routingToken.getHeader().getVxpMessageSpecVersion());
+        assertEquals(IntegrationPatternEnum.WORKFLOW, routingToken.getHeader().getVxpPattern());
+        assertEquals(ContextTypeEnum.EVENT, routingToken.getHeader().getVxpTrigger());
+        assertEquals(42L, (long) routingToken.getFulfillmentOrderID());
+        assertEquals(ProviderEnum.USPS.toValue(), routingToken.getProvider());
+    }
+
+    @Test
+    void tokenIsCompactAndUrlSafe() {
+        String token = RoutingTokenUtil.encode(header(), 42L, ProviderEnum.USPS.toValue());
+
+        assertTrue(token.length() < 200, token);
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void missingFieldsStayMissing() {
+        RoutingTokenDTO routingToken = RoutingTokenUtil.decode(RoutingTokenUtil.encode(new MessageHeaderDto(), null, null)).orElseThrow();
+
+        assertNull(routingToken.getHeader().getVxpWorkflowInstanceID());
+        assertNull(routingToken.getHeader().getVxpWorkflowName());
+        assertNull(routingToken.getFulfillmentOrderID());
+        assertNull(routingToken.getProvider());
+    }
+
+    @Test
+    void unreadableTokensAreIgnored() {
+        assertTrue(RoutingTokenUtil.decode(null).isEmpty());
+        assertTrue(RoutingTokenUtil.decode("").isEmpty());
+        assertTrue(RoutingTokenUtil.decode("not a token").isEmpty());
+        assertTrue(RoutingTokenUtil.decode(Base64.getUrlEncoder().encodeToString(new byte[]{1, 1})).isEmpty());
+        assertTrue(RoutingTokenUtil.decode(Base64.getUrlEncoder().encodeToString(new byte[]{2})).isEmpty());
+        assertNull(RoutingTokenUtil.encode(null, 42L, ProviderEnum.USPS.toValue()));
+    }
+
+    private static MessageHeaderDto header() {
+        MessageHeaderDto header = new MessageHeaderDto();
+        header.setVxpTenantID(1L);
+        header.setVxpProgramID(2L);
+        header.setVxpWorkflowInstanceID(UUID.randomUUID().toString());
+        header.setVxpWorkflowName(WorkflowNameEnum.SALIVARY_KIT_ORDER);
+        header.setVxpHeaderVersion("2.1.3");
+        header.setVxpMessageSpecVersion("2.1.2");
+        header.setVxpPattern(IntegrationPatternEnum.WORKFLOW);
+        header.setVxpTrigger(ContextTypeEnum.EVENT);
+        return header;
+    }
+}